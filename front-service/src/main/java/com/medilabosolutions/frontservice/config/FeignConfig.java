@@ -1,23 +1,74 @@
 package com.medilabosolutions.frontservice.config;
 
-import feign.auth.BasicAuthRequestInterceptor;
+import com.medilabosolutions.frontservice.security.ServiceSignature;
+import feign.RequestInterceptor;
+import feign.RequestTemplate;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpHeaders;
+
+import java.net.URI;
 
 /**
  * Feign configuration class.
  * <p>
- * This configuration adds a Basic Authentication interceptor
- * to all Feign client requests.
+ * This configuration signs all Feign client requests as coming
+ * from the front (see {@link ServiceSignature}), and measures them
+ * on the shared HTTP/2 transport.
  */
 public class FeignConfig {
 
+    private static final String CBOR_PREFERRED = "application/cbor, application/json;q=0.9, */*;q=0.8";
+
     /**
-     * Configures a Basic Authentication interceptor for Feign clients.
+     * Configures the signature of the Feign client requests, verified by the services behind
+     * the gateway with one HMAC instead of a BCrypt check of Basic credentials.
      *
-     * @return a {@link BasicAuthRequestInterceptor} configured with credentials
+     * @param serviceSignature signs the requests as coming from the front
+     * @return a {@link RequestInterceptor} setting the signature headers
      */
     @Bean
-    public BasicAuthRequestInterceptor basicAuthRequestInterceptor() {
-        return new BasicAuthRequestInterceptor("user", "1234");
+    public RequestInterceptor serviceSignatureRequestInterceptor(ServiceSignature serviceSignature) {
+        return template -> serviceSignature.sign(template.method(), signedTarget(template),
+                (name, value) -> template.removeHeader(name).header(name, value));   // replaced on retries
+    }
+
+    private static String signedTarget(RequestTemplate template) {
+        String query = template.queryLine();
+        return ServiceSignature.routedTarget(URI.create(template.path()).getRawPath(),
+                query.isEmpty() ? null : query.substring(1));   // the query line starts with '?'
+    }
+
+    /**
+     * Asks for CBOR responses rather than JSON when {@code internal.wire-format} is {@code cbor}
+     * (see {@link WireFormatConfig}), JSON remaining acceptable from a service that does not
+     * produce CBOR yet. Request bodies are still sent as JSON.
+     *
+     * @param wireFormat the preferred format of the responses, {@code cbor} or {@code json}
+     * @return a {@link RequestInterceptor} setting the {@code Accept} header
+     */
+    @Bean
+    public RequestInterceptor wireFormatRequestInterceptor(@Value("${internal.wire-format:cbor}") String wireFormat) {
+        return template -> {
+            if ("cbor".equals(wireFormat) && !template.headers().containsKey(HttpHeaders.ACCEPT)) {
+                template.header(HttpHeaders.ACCEPT, CBOR_PREFERRED);
+            }
+        };
+    }
+
+    /**
+     * Measures the calls of each Feign client on the shared HTTP/2 transport.
+     *
+     * @param meterRegistry the registry of the transport metrics
+     * @param clientName    the name of the Feign client
+     * @return a {@link TransportMetricsCapability} for the client
+     */
+    @Bean
+    public TransportMetricsCapability transportMetricsCapability(
+            MeterRegistry meterRegistry,
+            @Value("${spring.cloud.openfeign.client.name}") String clientName) {
+
+        return new TransportMetricsCapability(clientName, meterRegistry);
     }
 }
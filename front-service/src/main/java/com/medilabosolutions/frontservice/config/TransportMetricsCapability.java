@@ -0,0 +1,65 @@
+package com.medilabosolutions.frontservice.config;
+
+import feign.Capability;
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Feign capability measuring the calls of a client on the shared HTTP transport.
+ * <p>
+ * The JDK HttpClient keeps its connection pool internal, so the pool is observed from its use:
+ * {@code feign.transport.requests}, a timer tagged with {@code client} and the negotiated
+ * {@code protocol} (HTTP/1.1, or HTTP/2 when the server accepts it, all calls to a host then
+ * sharing one connection), and {@code feign.transport.inflight}, the calls currently holding
+ * a connection or an HTTP/2 stream. Public, as Feign looks its {@code enrich} methods up by
+ * reflection.
+ * <p>
+ * Same class in risk-service, the services sharing no module: change both.
+ */
+public final class TransportMetricsCapability implements Capability {
+
+    private final String clientName;
+    private final MeterRegistry meterRegistry;
+    private final AtomicInteger inFlight;
+
+    public TransportMetricsCapability(String clientName, MeterRegistry meterRegistry) {
+        this.clientName = clientName;
+        this.meterRegistry = meterRegistry;
+        this.inFlight = meterRegistry.gauge("feign.transport.inflight",
+                Tags.of("client", clientName), new AtomicInteger());
+    }
+
+    @Override
+    public Client enrich(Client client) {
+        return (request, options) -> execute(client, request, options);
+    }
+
+    private Response execute(Client client, Request request, Request.Options options) throws IOException {
+        long started = System.nanoTime();
+        String protocol = "none";
+        inFlight.incrementAndGet();
+        try {
+            Response response = client.execute(request, options);
+            if (response.protocolVersion() != null) {
+                protocol = response.protocolVersion().toString();
+            }
+            return response;
+        } finally {
+            inFlight.decrementAndGet();
+            Timer.builder("feign.transport.requests")
+                    .description("Calls of a Feign client, by negotiated HTTP protocol; none when no response was received")
+                    .tag("client", clientName)
+                    .tag("protocol", protocol)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+}
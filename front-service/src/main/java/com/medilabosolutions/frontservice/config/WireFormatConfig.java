@@ -0,0 +1,45 @@
+package com.medilabosolutions.frontservice.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Compact binary wire format of the responses of the internal services.
+ * <p>
+ * The Feign clients ask for CBOR ({@code application/cbor}) rather than JSON (see
+ * {@link FeignConfig}); this converter decodes it. The CBOR mapper shares the Jackson
+ * configuration of the JSON one, except that dates are written as numbers rather than
+ * ISO strings.
+ */
+@Configuration
+public class WireFormatConfig {
+
+    /**
+     * Provides the CBOR message converter, used instead of the default one.
+     *
+     * @param builder the Jackson builder configured by Spring Boot
+     * @return the CBOR message converter
+     */
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(cborObjectMapper(builder));
+    }
+
+    /**
+     * Builds the CBOR mapper.
+     *
+     * @param builder the Jackson builder configured by Spring Boot
+     * @return the CBOR mapper
+     */
+    public static ObjectMapper cborObjectMapper(Jackson2ObjectMapperBuilder builder) {
+        return builder
+                .factory(new CBORFactory())
+                .featuresToEnable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+    }
+}
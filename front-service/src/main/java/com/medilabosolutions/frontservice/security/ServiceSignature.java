@@ -0,0 +1,117 @@
+package com.medilabosolutions.frontservice.security;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.util.Base64;
+import java.util.function.BiConsumer;
+
+/**
+ * Signs the calls of the front to the services behind the gateway, which forwards the headers
+ * unchanged, so that the services authenticate them with one HMAC instead of a BCrypt check of
+ * Basic credentials.
+ * <p>
+ * A signed call carries the name of this service, a timestamp, a random nonce and
+ * {@code HMAC-SHA256(name, method, target, timestamp, nonce)} keyed with
+ * {@code internal.auth.secret}, the same on every service, the target being the path and query
+ * of the call as received by the service, after the gateway route strips its
+ * {@code /<service-id>} prefix; the services reject out-of-date and replayed signatures.
+ * <p>
+ * Copied in gateway-service, patient-service, note-service and risk-service, the services
+ * sharing no module: change every copy. Each one is checked against the same reference
+ * signature in its {@code ServiceSignatureTest}.
+ */
+@Component
+public class ServiceSignature {
+
+    public static final String SERVICE_HEADER = "X-Service-Name";
+    public static final String TIMESTAMP_HEADER = "X-Service-Timestamp";
+    public static final String NONCE_HEADER = "X-Service-Nonce";
+    public static final String SIGNATURE_HEADER = "X-Service-Signature";
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int MIN_SECRET_BYTES = 32;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private final SecretKeySpec key;
+    private final String serviceName;
+    private final Clock clock;
+    private final ThreadLocal<Mac> macs;   // Mac instances are not thread-safe
+    private final SecureRandom random = new SecureRandom();
+
+    @Autowired
+    public ServiceSignature(
+            @Value("${internal.auth.secret}") String secret,
+            @Value("${spring.application.name}") String serviceName) {
+
+        this(secret, serviceName, Clock.systemUTC());
+    }
+
+    public ServiceSignature(String secret, String serviceName, Clock clock) {
+        byte[] secretBytes = secret.getBytes(StandardCharsets.UTF_8);
+        if (secretBytes.length < MIN_SECRET_BYTES) {
+            throw new IllegalArgumentException("internal.auth.secret must be at least " + MIN_SECRET_BYTES + " bytes");
+        }
+        this.key = new SecretKeySpec(secretBytes, ALGORITHM);
+        this.serviceName = serviceName;
+        this.clock = clock;
+        this.macs = ThreadLocal.withInitial(this::newMac);
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 unavailable", e);
+        }
+    }
+
+    /**
+     * Signs an outgoing call.
+     *
+     * @param method the HTTP method of the call
+     * @param target the path and query of the call, as received by the service (see
+     *               {@link #routedTarget(String, String)})
+     * @param header sets a header of the call
+     */
+    public void sign(String method, String target, BiConsumer<String, String> header) {
+        String timestamp = String.valueOf(clock.instant().getEpochSecond());
+        byte[] nonceBytes = new byte[16];
+        random.nextBytes(nonceBytes);
+        String nonce = ENCODER.encodeToString(nonceBytes);
+        byte[] signature = macs.get().doFinal(
+                (serviceName + "\n" + method + "\n" + target + "\n" + timestamp + "\n" + nonce)
+                        .getBytes(StandardCharsets.UTF_8));
+
+        header.accept(SERVICE_HEADER, serviceName);
+        header.accept(TIMESTAMP_HEADER, timestamp);
+        header.accept(NONCE_HEADER, nonce);
+        header.accept(SIGNATURE_HEADER, ENCODER.encodeToString(signature));
+    }
+
+    /**
+     * The signed target of a call routed by the gateway to a service: its raw path without the
+     * {@code /<service-id>} prefix, which the gateway route strips, and its raw query if any.
+     *
+     * @param path  the raw path of the call, starting with {@code /<service-id>}
+     * @param query the raw query of the call, null or empty if none
+     * @return the target to sign or verify
+     */
+    public static String routedTarget(String path, String query) {
+        int end = path.indexOf('/', path.startsWith("/") ? 1 : 0);
+        return target(end < 0 ? "/" : path.substring(end), query);
+    }
+
+    private static String target(String path, String query) {
+        return query == null || query.isEmpty() ? path : path + "?" + query;
+    }
+}
@@ -0,0 +1,52 @@
+package com.medilabosolutions.frontservice.unitaire;
+
+import com.medilabosolutions.frontservice.security.ServiceSignature;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ServiceSignatureTest {
+
+    private static final String SECRET = "0123456789abcdef0123456789abcdef";
+    private static final Instant NOW = Instant.parse("2025-01-01T10:00:00Z");
+
+    // The signature as the services compute it, from the headers of a call
+    private static String reference(Map<String, String> headers, String method, String target) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        String signed = headers.get(ServiceSignature.SERVICE_HEADER) + "\n" + method + "\n" + target + "\n"
+                + headers.get(ServiceSignature.TIMESTAMP_HEADER) + "\n" + headers.get(ServiceSignature.NONCE_HEADER);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(mac.doFinal(signed.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void testSign_ReferenceSignature() throws Exception {
+        // Given: the reference signature, checked by the same test in every service
+        Map<String, String> referenceHeaders = Map.of(
+                ServiceSignature.SERVICE_HEADER, "front-service",
+                ServiceSignature.TIMESTAMP_HEADER, "1735725600",
+                ServiceSignature.NONCE_HEADER, "bm9uY2Utbm9uY2Utbm9uY2U");
+        assertEquals("6-Cpor_6wb1U0sU46XRmQYh07HQOYuYEzkSdoalXxsc",
+                reference(referenceHeaders, "GET", "/api/patients/1?page=0"));
+
+        // When: the front signs a call
+        Map<String, String> headers = new HashMap<>();
+        new ServiceSignature(SECRET, "front-service", Clock.fixed(NOW, ZoneOffset.UTC))
+                .sign("GET", "/api/patients/1?page=0", headers::put);
+
+        // Then: its signature is computed like the reference one
+        assertEquals("front-service", headers.get(ServiceSignature.SERVICE_HEADER));
+        assertEquals("1735725600", headers.get(ServiceSignature.TIMESTAMP_HEADER));
+        assertEquals(reference(headers, "GET", "/api/patients/1?page=0"), headers.get(ServiceSignature.SIGNATURE_HEADER));
+    }
+}
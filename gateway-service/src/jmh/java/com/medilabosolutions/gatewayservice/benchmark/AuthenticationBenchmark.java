@@ -0,0 +1,70 @@
+package com.medilabosolutions.gatewayservice.benchmark;
+
+import com.medilabosolutions.gatewayservice.security.CachingBasicAuthenticationManager;
+import com.medilabosolutions.gatewayservice.security.TokenService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UserDetailsRepositoryReactiveAuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.MapReactiveUserDetailsService;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of authenticating one {@code /api/**} request at the gateway.
+ * <ul>
+ *     <li>{@code basicBCrypt}: HTTP Basic with a BCrypt check per request, as before;</li>
+ *     <li>{@code basicCached}: HTTP Basic with the check cached by {@link CachingBasicAuthenticationManager};</li>
+ *     <li>{@code bearerToken}: an access token verified by {@link TokenService}.</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthenticationBenchmark {
+
+    private ReactiveAuthenticationManager bcrypt;
+    private ReactiveAuthenticationManager cached;
+    private TokenService tokenService;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder();   // same strength as the gateway
+        UserDetailsRepositoryReactiveAuthenticationManager manager = new UserDetailsRepositoryReactiveAuthenticationManager(
+                new MapReactiveUserDetailsService(User.withUsername("user").password(encoder.encode("1234")).roles("USER").build()));
+        manager.setPasswordEncoder(encoder);
+        bcrypt = manager;
+
+        tokenService = new TokenService("0123456789abcdef0123456789abcdef", Duration.ofMinutes(15));
+        cached = new CachingBasicAuthenticationManager(manager, tokenService, Duration.ofMinutes(5), 10_000);
+        cached.authenticate(basic()).block();
+        token = tokenService.issue("user", cached.authenticate(basic()).block().getAuthorities());
+    }
+
+    private static Authentication basic() {
+        return UsernamePasswordAuthenticationToken.unauthenticated("user", "1234");
+    }
+
+    @Benchmark
+    public Authentication basicBCrypt() {
+        return bcrypt.authenticate(basic()).block();
+    }
+
+    @Benchmark
+    public Authentication basicCached() {
+        return cached.authenticate(basic()).block();
+    }
+
+    @Benchmark
+    public Authentication bearerToken() {
+        return tokenService.verify(token).orElseThrow();
+    }
+}
@@ -0,0 +1,416 @@
+package com.medilabosolutions.gatewayservice.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.medilabosolutions.gatewayservice.security.GatewayPrincipalResolver;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the responses of the idempotent GET requests routed to the services, e.g. the patients
+ * and their notes, which rarely change between two page views.
+ * <p>
+ * Only the paths of {@code gateway.cache.paths} are cached, per principal, path, query and
+ * {@code Accept} header, and only for callers the gateway can authenticate itself, as a cached
+ * response is served without asking the service (see {@link GatewayPrincipalResolver}). Other
+ * requests go through unchanged.
+ * <p>
+ * The {@code Cache-Control} of the responses is honored: {@code no-store} responses are not
+ * cached, {@code max-age} replaces the default freshness of {@code gateway.cache.ttl}, and
+ * {@code no-cache} responses are revalidated on every request. Stale responses carrying an
+ * {@code ETag} of the service are revalidated with {@code If-None-Match}; the others are fetched
+ * again. Every cached response gets an {@code ETag}, so that a caller sending it back in
+ * {@code If-None-Match} gets a 304 without body.
+ * <p>
+ * A POST, PUT, PATCH or DELETE routed to a service invalidates every cached response of that
+ * service, before and after it is forwarded. Changes made without going through the gateway are
+ * seen once the cached responses are stale.
+ * <p>
+ * Requests are counted in {@code gateway.cache.requests} by result, with the hit ratio in
+ * {@code gateway.cache.hit.ratio}, the bytes not transferred in {@code gateway.cache.bytes.saved}
+ * and the size of the cache in {@code gateway.cache.size}.
+ */
+@Component
+public class ResponseCacheFilter implements GlobalFilter, Ordered {
+
+    private static final List<String> STORED_HEADERS = List.of(HttpHeaders.CONTENT_TYPE, HttpHeaders.CONTENT_LANGUAGE,
+            HttpHeaders.CONTENT_ENCODING, HttpHeaders.CACHE_CONTROL, HttpHeaders.ETAG, HttpHeaders.LAST_MODIFIED, HttpHeaders.VARY);
+    private static final List<HttpMethod> WRITE_METHODS = List.of(HttpMethod.POST, HttpMethod.PUT, HttpMethod.PATCH, HttpMethod.DELETE);
+    private static final int ENTRY_OVERHEAD = 256;   // key, headers and bookkeeping, roughly
+
+    private final boolean enabled;
+    private final Duration ttl;
+    private final long maxEntrySize;
+    private final List<PathPattern> paths;
+    private final GatewayPrincipalResolver principalResolver;
+    private final Ticker ticker;
+    private final Cache<CacheKey, CachedResponse> cache;
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter revalidations;
+    private final Counter misses;
+    private final Counter bypasses;
+    private final Counter upstreamBytesSaved;
+    private final Counter downstreamBytesSaved;
+
+    @Autowired
+    public ResponseCacheFilter(
+            GatewayPrincipalResolver principalResolver,
+            MeterRegistry meterRegistry,
+            @Value("${gateway.cache.enabled:true}") boolean enabled,
+            @Value("${gateway.cache.ttl:30s}") Duration ttl,
+            @Value("${gateway.cache.max-size:32MB}") DataSize maxSize,
+            @Value("${gateway.cache.max-entry-size:1MB}") DataSize maxEntrySize,
+            @Value("${gateway.cache.paths:/patient-service/api/patients/**,/note-service/api/notes/patient/**}") List<String> paths) {
+
+        this(principalResolver, meterRegistry, enabled, ttl, maxSize, maxEntrySize, paths, Ticker.systemTicker());
+    }
+
+    public ResponseCacheFilter(GatewayPrincipalResolver principalResolver,
+                               MeterRegistry meterRegistry, boolean enabled, Duration ttl, DataSize maxSize,
+                               DataSize maxEntrySize, List<String> paths, Ticker ticker) {
+        this.enabled = enabled;
+        this.ttl = ttl;
+        this.maxEntrySize = maxEntrySize.toBytes();
+        this.paths = paths.stream().map(PathPatternParser.defaultInstance::parse).toList();
+        this.principalResolver = principalResolver;
+        this.ticker = ticker;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .<CacheKey, CachedResponse>weigher((key, response) -> response.body().length + ENTRY_OVERHEAD)
+                .expireAfter(new Expiry<CacheKey, CachedResponse>() {
+                    @Override
+                    public long expireAfterCreate(CacheKey key, CachedResponse response, long currentTime) {
+                        return response.retainUntil() - currentTime;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(CacheKey key, CachedResponse response, long currentTime, long currentDuration) {
+                        return response.retainUntil() - currentTime;
+                    }
+
+                    @Override
+                    public long expireAfterRead(CacheKey key, CachedResponse response, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .ticker(ticker)
+                .build();
+
+        this.hits = requests(meterRegistry, "hit");
+        this.revalidations = requests(meterRegistry, "revalidated");
+        this.misses = requests(meterRegistry, "miss");
+        this.bypasses = requests(meterRegistry, "bypass");
+        this.upstreamBytesSaved = bytesSaved(meterRegistry, "upstream");
+        this.downstreamBytesSaved = bytesSaved(meterRegistry, "downstream");
+        Gauge.builder("gateway.cache.hit.ratio", this, ResponseCacheFilter::hitRatio)
+                .description("Cacheable requests answered without fetching the response again")
+                .register(meterRegistry);
+        Gauge.builder("gateway.cache.size", cache, c -> c.policy().eviction().orElseThrow().weightedSize().orElse(0L))
+                .description("Size of the cached responses")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    private static Counter requests(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("gateway.cache.requests")
+                .description("GET requests on cacheable paths, by cache result")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static Counter bytesSaved(MeterRegistry meterRegistry, String transfer) {
+        return Counter.builder("gateway.cache.bytes.saved")
+                .description("Response bytes not transferred thanks to the cache: from the services (upstream) "
+                        + "or to the callers, by 304 responses (downstream)")
+                .tag("transfer", transfer)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    private double hitRatio() {
+        double answered = hits.count() + revalidations.count();
+        double total = answered + misses.count();
+        return total == 0 ? 0 : answered / total;
+    }
+
+    @Override
+    public int getOrder() {
+        return NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 2;   // must see the body before it is written
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (!enabled) {
+            return chain.filter(exchange);
+        }
+        ServerHttpRequest request = exchange.getRequest();
+        String path = request.getPath().pathWithinApplication().value();
+
+        if (WRITE_METHODS.contains(request.getMethod())) {
+            String service = service(path);
+            invalidate(service);
+            return chain.filter(exchange).doFinally(signal -> invalidate(service));
+        }
+        if (request.getMethod() != HttpMethod.GET
+                || paths.stream().noneMatch(pattern -> pattern.matches(request.getPath().pathWithinApplication()))) {
+            return chain.filter(exchange);
+        }
+
+        return principalResolver.resolve(exchange)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(principal -> {
+                    if (principal.isEmpty()) {
+                        bypasses.increment();
+                        return chain.filter(exchange);
+                    }
+                    return cachedGet(exchange, chain, new CacheKey(principal.get(), service(path),
+                            path + "?" + Objects.toString(request.getURI().getRawQuery(), ""),
+                            String.valueOf(request.getHeaders().getFirst(HttpHeaders.ACCEPT))));
+                });
+    }
+
+    private Mono<Void> cachedGet(ServerWebExchange exchange, GatewayFilterChain chain, CacheKey key) {
+        long generation = generation(key.service()).get();
+        long now = ticker.read();
+        CachedResponse cached = cache.getIfPresent(key);
+        if (cached != null && cached.generation() != generation) {
+            cache.invalidate(key);
+            cached = null;
+        }
+        if (cached != null && now < cached.freshUntil() && !noCache(exchange.getRequest().getHeaders())) {
+            hits.increment();
+            upstreamBytesSaved.increment(cached.body().length);
+            return serve(exchange, exchange.getResponse(), cached, now);
+        }
+
+        ServerWebExchange forwarded = exchange;
+        if (cached != null && cached.upstreamEtag() != null) {
+            String etag = cached.upstreamEtag();
+            forwarded = exchange.mutate().request(builder -> builder.headers(headers -> headers.setIfNoneMatch(etag))).build();
+        }
+        CachedResponse stale = cached;
+        return chain.filter(forwarded.mutate()
+                .response(new CachingResponse(exchange, key, stale, generation))
+                .build());
+    }
+
+    // Writes a cached response, or a 304 if the caller already has it
+    private Mono<Void> serve(ServerWebExchange exchange, ServerHttpResponse response, CachedResponse cached, long now) {
+        HttpHeaders headers = response.getHeaders();
+        headers.clear();
+        headers.putAll(cached.headers());
+        headers.set(HttpHeaders.AGE, String.valueOf(TimeUnit.NANOSECONDS.toSeconds(now - cached.storedAt())));
+        if (exchange.getRequest().getHeaders().getIfNoneMatch().contains(cached.etag())) {
+            downstreamBytesSaved.increment(cached.body().length);
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            headers.remove(HttpHeaders.CONTENT_TYPE);
+            return response.setComplete();
+        }
+        response.setStatusCode(HttpStatus.OK);
+        headers.setContentLength(cached.body().length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(cached.body())));
+    }
+
+    private void invalidate(String service) {
+        generation(service).incrementAndGet();
+    }
+
+    private AtomicLong generation(String service) {
+        return generations.computeIfAbsent(service, s -> new AtomicLong());
+    }
+
+    // The first path segment, i.e. the service of the discovery routes
+    private static String service(String path) {
+        int end = path.indexOf('/', 1);
+        return end < 0 ? path : path.substring(0, end);
+    }
+
+    private static boolean noCache(HttpHeaders headers) {
+        String cacheControl = headers.getCacheControl();
+        return cacheControl != null && cacheControl.toLowerCase().contains("no-cache")
+                || "no-cache".equalsIgnoreCase(headers.getPragma());
+    }
+
+    private static String etag(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest).substring(0, 22) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        }
+    }
+
+    /**
+     * Captures the response of the service to cache it, or replaces a 304 of the service by the
+     * revalidated cached response.
+     */
+    private final class CachingResponse extends ServerHttpResponseDecorator {
+
+        private final ServerWebExchange exchange;
+        private final CacheKey key;
+        private final CachedResponse stale;
+        private final long generation;
+
+        CachingResponse(ServerWebExchange exchange, CacheKey key, CachedResponse stale, long generation) {
+            super(exchange.getResponse());
+            this.exchange = exchange;
+            this.key = key;
+            this.stale = stale;
+            this.generation = generation;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            HttpStatus status = HttpStatus.resolve(getStatusCode() == null ? 0 : getStatusCode().value());
+            if (status == HttpStatus.NOT_MODIFIED && stale != null) {
+                revalidations.increment();
+                upstreamBytesSaved.increment(stale.body().length);
+                long now = ticker.read();
+                CachedResponse renewed = stale.renewed(now, freshness(stale.headers().getCacheControl()), ttl);
+                store(renewed);
+                return Mono.from(body).doOnNext(DataBufferUtils::release).then(serve(exchange, getDelegate(), renewed, now));
+            }
+            misses.increment();
+            HttpHeaders headers = getHeaders();
+            String cacheControl = headers.getCacheControl();
+            Duration freshness = freshness(cacheControl);
+            long contentLength = headers.getContentLength();
+            if (status != HttpStatus.OK || freshness == null || freshness.isZero() && headers.getETag() == null
+                    || headers.containsKey(HttpHeaders.SET_COOKIE) || contentLength > maxEntrySize) {
+                return super.writeWith(body);
+            }
+
+            return DataBufferUtils.join(body).flatMap(joined -> {
+                byte[] bytes = new byte[joined.readableByteCount()];
+                joined.read(bytes);
+                DataBufferUtils.release(joined);
+
+                if (bytes.length <= maxEntrySize) {
+                    String upstreamEtag = headers.getETag();
+                    if (upstreamEtag == null) {
+                        headers.setETag(etag(bytes));
+                    }
+                    HttpHeaders stored = new HttpHeaders();
+                    STORED_HEADERS.forEach(name -> {
+                        if (headers.containsKey(name)) {
+                            stored.put(name, headers.get(name));
+                        }
+                    });
+                    store(new CachedResponse(bytes, stored, upstreamEtag, generation, ticker.read(), freshness, ttl));
+
+                    if (exchange.getRequest().getHeaders().getIfNoneMatch().contains(headers.getETag())) {
+                        downstreamBytesSaved.increment(bytes.length);
+                        setStatusCode(HttpStatus.NOT_MODIFIED);
+                        headers.remove(HttpHeaders.CONTENT_TYPE);
+                        headers.remove(HttpHeaders.CONTENT_LENGTH);
+                        return getDelegate().setComplete();
+                    }
+                }
+                return getDelegate().writeWith(Mono.just(bufferFactory().wrap(bytes)));
+            });
+        }
+
+        // Cached unless the service changed meanwhile
+        private void store(CachedResponse response) {
+            if (generation(key.service()).get() == generation) {
+                cache.put(key, response);
+            }
+        }
+
+        // How long a response is fresh, null if it must not be stored
+        private Duration freshness(String cacheControl) {
+            if (cacheControl == null) {
+                return ttl;
+            }
+            Duration freshness = ttl;
+            for (String directive : cacheControl.toLowerCase().split(",")) {
+                directive = directive.trim();
+                if (directive.equals("no-store")) {
+                    return null;
+                } else if (directive.equals("no-cache")) {
+                    freshness = Duration.ZERO;
+                } else if (directive.startsWith("max-age=") && !freshness.isZero()) {
+                    try {
+                        freshness = Duration.ofSeconds(Long.parseLong(directive.substring("max-age=".length())));
+                    } catch (NumberFormatException e) {
+                        return null;
+                    }
+                }
+            }
+            return freshness;
+        }
+    }
+
+    private record CacheKey(String principal, String service, String pathAndQuery, String accept) {
+    }
+
+    /**
+     * A cached response.
+     *
+     * @param body         the body
+     * @param headers      the headers worth replaying, with the {@code ETag} served to the callers
+     * @param upstreamEtag the {@code ETag} of the service, null if it sent none
+     * @param generation   the generation of the service when the response was fetched
+     * @param storedAt     when the response was stored, as a {@link Ticker} read
+     * @param freshUntil   until when it is served without asking the service
+     * @param retainUntil  until when it is kept, stale responses of the service being revalidated
+     *                     for another {@code gateway.cache.ttl}
+     */
+    private record CachedResponse(byte[] body, HttpHeaders headers, String upstreamEtag, long generation,
+                                  long storedAt, long freshUntil, long retainUntil) {
+
+        CachedResponse(byte[] body, HttpHeaders headers, String upstreamEtag, long generation, long storedAt,
+                       Duration freshness, Duration ttl) {
+            this(body, headers, upstreamEtag, generation, storedAt, storedAt + freshness.toNanos(),
+                    storedAt + freshness.toNanos() + (upstreamEtag != null ? ttl.toNanos() : 0) + 1);
+        }
+
+        CachedResponse renewed(long now, Duration freshness, Duration ttl) {
+            return new CachedResponse(body, headers, upstreamEtag, generation, now,
+                    freshness == null ? Duration.ZERO : freshness, ttl);
+        }
+
+        String etag() {
+            return headers.getETag();
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.medilabosolutions.gatewayservice.coalescing;
+
+import com.medilabosolutions.gatewayservice.security.GatewayPrincipalResolver;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Collapses identical GET requests routed to the services at the same time into a single call,
+ * whose response is sent to every waiting caller, e.g. when many users open the same patient.
+ * <p>
+ * Only the paths of {@code gateway.single-flight.paths} are coalesced: by default those of the
+ * response cache, and the risk of a patient, which is not cached but costly to compute.
+ * Requests are identical if they have the same principal, path, query, {@code Accept} and
+ * {@code If-None-Match} headers; only callers the gateway can authenticate itself are coalesced,
+ * as they get a response fetched with the credentials of another request (see
+ * {@link GatewayPrincipalResolver}). A caller waits for the first request at most
+ * {@code gateway.single-flight.timeout}, then sends its own, so that one slow response cannot hold
+ * every caller; so does it if the first request fails or its response sets a cookie, is streamed
+ * (e.g. NDJSON), has no {@code Content-Length} or is larger than
+ * {@code gateway.single-flight.max-body-size}: such a response is written as it comes, without
+ * being held in memory.
+ * <p>
+ * Requests are counted in {@code gateway.singleflight.requests} by role, with the requests
+ * being forwarded in {@code gateway.singleflight.inflight}.
+ */
+@Component
+public class SingleFlightFilter implements GlobalFilter, Ordered {
+
+    private final boolean enabled;
+    private final Duration timeout;
+    private final long maxBodySize;
+    private final List<PathPattern> paths;
+    private final GatewayPrincipalResolver principalResolver;
+    private final Map<FlightKey, Sinks.One<SharedResponse>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter leaders;
+    private final Counter coalesced;
+    private final Counter fallbacks;
+    private final Counter bypasses;
+
+    @Autowired
+    public SingleFlightFilter(
+            GatewayPrincipalResolver principalResolver,
+            MeterRegistry meterRegistry,
+            @Value("${gateway.single-flight.enabled:true}") boolean enabled,
+            @Value("${gateway.single-flight.timeout:2s}") Duration timeout,
+            @Value("${gateway.single-flight.max-body-size:1MB}") DataSize maxBodySize,
+            @Value("${gateway.single-flight.paths:/patient-service/api/patients/**,/note-service/api/notes/patient/**,"
+                    + "/risk-service/api/risk/patient/**}") List<String> paths) {
+
+        this.enabled = enabled;
+        this.timeout = timeout;
+        this.maxBodySize = maxBodySize.toBytes();
+        this.paths = paths.stream().map(PathPatternParser.defaultInstance::parse).toList();
+        this.principalResolver = principalResolver;
+
+        this.leaders = requests(meterRegistry, "leader");
+        this.coalesced = requests(meterRegistry, "coalesced");
+        this.fallbacks = requests(meterRegistry, "fallback");
+        this.bypasses = requests(meterRegistry, "bypass");
+        Gauge.builder("gateway.singleflight.inflight", inFlight, Map::size)
+                .description("Distinct GET requests being forwarded, with their callers waiting")
+                .register(meterRegistry);
+    }
+
+    private static Counter requests(MeterRegistry meterRegistry, String role) {
+        return Counter.builder("gateway.singleflight.requests")
+                .description("Routed GET requests on the coalesced paths, by role: forwarded (leader), answered by an "
+                        + "identical request (coalesced), forwarded after waiting too long or a failure of the identical "
+                        + "request (fallback), or not coalescible (bypass)")
+                .tag("role", role)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public int getOrder() {
+        // After the response cache, must see the body before it is written
+        return NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (!enabled || request.getMethod() != HttpMethod.GET
+                || paths.stream().noneMatch(pattern -> pattern.matches(request.getPath().pathWithinApplication()))) {
+            return chain.filter(exchange);
+        }
+        return principalResolver.resolve(exchange)
+                .map(principal -> key(principal, request))
+                .map(key -> {
+                    Sinks.One<SharedResponse> flight = Sinks.one();
+                    Sinks.One<SharedResponse> leader = inFlight.putIfAbsent(key, flight);
+                    return leader == null ? lead(exchange, chain, key, flight) : follow(exchange, chain, leader);
+                })
+                .defaultIfEmpty(Mono.defer(() -> {
+                    bypasses.increment();
+                    return chain.filter(exchange);
+                }))
+                .flatMap(call -> call);
+    }
+
+    private static FlightKey key(String principal, ServerHttpRequest request) {
+        HttpHeaders headers = request.getHeaders();
+        return new FlightKey(principal, request.getPath().pathWithinApplication().value(),
+                Objects.toString(request.getURI().getRawQuery(), ""),
+                headers.getFirst(HttpHeaders.ACCEPT), headers.getFirst(HttpHeaders.IF_NONE_MATCH));
+    }
+
+    // Forwards the request, then hands its response to the callers waiting for it
+    private Mono<Void> lead(ServerWebExchange exchange, GatewayFilterChain chain, FlightKey key,
+                            Sinks.One<SharedResponse> flight) {
+        leaders.increment();
+        return chain.filter(exchange.mutate().response(new SharingResponse(exchange.getResponse(), key, flight)).build())
+                .doFinally(signal -> {
+                    inFlight.remove(key, flight);
+                    flight.tryEmitError(new IllegalStateException("No response to share"));   // if not shared yet
+                });
+    }
+
+    // Waits for the response of the identical request, or sends its own
+    private Mono<Void> follow(ServerWebExchange exchange, GatewayFilterChain chain, Sinks.One<SharedResponse> leader) {
+        return leader.asMono()
+                .timeout(timeout)
+                .map(Optional::of)
+                .onErrorResume(e -> Mono.just(Optional.empty()))
+                .flatMap(shared -> {
+                    if (shared.isEmpty()) {
+                        fallbacks.increment();
+                        return chain.filter(exchange);
+                    }
+                    coalesced.increment();
+                    ServerHttpResponse response = exchange.getResponse();
+                    response.setStatusCode(shared.get().status());
+                    response.getHeaders().putAll(shared.get().headers());
+                    return response.writeWith(Mono.just(response.bufferFactory().wrap(shared.get().body())));
+                });
+    }
+
+    /**
+     * Captures the response of the forwarded request for the waiting callers.
+     */
+    private final class SharingResponse extends ServerHttpResponseDecorator {
+
+        private final FlightKey key;
+        private final Sinks.One<SharedResponse> flight;
+
+        SharingResponse(ServerHttpResponse delegate, FlightKey key, Sinks.One<SharedResponse> flight) {
+            super(delegate);
+            this.key = key;
+            this.flight = flight;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            long contentLength = getHeaders().getContentLength();
+            if (getHeaders().containsKey(HttpHeaders.SET_COOKIE) || contentLength < 0 || contentLength > maxBodySize
+                    || MediaType.APPLICATION_NDJSON.isCompatibleWith(getHeaders().getContentType())) {
+                unshared();
+                return super.writeWith(body);
+            }
+            return DataBufferUtils.join(body)
+                    .map(joined -> {
+                        byte[] bytes = new byte[joined.readableByteCount()];
+                        joined.read(bytes);
+                        DataBufferUtils.release(joined);
+                        return bytes;
+                    })
+                    .defaultIfEmpty(new byte[0])
+                    .flatMap(bytes -> {
+                        inFlight.remove(key, flight);   // later requests get a fresh response
+                        HttpHeaders headers = new HttpHeaders();
+                        headers.putAll(getHeaders());
+                        headers.remove(HttpHeaders.TRANSFER_ENCODING);
+                        flight.tryEmitValue(new SharedResponse(getStatusCode(), HttpHeaders.readOnlyHttpHeaders(headers), bytes));
+                        return getDelegate().writeWith(Mono.just(bufferFactory().wrap(bytes)));
+                    });
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            unshared();   // streamed
+            return super.writeAndFlushWith(body);
+        }
+
+        // Sends the waiting callers on their own, rather than holding them until the end of the response
+        private void unshared() {
+            inFlight.remove(key, flight);
+            flight.tryEmitError(new IllegalStateException("Response not shareable"));
+        }
+    }
+
+    private record FlightKey(String principal, String path, String query, String accept, String ifNoneMatch) {
+    }
+
+    private record SharedResponse(HttpStatusCode status, HttpHeaders headers, byte[] body) {
+    }
+}
@@ -0,0 +1,46 @@
+package com.medilabosolutions.gatewayservice.config;
+
+import com.medilabosolutions.gatewayservice.security.ServiceSignature;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactorLoadBalancerExchangeFilterFunction;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.WebClient;
+
+/**
+ * HTTP client configuration for the calls of the gateway itself to the services, resolved
+ * through Eureka, e.g. for the patient dashboard.
+ */
+@Configuration
+public class BackendClientConfig {
+
+    /**
+     * Provides a load-balanced client signing its calls to the services, and asking for JSON.
+     *
+     * @param builder          the WebClient builder of Spring Boot
+     * @param loadBalancer     resolves {@code http://<service-id>/...} to an instance of the service
+     * @param serviceSignature signs the calls as coming from the gateway
+     * @param maxResponseSize  the largest response body read in memory
+     * @return WebClient instance
+     */
+    @Bean
+    public WebClient backendWebClient(WebClient.Builder builder,
+                                      ReactorLoadBalancerExchangeFilterFunction loadBalancer,
+                                      ServiceSignature serviceSignature,
+                                      @Value("${gateway.dashboard.max-part-size:1MB}") DataSize maxResponseSize) {
+        return builder
+                .defaultHeader(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize((int) maxResponseSize.toBytes()))
+                .filter((request, next) -> next.exchange(ClientRequest.from(request)
+                        .headers(headers -> serviceSignature.sign(request.method().name(),
+                                ServiceSignature.target(request.url().getRawPath(), request.url().getRawQuery()),
+                                headers::set))
+                        .build()))
+                .filter(loadBalancer)
+                .build();
+    }
+}
@@ -1,9 +1,19 @@
 package com.medilabosolutions.gatewayservice.config;
 
+import com.medilabosolutions.gatewayservice.security.CachingBasicAuthenticationManager;
+import com.medilabosolutions.gatewayservice.security.SignedForwardingFilter;
+import com.medilabosolutions.gatewayservice.security.TokenService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.security.config.Customizer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UserDetailsRepositoryReactiveAuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
 import org.springframework.security.config.web.server.ServerHttpSecurity;
 import org.springframework.security.core.userdetails.MapReactiveUserDetailsService;
 import org.springframework.security.core.userdetails.User;
@@ -11,18 +21,31 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.authentication.AuthenticationWebFilter;
+import org.springframework.security.web.server.util.matcher.NegatedServerWebExchangeMatcher;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatchers;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
 
 /**
  * Security configuration for the Gateway service using Spring WebFlux.
  *
  * <p>Defines HTTP security rules for API endpoints and static resources.
- * Configures HTTP Basic authentication for APIs and sets up a reactive
+ * APIs accept a short-lived access token ({@code Authorization: Bearer}),
+ * issued by {@code POST /api/auth/token} against HTTP Basic credentials only,
+ * or HTTP Basic as a fallback whose BCrypt check is cached. Both are also
+ * verified on the routes of the services, which forward them as calls signed
+ * by the gateway (see {@link SignedForwardingFilter}). Sets up a reactive
  * in-memory user for authentication.</p>
  */
 @Configuration
 @EnableWebFluxSecurity
 public class SecurityConfigGateway {
 
+    private static final String BEARER = "Bearer ";
+    private static final String TOKEN_PATH = "/api/auth/token";
+
     /**
      * Configures the security filter chain for the Gateway.
      *
@@ -33,7 +56,9 @@ public class SecurityConfigGateway {
      * @return SecurityWebFilterChain configured for the Gateway
      */
     @Bean
-    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http) {
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http,
+                                                         TokenService tokenService,
+                                                         CachingBasicAuthenticationManager basicAuthenticationManager) {
         http
                 .csrf(csrf -> csrf.disable())
                 .authorizeExchange(auth -> auth
@@ -46,11 +71,62 @@ public class SecurityConfigGateway {
                         // Everything else allowed
                         .anyExchange().permitAll()
                 )
-                .httpBasic(Customizer.withDefaults()) // HTTP Basic auth for /api/** only
+                .addFilterAt(bearerTokenFilter(tokenService), SecurityWebFiltersOrder.AUTHENTICATION) // Access tokens first
+                .httpBasic(basic -> basic.authenticationManager(basicAuthenticationManager)) // HTTP Basic fallback for /api/** only
                 .formLogin(ServerHttpSecurity.FormLoginSpec::disable); // Disable form login
         return http.build();
     }
 
+    /**
+     * Authenticates the requests carrying an access token, verified by its HMAC signature.
+     * Requests without {@code Bearer} token are left to the next authentication filters.
+     * <p>
+     * Not applied to {@value #TOKEN_PATH}: a token is only issued against credentials, so that a
+     * stolen token cannot be renewed past its lifetime.
+     *
+     * @param tokenService the service verifying the tokens
+     * @return the bearer token authentication filter
+     */
+    private static AuthenticationWebFilter bearerTokenFilter(TokenService tokenService) {
+        ReactiveAuthenticationManager tokenAuthenticationManager = authentication -> Mono
+                .justOrEmpty(tokenService.verify((String) authentication.getCredentials()))
+                .switchIfEmpty(Mono.error(() -> new BadCredentialsException("Invalid or expired token")));
+        AuthenticationWebFilter filter = new AuthenticationWebFilter(tokenAuthenticationManager);
+        filter.setRequiresAuthenticationMatcher(new NegatedServerWebExchangeMatcher(
+                ServerWebExchangeMatchers.pathMatchers(HttpMethod.POST, TOKEN_PATH)));
+        filter.setServerAuthenticationConverter(exchange -> {
+            String authorization = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+            if (authorization == null || !authorization.regionMatches(true, 0, BEARER, 0, BEARER.length())) {
+                return Mono.empty();
+            }
+            return Mono.just(UsernamePasswordAuthenticationToken.unauthenticated(null,
+                    authorization.substring(BEARER.length()).trim()));
+        });
+        return filter;
+    }
+
+    /**
+     * HTTP Basic authentication manager, caching the BCrypt checks that succeeded.
+     *
+     * @param userDetailsService the users
+     * @param encoder            PasswordEncoder bean
+     * @param tokenService       the service deriving the cache keys
+     * @param ttl                how long verified credentials are trusted
+     * @return the {@link CachingBasicAuthenticationManager}
+     */
+    @Bean
+    public CachingBasicAuthenticationManager basicAuthenticationManager(
+            MapReactiveUserDetailsService userDetailsService,
+            PasswordEncoder encoder,
+            TokenService tokenService,
+            @Value("${gateway.auth.basic-cache-ttl:5m}") Duration ttl) {
+
+        UserDetailsRepositoryReactiveAuthenticationManager bcrypt =
+                new UserDetailsRepositoryReactiveAuthenticationManager(userDetailsService);
+        bcrypt.setPasswordEncoder(encoder);
+        return new CachingBasicAuthenticationManager(bcrypt, tokenService, ttl, 10_000);
+    }
+
     /**
      * Password encoder bean using BCrypt.
      *
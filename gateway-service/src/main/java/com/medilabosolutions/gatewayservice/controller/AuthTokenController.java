@@ -0,0 +1,35 @@
+package com.medilabosolutions.gatewayservice.controller;
+
+import com.medilabosolutions.gatewayservice.dto.TokenResponseDto;
+import com.medilabosolutions.gatewayservice.security.TokenService;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Login exchange of the gateway: trades credentials for a short-lived access token.
+ */
+@RestController
+public class AuthTokenController {
+
+    private final TokenService tokenService;
+
+    public AuthTokenController(TokenService tokenService) {
+        this.tokenService = tokenService;
+    }
+
+    /**
+     * Issues an access token to the caller authenticated with HTTP Basic credentials; an access
+     * token is not accepted here, so that it cannot be renewed past its lifetime.
+     *
+     * @param authentication the caller authenticated with HTTP Basic credentials
+     * @return the {@link TokenResponseDto}
+     */
+    @PostMapping("/api/auth/token")
+    public TokenResponseDto issueToken(Authentication authentication) {
+        return new TokenResponseDto(
+                tokenService.issue(authentication.getName(), authentication.getAuthorities()),
+                "Bearer",
+                tokenService.ttl().toSeconds());
+    }
+}
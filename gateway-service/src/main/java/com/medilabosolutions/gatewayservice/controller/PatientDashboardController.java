@@ -0,0 +1,40 @@
+package com.medilabosolutions.gatewayservice.controller;
+
+import com.medilabosolutions.gatewayservice.dto.PatientDashboardDto;
+import com.medilabosolutions.gatewayservice.service.PatientDashboardService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+/**
+ * Backend for the front: serves the data of a page gathered from several services in one call.
+ */
+@RestController
+public class PatientDashboardController {
+
+    private static final String SERVER_TIMING = "Server-Timing";
+
+    private final PatientDashboardService patientDashboardService;
+
+    public PatientDashboardController(PatientDashboardService patientDashboardService) {
+        this.patientDashboardService = patientDashboardService;
+    }
+
+    /**
+     * Retrieves a patient with their notes and risk assessment. A part whose service failed is
+     * left empty, the time taken by each part being given in the {@code Server-Timing} header.
+     *
+     * @param id the unique identifier of the patient
+     * @return the {@link PatientDashboardDto}, with status 404 if the patient does not exist,
+     * or 502 if no service answered
+     */
+    @GetMapping("/api/dashboard/patient/{id}")
+    public Mono<ResponseEntity<PatientDashboardDto>> getPatientDashboard(@PathVariable int id) {
+        return patientDashboardService.getPatientDashboard(id)
+                .map(dashboard -> ResponseEntity.status(dashboard.status())
+                        .header(SERVER_TIMING, dashboard.serverTiming())
+                        .body(dashboard.body()));
+    }
+}
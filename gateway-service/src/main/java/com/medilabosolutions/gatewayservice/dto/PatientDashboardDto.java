@@ -0,0 +1,17 @@
+package com.medilabosolutions.gatewayservice.dto;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.Map;
+
+/**
+ * Data shown on the page of a patient, gathered from the services in one call.
+ * A part whose service failed is null, with the reason in {@code errors}.
+ *
+ * @param patient the patient, as returned by patient-service
+ * @param notes   the notes of the patient, as returned by note-service
+ * @param risk    the risk assessment of the patient, as returned by risk-service
+ * @param errors  the reason of each missing part, by part name
+ */
+public record PatientDashboardDto(JsonNode patient, JsonNode notes, JsonNode risk, Map<String, String> errors) {
+}
@@ -0,0 +1,11 @@
+package com.medilabosolutions.gatewayservice.dto;
+
+/**
+ * Access token issued by the gateway.
+ *
+ * @param token     the token, sent back as {@code Authorization: Bearer <token>}
+ * @param tokenType always {@code Bearer}
+ * @param expiresIn the lifetime of the token, in seconds
+ */
+public record TokenResponseDto(String token, String tokenType, long expiresIn) {
+}
@@ -0,0 +1,53 @@
+package com.medilabosolutions.gatewayservice.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * HTTP Basic authentication that runs the BCrypt check of given credentials once, then
+ * trusts them for {@code gateway.auth.basic-cache-ttl}.
+ * <p>
+ * Verified credentials are cached under their keyed digest (see {@link TokenService#digest}),
+ * never in clear. Only successes are cached: wrong credentials keep paying the BCrypt cost.
+ */
+public class CachingBasicAuthenticationManager implements ReactiveAuthenticationManager {
+
+    private final ReactiveAuthenticationManager delegate;
+    private final TokenService tokenService;
+    private final Cache<String, Authentication> verified;
+
+    /**
+     * @param delegate     the manager running the BCrypt check
+     * @param tokenService the service deriving the cache keys
+     * @param ttl          how long verified credentials are trusted
+     * @param maximumSize  the maximum number of cached credentials
+     */
+    public CachingBasicAuthenticationManager(ReactiveAuthenticationManager delegate, TokenService tokenService,
+                                             Duration ttl, long maximumSize) {
+        this.delegate = delegate;
+        this.tokenService = tokenService;
+        this.verified = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    @Override
+    public Mono<Authentication> authenticate(Authentication authentication) {
+        String key = tokenService.digest(authentication.getName() + ":" + authentication.getCredentials());
+        Authentication cached = verified.getIfPresent(key);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        return delegate.authenticate(authentication)
+                .<Authentication>map(result -> UsernamePasswordAuthenticationToken.authenticated(
+                        result.getPrincipal(), null, result.getAuthorities()))
+                .doOnNext(result -> verified.put(key, result));
+    }
+}
@@ -0,0 +1,112 @@
+package com.medilabosolutions.gatewayservice.security;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Authenticates the caller of a routed request at the gateway, for the filters answering it
+ * without the service behind it, e.g. from the cache: services by their signature (see
+ * {@link ServiceSignature}), users by their access token (see {@link TokenService}) or their
+ * HTTP Basic credentials (see {@link CachingBasicAuthenticationManager}).
+ * <p>
+ * The result is kept in the exchange, the signature of a request being valid only once.
+ */
+@Component
+public class GatewayPrincipalResolver {
+
+    private static final String PRINCIPAL_ATTRIBUTE = GatewayPrincipalResolver.class.getName() + ".principal";
+    private static final String BASIC = "Basic ";
+    private static final String BEARER = "Bearer ";
+
+    private final ServiceSignature serviceSignature;
+    private final ReactiveAuthenticationManager basicAuthenticationManager;
+    private final Function<String, Optional<Authentication>> tokenVerifier;
+
+    @Autowired
+    public GatewayPrincipalResolver(ServiceSignature serviceSignature,
+                                    CachingBasicAuthenticationManager basicAuthenticationManager,
+                                    TokenService tokenService) {
+        this(serviceSignature, basicAuthenticationManager, tokenService::verify);
+    }
+
+    public GatewayPrincipalResolver(ServiceSignature serviceSignature,
+                                    ReactiveAuthenticationManager basicAuthenticationManager) {
+        this(serviceSignature, basicAuthenticationManager, token -> Optional.empty());
+    }
+
+    /**
+     * @param serviceSignature           verifies the calls signed by the services
+     * @param basicAuthenticationManager checks the HTTP Basic credentials
+     * @param tokenVerifier              verifies the access tokens
+     */
+    public GatewayPrincipalResolver(ServiceSignature serviceSignature,
+                                    ReactiveAuthenticationManager basicAuthenticationManager,
+                                    Function<String, Optional<Authentication>> tokenVerifier) {
+        this.serviceSignature = serviceSignature;
+        this.basicAuthenticationManager = basicAuthenticationManager;
+        this.tokenVerifier = tokenVerifier;
+    }
+
+    /**
+     * @param exchange the routed request
+     * @return the caller, {@code service:<name>} or {@code user:<name>}, or empty if the gateway
+     * cannot authenticate it
+     */
+    public Mono<String> resolve(ServerWebExchange exchange) {
+        Optional<String> resolved = exchange.getAttribute(PRINCIPAL_ATTRIBUTE);
+        if (resolved != null) {
+            return Mono.justOrEmpty(resolved);
+        }
+        return authenticate(exchange.getRequest())
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .doOnNext(principal -> exchange.getAttributes().put(PRINCIPAL_ATTRIBUTE, principal))
+                .flatMap(Mono::justOrEmpty);
+    }
+
+    private Mono<String> authenticate(ServerHttpRequest request) {
+        HttpHeaders headers = request.getHeaders();
+        if (headers.getFirst(ServiceSignature.SIGNATURE_HEADER) != null) {
+            String target = ServiceSignature.routedTarget(request.getURI().getRawPath(), request.getURI().getRawQuery());
+            return Mono.justOrEmpty(serviceSignature.verify(request.getMethod().name(), target, headers::getFirst))
+                    .map(service -> "service:" + service);
+        }
+        String authorization = headers.getFirst(HttpHeaders.AUTHORIZATION);
+        if (authorization != null && authorization.regionMatches(true, 0, BEARER, 0, BEARER.length())) {
+            return Mono.justOrEmpty(tokenVerifier.apply(authorization.substring(BEARER.length()).trim()))
+                    .map(authentication -> "user:" + authentication.getName());
+        }
+        if (authorization == null || !authorization.regionMatches(true, 0, BASIC, 0, BASIC.length())) {
+            return Mono.empty();
+        }
+        String credentials;
+        try {
+            credentials = new String(Base64.getDecoder().decode(authorization.substring(BASIC.length()).trim()),
+                    StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return Mono.empty();
+        }
+        int colon = credentials.indexOf(':');
+        if (colon < 0) {
+            return Mono.empty();
+        }
+        return basicAuthenticationManager
+                .authenticate(UsernamePasswordAuthenticationToken.unauthenticated(
+                        credentials.substring(0, colon), credentials.substring(colon + 1)))
+                .map(Authentication::getName)
+                .map(user -> "user:" + user)
+                .onErrorResume(e -> Mono.empty());
+    }
+}
@@ -0,0 +1,66 @@
+package com.medilabosolutions.gatewayservice.security;
+
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.ReactiveLoadBalancerClientFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+
+/**
+ * Forwards the routed requests of the users authenticated at the gateway, by access token or
+ * HTTP Basic credentials, as calls signed by the gateway (see {@link ServiceSignature}), without
+ * their {@code Authorization} header.
+ * <p>
+ * The services behind the gateway do not know the access tokens, and would check HTTP Basic
+ * credentials with BCrypt on every request: they authenticate the signature instead. Requests
+ * already signed by a service, without credentials, or whose caller the gateway cannot
+ * authenticate are forwarded unchanged.
+ */
+@Component
+public class SignedForwardingFilter implements GlobalFilter, Ordered {
+
+    private final ServiceSignature serviceSignature;
+    private final GatewayPrincipalResolver principalResolver;
+
+    public SignedForwardingFilter(ServiceSignature serviceSignature, GatewayPrincipalResolver principalResolver) {
+        this.serviceSignature = serviceSignature;
+        this.principalResolver = principalResolver;
+    }
+
+    @Override
+    public int getOrder() {
+        // Once the route has rewritten the path: the signed target is the one the service receives
+        return ReactiveLoadBalancerClientFilter.LOAD_BALANCER_CLIENT_FILTER_ORDER + 1;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        HttpHeaders headers = exchange.getRequest().getHeaders();
+        if (headers.getFirst(HttpHeaders.AUTHORIZATION) == null
+                || headers.getFirst(ServiceSignature.SIGNATURE_HEADER) != null) {
+            return chain.filter(exchange);
+        }
+        return principalResolver.resolve(exchange)
+                .filter(principal -> principal.startsWith("user:"))
+                .map(principal -> exchange.mutate().request(signed(exchange.getRequest())).build())
+                .defaultIfEmpty(exchange)
+                .flatMap(chain::filter);
+    }
+
+    private ServerHttpRequest signed(ServerHttpRequest request) {
+        URI uri = request.getURI();
+        String target = ServiceSignature.target(uri.getRawPath(), uri.getRawQuery());
+        return request.mutate()
+                .headers(headers -> {
+                    headers.remove(HttpHeaders.AUTHORIZATION);
+                    serviceSignature.sign(request.getMethod().name(), target, headers::set);
+                })
+                .build();
+    }
+}
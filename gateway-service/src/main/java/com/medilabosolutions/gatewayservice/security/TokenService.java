@@ -0,0 +1,148 @@
+package com.medilabosolutions.gatewayservice.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Issues and verifies the short-lived access tokens of the gateway.
+ * <p>
+ * A token is {@code base64url(payload) + "." + base64url(HMAC-SHA256(payload))}, the payload
+ * holding the username, the authorities and the expiry time, so that verifying it takes one
+ * HMAC and no lookup, instead of a BCrypt check per request. The key is
+ * {@code gateway.auth.token-secret}; without it, a random key is generated at startup, and
+ * tokens are then lost on restart and not shared between gateway instances.
+ * <p>
+ * The same key derives the digests under which verified Basic credentials are cached
+ * (see {@link CachingBasicAuthenticationManager}).
+ */
+@Component
+public class TokenService {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenService.class);
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int MIN_SECRET_BYTES = 32;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecretKeySpec key;
+    private final Duration ttl;
+    private final Clock clock;
+    private final ThreadLocal<Mac> macs;   // Mac instances are not thread-safe
+
+    @Autowired
+    public TokenService(
+            @Value("${gateway.auth.token-secret:}") String secret,
+            @Value("${gateway.auth.token-ttl:15m}") Duration ttl) {
+
+        this(secret, ttl, Clock.systemUTC());
+    }
+
+    public TokenService(String secret, Duration ttl, Clock clock) {
+        byte[] secretBytes = secret.getBytes(StandardCharsets.UTF_8);
+        if (secret.isBlank()) {
+            log.warn("No gateway.auth.token-secret: tokens will not survive a restart nor be shared between instances");
+            secretBytes = new byte[MIN_SECRET_BYTES];
+            new SecureRandom().nextBytes(secretBytes);
+        } else if (secretBytes.length < MIN_SECRET_BYTES) {
+            throw new IllegalArgumentException("gateway.auth.token-secret must be at least " + MIN_SECRET_BYTES + " bytes");
+        }
+        this.key = new SecretKeySpec(secretBytes, ALGORITHM);
+        this.ttl = ttl;
+        this.clock = clock;
+        this.macs = ThreadLocal.withInitial(this::newMac);
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 unavailable", e);
+        }
+    }
+
+    /**
+     * Issues a token for an authenticated user.
+     *
+     * @param username    the username
+     * @param authorities the authorities of the user
+     * @return the token
+     */
+    public String issue(String username, Collection<? extends GrantedAuthority> authorities) {
+        long expiresAt = clock.instant().plus(ttl).getEpochSecond();
+        String roles = authorities.stream().map(GrantedAuthority::getAuthority).collect(Collectors.joining(","));
+        byte[] payload = (username + "\n" + roles + "\n" + expiresAt).getBytes(StandardCharsets.UTF_8);
+        return ENCODER.encodeToString(payload) + "." + ENCODER.encodeToString(macs.get().doFinal(payload));
+    }
+
+    /**
+     * Verifies a token.
+     *
+     * @param token the token
+     * @return the authenticated user, or empty if the token is malformed, forged or expired
+     */
+    public Optional<Authentication> verify(String token) {
+        int dot = token.indexOf('.');
+        if (dot < 0) {
+            return Optional.empty();
+        }
+        byte[] payload;
+        byte[] signature;
+        try {
+            payload = DECODER.decode(token.substring(0, dot));
+            signature = DECODER.decode(token.substring(dot + 1));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+        if (!MessageDigest.isEqual(signature, macs.get().doFinal(payload))) {
+            return Optional.empty();
+        }
+
+        String[] fields = new String(payload, StandardCharsets.UTF_8).split("\n", -1);
+        if (fields.length != 3 || Long.parseLong(fields[2]) <= clock.instant().getEpochSecond()) {
+            return Optional.empty();
+        }
+        return Optional.of(UsernamePasswordAuthenticationToken.authenticated(fields[0], null,
+                fields[1].isEmpty() ? AuthorityUtils.NO_AUTHORITIES : AuthorityUtils.commaSeparatedStringToAuthorityList(fields[1])));
+    }
+
+    /**
+     * @return the lifetime of the tokens
+     */
+    public Duration ttl() {
+        return ttl;
+    }
+
+    /**
+     * Computes a keyed digest of a secret value, e.g. Basic credentials, so that it can be
+     * kept in memory without the value itself.
+     *
+     * @param value the value
+     * @return the HMAC-SHA256 of the value, base64url-encoded
+     */
+    public String digest(String value) {
+        return ENCODER.encodeToString(macs.get().doFinal(value.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,152 @@
+package com.medilabosolutions.gatewayservice.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.medilabosolutions.gatewayservice.dto.PatientDashboardDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Gathers the data of the page of a patient from patient-service, note-service and risk-service,
+ * called in parallel, in place of one round trip through the gateway per service.
+ * <p>
+ * A service failing or slower than {@code gateway.dashboard.timeout} leaves its part empty, the
+ * other parts being returned anyway. A patient without notes, for which note-service answers 404,
+ * gets an empty list of notes, not an error. The time taken by each part is measured in
+ * {@code gateway.dashboard.part}, by part and outcome, and reported to the caller.
+ */
+@Service
+public class PatientDashboardService {
+
+    private static final Logger log = LoggerFactory.getLogger(PatientDashboardService.class);
+
+    private final WebClient backendWebClient;
+    private final MeterRegistry meterRegistry;
+    private final Duration timeout;
+
+    public PatientDashboardService(
+            WebClient backendWebClient,
+            MeterRegistry meterRegistry,
+            @Value("${gateway.dashboard.timeout:3s}") Duration timeout) {
+
+        this.backendWebClient = backendWebClient;
+        this.meterRegistry = meterRegistry;
+        this.timeout = timeout;
+    }
+
+    /**
+     * The dashboard of a patient, with the status of the response and the timing of each part.
+     *
+     * @param body         the dashboard
+     * @param status       404 if the patient does not exist, 502 if no part could be fetched, 200 otherwise
+     * @param serverTiming the time taken by each part, as a {@code Server-Timing} header value
+     */
+    public record PatientDashboard(PatientDashboardDto body, HttpStatus status, String serverTiming) {
+    }
+
+    private record Part(String name, JsonNode body, HttpStatusCode status, String error, Duration duration) {
+
+        boolean failed() {
+            return error != null;
+        }
+    }
+
+    /**
+     * Retrieves the dashboard of a patient.
+     *
+     * @param id the unique identifier of the patient
+     * @return the {@link PatientDashboard}, never an error
+     */
+    public Mono<PatientDashboard> getPatientDashboard(int id) {
+        long start = System.nanoTime();
+        return Mono.zip(
+                        fetch(id, "patient", "http://patient-service/api/patients/{id}", null),
+                        fetch(id, "notes", "http://note-service/api/notes/patient/{id}", JsonNodeFactory.instance.arrayNode()),
+                        fetch(id, "risk", "http://risk-service/api/risk/patient/{id}", null))
+                .map(parts -> dashboard(List.of(parts.getT1(), parts.getT2(), parts.getT3()),
+                        Duration.ofNanos(System.nanoTime() - start)));
+    }
+
+    // notFound: the part when the service answers 404, null if that is an error
+    private Mono<Part> fetch(int id, String name, String uri, JsonNode notFound) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return backendWebClient.get()
+                    .uri(uri, id)
+                    .retrieve()
+                    .bodyToMono(JsonNode.class)
+                    .defaultIfEmpty(NullNode.getInstance())
+                    .onErrorResume(WebClientResponseException.NotFound.class,
+                            e -> notFound != null ? Mono.just(notFound) : Mono.error(e))
+                    .timeout(timeout)
+                    .map(body -> new Part(name, body, HttpStatus.OK, null, Duration.ofNanos(System.nanoTime() - start)))
+                    .onErrorResume(e -> Mono.just(failure(id, name, e, Duration.ofNanos(System.nanoTime() - start))))
+                    .doOnNext(part -> Timer.builder("gateway.dashboard.part")
+                            .description("Time taken by the calls to the services for the patient dashboard")
+                            .tag("part", name)
+                            .tag("outcome", part.failed() ? "error" : "success")
+                            .register(meterRegistry)
+                            .record(part.duration()));
+        });
+    }
+
+    private static Part failure(int id, String name, Throwable e, Duration duration) {
+        HttpStatusCode status = HttpStatus.BAD_GATEWAY;
+        String error;
+        if (e instanceof WebClientResponseException response) {
+            status = response.getStatusCode();
+            error = "HTTP " + response.getStatusCode().value();
+        } else if (e instanceof TimeoutException) {
+            status = HttpStatus.GATEWAY_TIMEOUT;
+            error = "Timed out";
+        } else {
+            error = "Unavailable";
+        }
+        log.warn("Dashboard of patient {}: {} failed ({})", id, name, e.toString());
+        return new Part(name, null, status, error, duration);
+    }
+
+    private static PatientDashboard dashboard(List<Part> parts, Duration total) {
+        Part patient = parts.get(0);
+        Map<String, String> errors = new LinkedHashMap<>();
+        parts.stream().filter(Part::failed).forEach(part -> errors.put(part.name(), part.error()));
+
+        HttpStatus status = HttpStatus.OK;
+        if (patient.status().isSameCodeAs(HttpStatus.NOT_FOUND)) {
+            status = HttpStatus.NOT_FOUND;
+        } else if (errors.size() == parts.size()) {
+            status = HttpStatus.BAD_GATEWAY;
+        }
+
+        String serverTiming = Stream.concat(
+                        parts.stream().map(part -> timing(part.name(), part.duration())),
+                        Stream.of(timing("total", total)))
+                .collect(Collectors.joining(", "));
+        return new PatientDashboard(
+                new PatientDashboardDto(patient.body(), parts.get(1).body(), parts.get(2).body(), errors),
+                status, serverTiming);
+    }
+
+    private static String timing(String name, Duration duration) {
+        return String.format(Locale.ROOT, "%s;dur=%.1f", name, duration.toNanos() / 1_000_000.0);
+    }
+}
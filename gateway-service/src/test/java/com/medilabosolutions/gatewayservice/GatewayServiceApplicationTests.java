@@ -0,0 +1,17 @@
+package com.medilabosolutions.gatewayservice;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+@ActiveProfiles("test")
+@SpringBootTest(properties = {
+		"eureka.client.register-with-eureka=false",
+		"eureka.client.fetch-registry=false"})
+class GatewayServiceApplicationTests {
+
+	@Test
+	void contextLoads() {
+	}
+
+}
@@ -0,0 +1,52 @@
+package com.medilabosolutions.gatewayservice.integration;
+
+import com.medilabosolutions.gatewayservice.dto.TokenResponseDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+@ActiveProfiles("test")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "eureka.client.register-with-eureka=false",
+        "eureka.client.fetch-registry=false"})
+@AutoConfigureWebTestClient
+class AuthTokenIntegrationTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Test
+    void testIssueToken_OnlyAgainstBasicCredentials() {
+        // Given: a token obtained with HTTP Basic credentials
+        TokenResponseDto token = webTestClient.post().uri("/api/auth/token")
+                .headers(headers -> headers.setBasicAuth("user", "1234"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(TokenResponseDto.class)
+                .returnResult().getResponseBody();
+        assertNotNull(token);
+
+        // When/Then: the token authenticates the API calls, an invalid id being then rejected
+        webTestClient.get().uri("/api/dashboard/patient/unknown")
+                .headers(headers -> headers.setBearerAuth(token.token()))
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        // When/Then: the token cannot be traded for a new one
+        webTestClient.post().uri("/api/auth/token")
+                .headers(headers -> headers.setBearerAuth(token.token()))
+                .exchange()
+                .expectStatus().isUnauthorized();
+
+        // When/Then: neither can wrong credentials
+        webTestClient.post().uri("/api/auth/token")
+                .headers(headers -> headers.setBasicAuth("user", "wrong"))
+                .exchange()
+                .expectStatus().isUnauthorized();
+    }
+}
@@ -0,0 +1,129 @@
+package com.medilabosolutions.gatewayservice.unitaire;
+
+import com.medilabosolutions.gatewayservice.controller.PatientDashboardController;
+import com.medilabosolutions.gatewayservice.service.PatientDashboardService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class PatientDashboardControllerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    // Response of each service, by host; absent: never answers
+    private final Map<String, Mono<ClientResponse>> services = new HashMap<>();
+    private final WebTestClient client = WebTestClient
+            .bindToController(new PatientDashboardController(new PatientDashboardService(
+                    WebClient.builder()
+                            .exchangeFunction(request -> services.getOrDefault(request.url().getHost(), Mono.never()))
+                            .build(),
+                    meterRegistry, Duration.ofMillis(200))))
+            .build();
+
+    private static Mono<ClientResponse> json(String body) {
+        return Mono.just(ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body(body)
+                .build());
+    }
+
+    private static Mono<ClientResponse> status(HttpStatus status) {
+        return Mono.just(ClientResponse.create(status).build());
+    }
+
+    private double count(String part, String outcome) {
+        return meterRegistry.get("gateway.dashboard.part").tag("part", part).tag("outcome", outcome).timer().count();
+    }
+
+    @Test
+    void testGetPatientDashboard_PartsMerged() {
+        // Given: every service answers
+        services.put("patient-service", json("{\"id\":1,\"lastName\":\"Doe\"}"));
+        services.put("note-service", json("[{\"patId\":1,\"note\":\"Fumeur\"}]"));
+        services.put("risk-service", json("{\"patientId\":1,\"riskLevel\":\"Borderline\"}"));
+
+        // When: the dashboard of the patient is requested
+        // Then: the parts are merged, with the timing of each one
+        client.get().uri("/api/dashboard/patient/1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueMatches("Server-Timing",
+                        "patient;dur=[0-9.]+, notes;dur=[0-9.]+, risk;dur=[0-9.]+, total;dur=[0-9.]+")
+                .expectBody()
+                .jsonPath("$.patient.lastName").isEqualTo("Doe")
+                .jsonPath("$.notes[0].note").isEqualTo("Fumeur")
+                .jsonPath("$.risk.riskLevel").isEqualTo("Borderline")
+                .jsonPath("$.errors").isEmpty();
+        assertEquals(1, count("risk", "success"));
+    }
+
+    @Test
+    void testGetPatientDashboard_PartialWhenServicesFail() {
+        // Given: the note service fails, and the risk service does not answer in time
+        services.put("patient-service", json("{\"id\":1,\"lastName\":\"Doe\"}"));
+        services.put("note-service", status(HttpStatus.INTERNAL_SERVER_ERROR));
+
+        // When: the dashboard of the patient is requested
+        // Then: the patient is returned, with the reason of each missing part
+        client.get().uri("/api/dashboard/patient/1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.patient.lastName").isEqualTo("Doe")
+                .jsonPath("$.notes").doesNotExist()
+                .jsonPath("$.risk").doesNotExist()
+                .jsonPath("$.errors.notes").isEqualTo("HTTP 500")
+                .jsonPath("$.errors.risk").isEqualTo("Timed out");
+        assertEquals(1, count("notes", "error"));
+        assertEquals(1, count("risk", "error"));
+    }
+
+    @Test
+    void testGetPatientDashboard_NoNotes() {
+        // Given: a patient without notes, for which the note service answers 404
+        services.put("patient-service", json("{\"id\":1,\"lastName\":\"Doe\"}"));
+        services.put("note-service", status(HttpStatus.NOT_FOUND));
+        services.put("risk-service", json("{\"patientId\":1,\"riskLevel\":\"None\"}"));
+
+        // When: the dashboard of the patient is requested
+        // Then: the notes are an empty list, not an error
+        client.get().uri("/api/dashboard/patient/1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.notes").isArray()
+                .jsonPath("$.notes").isEmpty()
+                .jsonPath("$.errors").isEmpty();
+        assertEquals(1, count("notes", "success"));
+    }
+
+    @Test
+    void testGetPatientDashboard_UnknownPatientOrNoService() {
+        // Given: an unknown patient
+        services.put("patient-service", status(HttpStatus.NOT_FOUND));
+        services.put("note-service", json("[]"));
+        services.put("risk-service", status(HttpStatus.NOT_FOUND));
+
+        // When/Then: 404 is returned
+        client.get().uri("/api/dashboard/patient/99").exchange().expectStatus().isNotFound();
+
+        // Given: no service answers
+        services.put("patient-service", status(HttpStatus.SERVICE_UNAVAILABLE));
+        services.put("note-service", status(HttpStatus.SERVICE_UNAVAILABLE));
+        services.put("risk-service", status(HttpStatus.SERVICE_UNAVAILABLE));
+
+        // When/Then: 502 is returned
+        client.get().uri("/api/dashboard/patient/1").exchange().expectStatus().isEqualTo(HttpStatus.BAD_GATEWAY);
+    }
+}
@@ -0,0 +1,208 @@
+package com.medilabosolutions.gatewayservice.unitaire;
+
+import com.medilabosolutions.gatewayservice.cache.ResponseCacheFilter;
+import com.medilabosolutions.gatewayservice.security.GatewayPrincipalResolver;
+import com.medilabosolutions.gatewayservice.security.ServiceSignature;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class ResponseCacheFilterTest {
+
+    private static final String PATIENT = "/patient-service/api/patients/1";
+
+    private final AtomicLong time = new AtomicLong();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    // Any user with the password 1234
+    private final ReactiveAuthenticationManager basicAuthenticationManager = authentication ->
+            "1234".equals(authentication.getCredentials())
+                    ? Mono.just(UsernamePasswordAuthenticationToken.authenticated(authentication.getName(), null, List.of()))
+                    : Mono.error(new BadCredentialsException("Bad credentials"));
+    private final ResponseCacheFilter filter = new ResponseCacheFilter(new GatewayPrincipalResolver(
+            new ServiceSignature("0123456789abcdef0123456789abcdef", "gateway-service", Duration.ofSeconds(30)), basicAuthenticationManager),
+            meterRegistry, true, Duration.ofSeconds(30), DataSize.ofMegabytes(1),
+            DataSize.ofKilobytes(64), List.of("/patient-service/api/patients/**"), time::get);
+
+    /**
+     * Stands for the service behind the gateway, answering with a new body version on each call.
+     */
+    private final class Service implements GatewayFilterChain {
+
+        final List<HttpHeaders> requests = new ArrayList<>();
+        String cacheControl;
+        String etag;
+
+        @Override
+        public Mono<Void> filter(ServerWebExchange exchange) {
+            requests.add(exchange.getRequest().getHeaders());
+            ServerHttpResponse response = exchange.getResponse();
+            if (etag != null && exchange.getRequest().getHeaders().getIfNoneMatch().contains(etag)) {
+                response.setStatusCode(HttpStatus.NOT_MODIFIED);
+                return response.writeWith(Flux.empty());
+            }
+            response.setStatusCode(HttpStatus.OK);
+            response.getHeaders().set(HttpHeaders.CONTENT_TYPE, "application/json");
+            if (cacheControl != null) {
+                response.getHeaders().setCacheControl(cacheControl);
+            }
+            if (etag != null) {
+                response.getHeaders().setETag(etag);
+            }
+            byte[] body = ("{\"version\":" + requests.size() + "}").getBytes(StandardCharsets.UTF_8);
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+        }
+    }
+
+    private static MockServerHttpRequest.BaseBuilder<?> get(String user, String path) {
+        return MockServerHttpRequest.get(path).header(HttpHeaders.AUTHORIZATION,
+                "Basic " + Base64.getEncoder().encodeToString((user + ":1234").getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private MockServerWebExchange exchange(MockServerHttpRequest.BaseBuilder<?> request, Service service) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        filter.filter(exchange, service).block();
+        return exchange;
+    }
+
+    private static String body(MockServerWebExchange exchange) {
+        return exchange.getResponse().getBodyAsString().block();
+    }
+
+    private double count(String name, String tag, String value) {
+        return meterRegistry.get(name).tag(tag, value).counter().count();
+    }
+
+    @Test
+    void testGet_CachedPerPrincipalUntilStale() {
+        // Given: a patient fetched once by a user
+        Service service = new Service();
+        MockServerWebExchange first = exchange(get("user", PATIENT), service);
+
+        // When: the same user fetches it again, then another user
+        MockServerWebExchange second = exchange(get("user", PATIENT), service);
+        MockServerWebExchange other = exchange(get("other", PATIENT), service);
+
+        // Then: the user gets the cached response, with an ETag; the other user their own
+        assertEquals(2, service.requests.size());
+        assertEquals("{\"version\":1}", body(first));
+        assertEquals("{\"version\":1}", body(second));
+        assertEquals(HttpStatus.OK, second.getResponse().getStatusCode());
+        assertNotNull(second.getResponse().getHeaders().getETag());
+        assertEquals("application/json", second.getResponse().getHeaders().getFirst(HttpHeaders.CONTENT_TYPE));
+        assertEquals("{\"version\":2}", body(other));
+
+        // When: the response is stale
+        time.addAndGet(TimeUnit.SECONDS.toNanos(31));
+        MockServerWebExchange stale = exchange(get("user", PATIENT), service);
+
+        // Then: it is fetched again
+        assertEquals("{\"version\":3}", body(stale));
+        assertEquals(1, count("gateway.cache.requests", "result", "hit"));
+        assertEquals(3, count("gateway.cache.requests", "result", "miss"));
+        assertEquals(0.25, meterRegistry.get("gateway.cache.hit.ratio").gauge().value());
+    }
+
+    @Test
+    void testGet_IfNoneMatchAnsweredWithoutBody() {
+        // Given: a cached patient and its ETag
+        Service service = new Service();
+        String etag = exchange(get("user", PATIENT), service).getResponse().getHeaders().getETag();
+
+        // When: the caller revalidates its copy
+        MockServerWebExchange revalidated = exchange(get("user", PATIENT).ifNoneMatch(etag), service);
+
+        // Then: a 304 without body is returned, without asking the service
+        assertEquals(HttpStatus.NOT_MODIFIED, revalidated.getResponse().getStatusCode());
+        assertEquals("", body(revalidated));
+        assertEquals(1, service.requests.size());
+        assertEquals("{\"version\":1}".length(), count("gateway.cache.bytes.saved", "transfer", "downstream"));
+    }
+
+    @Test
+    void testWrite_InvalidatesTheService() {
+        // Given: a cached patient
+        Service service = new Service();
+        exchange(get("user", PATIENT), service);
+
+        // When: a patient of the service is updated through the gateway
+        exchange(MockServerHttpRequest.put("/patient-service/api/patients/2"), service);
+        MockServerWebExchange after = exchange(get("user", PATIENT), service);
+
+        // Then: the patient is fetched again
+        assertEquals("{\"version\":3}", body(after));
+    }
+
+    @Test
+    void testGet_NotCachedForUnknownCallersOrNoStore() {
+        Service service = new Service();
+
+        // When: a caller the gateway cannot authenticate fetches a patient twice
+        exchange(MockServerHttpRequest.get(PATIENT), service);
+        exchange(MockServerHttpRequest.get(PATIENT).header(HttpHeaders.AUTHORIZATION, "Basic " + Base64.getEncoder()
+                .encodeToString("user:wrong".getBytes(StandardCharsets.UTF_8))), service);
+
+        // Then: both requests go to the service
+        assertEquals(2, service.requests.size());
+        assertEquals(2, count("gateway.cache.requests", "result", "bypass"));
+
+        // When: the service forbids storing the response
+        service.cacheControl = "no-store";
+        exchange(get("user", PATIENT), service);
+        exchange(get("user", PATIENT), service);
+
+        // Then: it is not cached
+        assertEquals(4, service.requests.size());
+    }
+
+    @Test
+    void testGet_StaleResponseRevalidatedWithServiceEtag() {
+        // Given: a patient cached 10 seconds, with the ETag of the service
+        Service service = new Service();
+        service.cacheControl = "max-age=10";
+        service.etag = "\"v1\"";
+        exchange(get("user", PATIENT), service);
+
+        // When: it is fetched again once stale
+        time.addAndGet(TimeUnit.SECONDS.toNanos(11));
+        MockServerWebExchange revalidated = exchange(get("user", PATIENT), service);
+
+        // Then: the service is asked with If-None-Match, and its 304 answered with the cached response
+        assertEquals(2, service.requests.size());
+        assertEquals(List.of("\"v1\""), service.requests.get(1).getIfNoneMatch());
+        assertEquals(HttpStatus.OK, revalidated.getResponse().getStatusCode());
+        assertEquals("{\"version\":1}", body(revalidated));
+        assertEquals("\"v1\"", revalidated.getResponse().getHeaders().getETag());
+        assertEquals(1, count("gateway.cache.requests", "result", "revalidated"));
+
+        // When: fetched again within the renewed freshness
+        exchange(get("user", PATIENT), service);
+
+        // Then: the service is not asked
+        assertEquals(2, service.requests.size());
+        assertNull(service.requests.get(0).getFirst(HttpHeaders.IF_NONE_MATCH));
+    }
+}
@@ -0,0 +1,109 @@
+package com.medilabosolutions.gatewayservice.unitaire;
+
+import com.medilabosolutions.gatewayservice.security.ServiceSignature;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ServiceSignatureTest {
+
+    private static final String SECRET = "0123456789abcdef0123456789abcdef";
+    private static final Instant NOW = Instant.parse("2025-01-01T10:00:00Z");
+
+    private static ServiceSignature service(String secret, String name, Instant now) {
+        return new ServiceSignature(secret, name, Duration.ofSeconds(30), Clock.fixed(now, ZoneOffset.UTC));
+    }
+
+    private static Map<String, String> signedHeaders(ServiceSignature caller, String method, String target) {
+        Map<String, String> headers = new HashMap<>();
+        caller.sign(method, target, headers::put);
+        return headers;
+    }
+
+    @Test
+    void testVerify_RoutedCallSignedForTheService() {
+        // Given: a call of the front to the note service, signed for the path the service receives
+        ServiceSignature gateway = service(SECRET, "gateway-service", NOW.plusSeconds(5));
+        Map<String, String> headers = signedHeaders(service(SECRET, "front-service", NOW), "GET",
+                "/api/notes/patient/1?sort=date");
+
+        // When: the gateway verifies it on its route
+        String target = ServiceSignature.routedTarget("/note-service/api/notes/patient/1", "sort=date");
+
+        // Then: the call is authenticated as the front, once
+        assertEquals("/api/notes/patient/1?sort=date", target);
+        assertEquals(Optional.of("front-service"), gateway.verify("GET", target, headers::get));
+        assertTrue(gateway.verify("GET", target, headers::get).isEmpty(), "replayed nonce");
+    }
+
+    @Test
+    void testVerify_RejectsForgedOrOutOfDateCalls() {
+        // Given: the gateway
+        ServiceSignature gateway = service(SECRET, "gateway-service", NOW);
+        String target = "/api/patients/1";
+
+        // Then: a signature with another key is rejected
+        Map<String, String> forged = signedHeaders(service("another-secret-another-secret-00", "front-service", NOW),
+                "GET", target);
+        assertTrue(gateway.verify("GET", target, forged::get).isEmpty());
+
+        // Then: changing the caller, the method, the path or the query breaks the signature
+        Map<String, String> renamed = signedHeaders(service(SECRET, "front-service", NOW), "GET", target);
+        renamed.put(ServiceSignature.SERVICE_HEADER, "risk-service");
+        assertTrue(gateway.verify("GET", target, renamed::get).isEmpty());
+        Map<String, String> otherMethod = signedHeaders(service(SECRET, "front-service", NOW), "GET", target);
+        assertTrue(gateway.verify("DELETE", target, otherMethod::get).isEmpty());
+        Map<String, String> otherPath = signedHeaders(service(SECRET, "front-service", NOW), "GET", target);
+        assertTrue(gateway.verify("GET", "/api/patients/2", otherPath::get).isEmpty());
+        Map<String, String> otherQuery = signedHeaders(service(SECRET, "front-service", NOW), "GET", target);
+        assertTrue(gateway.verify("GET", target + "?page=2", otherQuery::get).isEmpty());
+
+        // Then: a signature older than the allowed skew is rejected
+        Map<String, String> old = signedHeaders(service(SECRET, "front-service", NOW.minusSeconds(31)), "GET", target);
+        assertTrue(gateway.verify("GET", target, old::get).isEmpty());
+
+        // Then: unsigned and malformed calls are rejected
+        assertTrue(gateway.verify("GET", target, name -> null).isEmpty());
+        Map<String, String> malformed = signedHeaders(service(SECRET, "front-service", NOW), "GET", target);
+        malformed.put(ServiceSignature.SIGNATURE_HEADER, "not base64!");
+        assertTrue(gateway.verify("GET", target, malformed::get).isEmpty());
+    }
+
+    @Test
+    void testRoutedTarget_WithoutServicePrefix() {
+        // Then: the first segment, the service id, is removed
+        assertEquals("/api/patients", ServiceSignature.routedTarget("/patient-service/api/patients", null));
+        assertEquals("/api/patients/page?page=0", ServiceSignature.routedTarget("/patient-service/api/patients/page", "page=0"));
+        assertEquals("/", ServiceSignature.routedTarget("/patient-service", ""));
+    }
+
+    @Test
+    void testConstructor_RejectsShortSecret() {
+        // Then
+        assertThrows(IllegalArgumentException.class, () -> service("too short", "gateway-service", NOW));
+    }
+
+    @Test
+    void testVerify_ReferenceSignature() {
+        // Given: the reference signature, checked by the same test in every service
+        Map<String, String> headers = Map.of(
+                ServiceSignature.SERVICE_HEADER, "front-service",
+                ServiceSignature.TIMESTAMP_HEADER, "1735725600",
+                ServiceSignature.NONCE_HEADER, "bm9uY2Utbm9uY2Utbm9uY2U",
+                ServiceSignature.SIGNATURE_HEADER, "6-Cpor_6wb1U0sU46XRmQYh07HQOYuYEzkSdoalXxsc");
+
+        // Then: it is accepted, so this copy computes the signature like the others
+        assertEquals(Optional.of("front-service"),
+                service(SECRET, "gateway-service", NOW).verify("GET", "/api/patients/1?page=0", headers::get));
+    }
+}
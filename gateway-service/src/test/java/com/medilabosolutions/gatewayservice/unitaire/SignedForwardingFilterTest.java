@@ -0,0 +1,122 @@
+package com.medilabosolutions.gatewayservice.unitaire;
+
+import com.medilabosolutions.gatewayservice.security.GatewayPrincipalResolver;
+import com.medilabosolutions.gatewayservice.security.ServiceSignature;
+import com.medilabosolutions.gatewayservice.security.SignedForwardingFilter;
+import com.medilabosolutions.gatewayservice.security.TokenService;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class SignedForwardingFilterTest {
+
+    private static final String SECRET = "0123456789abcdef0123456789abcdef";
+
+    private final TokenService tokenService = new TokenService(SECRET, Duration.ofMinutes(15));
+    private final ServiceSignature gateway = new ServiceSignature(SECRET, "gateway-service", Duration.ofSeconds(30));
+    private final ServiceSignature patientService = new ServiceSignature(SECRET, "patient-service", Duration.ofSeconds(30));
+    private final SignedForwardingFilter filter = new SignedForwardingFilter(gateway, new GatewayPrincipalResolver(
+            gateway,
+            authentication -> "1234".equals(authentication.getCredentials())
+                    ? Mono.just(UsernamePasswordAuthenticationToken.authenticated(authentication.getName(), null, List.of()))
+                    : Mono.error(new BadCredentialsException("Bad credentials")),
+            tokenService::verify));
+
+    /**
+     * Stands for the route to the service, keeping the forwarded request.
+     */
+    private static class Service implements GatewayFilterChain {
+
+        final AtomicReference<ServerWebExchange> forwarded = new AtomicReference<>();
+
+        @Override
+        public Mono<Void> filter(ServerWebExchange exchange) {
+            forwarded.set(exchange);
+            return Mono.empty();
+        }
+    }
+
+    // The request as received by the service, once the route stripped the /<service-id> prefix
+    private static MockServerWebExchange routed(String authorization) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/api/patients/1?page=0")
+                .header(HttpHeaders.AUTHORIZATION, authorization));
+    }
+
+    private Optional<String> verifiedByService(ServerWebExchange forwarded) {
+        HttpHeaders headers = forwarded.getRequest().getHeaders();
+        return patientService.verify("GET", "/api/patients/1?page=0", headers::getFirst);
+    }
+
+    @Test
+    void testFilter_TokenForwardedAsSignedCall() {
+        // Given: a request with an access token
+        String token = tokenService.issue("user", AuthorityUtils.createAuthorityList("ROLE_USER"));
+        Service service = new Service();
+
+        // When: it is routed
+        filter.filter(routed("Bearer " + token), service).block();
+
+        // Then: the service receives it signed by the gateway, without the token
+        ServerWebExchange forwarded = service.forwarded.get();
+        assertNull(forwarded.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION));
+        assertEquals(Optional.of("gateway-service"), verifiedByService(forwarded));
+    }
+
+    @Test
+    void testFilter_BasicForwardedAsSignedCall() {
+        // Given: a request with HTTP Basic credentials
+        Service service = new Service();
+        String credentials = Base64.getEncoder().encodeToString("user:1234".getBytes(StandardCharsets.UTF_8));
+
+        // When: it is routed
+        filter.filter(routed("Basic " + credentials), service).block();
+
+        // Then: the service does not check the credentials again
+        ServerWebExchange forwarded = service.forwarded.get();
+        assertNull(forwarded.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION));
+        assertEquals(Optional.of("gateway-service"), verifiedByService(forwarded));
+    }
+
+    @Test
+    void testFilter_OtherRequestsForwardedUnchanged() {
+        // Then: an invalid token is left to the service, which rejects it
+        Service invalid = new Service();
+        MockServerWebExchange invalidExchange = routed("Bearer not-a-token");
+        filter.filter(invalidExchange, invalid).block();
+        assertSame(invalidExchange, invalid.forwarded.get());
+
+        // Then: so is a request without credentials
+        Service anonymous = new Service();
+        MockServerWebExchange anonymousExchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/patients/1"));
+        filter.filter(anonymousExchange, anonymous).block();
+        assertSame(anonymousExchange, anonymous.forwarded.get());
+
+        // Then: and a call already signed by a service keeps its signature
+        Service signed = new Service();
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get("/api/patients/1")
+                .header(HttpHeaders.AUTHORIZATION, "Basic dXNlcjoxMjM0");
+        new ServiceSignature(SECRET, "front-service", Duration.ofSeconds(30))
+                .sign("GET", "/api/patients/1", request::header);
+        MockServerWebExchange signedExchange = MockServerWebExchange.from(request);
+        filter.filter(signedExchange, signed).block();
+        assertSame(signedExchange, signed.forwarded.get());
+    }
+}
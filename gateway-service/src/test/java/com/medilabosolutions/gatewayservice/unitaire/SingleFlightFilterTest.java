@@ -0,0 +1,235 @@
+package com.medilabosolutions.gatewayservice.unitaire;
+
+import com.medilabosolutions.gatewayservice.coalescing.SingleFlightFilter;
+import com.medilabosolutions.gatewayservice.security.GatewayPrincipalResolver;
+import com.medilabosolutions.gatewayservice.security.ServiceSignature;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SingleFlightFilterTest {
+
+    private static final String PATIENT = "/patient-service/api/patients/1";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SingleFlightFilter filter = new SingleFlightFilter(
+            new GatewayPrincipalResolver(
+                    new ServiceSignature("0123456789abcdef0123456789abcdef", "gateway-service", Duration.ofSeconds(30)),
+                    authentication -> Mono.just(UsernamePasswordAuthenticationToken.authenticated(
+                            authentication.getName(), null, List.of()))),
+            meterRegistry, true, Duration.ofMillis(200), DataSize.ofBytes(64),
+            List.of("/patient-service/api/patients/**", "/risk-service/api/risk/patient/**"));
+
+    /**
+     * Stands for a slow service behind the gateway, answering once released.
+     */
+    private static class Service implements GatewayFilterChain {
+
+        final AtomicInteger calls = new AtomicInteger();
+        final Sinks.Empty<Void> released = Sinks.empty();
+
+        @Override
+        public Mono<Void> filter(ServerWebExchange exchange) {
+            int call = calls.incrementAndGet();
+            return released.asMono().then(Mono.defer(() -> {
+                ServerHttpResponse response = exchange.getResponse();
+                response.setStatusCode(HttpStatus.OK);
+                byte[] body = body(call);
+                headers(response.getHeaders(), body);
+                return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+            }));
+        }
+
+        byte[] body(int call) {
+            return ("{\"call\":" + call + "}").getBytes(StandardCharsets.UTF_8);
+        }
+
+        void headers(HttpHeaders headers, byte[] body) {
+            headers.set(HttpHeaders.CONTENT_TYPE, "application/json");
+            headers.setContentLength(body.length);
+        }
+    }
+
+    private static MockServerWebExchange get(String user) {
+        return get(PATIENT, user);
+    }
+
+    private static MockServerWebExchange get(String path, String user) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get(path).header(HttpHeaders.AUTHORIZATION,
+                "Basic " + Base64.getEncoder().encodeToString((user + ":1234").getBytes(StandardCharsets.UTF_8))));
+    }
+
+    private static String body(MockServerWebExchange exchange) {
+        return exchange.getResponse().getBodyAsString().block();
+    }
+
+    private double count(String role) {
+        return meterRegistry.get("gateway.singleflight.requests").tag("role", role).counter().count();
+    }
+
+    @Test
+    void testGet_IdenticalConcurrentRequestsCoalesced() {
+        // Given: a request waiting for the service
+        Service service = new Service();
+        MockServerWebExchange first = get("user");
+        Mono<Void> firstCall = filter.filter(first, service).cache();
+        firstCall.subscribe();
+
+        // When: the same user sends the same request meanwhile, and another user too
+        MockServerWebExchange second = get("user");
+        Mono<Void> secondCall = filter.filter(second, service).cache();
+        secondCall.subscribe();
+        MockServerWebExchange other = get("other");
+        Mono<Void> otherCall = filter.filter(other, service).cache();
+        otherCall.subscribe();
+        service.released.tryEmitEmpty();
+        Mono.when(firstCall, secondCall, otherCall).block(Duration.ofSeconds(5));
+
+        // Then: the service is called once per user, the response being shared with the waiting request
+        assertEquals(2, service.calls.get());
+        assertEquals("{\"call\":1}", body(first));
+        assertEquals("{\"call\":1}", body(second));
+        assertEquals(HttpStatus.OK, second.getResponse().getStatusCode());
+        assertEquals("application/json", second.getResponse().getHeaders().getFirst(HttpHeaders.CONTENT_TYPE));
+        assertEquals("{\"call\":2}", body(other));
+        assertEquals(1, count("coalesced"));
+
+        // When: the same request comes once the first one is answered
+        MockServerWebExchange later = get("user");
+        filter.filter(later, service).block(Duration.ofSeconds(5));
+
+        // Then: it is forwarded
+        assertEquals("{\"call\":3}", body(later));
+    }
+
+    @Test
+    void testGet_WaitingBoundedByTimeout() {
+        // Given: a request waiting for a service slower than the timeout
+        Service service = new Service();
+        filter.filter(get("user"), service).subscribe();
+
+        // When: the same request comes meanwhile
+        MockServerWebExchange waiting = get("user");
+        Mono<Void> waitingCall = filter.filter(waiting, service).cache();
+        waitingCall.subscribe();
+
+        // Then: after the timeout, it is forwarded on its own
+        Mono.delay(Duration.ofMillis(400)).block();
+        assertEquals(2, service.calls.get());
+        assertEquals(1, count("fallback"));
+        service.released.tryEmitEmpty();
+        waitingCall.block(Duration.ofSeconds(5));
+        assertEquals("{\"call\":2}", body(waiting));
+    }
+
+    @Test
+    void testGet_UnauthenticatedNotCoalesced() {
+        // Given: requests the gateway cannot authenticate
+        Service service = new Service();
+        service.released.tryEmitEmpty();
+
+        // When: sending them
+        filter.filter(MockServerWebExchange.from(MockServerHttpRequest.get(PATIENT)), service).block();
+        filter.filter(MockServerWebExchange.from(MockServerHttpRequest.get(PATIENT)), service).block();
+
+        // Then: each one is forwarded
+        assertEquals(2, service.calls.get());
+        assertEquals(2, count("bypass"));
+    }
+
+    // Sends two identical requests at the same time, the service answering once both are sent
+    private List<MockServerWebExchange> concurrently(String path, Service service) {
+        MockServerWebExchange first = get(path, "user");
+        Mono<Void> firstCall = filter.filter(first, service).cache();
+        firstCall.subscribe();
+        MockServerWebExchange second = get(path, "user");
+        Mono<Void> secondCall = filter.filter(second, service).cache();
+        secondCall.subscribe();
+        service.released.tryEmitEmpty();
+        Mono.when(firstCall, secondCall).block(Duration.ofSeconds(5));
+        return List.of(first, second);
+    }
+
+    @Test
+    void testGet_PatientRiskCoalesced() {
+        // Given: the risk of a patient, not cached but coalesced
+        Service service = new Service();
+
+        // When: the same request is sent twice at the same time
+        List<MockServerWebExchange> exchanges = concurrently("/risk-service/api/risk/patient/1", service);
+
+        // Then: the service is called once
+        assertEquals(1, service.calls.get());
+        assertEquals("{\"call\":1}", body(exchanges.get(1)));
+        assertEquals(1, count("coalesced"));
+    }
+
+    @Test
+    void testGet_OtherPathsNotCoalesced() {
+        // Given: a path outside of the coalesced paths
+        Service service = new Service();
+
+        // When: the same request is sent twice at the same time
+        List<MockServerWebExchange> exchanges = concurrently("/risk-service/api/risk/population", service);
+
+        // Then: each one is forwarded, without being counted
+        assertEquals(2, service.calls.get());
+        assertEquals("{\"call\":2}", body(exchanges.get(1)));
+        assertEquals(0, count("leader"));
+    }
+
+    @Test
+    void testGet_StreamedUnsizedOrLargeResponsesNotShared() {
+        // Given: a service streaming NDJSON, one answering without Content-Length, one answering too much
+        Service ndjson = new Service() {
+            @Override
+            void headers(HttpHeaders headers, byte[] body) {
+                headers.setContentType(MediaType.APPLICATION_NDJSON);
+                headers.setContentLength(body.length);
+            }
+        };
+        Service unsized = new Service() {
+            @Override
+            void headers(HttpHeaders headers, byte[] body) {
+                headers.setContentType(MediaType.APPLICATION_JSON);
+            }
+        };
+        Service large = new Service() {
+            @Override
+            byte[] body(int call) {
+                return ("[" + ("{\"call\":" + call + "},").repeat(10) + "{}]").getBytes(StandardCharsets.UTF_8);
+            }
+        };
+
+        for (Service service : List.of(ndjson, unsized, large)) {
+            // When: the same request is sent twice at the same time
+            List<MockServerWebExchange> exchanges = concurrently(PATIENT, service);
+
+            // Then: the waiting request is sent on its own
+            assertEquals(2, service.calls.get());
+            assertTrue(body(exchanges.get(1)).contains("\"call\":2"));
+        }
+        assertEquals(3, count("fallback"));
+        assertEquals(0, count("coalesced"));
+    }
+}
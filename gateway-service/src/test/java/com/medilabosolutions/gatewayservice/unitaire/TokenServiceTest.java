@@ -0,0 +1,118 @@
+package com.medilabosolutions.gatewayservice.unitaire;
+
+import com.medilabosolutions.gatewayservice.security.CachingBasicAuthenticationManager;
+import com.medilabosolutions.gatewayservice.security.TokenService;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UserDetailsRepositoryReactiveAuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.userdetails.MapReactiveUserDetailsService;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TokenServiceTest {
+
+    private static final String SECRET = "0123456789abcdef0123456789abcdef";
+    private static final Instant NOW = Instant.parse("2025-01-01T10:00:00Z");
+
+    private final TokenService tokenService = new TokenService(SECRET, Duration.ofMinutes(15),
+            Clock.fixed(NOW, ZoneOffset.UTC));
+
+    @Test
+    void testIssueThenVerify() {
+        // Given: a token issued to a user
+        String token = tokenService.issue("user", AuthorityUtils.createAuthorityList("ROLE_USER"));
+
+        // When: verifying it
+        Optional<Authentication> authentication = tokenService.verify(token);
+
+        // Then: the user and their roles are restored
+        assertTrue(authentication.isPresent());
+        assertEquals("user", authentication.get().getName());
+        assertEquals(AuthorityUtils.createAuthorityList("ROLE_USER"), authentication.get().getAuthorities());
+    }
+
+    @Test
+    void testVerify_ForgedOrExpired() {
+        // Given: a valid token
+        String token = tokenService.issue("user", AuthorityUtils.createAuthorityList("ROLE_USER"));
+        int dot = token.indexOf('.');
+
+        // Then: a token signed with another key, a tampered payload or garbage are rejected
+        TokenService otherKey = new TokenService("fedcba9876543210fedcba9876543210", Duration.ofMinutes(15),
+                Clock.fixed(NOW, ZoneOffset.UTC));
+        assertTrue(otherKey.verify(token).isEmpty());
+        String admin = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("admin\nROLE_ADMIN\n9999999999".getBytes());
+        assertTrue(tokenService.verify(admin + token.substring(dot)).isEmpty());
+        assertTrue(tokenService.verify("not-a-token").isEmpty());
+        assertTrue(tokenService.verify("@@.@@").isEmpty());
+
+        // Then: the token is rejected once expired
+        TokenService later = new TokenService(SECRET, Duration.ofMinutes(15),
+                Clock.fixed(NOW.plus(Duration.ofMinutes(15)), ZoneOffset.UTC));
+        assertTrue(later.verify(token).isEmpty());
+    }
+
+    @Test
+    void testConstructor_ShortSecret() {
+        // Then: a guessable key is refused
+        assertThrows(IllegalArgumentException.class, () -> new TokenService("short", Duration.ofMinutes(15)));
+    }
+
+    @Test
+    void testCachingBasic_BCryptOnce() {
+        // Given: a user whose BCrypt checks are counted
+        AtomicInteger checks = new AtomicInteger();
+        PasswordEncoder bcrypt = new BCryptPasswordEncoder(4);
+        PasswordEncoder counting = new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                return bcrypt.encode(rawPassword);
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                checks.incrementAndGet();
+                return bcrypt.matches(rawPassword, encodedPassword);
+            }
+        };
+        UserDetailsRepositoryReactiveAuthenticationManager delegate = new UserDetailsRepositoryReactiveAuthenticationManager(
+                new MapReactiveUserDetailsService(User.withUsername("user").password(bcrypt.encode("1234")).roles("USER").build()));
+        delegate.setPasswordEncoder(counting);
+        CachingBasicAuthenticationManager manager = new CachingBasicAuthenticationManager(delegate, tokenService,
+                Duration.ofMinutes(5), 100);
+
+        // When: authenticating twice with the right password
+        Authentication first = manager.authenticate(UsernamePasswordAuthenticationToken.unauthenticated("user", "1234")).block();
+        Authentication second = manager.authenticate(UsernamePasswordAuthenticationToken.unauthenticated("user", "1234")).block();
+
+        // Then: only the first request ran BCrypt, and no password is kept
+        assertNotNull(first);
+        assertEquals(first, second);
+        assertNull(second.getCredentials());
+        assertEquals(1, checks.get());
+
+        // Then: a wrong password is still checked, and rejected
+        assertThrows(BadCredentialsException.class, () -> manager
+                .authenticate(UsernamePasswordAuthenticationToken.unauthenticated("user", "wrong")).block());
+        assertEquals(2, checks.get());
+    }
+}
@@ -0,0 +1,69 @@
+package com.medilabosolutions.noteservice.client;
+
+import com.medilabosolutions.noteservice.event.NoteChangedEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Forwards note changes to the risk service, which keeps the risk of each patient up to date
+ * incrementally instead of re-reading all their notes.
+ * <p>
+ * Events are sent in the background, one at a time so that the risk service receives them in
+ * order, and never delay or fail the note operation. A lost event is caught up by the risk
+ * service when its stored risk expires.
+ */
+@Slf4j
+@Component
+public class RiskEventForwarder {
+
+    private final RestClient restClient;
+    private final boolean enabled;
+    private final ExecutorService sender = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("risk-event-sender").daemon().factory());
+
+    public RiskEventForwarder(RestClient.Builder riskRestClientBuilder,
+                              @Value("${risk.events.url:http://risk-service}") String riskServiceUrl,
+                              @Value("${risk.events.enabled:true}") boolean enabled) {
+        this.restClient = riskRestClientBuilder.baseUrl(riskServiceUrl).build();
+        this.enabled = enabled;
+    }
+
+    /**
+     * Queues the change for the risk service.
+     *
+     * @param event the note change
+     */
+    @EventListener
+    public void onNoteChanged(NoteChangedEvent event) {
+        if (enabled && event.patId() != null) {
+            sender.execute(() -> send(event));
+        }
+    }
+
+    private void send(NoteChangedEvent event) {
+        try {
+            restClient.post()
+                    .uri("/api/risk/events/notes")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(event)
+                    .retrieve()
+                    .toBodilessEntity();
+        } catch (Exception e) {
+            log.warn("Unable to notify the risk service of a {} note for patient {}: {}",
+                    event.type(), event.patId(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        sender.shutdown();
+    }
+}
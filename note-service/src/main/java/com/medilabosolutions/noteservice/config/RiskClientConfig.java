@@ -0,0 +1,32 @@
+package com.medilabosolutions.noteservice.config;
+
+import com.medilabosolutions.noteservice.security.ServiceSignature;
+import org.springframework.cloud.client.loadbalancer.LoadBalanced;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.client.RestClient;
+
+/**
+ * HTTP client configuration for calls to the risk service, resolved through Eureka.
+ */
+@Configuration
+public class RiskClientConfig {
+
+    /**
+     * Provides a load-balanced client builder signing its calls to the risk service.
+     *
+     * @param serviceSignature signs the calls as coming from this service
+     * @return RestClient.Builder instance
+     */
+    @Bean
+    @LoadBalanced
+    public RestClient.Builder riskRestClientBuilder(ServiceSignature serviceSignature) {
+        return RestClient.builder()
+                .requestInterceptor((request, body, execution) -> {
+                    serviceSignature.sign(request.getMethod().name(),
+                            ServiceSignature.target(request.getURI().getRawPath(), request.getURI().getRawQuery()),
+                            request.getHeaders()::set);
+                    return execution.execute(request, body);
+                });
+    }
+}
@@ -1,7 +1,13 @@
 package com.medilabosolutions.noteservice.config;
 
+import com.medilabosolutions.noteservice.security.ServiceSignature;
+import com.medilabosolutions.noteservice.security.ServiceSignatureFilter;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
@@ -12,9 +18,18 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
+import org.springframework.security.web.header.HeaderWriter;
+import org.springframework.security.web.servlet.util.matcher.PathPatternRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+
+import java.time.Duration;
 
 /**
  * Security configuration for the Note Service.
+ * <p>
+ * Users authenticate with HTTP Basic; the risk service and the front, through the gateway, sign
+ * their calls instead (see {@link ServiceSignature}).
  */
 @Configuration
 @EnableWebSecurity
@@ -23,11 +38,14 @@ public class SecurityConfig {
     /**
      * Configures HTTP security for the application.
      * @param http HttpSecurity instance to configure
+     * @param serviceSignature verifies the calls signed by the other services
+     * @param apiMaxAge how long the callers may keep the responses of the API reads
      * @return configured SecurityFilterChain
      * @throws Exception if configuration fails
      */
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain filterChain(HttpSecurity http, ServiceSignature serviceSignature,
+                                           @Value("${api.cache.max-age:30s}") Duration apiMaxAge) throws Exception {
         http
                 .csrf(csrf -> csrf.disable()) // Disable CSRF protection
                 .authorizeHttpRequests(auth -> auth
@@ -38,12 +56,38 @@ public class SecurityConfig {
                         // Allow all other requests
                         .anyRequest().permitAll()
                 )
+                .addFilterBefore(new ServiceSignatureFilter(serviceSignature), BasicAuthenticationFilter.class)
+                // Reads may be cached by their caller, e.g. the gateway, the rest is not stored
+                .headers(headers -> headers
+                        .cacheControl(cache -> cache.disable())
+                        .addHeaderWriter(cacheControlWriter(apiMaxAge)))
                 .httpBasic(Customizer.withDefaults()) // Enable HTTP Basic authentication
                 .formLogin(form -> form.disable());   // Disable form login
 
         return http.build();
     }
 
+    /**
+     * Writes the {@code Cache-Control} of the responses: a successful GET on {@code /api/**} may
+     * be kept {@code maxAge} by its caller only, e.g. by the gateway, which caches it per caller
+     * and invalidates it on writes; the other responses are not stored.
+     *
+     * @param maxAge how long a read may be served without asking this service
+     * @return the {@link HeaderWriter}
+     */
+    private static HeaderWriter cacheControlWriter(Duration maxAge) {
+        RequestMatcher apiReads = PathPatternRequestMatcher.withDefaults().matcher(HttpMethod.GET, "/api/**");
+        String apiReadCacheControl = "private, max-age=" + maxAge.toSeconds();
+        return (request, response) -> {
+            if (!response.containsHeader(HttpHeaders.CACHE_CONTROL)) {
+                response.setHeader(HttpHeaders.CACHE_CONTROL,
+                        apiReads.matches(request) && response.getStatus() == HttpServletResponse.SC_OK
+                                ? apiReadCacheControl
+                                : "no-cache, no-store, max-age=0, must-revalidate");
+            }
+        };
+    }
+
     /**
      * Password encoder bean using BCrypt algorithm.
      *
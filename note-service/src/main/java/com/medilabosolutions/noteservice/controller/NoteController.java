@@ -28,6 +28,8 @@ import java.util.List;
 @RequiredArgsConstructor
 public class NoteController {
 
+    private static final int MAX_PATIENTS_PER_REQUEST = 1000;
+
     private final INoteService iNoteService;
     private final NoteMapper noteMapper;
 
@@ -60,6 +62,21 @@ public class NoteController {
         return ResponseEntity.ok(noteMapper.toDtoList(noteList));
     }
 
+    /**
+     * Retrieves the notes of several patients at once, for services reading many patients.
+     * Patients without notes are simply absent from the result.
+     *
+     * @param patIds Patient IDs, at most 1000
+     * @return Notes grouped by patient ID, most recent first within each patient
+     */
+    @PostMapping("/patients")
+    public ResponseEntity<List<NoteDto>> getAllNoteByPatientIds(@RequestBody List<Integer> patIds) {
+        if (patIds.size() > MAX_PATIENTS_PER_REQUEST) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(noteMapper.toDtoList(iNoteService.findAllNoteByPatIds(patIds)));
+    }
+
     /**
      * Creates a new note for a patient.
      *
@@ -0,0 +1,18 @@
+package com.medilabosolutions.noteservice.event;
+
+/**
+ * Published after a note has been created, updated or deleted.
+ *
+ * @param type   the kind of change
+ * @param patId  the patient the note belongs to
+ * @param noteId the note ID
+ * @param note   the note content after the change, null for a deletion
+ */
+public record NoteChangedEvent(Type type, Integer patId, String noteId, String note) {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+}
@@ -4,6 +4,7 @@ import com.medilabosolutions.noteservice.model.Note;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -11,4 +12,6 @@ public interface NoteRepository extends MongoRepository<Note, String> {
 
     List<Note> findByPatIdOrderByUpdatedNoteDateDesc(int patientId);
 
+    List<Note> findByPatIdInOrderByPatIdAscUpdatedNoteDateDesc(Collection<Integer> patientIds);
+
 }
@@ -1,14 +1,18 @@
 package com.medilabosolutions.noteservice.service;
 
+import com.medilabosolutions.noteservice.event.NoteChangedEvent;
 import com.medilabosolutions.noteservice.exceptions.NoteNotFoundException;
 import com.medilabosolutions.noteservice.model.Note;
 import com.medilabosolutions.noteservice.repository.NoteRepository;
 import com.medilabosolutions.noteservice.service.contracts.INoteService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.util.Assert;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,14 +21,27 @@ import java.util.Optional;
 public class NoteServiceImpl implements INoteService {
 
     private final NoteRepository noteRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
-     * Constructor injection of NoteRepository.
+     * Constructor injection of NoteRepository, without publishing note changes.
      *
      * @param noteRepository repository for Note entities
      */
     public NoteServiceImpl(NoteRepository noteRepository) {
+        this(noteRepository, event -> { });
+    }
+
+    /**
+     * Constructor injection of NoteRepository and of the publisher of {@link NoteChangedEvent}s.
+     *
+     * @param noteRepository repository for Note entities
+     * @param eventPublisher publisher notified after each note change
+     */
+    @Autowired
+    public NoteServiceImpl(NoteRepository noteRepository, ApplicationEventPublisher eventPublisher) {
         this.noteRepository = noteRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -37,6 +54,18 @@ public class NoteServiceImpl implements INoteService {
         return noteRepository.findByPatIdOrderByUpdatedNoteDateDesc(patId);
     }
 
+    /**
+     * Finds all notes of several patients in one query, grouped by patient ID
+     * and ordered by updated date descending within each patient.
+     *
+     * @param patIds patient IDs
+     * @return list of notes for these patients
+     */
+    @Override
+    public List<Note> findAllNoteByPatIds(Collection<Integer> patIds) {
+        return noteRepository.findByPatIdInOrderByPatIdAscUpdatedNoteDateDesc(patIds);
+    }
+
     /**
      * Finds a note by its ID.
      *
@@ -57,7 +86,9 @@ public class NoteServiceImpl implements INoteService {
     @Override
     public Note addNote(Note note) {
         Assert.isTrue(note.getId() == null, "The note must not have an ID when creating");
-        return noteRepository.save(note);
+        Note saved = noteRepository.save(note);
+        publish(NoteChangedEvent.Type.CREATED, saved);
+        return saved;
     }
 
     /**
@@ -76,7 +107,9 @@ public class NoteServiceImpl implements INoteService {
         existing.setNote(newNote);
         existing.setUpdatedNoteDate(Instant.now());
 
-        return noteRepository.save(existing);
+        Note saved = noteRepository.save(existing);
+        publish(NoteChangedEvent.Type.UPDATED, saved);
+        return saved;
     }
 
     /**
@@ -92,5 +125,12 @@ public class NoteServiceImpl implements INoteService {
 
         noteRepository.delete(existing);
         log.info("Note successfully deleted (id={})", id);
+        eventPublisher.publishEvent(new NoteChangedEvent(NoteChangedEvent.Type.DELETED, existing.getPatId(), id, null));
+    }
+
+    private void publish(NoteChangedEvent.Type type, Note note) {
+        if (note != null) {
+            eventPublisher.publishEvent(new NoteChangedEvent(type, note.getPatId(), note.getId(), note.getNote()));
+        }
     }
 }
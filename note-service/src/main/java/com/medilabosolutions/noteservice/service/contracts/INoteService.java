@@ -4,6 +4,7 @@ import com.medilabosolutions.noteservice.exceptions.NoteNotFoundException;
 import com.medilabosolutions.noteservice.model.Note;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -12,6 +13,8 @@ public interface INoteService {
 
     List<Note> findAllNoteByPatId(Integer patId);
 
+    List<Note> findAllNoteByPatIds(Collection<Integer> patIds);
+
     Optional<Note> findNoteById(String id);
 
     Note addNote(Note note);
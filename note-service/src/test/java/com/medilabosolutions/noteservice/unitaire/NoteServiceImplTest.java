@@ -1,11 +1,13 @@
 package com.medilabosolutions.noteservice.unitaire;
 
+import com.medilabosolutions.noteservice.event.NoteChangedEvent;
 import com.medilabosolutions.noteservice.exceptions.NoteNotFoundException;
 import com.medilabosolutions.noteservice.model.Note;
 import com.medilabosolutions.noteservice.repository.NoteRepository;
 import com.medilabosolutions.noteservice.service.NoteServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.time.Instant;
 import java.util.Arrays;
@@ -48,6 +50,23 @@ class NoteServiceImplTest {
         verify(noteRepository).findByPatIdOrderByUpdatedNoteDateDesc(5);
     }
 
+    /**
+     * Test retrieving the notes of several patients in one query.
+     */
+    @Test
+    void testFindAllNoteByPatIds() {
+        // Given
+        List<Note> notes = Arrays.asList(new Note(), new Note(), new Note());
+        when(noteRepository.findByPatIdInOrderByPatIdAscUpdatedNoteDateDesc(List.of(1, 2))).thenReturn(notes);
+
+        // When
+        List<Note> result = noteService.findAllNoteByPatIds(List.of(1, 2));
+
+        // Then
+        assertEquals(3, result.size());
+        verify(noteRepository).findByPatIdInOrderByPatIdAscUpdatedNoteDateDesc(List.of(1, 2));
+    }
+
     /**
      * Test finding a note by its ID.
      */
@@ -149,4 +168,30 @@ class NoteServiceImplTest {
         assertThrows(NoteNotFoundException.class,
                 () -> noteService.deleteNote("not-found"));
     }
+
+    /**
+     * Test that note changes are published for the risk service.
+     */
+    @Test
+    void testNoteChangesPublished() throws Exception, NoteNotFoundException {
+        // Given
+        ApplicationEventPublisher publisher = mock(ApplicationEventPublisher.class);
+        noteService = new NoteServiceImpl(noteRepository, publisher);
+        Note note = new Note();
+        note.setPatId(7);
+        note.setNote("Fumeur");
+        when(noteRepository.save(note)).thenAnswer(invocation -> {
+            note.setId("n1");
+            return note;
+        });
+        when(noteRepository.findById("n1")).thenReturn(Optional.of(note));
+
+        // When
+        noteService.addNote(note);
+        noteService.deleteNote("n1");
+
+        // Then
+        verify(publisher).publishEvent(new NoteChangedEvent(NoteChangedEvent.Type.CREATED, 7, "n1", "Fumeur"));
+        verify(publisher).publishEvent(new NoteChangedEvent(NoteChangedEvent.Type.DELETED, 7, "n1", null));
+    }
 }
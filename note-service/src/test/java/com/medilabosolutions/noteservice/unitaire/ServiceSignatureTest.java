@@ -0,0 +1,52 @@
+package com.medilabosolutions.noteservice.unitaire;
+
+import com.medilabosolutions.noteservice.security.ServiceSignature;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ServiceSignatureTest {
+
+    private static final String SECRET = "0123456789abcdef0123456789abcdef";
+    private static final Instant NOW = Instant.parse("2025-01-01T10:00:00Z");
+
+    private static ServiceSignature service(String name, Instant now) {
+        return new ServiceSignature(SECRET, name, Duration.ofSeconds(30), Clock.fixed(now, ZoneOffset.UTC));
+    }
+
+    @Test
+    void testVerify_ReferenceSignature() {
+        // Given: the reference signature, checked by the same test in every service
+        Map<String, String> headers = Map.of(
+                ServiceSignature.SERVICE_HEADER, "front-service",
+                ServiceSignature.TIMESTAMP_HEADER, "1735725600",
+                ServiceSignature.NONCE_HEADER, "bm9uY2Utbm9uY2Utbm9uY2U",
+                ServiceSignature.SIGNATURE_HEADER, "6-Cpor_6wb1U0sU46XRmQYh07HQOYuYEzkSdoalXxsc");
+
+        // Then: it is accepted, so this copy computes the signature like the others
+        assertEquals(Optional.of("front-service"),
+                service("note-service", NOW).verify("GET", "/api/patients/1?page=0", headers::get));
+    }
+
+    @Test
+    void testVerify_SignedCallOnce() {
+        // Given: a call signed by risk-service
+        Map<String, String> headers = new HashMap<>();
+        service("risk-service", NOW).sign("GET", "/api/notes/patient/1", headers::put);
+        ServiceSignature self = service("note-service", NOW.plusSeconds(5));
+
+        // When / Then: it is authenticated for its own target only, once
+        assertTrue(self.verify("GET", "/api/notes/patient/1?page=1", headers::get).isEmpty());
+        assertEquals(Optional.of("risk-service"), self.verify("GET", "/api/notes/patient/1", headers::get));
+        assertTrue(self.verify("GET", "/api/notes/patient/1", headers::get).isEmpty(), "replayed nonce");
+    }
+}
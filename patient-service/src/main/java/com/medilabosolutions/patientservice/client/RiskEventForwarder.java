@@ -0,0 +1,68 @@
+package com.medilabosolutions.patientservice.client;
+
+import com.medilabosolutions.patientservice.event.PatientChangedEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Forwards patient changes to the risk service, which keeps a local replica of the patient
+ * demographics instead of fetching the patient for every assessment.
+ * <p>
+ * Events are sent in the background, one at a time so that the risk service receives them in
+ * order, and never delay or fail the patient operation. A lost event is caught up by the
+ * periodic resynchronization of the risk service.
+ */
+@Slf4j
+@Component
+public class RiskEventForwarder {
+
+    private final RestClient restClient;
+    private final boolean enabled;
+    private final ExecutorService sender = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("risk-event-sender").daemon().factory());
+
+    public RiskEventForwarder(RestClient.Builder riskRestClientBuilder,
+                              @Value("${risk.events.url:http://risk-service}") String riskServiceUrl,
+                              @Value("${risk.events.enabled:true}") boolean enabled) {
+        this.restClient = riskRestClientBuilder.baseUrl(riskServiceUrl).build();
+        this.enabled = enabled;
+    }
+
+    /**
+     * Queues the change for the risk service.
+     *
+     * @param event the patient change
+     */
+    @EventListener
+    public void onPatientChanged(PatientChangedEvent event) {
+        if (enabled && event.id() != null) {
+            sender.execute(() -> send(event));
+        }
+    }
+
+    private void send(PatientChangedEvent event) {
+        try {
+            restClient.post()
+                    .uri("/api/risk/events/patients")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(event)
+                    .retrieve()
+                    .toBodilessEntity();
+        } catch (Exception e) {
+            log.warn("Unable to notify the risk service of a change of patient {}: {}", event.id(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        sender.shutdown();
+    }
+}
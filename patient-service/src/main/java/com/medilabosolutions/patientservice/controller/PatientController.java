@@ -8,10 +8,12 @@ import com.medilabosolutions.patientservice.service.contracts.IPatientService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.List;
 
 /**
@@ -23,6 +25,8 @@ import java.util.List;
 @RequiredArgsConstructor
 public class PatientController {
 
+    private static final int MAX_PAGE_SIZE = 5000;
+
     private final IPatientService patientService;
     private final PatientMapper patientMapper;
 
@@ -46,6 +50,35 @@ public class PatientController {
         return ResponseEntity.ok(patientMapper.toDtoList(patients));
     }
 
+    /**
+     * GET /api/patients/page
+     * Retrieves one page of patients by increasing id, for services reading the whole patient base.
+     * The next page is requested with {@code afterId} set to the last id received; an empty
+     * list means that all patients have been read.
+     *
+     * @param afterId  only patients with a greater id are returned
+     * @param size     the maximum number of patients, at most 5000
+     * @param gender   optional gender filter ('M' or 'F')
+     * @param bornFrom optional earliest birth date
+     * @param bornTo   optional latest birth date
+     * @return ResponseEntity containing a list of PatientDto
+     */
+    @GetMapping("/page")
+    public ResponseEntity<List<PatientDto>> getPatientsPage(
+            @RequestParam(defaultValue = "0") int afterId,
+            @RequestParam(defaultValue = "500") int size,
+            @RequestParam(required = false) String gender,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate bornFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate bornTo) {
+
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        var patients = patientService.findPatientsPage(afterId, size, gender, bornFrom, bornTo);
+        return ResponseEntity.ok(patientMapper.toDtoList(patients));
+    }
+
     /**
      * GET /api/patients/{id}
      * Retrieves a single patient by ID.
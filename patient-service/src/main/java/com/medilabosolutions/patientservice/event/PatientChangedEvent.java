@@ -0,0 +1,14 @@
+package com.medilabosolutions.patientservice.event;
+
+import java.time.LocalDate;
+
+/**
+ * Published after a patient has been created or updated, with the demographics the risk
+ * service depends on.
+ *
+ * @param id          the patient ID
+ * @param dateOfBirth the patient's birth date after the change
+ * @param gender      the patient gender after the change
+ */
+public record PatientChangedEvent(Integer id, LocalDate dateOfBirth, String gender) {
+}
@@ -1,10 +1,33 @@
 package com.medilabosolutions.patientservice.repository;
 
 import com.medilabosolutions.patientservice.model.Patient;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.List;
+
 
 @Repository
 public interface PatientRepository extends JpaRepository<Patient, Integer> {
+
+    /**
+     * Keyset pagination: patients with an id greater than {@code afterId}, by increasing id.
+     * Null filters are ignored.
+     */
+    @Query("""
+            SELECT p FROM Patient p
+            WHERE p.id > :afterId
+              AND (:gender IS NULL OR p.gender = :gender)
+              AND (CAST(:bornFrom AS LocalDate) IS NULL OR p.dateOfBirth >= :bornFrom)
+              AND (CAST(:bornTo AS LocalDate) IS NULL OR p.dateOfBirth <= :bornTo)
+            ORDER BY p.id""")
+    List<Patient> findPageAfter(@Param("afterId") int afterId,
+                                @Param("gender") String gender,
+                                @Param("bornFrom") LocalDate bornFrom,
+                                @Param("bornTo") LocalDate bornTo,
+                                Pageable pageable);
 }
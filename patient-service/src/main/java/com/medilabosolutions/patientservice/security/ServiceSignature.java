@@ -0,0 +1,166 @@
+package com.medilabosolutions.patientservice.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Signs the calls of this service to the other services, and verifies the calls it receives
+ * from them, in place of a BCrypt check of Basic credentials on every internal hop.
+ * <p>
+ * A signed call carries the name of the calling service, a timestamp, a random nonce and
+ * {@code HMAC-SHA256(name, method, target, timestamp, nonce)} keyed with
+ * {@code internal.auth.secret}, the same on every service, the target being the path and query
+ * of the call as received by the called service, after the gateway routes strip their
+ * {@code /<service-id>} prefix. A call is accepted if its signature matches, compared in
+ * constant time, its timestamp is within {@code internal.auth.max-skew} of the clock, and its
+ * nonce was not seen in that window.
+ * <p>
+ * Copied in gateway-service, note-service, risk-service and front-service, the services
+ * sharing no module: change every copy. Each one is checked against the same reference
+ * signature in its {@code ServiceSignatureTest}.
+ */
+@Component
+public class ServiceSignature {
+
+    public static final String SERVICE_HEADER = "X-Service-Name";
+    public static final String TIMESTAMP_HEADER = "X-Service-Timestamp";
+    public static final String NONCE_HEADER = "X-Service-Nonce";
+    public static final String SIGNATURE_HEADER = "X-Service-Signature";
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int MIN_SECRET_BYTES = 32;
+    private static final int MAX_NONCES = 500_000;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecretKeySpec key;
+    private final String serviceName;
+    private final Duration maxSkew;
+    private final Clock clock;
+    private final ThreadLocal<Mac> macs;   // Mac instances are not thread-safe
+    private final SecureRandom random = new SecureRandom();
+    private final Cache<String, Boolean> seenNonces;
+
+    @Autowired
+    public ServiceSignature(
+            @Value("${internal.auth.secret}") String secret,
+            @Value("${spring.application.name}") String serviceName,
+            @Value("${internal.auth.max-skew:30s}") Duration maxSkew) {
+
+        this(secret, serviceName, maxSkew, Clock.systemUTC());
+    }
+
+    public ServiceSignature(String secret, String serviceName, Duration maxSkew, Clock clock) {
+        byte[] secretBytes = secret.getBytes(StandardCharsets.UTF_8);
+        if (secretBytes.length < MIN_SECRET_BYTES) {
+            throw new IllegalArgumentException("internal.auth.secret must be at least " + MIN_SECRET_BYTES + " bytes");
+        }
+        this.key = new SecretKeySpec(secretBytes, ALGORITHM);
+        this.serviceName = serviceName;
+        this.maxSkew = maxSkew;
+        this.clock = clock;
+        this.macs = ThreadLocal.withInitial(this::newMac);
+        this.seenNonces = Caffeine.newBuilder()
+                .expireAfterWrite(maxSkew.multipliedBy(2))   // older nonces fail the timestamp check anyway
+                .maximumSize(MAX_NONCES)
+                .build();
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 unavailable", e);
+        }
+    }
+
+    /**
+     * Signs an outgoing call of this service.
+     *
+     * @param method the HTTP method of the call
+     * @param target the path and query of the call, as received by the called service (see
+     *               {@link #target(String, String)})
+     * @param header sets a header of the call
+     */
+    public void sign(String method, String target, BiConsumer<String, String> header) {
+        String timestamp = String.valueOf(clock.instant().getEpochSecond());
+        byte[] nonceBytes = new byte[16];
+        random.nextBytes(nonceBytes);
+        String nonce = ENCODER.encodeToString(nonceBytes);
+
+        header.accept(SERVICE_HEADER, serviceName);
+        header.accept(TIMESTAMP_HEADER, timestamp);
+        header.accept(NONCE_HEADER, nonce);
+        header.accept(SIGNATURE_HEADER, ENCODER.encodeToString(mac(serviceName, method, target, timestamp, nonce)));
+    }
+
+    /**
+     * Verifies an incoming signed call.
+     *
+     * @param method the HTTP method of the call
+     * @param target the path and query of the call, as received by the called service (see
+     *               {@link #target(String, String)})
+     * @param header reads a header of the call, null if absent
+     * @return the name of the calling service, or empty if the signature is missing, forged,
+     * out of date or replayed
+     */
+    public Optional<String> verify(String method, String target, Function<String, String> header) {
+        String caller = header.apply(SERVICE_HEADER);
+        String timestamp = header.apply(TIMESTAMP_HEADER);
+        String nonce = header.apply(NONCE_HEADER);
+        String signature = header.apply(SIGNATURE_HEADER);
+        if (caller == null || timestamp == null || nonce == null || signature == null) {
+            return Optional.empty();
+        }
+
+        byte[] signatureBytes;
+        long epochSecond;
+        try {
+            signatureBytes = DECODER.decode(signature);
+            epochSecond = Long.parseLong(timestamp);
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+        if (!MessageDigest.isEqual(signatureBytes, mac(caller, method, target, timestamp, nonce))
+                || Math.abs(clock.instant().getEpochSecond() - epochSecond) > maxSkew.toSeconds()
+                || seenNonces.asMap().putIfAbsent(nonce, Boolean.TRUE) != null) {
+            return Optional.empty();
+        }
+        return Optional.of(caller);
+    }
+
+    /**
+     * The signed target of a call: its raw path, as received by the called service, i.e. without
+     * the {@code /<service-id>} prefix of the gateway routes, and its raw query if any.
+     *
+     * @param path  the raw path of the call
+     * @param query the raw query of the call, null or empty if none
+     * @return the target to sign or verify
+     */
+    public static String target(String path, String query) {
+        return query == null || query.isEmpty() ? path : path + "?" + query;
+    }
+
+    private byte[] mac(String caller, String method, String target, String timestamp, String nonce) {
+        return macs.get().doFinal((caller + "\n" + method + "\n" + target + "\n" + timestamp + "\n" + nonce)
+                .getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,52 @@
+package com.medilabosolutions.patientservice.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Authenticates the calls signed by another service (see {@link ServiceSignature}) as that
+ * service, with the {@code ROLE_SERVICE} authority, before HTTP Basic is tried.
+ * <p>
+ * Unsigned calls go on to HTTP Basic; calls with an invalid signature are rejected with 401.
+ * <p>
+ * Same class in note-service and risk-service, the services sharing no module: change every copy.
+ */
+public class ServiceSignatureFilter extends OncePerRequestFilter {
+
+    private final ServiceSignature serviceSignature;
+
+    public ServiceSignatureFilter(ServiceSignature serviceSignature) {
+        this.serviceSignature = serviceSignature;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+
+        if (request.getHeader(ServiceSignature.SIGNATURE_HEADER) == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        String target = ServiceSignature.target(request.getRequestURI(), request.getQueryString());
+        String caller = serviceSignature.verify(request.getMethod(), target, request::getHeader).orElse(null);
+        if (caller == null) {
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Invalid service signature");
+            return;
+        }
+
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(UsernamePasswordAuthenticationToken.authenticated(caller, null,
+                AuthorityUtils.createAuthorityList("ROLE_SERVICE")));
+        SecurityContextHolder.setContext(context);
+        chain.doFilter(request, response);
+    }
+}
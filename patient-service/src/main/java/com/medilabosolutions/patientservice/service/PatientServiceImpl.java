@@ -1,11 +1,16 @@
 package com.medilabosolutions.patientservice.service;
 
+import com.medilabosolutions.patientservice.event.PatientChangedEvent;
 import com.medilabosolutions.patientservice.model.Patient;
 import com.medilabosolutions.patientservice.repository.PatientRepository;
 import com.medilabosolutions.patientservice.service.contracts.IPatientService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.util.Assert;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,9 +21,27 @@ import java.util.Optional;
 public class PatientServiceImpl implements IPatientService {
 
     private final PatientRepository patientRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
+    /**
+     * Constructor injection of PatientRepository, without publishing patient changes.
+     *
+     * @param patientRepository repository for Patient entities
+     */
     public PatientServiceImpl(PatientRepository patientRepository) {
+        this(patientRepository, event -> { });
+    }
+
+    /**
+     * Constructor injection of PatientRepository and of the publisher of {@link PatientChangedEvent}s.
+     *
+     * @param patientRepository repository for Patient entities
+     * @param eventPublisher    publisher notified after each patient change
+     */
+    @Autowired
+    public PatientServiceImpl(PatientRepository patientRepository, ApplicationEventPublisher eventPublisher) {
         this.patientRepository = patientRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -43,6 +66,23 @@ public class PatientServiceImpl implements IPatientService {
         return patientRepository.findById(id);
     }
 
+    /**
+     * Retrieves one page of patients, by increasing id.
+     * The next page starts after the last id of this one, so that deep pages cost the same as
+     * the first one.
+     *
+     * @param afterId  only patients with a greater id are returned
+     * @param size     the maximum number of patients
+     * @param gender   the gender to keep, or null for all
+     * @param bornFrom the earliest birth date to keep, or null
+     * @param bornTo   the latest birth date to keep, or null
+     * @return the page, empty once all patients have been read
+     */
+    @Override
+    public List<Patient> findPatientsPage(int afterId, int size, String gender, LocalDate bornFrom, LocalDate bornTo) {
+        return patientRepository.findPageAfter(afterId, gender, bornFrom, bornTo, PageRequest.of(0, size));
+    }
+
     /**
      * Creates a new patient.
      *
@@ -56,7 +96,9 @@ public class PatientServiceImpl implements IPatientService {
         Assert.isTrue(patient.getId() == null,
                 "Le patient ne doit pas avoir d'ID");
 
-        return patientRepository.save(patient);
+        Patient saved = patientRepository.save(patient);
+        publish(saved);
+        return saved;
     }
 
     /**
@@ -72,7 +114,15 @@ public class PatientServiceImpl implements IPatientService {
         Assert.notNull(patient.getId(),
                 "L'ID est requis pour la mise à jour");
 
-        return patientRepository.save(patient);
+        Patient saved = patientRepository.save(patient);
+        publish(saved);
+        return saved;
+    }
+
+    private void publish(Patient patient) {
+        if (patient != null) {
+            eventPublisher.publishEvent(new PatientChangedEvent(patient.getId(), patient.getDateOfBirth(), patient.getGender()));
+        }
     }
 
 }
@@ -3,6 +3,7 @@ package com.medilabosolutions.patientservice.service.contracts;
 import com.medilabosolutions.patientservice.model.Patient;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,6 +14,8 @@ public interface IPatientService {
 
     Optional<Patient> findPatient(int id);
 
+    List<Patient> findPatientsPage(int afterId, int size, String gender, LocalDate bornFrom, LocalDate bornTo);
+
     Patient addPatient(Patient patient);
 
     Patient updatePatient(Patient patient);
@@ -1,14 +1,17 @@
 package com.medilabosolutions.patientservice.integration;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 import com.medilabosolutions.patientservice.dto.PatientDto;
 import com.medilabosolutions.patientservice.model.Patient;
 import com.medilabosolutions.patientservice.repository.PatientRepository;
+import com.medilabosolutions.patientservice.security.ServiceSignature;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ActiveProfiles;
@@ -16,8 +19,11 @@ import org.springframework.test.web.servlet.MockMvc;
 
 import java.time.LocalDate;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -35,6 +41,9 @@ class PatientControllerIntegrationTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private ServiceSignature serviceSignature;
+
     /**
      * Clean the database before each test to ensure isolated test scenarios.
      */
@@ -90,8 +99,9 @@ class PatientControllerIntegrationTest {
 
         // When: a GET request is made to /api/patients/{id}
         mockMvc.perform(get("/api/patients/{id}", saved.getId()))
-                // Then: the response should be 200 OK and contain the correct patient
+                // Then: the response should be 200 OK and contain the correct patient, cacheable by the caller only
                 .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "private, max-age=30"))
                 .andExpect(jsonPath("$.firstName", is("Jane")))
                 .andExpect(jsonPath("$.gender", is("F")));
     }
@@ -113,8 +123,9 @@ class PatientControllerIntegrationTest {
         mockMvc.perform(post("/api/patients")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(patientDto)))
-                // Then: the response should be 201 Created and contain the created patient
+                // Then: the response should be 201 Created and contain the created patient, not stored
                 .andExpect(status().isCreated())
+                .andExpect(header().string("Cache-Control", containsString("no-store")))
                 .andExpect(jsonPath("$.firstName", is("Alice")))
                 .andExpect(jsonPath("$.gender", is("F")));
     }
@@ -167,4 +178,107 @@ class PatientControllerIntegrationTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.firstName", is("Bobby")));
     }
+
+    @Test
+    @WithMockUser(username = "user", roles = "USER")
+    void testGetPatientsPage_keysetAndFilters() throws Exception {
+        // Given: three patients, two of them women
+        Patient first = patientRepository.save(Patient.builder()
+                .firstName("Anna").lastName("A").dateOfBirth(LocalDate.of(1950, 1, 1)).gender("F").build());
+        Patient second = patientRepository.save(Patient.builder()
+                .firstName("Bob").lastName("B").dateOfBirth(LocalDate.of(1990, 1, 1)).gender("M").build());
+        patientRepository.save(Patient.builder()
+                .firstName("Cleo").lastName("C").dateOfBirth(LocalDate.of(2000, 1, 1)).gender("F").build());
+
+        // When / Then: pages of 2 patients follow each other by id
+        mockMvc.perform(get("/api/patients/page").param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].firstName", is("Anna")));
+        mockMvc.perform(get("/api/patients/page").param("size", "2").param("afterId", second.getId().toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].firstName", is("Cleo")));
+
+        // When / Then: filters on gender and birth date are applied
+        mockMvc.perform(get("/api/patients/page").param("gender", "F").param("bornFrom", "1960-01-01"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].firstName", is("Cleo")));
+        mockMvc.perform(get("/api/patients/page").param("afterId", first.getId().toString()).param("bornTo", "1995-01-01"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].firstName", is("Bob")));
+    }
+
+    @Test
+    @WithMockUser(username = "user", roles = "USER")
+    void testGetPatientById_cbor() throws Exception {
+        // Given: a patient is saved in the database
+        Patient saved = patientRepository.save(Patient.builder()
+                .firstName("Jane")
+                .lastName("Doe")
+                .dateOfBirth(LocalDate.of(1995, 5, 5))
+                .gender("F")
+                .build());
+
+        // When: an internal caller asks for CBOR
+        byte[] cbor = mockMvc.perform(get("/api/patients/{id}", saved.getId())
+                        .accept(MediaType.parseMediaType("application/cbor")))
+                // Then: the patient is returned as CBOR, smaller than as JSON
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/cbor"))
+                .andReturn().getResponse().getContentAsByteArray();
+        PatientDto patient = new ObjectMapper(new CBORFactory()).findAndRegisterModules().readValue(cbor, PatientDto.class);
+        assertEquals("Jane", patient.getFirstName());
+        assertEquals(LocalDate.of(1995, 5, 5), patient.getDateOfBirth());
+
+        // When: an external caller does not ask for a format
+        byte[] json = mockMvc.perform(get("/api/patients/{id}", saved.getId()))
+                // Then: JSON remains the default
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse().getContentAsByteArray();
+        assertTrue(cbor.length < json.length);
+    }
+
+    @Test
+    void testGetPatientById_signedServiceCall() throws Exception {
+        // Given: a patient is saved in the database
+        Patient saved = patientRepository.save(Patient.builder()
+                .firstName("Jane")
+                .lastName("Doe")
+                .dateOfBirth(LocalDate.of(1995, 5, 5))
+                .gender("F")
+                .build());
+
+        // When: another service calls without credentials but with its signature
+        HttpHeaders signature = new HttpHeaders();
+        serviceSignature.sign("GET", "/api/patients/" + saved.getId(), signature::set);
+        mockMvc.perform(get("/api/patients/{id}", saved.getId()).headers(signature))
+                // Then: the call is authenticated
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.firstName", is("Jane")));
+
+        // When: a signature is sent for another path
+        HttpHeaders otherPath = new HttpHeaders();
+        serviceSignature.sign("GET", "/api/patients/" + (saved.getId() + 1), otherPath::set);
+        mockMvc.perform(get("/api/patients/{id}", saved.getId()).headers(otherPath))
+                // Then: the call is rejected
+                .andExpect(status().isUnauthorized());
+
+        // When: the same signature is replayed, or forged
+        mockMvc.perform(get("/api/patients/{id}", saved.getId()).headers(signature))
+                // Then: the call is rejected
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/api/patients/{id}", saved.getId())
+                        .header(ServiceSignature.SERVICE_HEADER, "risk-service")
+                        .header(ServiceSignature.SIGNATURE_HEADER, "forged"))
+                .andExpect(status().isUnauthorized());
+
+        // When: an unsigned call comes without credentials
+        mockMvc.perform(get("/api/patients/{id}", saved.getId()))
+                // Then: HTTP Basic is still required
+                .andExpect(status().isUnauthorized());
+    }
 }
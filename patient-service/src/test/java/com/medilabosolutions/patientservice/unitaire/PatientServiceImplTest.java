@@ -1,10 +1,12 @@
 package com.medilabosolutions.patientservice.unitaire;
 
+import com.medilabosolutions.patientservice.event.PatientChangedEvent;
 import com.medilabosolutions.patientservice.model.Patient;
 import com.medilabosolutions.patientservice.repository.PatientRepository;
 import com.medilabosolutions.patientservice.service.PatientServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.time.LocalDate;
 import java.util.Arrays;
@@ -138,4 +140,29 @@ class PatientServiceImplTest {
         assertTrue(ex.getMessage().contains("L'ID est requis pour la mise à jour"));
         verify(patientRepository, never()).save(any());
     }
+
+    /**
+     * Test that creating and updating a patient publishes their demographics for the risk service.
+     */
+    @Test
+    void testAddAndUpdatePatientPublishChanges() {
+        // Given
+        ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+        PatientServiceImpl publishingService = new PatientServiceImpl(patientRepository, eventPublisher);
+        Patient p = new Patient(null, "John", "Doe", LocalDate.of(1990, 1, 1), "M", "Address1", "123456");
+        when(patientRepository.save(any(Patient.class))).thenAnswer(invocation -> {
+            Patient patient = invocation.getArgument(0);
+            patient.setId(1);
+            return patient;
+        });
+
+        // When
+        publishingService.addPatient(p);
+        p.setDateOfBirth(LocalDate.of(1991, 2, 3));
+        publishingService.updatePatient(p);
+
+        // Then
+        verify(eventPublisher).publishEvent(new PatientChangedEvent(1, LocalDate.of(1990, 1, 1), "M"));
+        verify(eventPublisher).publishEvent(new PatientChangedEvent(1, LocalDate.of(1991, 2, 3), "M"));
+    }
 }
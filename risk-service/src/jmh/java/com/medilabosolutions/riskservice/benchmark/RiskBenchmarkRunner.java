@@ -0,0 +1,127 @@
+package com.medilabosolutions.riskservice.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.BenchmarkResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Runs the risk scoring benchmarks and, when a baseline is given, fails on regressions.
+ * Other benchmarks are run by naming them, e.g. {@code WireFormatBenchmark}.
+ * <p>
+ * Usual JMH options can be passed as arguments ({@code -p noteCount=50}, {@code -f 3}...).
+ * The GC profiler is always enabled and results are written to
+ * {@code target/jmh-result.json}. With {@code -Djmh.baseline=<previous jmh-result.json>},
+ * the run fails when a benchmark is slower, or allocates more per operation, than the
+ * baseline by more than {@code -Djmh.tolerance} (10% by default).
+ */
+public final class RiskBenchmarkRunner {
+
+    private static final String RESULT_FILE = "target/jmh-result.json";
+    private static final String ALLOCATION_METRIC = "gc.alloc.rate.norm";
+
+    private RiskBenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        OptionsBuilder builder = new OptionsBuilder();
+        if (commandLine.getIncludes().isEmpty()) {
+            builder.include(RiskScoringBenchmark.class.getSimpleName());
+        }
+        Options options = builder
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(RESULT_FILE)
+                .build();
+
+        Collection<RunResult> results = new Runner(options).run();
+
+        String baseline = System.getProperty("jmh.baseline", "");
+        if (!baseline.isBlank()) {
+            double tolerance = Double.parseDouble(System.getProperty("jmh.tolerance", "0.10"));
+            List<String> regressions = compare(results, new ObjectMapper().readTree(new File(baseline)), tolerance);
+            if (!regressions.isEmpty()) {
+                regressions.forEach(System.err::println);
+                System.exit(1);
+            }
+            System.out.println("No regression against " + baseline);
+        }
+    }
+
+    private static List<String> compare(Collection<RunResult> results, JsonNode baseline, double tolerance) {
+        Map<String, JsonNode> baselineByKey = new HashMap<>();
+        for (JsonNode run : baseline) {
+            baselineByKey.put(key(run.path("benchmark").asText(), run.path("mode").asText(), params(run)), run);
+        }
+
+        List<String> regressions = new ArrayList<>();
+        for (RunResult result : results) {
+            BenchmarkResult aggregated = result.getAggregatedResult();
+            String benchmark = result.getParams().getBenchmark();
+            String mode = result.getParams().getMode().shortLabel();
+            Map<String, String> params = new TreeMap<>();
+            for (String name : result.getParams().getParamsKeys()) {
+                params.put(name, result.getParams().getParam(name));
+            }
+            String key = key(benchmark, mode, params);
+
+            JsonNode previous = baselineByKey.get(key);
+            if (previous == null) {
+                continue;  // new benchmark or parameter value: nothing to compare with
+            }
+
+            // Throughput must not drop, average time must not grow
+            double score = aggregated.getPrimaryResult().getScore();
+            double previousScore = previous.path("primaryMetric").path("score").asDouble();
+            boolean slower = "thrpt".equals(mode)
+                    ? score < previousScore * (1 - tolerance)
+                    : score > previousScore * (1 + tolerance);
+            if (slower) {
+                regressions.add(String.format("REGRESSION %s: %.3f -> %.3f %s",
+                        key, previousScore, score, aggregated.getPrimaryResult().getScoreUnit()));
+            }
+
+            Result<?> allocation = aggregated.getSecondaryResults().get(ALLOCATION_METRIC);
+            JsonNode previousAllocation = previous.path("secondaryMetrics").path(ALLOCATION_METRIC).path("score");
+            // One byte of slack: allocation-free benchmarks report values around zero
+            if (allocation != null && !previousAllocation.isMissingNode()
+                    && allocation.getScore() > previousAllocation.asDouble() * (1 + tolerance) + 1) {
+                regressions.add(String.format("REGRESSION %s: %.1f -> %.1f B/op allocated",
+                        key, previousAllocation.asDouble(), allocation.getScore()));
+            }
+        }
+        return regressions;
+    }
+
+    private static Map<String, String> params(JsonNode run) {
+        Map<String, String> params = new TreeMap<>();
+        Iterator<Map.Entry<String, JsonNode>> fields = run.path("params").fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            params.put(field.getKey(), field.getValue().asText());
+        }
+        return params;
+    }
+
+    private static String key(String benchmark, String mode, Map<String, String> params) {
+        return benchmark + " [" + mode + "] " + params;
+    }
+}
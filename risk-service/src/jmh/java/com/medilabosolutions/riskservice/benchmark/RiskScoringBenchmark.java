@@ -0,0 +1,82 @@
+package com.medilabosolutions.riskservice.benchmark;
+
+import com.medilabosolutions.riskservice.dto.NoteDto;
+import com.medilabosolutions.riskservice.dto.PatientDto;
+import com.medilabosolutions.riskservice.dto.RiskResponseDto;
+import com.medilabosolutions.riskservice.matcher.RiskTermMatcher;
+import com.medilabosolutions.riskservice.matcher.TextNormalizer;
+import com.medilabosolutions.riskservice.service.RiskAssessmentServiceImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.medilabosolutions.riskservice.model.RiskTerms.listRisks;
+
+/**
+ * Benchmarks of the risk scoring engine, on the notes of one synthetic patient.
+ * <ul>
+ *     <li>{@code normalize}: accent and case folding of the joined notes;</li>
+ *     <li>{@code countTerms}: term matching of already normalized text, with or without the Vector API
+ *     prefilter ({@code vectorized});</li>
+ *     <li>{@code assessmentPatientRisk}: the full assessment, as done for each request.</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class RiskScoringBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int noteCount;
+
+    @Param({"300"})
+    public int noteLength;
+
+    @Param({"0.05"})
+    public double termDensity;
+
+    @Param({"0.0", "0.1"})
+    public double accentRatio;
+
+    @Param({"true", "false"})
+    public boolean vectorized;
+
+    private RiskAssessmentServiceImpl riskAssessmentService;
+    private RiskTermMatcher termMatcher;
+    private PatientDto patient;
+    private List<NoteDto> notes;
+    private String joinedNotes;
+    private String normalizedNotes;
+
+    @Setup
+    public void setUp() {
+        riskAssessmentService = new RiskAssessmentServiceImpl();
+        termMatcher = RiskTermMatcher.compile(listRisks.stream().map(TextNormalizer::normalize).toList(), vectorized);
+        patient = new PatientDto(1, "John", "Doe", LocalDate.of(1980, 5, 10), "M");
+
+        notes = new SyntheticNoteGenerator(42, termDensity, accentRatio).notes(noteCount, noteLength);
+        joinedNotes = notes.stream().map(NoteDto::getNote).collect(Collectors.joining(" "));
+        normalizedNotes = TextNormalizer.normalize(joinedNotes);
+    }
+
+    @Benchmark
+    public String normalize() {
+        return TextNormalizer.normalize(joinedNotes);
+    }
+
+    @Benchmark
+    public int countTerms() {
+        return termMatcher.countTerms(normalizedNotes);
+    }
+
+    @Benchmark
+    public RiskResponseDto assessmentPatientRisk() {
+        return riskAssessmentService.assessmentPatientRisk(patient, notes);
+    }
+}
@@ -0,0 +1,93 @@
+package com.medilabosolutions.riskservice.benchmark;
+
+import com.medilabosolutions.riskservice.dto.NoteDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates reproducible clinical notes for the benchmarks.
+ * <p>
+ * Notes are made of ordinary French words, a share of which ({@code termDensity}) are replaced
+ * by risk terms as doctors write them (capitalized, accented, plural). Independently, a share
+ * of the vowels and 'c' ({@code accentRatio}) are accented, so that the normalization cost can
+ * be measured apart from the matching cost.
+ */
+public final class SyntheticNoteGenerator {
+
+    private static final String[] WORDS = {
+            "le", "patient", "se", "plaint", "de", "douleurs", "au", "niveau", "du", "dos", "depuis",
+            "trois", "semaines", "tension", "normale", "examen", "clinique", "sans", "particularite",
+            "traitement", "poursuivi", "revoir", "dans", "un", "mois", "bilan", "sanguin", "prescrit",
+            "sommeil", "correct", "appetit", "conserve", "activite", "physique", "reguliere"
+    };
+
+    private static final String[] RISK_TERMS = {
+            "Hémoglobine A1C", "Microalbumine", "Taille", "Poids", "Fumeur", "fumeuse", "Fumer",
+            "Anormal", "anormale", "Cholestérol", "Vertige", "vertiges", "Rechute", "rechutes",
+            "Réaction", "réactions", "Anticorps"
+    };
+
+    private static final String PLAIN = "aeiouc";
+    private static final String[] ACCENTED = {"àâä", "éèêë", "îï", "ôö", "ùûü", "ç"};
+
+    private final Random random;
+    private final double termDensity;
+    private final double accentRatio;
+
+    /**
+     * @param seed        the random seed, for reproducible notes
+     * @param termDensity the share of words replaced by a risk term, between 0 and 1
+     * @param accentRatio the share of accentable letters that are accented, between 0 and 1
+     */
+    public SyntheticNoteGenerator(long seed, double termDensity, double accentRatio) {
+        this.random = new Random(seed);
+        this.termDensity = termDensity;
+        this.accentRatio = accentRatio;
+    }
+
+    /**
+     * @param noteCount  the number of notes
+     * @param noteLength the approximate length of each note, in characters
+     * @return the notes of one patient
+     */
+    public List<NoteDto> notes(int noteCount, int noteLength) {
+        List<NoteDto> notes = new ArrayList<>(noteCount);
+        for (int i = 0; i < noteCount; i++) {
+            notes.add(new NoteDto(String.valueOf(i), 1, note(noteLength), null, null));
+        }
+        return notes;
+    }
+
+    /**
+     * @param length the approximate length of the note, in characters
+     * @return one note
+     */
+    public String note(int length) {
+        StringBuilder note = new StringBuilder(length + 20);
+        while (note.length() < length) {
+            if (!note.isEmpty()) {
+                note.append(random.nextInt(8) == 0 ? ", " : " ");
+            }
+            if (random.nextDouble() < termDensity) {
+                note.append(RISK_TERMS[random.nextInt(RISK_TERMS.length)]);
+            } else {
+                appendWord(note, WORDS[random.nextInt(WORDS.length)]);
+            }
+        }
+        return note.append('.').toString();
+    }
+
+    private void appendWord(StringBuilder note, String word) {
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            int plain = PLAIN.indexOf(c);
+            if (plain >= 0 && random.nextDouble() < accentRatio) {
+                String variants = ACCENTED[plain];
+                c = variants.charAt(random.nextInt(variants.length()));
+            }
+            note.append(i == 0 && random.nextInt(4) == 0 ? Character.toUpperCase(c) : c);
+        }
+    }
+}
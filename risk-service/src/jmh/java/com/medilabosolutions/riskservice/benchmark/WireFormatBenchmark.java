@@ -0,0 +1,95 @@
+package com.medilabosolutions.riskservice.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medilabosolutions.riskservice.config.WireFormatConfig;
+import com.medilabosolutions.riskservice.dto.NoteDto;
+import com.medilabosolutions.riskservice.dto.PatientDto;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the wire formats of the internal calls, on the payloads read by risk-service:
+ * the notes of one patient and a page of patients, as JSON and as CBOR (see
+ * {@link WireFormatConfig}). The payload sizes are printed at setup.
+ * <pre>
+ * mvn -P benchmark verify -Djmh.args=WireFormatBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WireFormatBenchmark {
+
+    private static final TypeReference<List<NoteDto>> NOTES = new TypeReference<>() {
+    };
+    private static final TypeReference<List<PatientDto>> PATIENTS = new TypeReference<>() {
+    };
+
+    @Param({"json", "cbor"})
+    public String format;
+
+    @Param({"10", "100"})
+    public int noteCount;
+
+    @Param({"500"})
+    public int patientCount;
+
+    private ObjectMapper mapper;
+    private List<NoteDto> notes;
+    private List<PatientDto> patients;
+    private byte[] encodedNotes;
+    private byte[] encodedPatients;
+
+    @Setup
+    public void setUp() throws IOException {
+        // Same mappers as the services: Spring Boot's JSON defaults, and the CBOR mapper built from them
+        mapper = format.equals("cbor")
+                ? WireFormatConfig.cborObjectMapper(Jackson2ObjectMapperBuilder.json())
+                : Jackson2ObjectMapperBuilder.json().build();
+
+        Instant created = Instant.parse("2024-03-01T09:30:00.123456Z");
+        notes = new SyntheticNoteGenerator(42, 0.05, 0.1).notes(noteCount, 300).stream()
+                .map(note -> new NoteDto(note.getId(), 1, note.getNote(), created, created))
+                .toList();
+        patients = new ArrayList<>();
+        for (int id = 1; id <= patientCount; id++) {
+            patients.add(new PatientDto(id, "Firstname" + id, "Lastname" + id,
+                    LocalDate.of(1940 + id % 70, 1 + id % 12, 1 + id % 28), id % 2 == 0 ? "F" : "M"));
+        }
+        encodedNotes = mapper.writeValueAsBytes(notes);
+        encodedPatients = mapper.writeValueAsBytes(patients);
+        System.out.printf("%n%s: %d notes in %d bytes, %d patients in %d bytes%n",
+                format, noteCount, encodedNotes.length, patientCount, encodedPatients.length);
+    }
+
+    @Benchmark
+    public byte[] writeNotes() throws IOException {
+        return mapper.writeValueAsBytes(notes);
+    }
+
+    @Benchmark
+    public List<NoteDto> readNotes() throws IOException {
+        return mapper.readValue(encodedNotes, NOTES);
+    }
+
+    @Benchmark
+    public byte[] writePatients() throws IOException {
+        return mapper.writeValueAsBytes(patients);
+    }
+
+    @Benchmark
+    public List<PatientDto> readPatients() throws IOException {
+        return mapper.readValue(encodedPatients, PATIENTS);
+    }
+}
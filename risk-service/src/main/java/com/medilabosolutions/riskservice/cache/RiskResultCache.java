@@ -0,0 +1,178 @@
+package com.medilabosolutions.riskservice.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.medilabosolutions.riskservice.dto.RiskResponseDto;
+import com.medilabosolutions.riskservice.exception.NoteServiceException;
+import com.medilabosolutions.riskservice.exception.PatientNotFoundException;
+import com.medilabosolutions.riskservice.exception.PatientServiceException;
+import com.medilabosolutions.riskservice.exception.RiskAssessmentException;
+import com.medilabosolutions.riskservice.service.RiskStoreService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Bounded in-process cache of patient risk assessments, served stale-while-revalidate.
+ * <p>
+ * An entry younger than {@code risk.cache.refresh-after} is returned as is. An older entry is
+ * still returned immediately, while a background refresh (at most one per patient) recomputes
+ * it. If the refresh fails because patient-service or note-service is slow or down, the stale
+ * entry keeps being served until it is {@code risk.cache.expire-after} old; a patient that no
+ * longer exists is evicted. Only a missing entry makes the caller wait for the
+ * {@link RiskStoreService}.
+ * <p>
+ * Metrics: {@code risk.cache.requests} tagged {@code result=hit|miss|stale},
+ * {@code risk.cache.refresh.failures} and {@code risk.cache.size}.
+ */
+@Slf4j
+@Component
+public class RiskResultCache {
+
+    private final RiskStoreService riskStoreService;
+    private final Ticker ticker;
+    private final long refreshAfterNanos;
+    private final Cache<Integer, CachedRisk> cache;
+    private final Set<Integer> refreshing = ConcurrentHashMap.newKeySet();
+    private final ExecutorService refreshExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter staleServes;
+    private final Counter refreshFailures;
+
+    @Autowired
+    public RiskResultCache(
+            RiskStoreService riskStoreService,
+            MeterRegistry meterRegistry,
+            @Value("${risk.cache.maximum-size:10000}") long maximumSize,
+            @Value("${risk.cache.refresh-after:5m}") Duration refreshAfter,
+            @Value("${risk.cache.expire-after:1h}") Duration expireAfter) {
+
+        this(riskStoreService, meterRegistry, maximumSize, refreshAfter, expireAfter, Ticker.systemTicker());
+    }
+
+    public RiskResultCache(
+            RiskStoreService riskStoreService,
+            MeterRegistry meterRegistry,
+            long maximumSize,
+            Duration refreshAfter,
+            Duration expireAfter,
+            Ticker ticker) {
+
+        this.riskStoreService = riskStoreService;
+        this.ticker = ticker;
+        this.refreshAfterNanos = refreshAfter.toNanos();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfter)
+                .ticker(ticker)
+                .build();
+
+        this.hits = requests(meterRegistry, "hit");
+        this.misses = requests(meterRegistry, "miss");
+        this.staleServes = requests(meterRegistry, "stale");
+        this.refreshFailures = Counter.builder("risk.cache.refresh.failures")
+                .description("Background refreshes that failed and left a stale entry in place")
+                .register(meterRegistry);
+        Gauge.builder("risk.cache.size", cache, Cache::estimatedSize)
+                .description("Number of cached risk assessments")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the risk assessment of a patient, from the cache when possible.
+     *
+     * @param id the unique identifier of the patient
+     * @return the risk assessment, possibly stale
+     *
+     * @throws PatientNotFoundException   if no patient is found for the given ID
+     * @throws PatientServiceException    if an error occurs while calling the patient service
+     * @throws NoteServiceException       if an error occurs while calling the note service
+     * @throws RiskAssessmentException    if an error occurs during risk calculation
+     */
+    public RiskResponseDto get(int id) {
+        CachedRisk cached = cache.getIfPresent(id);
+        if (cached == null) {
+            misses.increment();
+            // Concurrent misses on the same patient share one computation
+            return cache.get(id, this::load).risk();
+        }
+
+        if (ticker.read() - cached.loadedAt() < refreshAfterNanos) {
+            hits.increment();
+        } else {
+            staleServes.increment();
+            refresh(id, cached);
+        }
+        return cached.risk();
+    }
+
+    /**
+     * Evicts the risk assessment of a patient, e.g. after their notes or demographics changed.
+     *
+     * @param id the unique identifier of the patient
+     */
+    public void invalidate(int id) {
+        cache.invalidate(id);
+    }
+
+    /**
+     * Evicts every cached risk assessment, e.g. after the risk rules changed.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private void refresh(int id, CachedRisk stale) {
+        if (!refreshing.add(id)) {
+            return;  // a refresh is already running for this patient
+        }
+
+        refreshExecutor.execute(() -> {
+            try {
+                // Only replaces the entry we saw: an invalidation or a newer value wins over this refresh
+                cache.asMap().replace(id, stale, load(id));
+            } catch (PatientNotFoundException e) {
+                cache.asMap().remove(id, stale);
+            } catch (RuntimeException e) {
+                refreshFailures.increment();
+                log.warn("Refresh of the cached risk of patient {} failed, serving the stale value: {}",
+                        id, e.getMessage());
+            } finally {
+                refreshing.remove(id);
+            }
+        });
+    }
+
+    private CachedRisk load(int id) {
+        return new CachedRisk(riskStoreService.getRisk(id), ticker.read());
+    }
+
+    private static Counter requests(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("risk.cache.requests")
+                .description("Risk assessment requests by cache outcome")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    private record CachedRisk(RiskResponseDto risk, long loadedAt) {
+    }
+}
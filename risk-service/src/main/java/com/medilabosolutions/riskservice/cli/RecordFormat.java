@@ -0,0 +1,143 @@
+package com.medilabosolutions.riskservice.cli;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Formats of the batch files, chosen from the file name: {@code .ndjson} or {@code .jsonl} for
+ * one JSON object per line, {@code .csv} for comma-separated values with a header line, either
+ * optionally followed by {@code .gz}.
+ * <p>
+ * Records are parsed field by field, keeping only the requested fields: NDJSON with the Jackson
+ * streaming parser, without any object mapping; CSV by column position, with double-quoted fields.
+ */
+enum RecordFormat {
+
+    NDJSON,
+    CSV;
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /**
+     * @param file the file
+     * @return the format of the file
+     * @throws IllegalArgumentException if the file name has no known extension
+     */
+    static RecordFormat of(Path file) {
+        String name = file.getFileName().toString().toLowerCase();
+        if (name.endsWith(".gz")) {
+            name = name.substring(0, name.length() - 3);
+        }
+        if (name.endsWith(".ndjson") || name.endsWith(".jsonl")) {
+            return NDJSON;
+        }
+        if (name.endsWith(".csv")) {
+            return CSV;
+        }
+        throw new IllegalArgumentException("Unknown file format, expected .ndjson, .jsonl or .csv: " + file);
+    }
+
+    /**
+     * Creates a parser extracting the given fields of each record.
+     *
+     * @param fields the names of the fields, i.e. JSON properties or CSV columns
+     * @param header the header line of a CSV file, ignored for NDJSON
+     * @return the parser
+     * @throws IllegalArgumentException if a CSV column is missing
+     */
+    FieldParser parser(List<String> fields, String header) {
+        if (this == NDJSON) {
+            return (data, from, to) -> parseJson(fields, data, from, to);
+        }
+
+        List<String> columns = splitCsv(header.startsWith("\uFEFF") ? header.substring(1) : header).stream()
+                .map(String::trim)
+                .toList();
+        int[] positions = new int[fields.size()];
+        for (int i = 0; i < fields.size(); i++) {
+            positions[i] = columns.indexOf(fields.get(i));
+            if (positions[i] < 0) {
+                throw new IllegalArgumentException("Missing CSV column " + fields.get(i) + " in header: " + header);
+            }
+        }
+        return (data, from, to) -> {
+            List<String> values = splitCsv(new String(data, from, to - from, StandardCharsets.UTF_8));
+            String[] selected = new String[positions.length];
+            for (int i = 0; i < positions.length; i++) {
+                selected[i] = positions[i] < values.size() ? values.get(positions[i]) : null;
+            }
+            return selected;
+        };
+    }
+
+    private static String[] parseJson(List<String> fields, byte[] data, int from, int to) throws IOException {
+        String[] selected = new String[fields.size()];
+        try (JsonParser parser = JSON_FACTORY.createParser(data, from, to - from)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                int field = fields.indexOf(parser.currentName());
+                JsonToken value = parser.nextToken();
+                if (field >= 0 && value.isScalarValue() && value != JsonToken.VALUE_NULL) {
+                    selected[field] = parser.getText();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return selected;
+    }
+
+    // RFC 4180: fields may be double-quoted, a quote inside a quoted field being doubled
+    private static List<String> splitCsv(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean inQuotes = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (inQuotes) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    inQuotes = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                inQuotes = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        values.add(value.toString());
+        return values;
+    }
+
+    /**
+     * Extracts the requested fields of one record.
+     */
+    @FunctionalInterface
+    interface FieldParser {
+
+        /**
+         * @param data the bytes holding the record
+         * @param from the first byte of the record
+         * @param to   the end of the record, exclusive
+         * @return the field values in the requested order, null when absent
+         * @throws IOException if the record is malformed
+         */
+        String[] parse(byte[] data, int from, int to) throws IOException;
+    }
+}
@@ -0,0 +1,204 @@
+package com.medilabosolutions.riskservice.cli;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Splits an NDJSON or CSV file into batches of records, one record per line.
+ * <p>
+ * Plain files are memory-mapped window by window, gzip files are decompressed as a stream: in
+ * both cases only the current batch is copied on the heap, so files larger than the heap can be
+ * read. In CSV files, line breaks inside double-quoted fields do not end the record.
+ */
+final class RecordReader implements Closeable {
+
+    private static final int WINDOW_SIZE = 256 * 1024 * 1024;
+    private static final int READ_SIZE = 64 * 1024;
+
+    private final InputStream in;
+    private final boolean quoted;
+    private byte[] buffer = new byte[READ_SIZE * 4];
+    private int start;          // first byte of the next record
+    private int limit;          // end of the bytes read
+    private boolean eof;
+    private long bytesRead;
+
+    RecordReader(InputStream in, boolean quoted) {
+        this.in = in;
+        this.quoted = quoted;
+    }
+
+    /**
+     * Opens a file, decompressed if its name ends with {@code .gz}, memory-mapped otherwise.
+     *
+     * @param file   the file
+     * @param format the record format
+     * @return the reader
+     * @throws IOException if the file cannot be opened
+     */
+    static RecordReader open(Path file, RecordFormat format) throws IOException {
+        InputStream in = file.getFileName().toString().endsWith(".gz")
+                ? new GZIPInputStream(Files.newInputStream(file), READ_SIZE)
+                : new MappedInputStream(file);
+        return new RecordReader(in, format == RecordFormat.CSV);
+    }
+
+    /**
+     * Reads the next records, blank lines excluded.
+     *
+     * @param maxRecords the maximum number of records
+     * @return the records, or null at the end of the file
+     * @throws IOException if the file cannot be read
+     */
+    Batch nextBatch(int maxRecords) throws IOException {
+        int[] bounds = new int[Math.min(maxRecords, 1024) * 2];
+        int count = 0;
+        int batchStart = start;
+        int scan = start;
+        boolean inQuotes = false;
+
+        while (count < maxRecords) {
+            if (scan == limit) {
+                if (eof) {
+                    int end = trimEnd(start, limit);
+                    if (end > start) {
+                        bounds = add(bounds, count++, start - batchStart, end - batchStart);
+                    }
+                    start = limit;
+                    break;
+                }
+                // Keep the pending bytes of the batch, then read more
+                int shift = batchStart;
+                fill(batchStart);
+                scan -= shift;
+                start -= shift;
+                batchStart = 0;
+                continue;
+            }
+
+            byte b = buffer[scan++];
+            if (quoted && b == '"') {
+                inQuotes = !inQuotes;
+            } else if (b == '\n' && !inQuotes) {
+                int end = trimEnd(start, scan - 1);
+                if (end > start) {
+                    bounds = add(bounds, count++, start - batchStart, end - batchStart);
+                }
+                start = scan;
+            }
+        }
+
+        if (count == 0) {
+            return null;
+        }
+        return new Batch(Arrays.copyOfRange(buffer, batchStart, batchStart + bounds[count * 2 - 1]),
+                Arrays.copyOf(bounds, count * 2), count);
+    }
+
+    /**
+     * @return the number of bytes read so far, after decompression
+     */
+    long bytesRead() {
+        return bytesRead;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void fill(int keepFrom) throws IOException {
+        int kept = limit - keepFrom;
+        if (kept + READ_SIZE > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, kept + READ_SIZE));
+        }
+        System.arraycopy(buffer, keepFrom, buffer, 0, kept);
+        limit = kept;
+
+        int read = in.read(buffer, limit, READ_SIZE);
+        if (read < 0) {
+            eof = true;
+        } else {
+            limit += read;
+            bytesRead += read;
+        }
+    }
+
+    private int trimEnd(int from, int to) {
+        return to > from && buffer[to - 1] == '\r' ? to - 1 : to;
+    }
+
+    private static int[] add(int[] bounds, int index, int from, int to) {
+        if (index * 2 == bounds.length) {
+            bounds = Arrays.copyOf(bounds, bounds.length * 2);
+        }
+        bounds[index * 2] = from;
+        bounds[index * 2 + 1] = to;
+        return bounds;
+    }
+
+    /**
+     * Records of a batch, copied in one array: record i spans
+     * {@code [bounds[2 * i], bounds[2 * i + 1])} of {@code data}.
+     */
+    record Batch(byte[] data, int[] bounds, int count) {
+
+        int from(int record) {
+            return bounds[record * 2];
+        }
+
+        int to(int record) {
+            return bounds[record * 2 + 1];
+        }
+    }
+
+    /**
+     * Reads a file through successive memory-mapped windows, off the heap.
+     */
+    private static final class MappedInputStream extends InputStream {
+
+        private final FileChannel channel;
+        private final long size;
+        private long windowStart;
+        private MappedByteBuffer window;
+
+        MappedInputStream(Path file) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            this.size = channel.size();
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (window == null || !window.hasRemaining()) {
+                long next = window == null ? 0 : windowStart + window.capacity();
+                if (next >= size) {
+                    return -1;
+                }
+                windowStart = next;
+                window = channel.map(FileChannel.MapMode.READ_ONLY, next, Math.min(WINDOW_SIZE, size - next));
+            }
+            int read = Math.min(len, window.remaining());
+            window.get(b, off, read);
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.medilabosolutions.riskservice.cli;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medilabosolutions.riskservice.dto.NoteDto;
+import com.medilabosolutions.riskservice.dto.RiskResponseDto;
+import com.medilabosolutions.riskservice.rules.RiskRuleEngine;
+import com.medilabosolutions.riskservice.service.RiskAssessmentServiceImpl;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Command-line scoring of exported patients and notes, without the HTTP stack, e.g. for data
+ * migrations and audits:
+ * <pre>
+ * java -cp app.jar -Dloader.main=com.medilabosolutions.riskservice.cli.RiskBatchCli \
+ *     org.springframework.boot.loader.launch.PropertiesLauncher \
+ *     --patients patients.csv --notes notes.ndjson.gz --output risks.ndjson \
+ *     [--rules file:risk-rules.csv] [--parallelism 8] [--batch-size 2048]
+ * </pre>
+ * Files are NDJSON or CSV, optionally gzip-compressed (see {@link RecordFormat}). Patients need
+ * the {@code id}, {@code dateOfBirth} and {@code gender} fields, notes the {@code patId} and
+ * {@code note} fields, as in the patient and note services. Results are written in the same
+ * format as {@code GET /api/risk/patient/{id}}, in the order of the patients file.
+ * <p>
+ * Files are read in batches of records that are parsed and scored on a ForkJoin pool, with a
+ * bounded number of batches in flight. The notes are read first and reduced to the set of risk
+ * terms of each patient, as the risk store does when a note is added: only one {@code long} per
+ * patient is kept, never the notes themselves. The patients are then streamed and classified
+ * with the same {@link RiskAssessmentServiceImpl} engine as the service. Malformed records are
+ * counted and skipped.
+ */
+public final class RiskBatchCli {
+
+    private static final List<String> PATIENT_FIELDS = List.of("id", "dateOfBirth", "gender");
+    private static final List<String> NOTE_FIELDS = List.of("patId", "note");
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final RiskAssessmentServiceImpl riskAssessmentService;
+    private final ForkJoinPool pool;
+    private final int batchSize;
+    private final int maxBatchesInFlight;
+
+    RiskBatchCli(RiskAssessmentServiceImpl riskAssessmentService, int parallelism, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        this.riskAssessmentService = riskAssessmentService;
+        this.pool = new ForkJoinPool(parallelism);
+        this.batchSize = batchSize;
+        this.maxBatchesInFlight = parallelism * 2;
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    /**
+     * Runs the command.
+     *
+     * @param args the command-line arguments
+     * @param out  where to print the summary
+     * @param err  where to print errors
+     * @return the exit status: 0 on success, 1 if a file cannot be read or written, 2 on bad usage
+     */
+    public static int run(String[] args, PrintStream out, PrintStream err) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            options.put(args[i], args[i + 1]);
+        }
+        if (args.length % 2 != 0 || !options.containsKey("--patients") || !options.containsKey("--output")) {
+            err.println("Usage: RiskBatchCli --patients <file> [--notes <file>] --output <file>"
+                    + " [--rules <location>] [--parallelism <n>] [--batch-size <n>]");
+            return 2;
+        }
+
+        RiskBatchCli cli;
+        try {
+            String rules = options.getOrDefault("--rules", RiskRuleEngine.DEFAULT_RULES_LOCATION);
+            cli = new RiskBatchCli(
+                    new RiskAssessmentServiceImpl(new RiskRuleEngine(rules, new DefaultResourceLoader())),
+                    Integer.parseInt(options.getOrDefault("--parallelism",
+                            String.valueOf(Runtime.getRuntime().availableProcessors()))),
+                    Integer.parseInt(options.getOrDefault("--batch-size", "2048")));
+        } catch (IllegalArgumentException | UncheckedIOException e) {
+            err.println("Invalid option: " + e.getMessage());
+            return 2;
+        }
+
+        try {
+            Summary summary = cli.score(Path.of(options.get("--patients")),
+                    options.containsKey("--notes") ? Path.of(options.get("--notes")) : null,
+                    Path.of(options.get("--output")));
+            out.println(summary);
+            return 0;
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            return 2;
+        } catch (IOException | UncheckedIOException e) {
+            err.println("Scoring failed: " + e.getMessage());
+            return 1;
+        } finally {
+            cli.pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Scores every patient of a file and writes the results.
+     *
+     * @param patientsFile the patients
+     * @param notesFile    the notes, or null if no patient has notes
+     * @param outputFile   where to write the results, NDJSON or CSV, optionally gzip-compressed
+     * @return the counts and throughput of the run
+     * @throws IOException              if a file cannot be read or written
+     * @throws IllegalArgumentException if a file format is unknown or a CSV column is missing
+     */
+    Summary score(Path patientsFile, Path notesFile, Path outputFile) throws IOException {
+        long started = System.nanoTime();
+        long[] counts = new long[4];  // notes, patients, rejected records, input bytes
+
+        // Every format checked before the notes pass, which may be long
+        RecordFormat notesFormat = notesFile == null ? null : RecordFormat.of(notesFile);
+        RecordFormat patientsFormat = RecordFormat.of(patientsFile);
+        RecordFormat outputFormat = RecordFormat.of(outputFile);
+
+        // Notes first, reduced to the terms of each patient
+        Map<Integer, Long> termsByPatient = new HashMap<>();
+        if (notesFile != null) {
+            try (RecordReader reader = RecordReader.open(notesFile, notesFormat)) {
+                RecordFormat.FieldParser parser = notesFormat.parser(NOTE_FIELDS, header(reader, notesFormat));
+                pipeline(reader, batch -> matchNotes(parser, batch), result -> {
+                    result.terms().forEach((id, terms) -> termsByPatient.merge(id, terms, (a, b) -> a | b));
+                    counts[0] += result.records();
+                    counts[2] += result.rejected();
+                });
+                counts[3] += reader.bytesRead();
+            }
+        }
+
+        // Then the patients, classified and written in file order
+        try (RecordReader reader = RecordReader.open(patientsFile, patientsFormat);
+             OutputStream output = open(outputFile)) {
+            RecordFormat.FieldParser parser = patientsFormat.parser(PATIENT_FIELDS, header(reader, patientsFormat));
+            if (outputFormat == RecordFormat.CSV) {
+                output.write("patientId,age,riskLevel\n".getBytes(StandardCharsets.UTF_8));
+            }
+            pipeline(reader, batch -> assessPatients(parser, batch, termsByPatient, outputFormat), result -> {
+                try {
+                    output.write(result.output());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                counts[1] += result.records();
+                counts[2] += result.rejected();
+            });
+            counts[3] += reader.bytesRead();
+        }
+
+        return new Summary(counts[1], counts[0], counts[2], counts[3], System.nanoTime() - started);
+    }
+
+    // Submits the batches to the pool, consuming the results in order, at most maxBatchesInFlight at once
+    private <T> void pipeline(RecordReader reader, Function<RecordReader.Batch, T> task, Consumer<T> consumer)
+            throws IOException {
+        Deque<ForkJoinTask<T>> inFlight = new ArrayDeque<>();
+        RecordReader.Batch batch;
+        while ((batch = reader.nextBatch(batchSize)) != null) {
+            if (inFlight.size() == maxBatchesInFlight) {
+                consumer.accept(inFlight.removeFirst().join());
+            }
+            RecordReader.Batch submitted = batch;
+            inFlight.addLast(pool.submit(() -> task.apply(submitted)));
+        }
+        while (!inFlight.isEmpty()) {
+            consumer.accept(inFlight.removeFirst().join());
+        }
+    }
+
+    private BatchResult matchNotes(RecordFormat.FieldParser parser, RecordReader.Batch batch) {
+        Map<Integer, Long> terms = new HashMap<>();
+        int rejected = 0;
+        for (int i = 0; i < batch.count(); i++) {
+            try {
+                String[] fields = parser.parse(batch.data(), batch.from(i), batch.to(i));
+                int patId = Integer.parseInt(fields[0]);
+                long noteTerms = riskAssessmentService.matchedTerms(List.of(new NoteDto(null, patId, fields[1], null, null)));
+                terms.merge(patId, noteTerms, (a, b) -> a | b);
+            } catch (IOException | RuntimeException e) {
+                rejected++;
+            }
+        }
+        return new BatchResult(batch.count() - rejected, rejected, terms, null);
+    }
+
+    private BatchResult assessPatients(RecordFormat.FieldParser parser, RecordReader.Batch batch,
+                                       Map<Integer, Long> termsByPatient, RecordFormat outputFormat) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(batch.count() * 64);
+        int rejected = 0;
+        for (int i = 0; i < batch.count(); i++) {
+            try {
+                String[] fields = parser.parse(batch.data(), batch.from(i), batch.to(i));
+                int id = Integer.parseInt(fields[0]);
+                RiskResponseDto risk = riskAssessmentService.assessmentPatientRisk(id, LocalDate.parse(fields[1]),
+                        fields[2], termsByPatient.getOrDefault(id, 0L));
+                if (outputFormat == RecordFormat.CSV) {
+                    output.writeBytes((risk.getPatientId() + "," + risk.getAge() + "," + risk.getRiskLevel() + "\n")
+                            .getBytes(StandardCharsets.UTF_8));
+                } else {
+                    output.writeBytes(OBJECT_MAPPER.writeValueAsBytes(risk));
+                    output.write('\n');
+                }
+            } catch (IOException | RuntimeException e) {
+                rejected++;
+            }
+        }
+        return new BatchResult(batch.count() - rejected, rejected, null, output.toByteArray());
+    }
+
+    private static String header(RecordReader reader, RecordFormat format) throws IOException {
+        if (format != RecordFormat.CSV) {
+            return null;
+        }
+        RecordReader.Batch header = reader.nextBatch(1);
+        if (header == null) {
+            throw new IllegalArgumentException("Missing CSV header");
+        }
+        return new String(header.data(), header.from(0), header.to(0) - header.from(0), StandardCharsets.UTF_8);
+    }
+
+    private static OutputStream open(Path file) throws IOException {
+        OutputStream output = new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024);
+        return file.getFileName().toString().endsWith(".gz") ? new GZIPOutputStream(output, 64 * 1024) : output;
+    }
+
+    private record BatchResult(int records, int rejected, Map<Integer, Long> terms, byte[] output) {
+    }
+
+    /**
+     * Counts and throughput of a run.
+     *
+     * @param patients    the patients scored
+     * @param notes       the notes read
+     * @param rejected    the malformed records skipped
+     * @param bytes       the bytes read, after decompression
+     * @param elapsedNano the duration of the run
+     */
+    record Summary(long patients, long notes, long rejected, long bytes, long elapsedNano) {
+
+        @Override
+        public String toString() {
+            double seconds = Math.max(elapsedNano, 1) / (double) TimeUnit.SECONDS.toNanos(1);
+            return String.format("Scored %d patients from %d notes (%d rejected records) in %.3f s: "
+                            + "%.0f patients/s, %.0f notes/s, %.1f MB/s",
+                    patients, notes, rejected, seconds,
+                    patients / seconds, notes / seconds, bytes / seconds / (1024 * 1024));
+        }
+    }
+}
@@ -5,6 +5,8 @@ import com.medilabosolutions.riskservice.dto.NoteDto;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 
 import java.util.List;
 
@@ -28,4 +30,13 @@ public interface NoteClient {
     @GetMapping("/api/notes/patient/{patId}")
     List<NoteDto> getNotesByPatientId(@PathVariable("patId") int patId);
 
+    /**
+     * Retrieves the notes of several patients in one call.
+     *
+     * @param patIds The IDs of the patients
+     * @return List of {@link NoteDto} objects, grouped by patient, most recent first
+     */
+    @PostMapping("/api/notes/patients")
+    List<NoteDto> getNotesByPatientIds(@RequestBody List<Integer> patIds);
+
 }
@@ -5,6 +5,9 @@ import com.medilabosolutions.riskservice.dto.PatientDto;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.util.List;
 
 /**
  * Feign client for communicating with the Patient Service.
@@ -26,4 +29,21 @@ public interface PatientClient {
     @GetMapping("/api/patients/{id}")
     PatientDto getPatientById(@PathVariable("id") int id);
 
+    /**
+     * Retrieves one page of patients by increasing ID.
+     *
+     * @param afterId  only patients with a greater ID are returned
+     * @param size     the maximum number of patients
+     * @param gender   optional gender filter, null for all
+     * @param bornFrom optional earliest birth date, ISO formatted
+     * @param bornTo   optional latest birth date, ISO formatted
+     * @return the page of {@link PatientDto}, empty once all patients have been read
+     */
+    @GetMapping("/api/patients/page")
+    List<PatientDto> getPatientsPage(@RequestParam("afterId") int afterId,
+                                     @RequestParam("size") int size,
+                                     @RequestParam(value = "gender", required = false) String gender,
+                                     @RequestParam(value = "bornFrom", required = false) String bornFrom,
+                                     @RequestParam(value = "bornTo", required = false) String bornTo);
+
 }
@@ -1,5 +1,7 @@
 package com.medilabosolutions.riskservice.config;
 
+import com.medilabosolutions.riskservice.security.ServiceSignature;
+import com.medilabosolutions.riskservice.security.ServiceSignatureFilter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.Customizer;
@@ -13,9 +15,13 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
 
 /**
  * Security configuration for the Risk Service application.
+ * <p>
+ * Calls from the other services are authenticated by their signature (see {@link ServiceSignature}),
+ * users by HTTP Basic.
  */
 @Configuration
 @EnableWebSecurity
@@ -24,18 +30,22 @@ public class SecurityConfig {
     /**
      * Configures the HTTP security filter chain.
      * @param http HttpSecurity object to configure
+     * @param serviceSignature verifies the calls signed by the other services
      * @return Configured SecurityFilterChain
      * @throws Exception if configuration fails
      */
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain filterChain(HttpSecurity http, ServiceSignature serviceSignature) throws Exception {
         http
                 .csrf(AbstractHttpConfigurer::disable) // Disable CSRF protection
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/api/**").authenticated() // Protect API endpoints
+                        .requestMatchers("/actuator/riskrules/**").authenticated() // Protect decision table reload
+                        .requestMatchers("/actuator/metrics/**").authenticated() // Protect downstream and cache metrics
                         .requestMatchers("/", "/login", "/images/**", "/css/**", "/js/**").permitAll() // Allow public access
                         .anyRequest().permitAll() // Permit all other requests
                 )
+                .addFilterBefore(new ServiceSignatureFilter(serviceSignature), BasicAuthenticationFilter.class) // Signed service calls
                 .httpBasic(Customizer.withDefaults()) // Enable HTTP Basic authentication
                 .formLogin(AbstractHttpConfigurer::disable); // Disable default form login
 
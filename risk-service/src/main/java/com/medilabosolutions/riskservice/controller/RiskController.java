@@ -1,19 +1,31 @@
 package com.medilabosolutions.riskservice.controller;
 
-import com.medilabosolutions.riskservice.client.NoteClient;
-import com.medilabosolutions.riskservice.client.PatientClient;
-import com.medilabosolutions.riskservice.dto.NoteDto;
+import com.medilabosolutions.riskservice.cache.RiskResultCache;
+import com.medilabosolutions.riskservice.dto.BatchRiskResultDto;
+import com.medilabosolutions.riskservice.dto.NoteEventDto;
 import com.medilabosolutions.riskservice.dto.PatientDto;
+import com.medilabosolutions.riskservice.dto.PopulationFilterDto;
+import com.medilabosolutions.riskservice.dto.RiskQueryResultDto;
 import com.medilabosolutions.riskservice.dto.RiskResponseDto;
+import com.medilabosolutions.riskservice.dto.RiskTimelineEntryDto;
+import com.medilabosolutions.riskservice.enums.NoteEventType;
+import com.medilabosolutions.riskservice.enums.RiskAssessment;
 import com.medilabosolutions.riskservice.exception.NoteServiceException;
 import com.medilabosolutions.riskservice.exception.PatientNotFoundException;
 import com.medilabosolutions.riskservice.exception.PatientServiceException;
 import com.medilabosolutions.riskservice.exception.RiskAssessmentException;
-import com.medilabosolutions.riskservice.service.RiskAssessmentServiceImpl;
+import com.medilabosolutions.riskservice.service.BatchRiskService;
+import com.medilabosolutions.riskservice.service.PatientReplicaService;
+import com.medilabosolutions.riskservice.service.PatientRiskService;
+import com.medilabosolutions.riskservice.service.RiskIndexService;
+import com.medilabosolutions.riskservice.service.PopulationRiskService;
+import com.medilabosolutions.riskservice.service.RiskStoreService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.Collections;
 import java.util.List;
 
 /**
@@ -23,23 +35,41 @@ import java.util.List;
 @RequestMapping("/api/risk")
 public class RiskController {
 
-    private final PatientClient patientClient;
-    private final NoteClient noteClient;
-    private final RiskAssessmentServiceImpl riskAssessmentService;
+    private static final int MAX_QUERY_LIMIT = 100_000;
+
+    private final RiskResultCache riskResultCache;
+    private final BatchRiskService batchRiskService;
+    private final RiskStoreService riskStoreService;
+    private final PopulationRiskService populationRiskService;
+    private final RiskIndexService riskIndexService;
+    private final PatientRiskService patientRiskService;
+    private final PatientReplicaService patientReplicaService;
 
     public RiskController(
-            PatientClient patientClient,
-            NoteClient noteClient,
-            RiskAssessmentServiceImpl riskAssessmentService) {
+            RiskResultCache riskResultCache,
+            BatchRiskService batchRiskService,
+            RiskStoreService riskStoreService,
+            PopulationRiskService populationRiskService,
+            RiskIndexService riskIndexService,
+            PatientRiskService patientRiskService,
+            PatientReplicaService patientReplicaService) {
 
-        this.patientClient = patientClient;
-        this.noteClient = noteClient;
-        this.riskAssessmentService = riskAssessmentService;
+        this.riskResultCache = riskResultCache;
+        this.batchRiskService = batchRiskService;
+        this.riskStoreService = riskStoreService;
+        this.populationRiskService = populationRiskService;
+        this.riskIndexService = riskIndexService;
+        this.patientRiskService = patientRiskService;
+        this.patientReplicaService = patientReplicaService;
     }
 
     /**
      * Retrieves the risk assessment for a given patient.
-     * @param id the unique identifier of the patient
+     * The result is cached: a recent assessment may be returned while a fresher one is computed.
+     * With {@code explain=true}, the risk is computed afresh and comes with the occurrences of
+     * the risk terms in the notes (see {@link com.medilabosolutions.riskservice.dto.RiskExplanationDto}).
+     * @param id      the unique identifier of the patient
+     * @param explain whether to explain the risk level
      * @return a {@link ResponseEntity} containing the {@link RiskResponseDto}
      *
      * @throws PatientNotFoundException   if no patient is found for the given ID
@@ -48,37 +78,195 @@ public class RiskController {
      * @throws RiskAssessmentException    if an error occurs during risk calculation
      */
     @GetMapping("/patient/{id}")
-    public ResponseEntity<RiskResponseDto> getRiskAssessmentPatient(@PathVariable int id) {
+    public ResponseEntity<RiskResponseDto> getRiskAssessmentPatient(
+            @PathVariable int id,
+            @RequestParam(defaultValue = "false") boolean explain) {
+
+        if (explain) {
+            return ResponseEntity.ok(patientRiskService.explainPatient(id));
+        }
+        return ResponseEntity.ok(riskResultCache.get(id));
+    }
+
+    /**
+     * Retrieves how the risk level of a patient evolved, after each of their notes.
+     * The risk after a note is based on that note and all earlier ones, with the patient's age at its date.
+     * @param id the unique identifier of the patient
+     * @return a {@link ResponseEntity} containing one {@link RiskTimelineEntryDto} per note, by creation date
+     *
+     * @throws PatientNotFoundException   if no patient is found for the given ID
+     * @throws PatientServiceException    if an error occurs while calling the patient service
+     * @throws NoteServiceException       if an error occurs while calling the note service
+     * @throws RiskAssessmentException    if an error occurs during risk calculation
+     */
+    @GetMapping("/patient/{id}/timeline")
+    public ResponseEntity<List<RiskTimelineEntryDto>> getRiskTimelinePatient(@PathVariable int id) {
+        return ResponseEntity.ok(patientRiskService.riskTimeline(id));
+    }
 
-        PatientDto patient;
+    /**
+     * Retrieves the risk assessment of every patient matching the filters, for cohort reports.
+     * <p>
+     * The response is streamed as NDJSON, one {@link RiskResponseDto} per line by increasing
+     * patient id, while the patient base is read page by page.
+     *
+     * @param minAge  optional minimum age, inclusive
+     * @param maxAge  optional maximum age, inclusive
+     * @param gender  optional gender ('M' or 'F')
+     * @param minRisk optional minimum risk level label, e.g. "Borderline"
+     * @return a {@link ResponseEntity} streaming the results, or 400 if a filter is invalid
+     */
+    @GetMapping(value = "/population", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> getRiskAssessmentPopulation(
+            @RequestParam(required = false) Integer minAge,
+            @RequestParam(required = false) Integer maxAge,
+            @RequestParam(required = false) String gender,
+            @RequestParam(required = false) String minRisk) {
+
+        PopulationFilterDto filter;
         try {
-            patient = patientClient.getPatientById(id);
-        } catch (Exception e) {
-            throw new PatientServiceException("Error fetching patient data");
+            filter = PopulationFilterDto.builder()
+                    .minAge(minAge)
+                    .maxAge(maxAge)
+                    .gender(gender)
+                    .minRisk(minRisk == null ? null : RiskAssessment.fromLabel(minRisk))
+                    .build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (gender != null && !gender.equals("M") && !gender.equals("F")) {
+            return ResponseEntity.badRequest().build();
         }
 
-        if (patient == null) {
-            throw new PatientNotFoundException(id);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(out -> populationRiskService.scan(filter, out));
+    }
+
+    /**
+     * Finds the patients whose notes contain a combination of risk terms, from the risk term index.
+     * <p>
+     * The query combines risk terms, in any spelling, with {@code AND}, {@code OR}, {@code NOT}
+     * and parentheses, e.g. {@code fumeur AND cholesterol AND NOT vertige}; a term of several
+     * words is double-quoted. Without query, only the demographic filters apply.
+     *
+     * @param q      optional term query
+     * @param minAge optional minimum age, inclusive
+     * @param maxAge optional maximum age, inclusive
+     * @param gender optional gender ('M' or 'F')
+     * @param limit  maximum number of patient ids returned (default 1000, at most 100000)
+     * @return a {@link ResponseEntity} containing the {@link RiskQueryResultDto}, 400 if the query
+     * or a filter is invalid, or 503 while the index is being built for the first time
+     */
+    @GetMapping("/query")
+    public ResponseEntity<RiskQueryResultDto> queryRiskTerms(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) Integer minAge,
+            @RequestParam(required = false) Integer maxAge,
+            @RequestParam(required = false) String gender,
+            @RequestParam(defaultValue = "1000") int limit) {
+
+        if (limit < 0 || limit > MAX_QUERY_LIMIT
+                || (gender != null && !gender.equals("M") && !gender.equals("F"))) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!riskIndexService.isReady()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
         }
 
-        List<NoteDto> notes;
         try {
-            notes = noteClient.getNotesByPatientId(id);
-            if (notes == null) {
-                notes = Collections.emptyList();
-            }
-        } catch (feign.FeignException.NotFound e) {
-            notes = Collections.emptyList();
-        } catch (Exception e) {
-            throw new NoteServiceException("Error fetching patient notes");
+            return ResponseEntity.ok(riskIndexService.query(q, minAge, maxAge, gender, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Evicts the cached and stored risk assessment of a patient, so that the next request
+     * recomputes it from the remote services. The patient is also re-indexed.
+     * @param id the unique identifier of the patient
+     * @return an empty {@link ResponseEntity} with status 204
+     */
+    @DeleteMapping("/patient/{id}/cache")
+    public ResponseEntity<Void> evictRiskAssessmentPatient(@PathVariable int id) {
+        riskStoreService.evict(id);
+        riskResultCache.invalidate(id);
+        riskIndexService.refreshPatient(id);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Applies a note change sent by the note service to the stored risk of its patient
+     * and to the risk term index. The cached risk is evicted and the index updated even if the
+     * stored risk cannot be updated.
+     * @param event the note change
+     * @return an empty {@link ResponseEntity} with status 204, or 400 without type or patient id,
+     * or for a created note without text
+     *
+     * @throws PatientServiceException    if an error occurs while calling the patient service
+     * @throws NoteServiceException       if an error occurs while calling the note service
+     * @throws RiskAssessmentException    if an error occurs during risk calculation
+     */
+    @PostMapping("/events/notes")
+    public ResponseEntity<Void> onNoteEvent(@RequestBody NoteEventDto event) {
+        if (event.getType() == null || event.getPatId() == null
+                || (event.getType() == NoteEventType.CREATED && event.getNote() == null)) {
+            return ResponseEntity.badRequest().build();
         }
 
         try {
-            RiskResponseDto response =
-                    riskAssessmentService.assessmentPatientRisk(patient, notes);
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            throw new RiskAssessmentException("Error during risk assessment");
+            riskStoreService.applyNoteEvent(event);
+        } finally {
+            riskResultCache.invalidate(event.getPatId());
+            riskIndexService.applyNoteEvent(event);
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Applies a patient change sent by the patient service to the local patient replica, then
+     * evicts the cached and stored risk assessment of the patient, whose age or gender may have
+     * changed. The patient is also re-indexed.
+     * @param patient the changed patient, with at least their id, birth date and gender
+     * @return an empty {@link ResponseEntity} with status 204, or 400 without patient id
+     */
+    @PostMapping("/events/patients")
+    public ResponseEntity<Void> onPatientEvent(@RequestBody PatientDto patient) {
+        if (patient.getId() == null) {
+            return ResponseEntity.badRequest().build();
         }
+
+        patientReplicaService.apply(patient);
+        riskStoreService.evict(patient.getId());
+        riskResultCache.invalidate(patient.getId());
+        riskIndexService.refreshPatient(patient.getId());
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Evicts every cached risk assessment.
+     * @return an empty {@link ResponseEntity} with status 204
+     */
+    @DeleteMapping("/cache")
+    public ResponseEntity<Void> evictRiskAssessments() {
+        riskResultCache.invalidateAll();
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Retrieves the risk assessment of several patients.
+     * <p>
+     * The response is streamed as NDJSON, one {@link BatchRiskResultDto} per line in completion
+     * order. A patient that cannot be assessed gets an error line; the other patients are
+     * still returned.
+     *
+     * @param ids the unique identifiers of the patients
+     * @return a {@link ResponseEntity} streaming the results
+     */
+    @PostMapping(value = "/patients", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> getRiskAssessmentPatients(@RequestBody List<Integer> ids) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(out -> batchRiskService.assessPatients(ids, out));
     }
 }
@@ -0,0 +1,25 @@
+package com.medilabosolutions.riskservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Result of one patient in a batch risk assessment: either the risk, or the error
+ * that prevented computing it.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchRiskResultDto {
+
+    private Integer patientId;
+    private int status;             // HTTP-like status of this patient's assessment
+    private RiskResponseDto risk;   // null on error
+    private String error;           // null on success
+
+}
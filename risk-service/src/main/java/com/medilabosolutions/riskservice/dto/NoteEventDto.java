@@ -0,0 +1,24 @@
+package com.medilabosolutions.riskservice.dto;
+
+import com.medilabosolutions.riskservice.enums.NoteEventType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Change made to a note, sent by the note service.
+ * The note content is only needed for {@link NoteEventType#CREATED}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class NoteEventDto {
+
+    private NoteEventType type;
+    private Integer patId;
+    private String noteId;
+    private String note;
+
+}
@@ -0,0 +1,23 @@
+package com.medilabosolutions.riskservice.dto;
+
+import com.medilabosolutions.riskservice.enums.RiskAssessment;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Filters of a population risk scan. A null field does not filter.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PopulationFilterDto {
+
+    private Integer minAge;
+    private Integer maxAge;
+    private String gender;
+    private RiskAssessment minRisk;
+
+}
@@ -0,0 +1,27 @@
+package com.medilabosolutions.riskservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Why a patient got their risk level: every occurrence of a risk term in their notes.
+ * <p>
+ * Occurrences are flattened in {@code matches}, four ints each: the term index in {@code terms},
+ * the note index in {@code noteIds}, then the start and end (exclusive) character offsets in the
+ * note text. Offsets are -1 when the note needed context-dependent normalization.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RiskExplanationDto {
+
+    private List<String> terms;     // the risk term list
+    private List<String> noteIds;   // the notes, in scan order
+    private int[] matches;          // (term, note, start, end) per occurrence
+
+}
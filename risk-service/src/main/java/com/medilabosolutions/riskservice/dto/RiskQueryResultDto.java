@@ -0,0 +1,22 @@
+package com.medilabosolutions.riskservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Result of a risk term query: the number of matching patients and the first of their ids.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RiskQueryResultDto {
+
+    private long count;                 // all matching patients
+    private List<Integer> patientIds;   // by increasing id, at most the requested limit
+
+}
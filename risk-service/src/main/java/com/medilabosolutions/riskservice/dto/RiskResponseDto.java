@@ -1,5 +1,6 @@
 package com.medilabosolutions.riskservice.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -15,4 +16,11 @@ public class RiskResponseDto {
     private Integer age;
     private String riskLevel;
 
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private RiskExplanationDto explanation;  // only when requested
+
+    public RiskResponseDto(Integer patientId, Integer age, String riskLevel) {
+        this(patientId, age, riskLevel, null);
+    }
+
 }
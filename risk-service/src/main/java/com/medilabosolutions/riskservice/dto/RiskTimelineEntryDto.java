@@ -0,0 +1,25 @@
+package com.medilabosolutions.riskservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Risk of a patient right after one of their notes was written, based on that note and all earlier ones.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RiskTimelineEntryDto {
+
+    private String noteId;
+    private Instant noteDate;       // creation date of the note
+    private Integer age;            // patient age at that date
+    private Integer riskTermsCount; // distinct risk terms found up to this note
+    private String riskLevel;
+
+}
@@ -0,0 +1,10 @@
+package com.medilabosolutions.riskservice.enums;
+
+/**
+ * Kind of change made to a note in the note service.
+ */
+public enum NoteEventType {
+    CREATED,
+    UPDATED,
+    DELETED
+}
@@ -15,4 +15,20 @@ public enum RiskAssessment {
         this.label = label;
     }
 
+    /**
+     * Returns the risk level with the given label, ignoring case.
+     *
+     * @param label the label, e.g. "Borderline"
+     * @return the risk level
+     * @throws IllegalArgumentException if no risk level has this label
+     */
+    public static RiskAssessment fromLabel(String label) {
+        for (RiskAssessment risk : values()) {
+            if (risk.label.equalsIgnoreCase(label)) {
+                return risk;
+            }
+        }
+        throw new IllegalArgumentException("Unknown risk level: " + label);
+    }
+
 }
\ No newline at end of file
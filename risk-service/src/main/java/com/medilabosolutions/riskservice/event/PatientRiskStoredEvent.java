@@ -0,0 +1,12 @@
+package com.medilabosolutions.riskservice.event;
+
+import java.time.LocalDate;
+
+/**
+ * Published after the risk of a patient has been fully computed and stored.
+ *
+ * @param patientId   the patient ID
+ * @param dateOfBirth the patient's birth date, as stored
+ */
+public record PatientRiskStoredEvent(int patientId, LocalDate dateOfBirth) {
+}
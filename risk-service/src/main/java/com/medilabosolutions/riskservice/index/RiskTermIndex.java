@@ -0,0 +1,271 @@
+package com.medilabosolutions.riskservice.index;
+
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index from each risk term to the patients whose notes contain it, with the
+ * demographics needed to filter them, all stored as compressed (Roaring) bitmaps of patient ids.
+ * <p>
+ * Patients are also indexed by gender, birth year and birth day: an age range is answered by
+ * OR-ing the whole years it covers and the days of its two boundary years, i.e. a few hundred
+ * bitmaps at most. No per-patient record is kept: a patient is located in the birth bitmaps
+ * when they are removed or re-indexed.
+ * <p>
+ * Thread-safe: queries share a read lock, changes take the write lock. Returned bitmaps are
+ * copies that the caller may modify.
+ */
+public final class RiskTermIndex {
+
+    private final RoaringBitmap patients = new RoaringBitmap();
+    private final RoaringBitmap[] byTerm;
+    private final Map<String, RoaringBitmap> byGender = new HashMap<>();
+    private final NavigableMap<Integer, RoaringBitmap> byBirthYear = new TreeMap<>();
+    private final NavigableMap<Long, RoaringBitmap> byBirthDay = new TreeMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * @param termCount the number of terms in the term list
+     */
+    public RiskTermIndex(int termCount) {
+        byTerm = new RoaringBitmap[termCount];
+        for (int i = 0; i < termCount; i++) {
+            byTerm[i] = new RoaringBitmap();
+        }
+    }
+
+    /**
+     * Indexes a patient, replacing what was indexed for them.
+     *
+     * @param patientId    the patient ID
+     * @param dateOfBirth  the patient's birth date
+     * @param gender       the patient gender
+     * @param matchedTerms the set of terms found in the notes, bit i standing for term i
+     */
+    public void put(int patientId, LocalDate dateOfBirth, String gender, long matchedTerms) {
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(patientId);
+            patients.add(patientId);
+            setTermsUnlocked(patientId, matchedTerms);
+            byGender.computeIfAbsent(String.valueOf(gender), g -> new RoaringBitmap()).add(patientId);
+            byBirthYear.computeIfAbsent(dateOfBirth.getYear(), y -> new RoaringBitmap()).add(patientId);
+            byBirthDay.computeIfAbsent(dateOfBirth.toEpochDay(), d -> new RoaringBitmap()).add(patientId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds terms to an indexed patient, e.g. those of a new note.
+     *
+     * @param patientId    the patient ID
+     * @param matchedTerms the set of terms to add
+     * @return false if the patient is not indexed, in which case nothing is changed
+     */
+    public boolean addTerms(int patientId, long matchedTerms) {
+        lock.writeLock().lock();
+        try {
+            if (!patients.contains(patientId)) {
+                return false;
+            }
+            for (int term = 0; term < byTerm.length; term++) {
+                if ((matchedTerms & (1L << term)) != 0) {
+                    byTerm[term].add(patientId);
+                }
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a patient from the index.
+     *
+     * @param patientId the patient ID
+     * @return false if the patient was not indexed
+     */
+    public boolean remove(int patientId) {
+        lock.writeLock().lock();
+        try {
+            return removeUnlocked(patientId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the patients matching a term query and demographic filters.
+     *
+     * @param query    the term query, or null to match every patient
+     * @param bornFrom optional minimum birth date, inclusive
+     * @param bornTo   optional maximum birth date, inclusive
+     * @param gender   optional gender
+     * @return the ids of the matching patients
+     */
+    public RoaringBitmap query(TermQuery query, LocalDate bornFrom, LocalDate bornTo, String gender) {
+        lock.readLock().lock();
+        try {
+            // Copied: evaluate() may return a bitmap of the index itself
+            RoaringBitmap result = (query == null ? patients : evaluate(query)).clone();
+            if (gender != null) {
+                result.and(byGender.getOrDefault(gender, new RoaringBitmap()));
+            }
+            if (bornFrom != null || bornTo != null) {
+                result.and(bornBetween(bornFrom, bornTo));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of indexed patients
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return patients.getCardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the serialized size of the bitmaps, an estimate of the memory used by the index
+     */
+    public long sizeInBytes() {
+        lock.readLock().lock();
+        try {
+            long size = patients.getLongSizeInBytes();
+            for (RoaringBitmap bitmap : byTerm) {
+                size += bitmap.getLongSizeInBytes();
+            }
+            for (RoaringBitmap bitmap : byGender.values()) {
+                size += bitmap.getLongSizeInBytes();
+            }
+            for (RoaringBitmap bitmap : byBirthYear.values()) {
+                size += bitmap.getLongSizeInBytes();
+            }
+            for (RoaringBitmap bitmap : byBirthDay.values()) {
+                size += bitmap.getLongSizeInBytes();
+            }
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Compresses runs of consecutive ids, typically after a bulk load.
+     */
+    public void optimize() {
+        lock.writeLock().lock();
+        try {
+            patients.runOptimize();
+            for (RoaringBitmap bitmap : byTerm) {
+                bitmap.runOptimize();
+            }
+            byGender.values().forEach(RoaringBitmap::runOptimize);
+            byBirthYear.values().forEach(RoaringBitmap::runOptimize);
+            byBirthDay.values().forEach(RoaringBitmap::runOptimize);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // The returned bitmap may be one of the index: callers must not modify it
+    private RoaringBitmap evaluate(TermQuery query) {
+        return switch (query) {
+            case TermQuery.Term term -> byTerm[term.index()];
+            case TermQuery.And(TermQuery left, TermQuery.Not(TermQuery right)) ->
+                    RoaringBitmap.andNot(evaluate(left), evaluate(right));
+            case TermQuery.And(TermQuery left, TermQuery right) -> RoaringBitmap.and(evaluate(left), evaluate(right));
+            case TermQuery.Or(TermQuery left, TermQuery right) -> RoaringBitmap.or(evaluate(left), evaluate(right));
+            case TermQuery.Not(TermQuery operand) -> RoaringBitmap.andNot(patients, evaluate(operand));
+        };
+    }
+
+    private RoaringBitmap bornBetween(LocalDate from, LocalDate to) {
+        long fromDay = from == null ? Long.MIN_VALUE : from.toEpochDay();
+        long toDay = to == null ? Long.MAX_VALUE : to.toEpochDay();
+        if (fromDay > toDay) {
+            return new RoaringBitmap();
+        }
+
+        // Whole years strictly inside the range, then the days of the boundary years
+        int fromYear = from == null ? Integer.MIN_VALUE : from.getYear();
+        int toYear = to == null ? Integer.MAX_VALUE : to.getYear();
+        List<RoaringBitmap> parts = new ArrayList<>();
+        if (fromYear < toYear) {
+            parts.addAll(byBirthYear.subMap(fromYear, false, toYear, false).values());
+            if (from != null) {
+                parts.addAll(byBirthDay.subMap(fromDay, true, LocalDate.of(fromYear, 12, 31).toEpochDay(), true).values());
+            }
+            if (to != null) {
+                parts.addAll(byBirthDay.subMap(LocalDate.of(toYear, 1, 1).toEpochDay(), true, toDay, true).values());
+            }
+        } else {
+            parts.addAll(byBirthDay.subMap(fromDay, true, toDay, true).values());
+        }
+        return FastAggregation.or(parts.iterator());
+    }
+
+    private void setTermsUnlocked(int patientId, long matchedTerms) {
+        for (int term = 0; term < byTerm.length; term++) {
+            if ((matchedTerms & (1L << term)) != 0) {
+                byTerm[term].add(patientId);
+            } else {
+                byTerm[term].remove(patientId);
+            }
+        }
+    }
+
+    private boolean removeUnlocked(int patientId) {
+        if (!patients.checkedRemove(patientId)) {
+            return false;
+        }
+        for (RoaringBitmap bitmap : byTerm) {
+            bitmap.remove(patientId);
+        }
+        byGender.values().forEach(bitmap -> bitmap.remove(patientId));
+
+        // Birth year first, then the days of that year only
+        Iterator<Map.Entry<Integer, RoaringBitmap>> years = byBirthYear.entrySet().iterator();
+        while (years.hasNext()) {
+            Map.Entry<Integer, RoaringBitmap> year = years.next();
+            if (year.getValue().checkedRemove(patientId)) {
+                if (year.getValue().isEmpty()) {
+                    years.remove();
+                }
+                long firstDay = LocalDate.of(year.getKey(), 1, 1).toEpochDay();
+                long lastDay = LocalDate.of(year.getKey(), 12, 31).toEpochDay();
+                Iterator<RoaringBitmap> days = byBirthDay.subMap(firstDay, true, lastDay, true).values().iterator();
+                while (days.hasNext()) {
+                    RoaringBitmap day = days.next();
+                    if (day.checkedRemove(patientId)) {
+                        if (day.isEmpty()) {
+                            days.remove();
+                        }
+                        break;
+                    }
+                }
+                break;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,43 @@
+package com.medilabosolutions.riskservice.index;
+
+import java.util.function.ToIntFunction;
+
+/**
+ * Boolean query over risk terms, e.g. {@code fumeur AND cholesterol AND NOT (vertige OR rechute)}.
+ * <p>
+ * Operators are {@code AND}, {@code OR} and {@code NOT} (case-insensitive), by decreasing
+ * precedence {@code NOT}, {@code AND}, {@code OR}; parentheses group. A term made of several
+ * words is double-quoted, e.g. {@code "hemoglobine a1c"}.
+ */
+public sealed interface TermQuery {
+
+    /**
+     * Presence of one term of the term list.
+     *
+     * @param index the index of the term in the term list
+     */
+    record Term(int index) implements TermQuery {
+    }
+
+    record And(TermQuery left, TermQuery right) implements TermQuery {
+    }
+
+    record Or(TermQuery left, TermQuery right) implements TermQuery {
+    }
+
+    record Not(TermQuery operand) implements TermQuery {
+    }
+
+    /**
+     * Parses a query.
+     *
+     * @param query        the query text
+     * @param termResolver gives the index of a term in the term list,
+     *                     throwing {@link IllegalArgumentException} for an unknown term
+     * @return the parsed query
+     * @throws IllegalArgumentException if the query is malformed or a term is unknown
+     */
+    static TermQuery parse(String query, ToIntFunction<String> termResolver) {
+        return new TermQueryParser(query, termResolver).parse();
+    }
+}
@@ -0,0 +1,112 @@
+package com.medilabosolutions.riskservice.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * Recursive descent parser of {@link TermQuery}, one method per precedence level.
+ */
+final class TermQueryParser {
+
+    private final List<String> tokens;
+    private final ToIntFunction<String> termResolver;
+    private int position;
+
+    TermQueryParser(String query, ToIntFunction<String> termResolver) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Empty query");
+        }
+        this.tokens = tokenize(query);
+        this.termResolver = termResolver;
+    }
+
+    TermQuery parse() {
+        TermQuery query = or();
+        if (position < tokens.size()) {
+            throw new IllegalArgumentException("Unexpected '" + tokens.get(position) + "' in query");
+        }
+        return query;
+    }
+
+    private TermQuery or() {
+        TermQuery query = and();
+        while (accept("OR")) {
+            query = new TermQuery.Or(query, and());
+        }
+        return query;
+    }
+
+    private TermQuery and() {
+        TermQuery query = not();
+        while (accept("AND")) {
+            query = new TermQuery.And(query, not());
+        }
+        return query;
+    }
+
+    private TermQuery not() {
+        if (accept("NOT")) {
+            return new TermQuery.Not(not());
+        }
+        if (accept("(")) {
+            TermQuery query = or();
+            if (!accept(")")) {
+                throw new IllegalArgumentException("Missing ')' in query");
+            }
+            return query;
+        }
+        if (position >= tokens.size()) {
+            throw new IllegalArgumentException("Missing term at the end of the query");
+        }
+
+        String token = tokens.get(position);
+        if (token.equals(")") || isOperator(token)) {
+            throw new IllegalArgumentException("Unexpected '" + token + "' in query");
+        }
+        position++;
+        String term = token.startsWith("\"") ? token.substring(1, token.length() - 1) : token;
+        return new TermQuery.Term(termResolver.applyAsInt(term));
+    }
+
+    private boolean accept(String expected) {
+        if (position < tokens.size() && tokens.get(position).equalsIgnoreCase(expected)) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean isOperator(String token) {
+        return token.equalsIgnoreCase("AND") || token.equalsIgnoreCase("OR") || token.equalsIgnoreCase("NOT");
+    }
+
+    private static List<String> tokenize(String query) {
+        List<String> tokens = new ArrayList<>();
+        int i = 0;
+        while (i < query.length()) {
+            char c = query.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '(' || c == ')') {
+                tokens.add(String.valueOf(c));
+                i++;
+            } else if (c == '"') {
+                int end = query.indexOf('"', i + 1);
+                if (end < 0) {
+                    throw new IllegalArgumentException("Unclosed quote in query");
+                }
+                tokens.add(query.substring(i, end + 1));
+                i = end + 1;
+            } else {
+                int start = i;
+                while (i < query.length() && !Character.isWhitespace(query.charAt(i))
+                        && "()\"".indexOf(query.charAt(i)) < 0) {
+                    i++;
+                }
+                tokens.add(query.substring(start, i));
+            }
+        }
+        return tokens;
+    }
+}
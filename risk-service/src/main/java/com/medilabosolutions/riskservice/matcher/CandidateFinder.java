@@ -0,0 +1,49 @@
+package com.medilabosolutions.riskservice.matcher;
+
+/**
+ * Finds the next position of a text where a risk term may start, so that the automaton can
+ * skip the text in between while it is in its root state.
+ * <p>
+ * Candidates are described by a table over ASCII: {@code asciiCandidates[c]} is true when the
+ * character {@code c}, raw or folded, may start a term. Any non-ASCII character is a candidate,
+ * since it may fold to anything. Implementations differ only in speed and must return the
+ * same positions.
+ */
+interface CandidateFinder {
+
+    /**
+     * @param text the text
+     * @param from the first position to look at, inclusive
+     * @param to   the end of the text, exclusive
+     * @return the first candidate position in {@code [from, to)}, or {@code to} if there is none
+     */
+    int next(char[] text, int from, int to);
+
+    /**
+     * @return true if this finder uses the Vector API
+     */
+    boolean isVectorized();
+
+    /**
+     * Creates the fastest finder available: the Vector API one when requested and the
+     * {@code jdk.incubator.vector} module is present (e.g. {@code --add-modules jdk.incubator.vector}),
+     * the scalar one otherwise.
+     *
+     * @param asciiCandidates the candidate table, of length 128
+     * @param vectorized      whether to use the Vector API when available
+     * @return the finder
+     */
+    static CandidateFinder create(boolean[] asciiCandidates, boolean vectorized) {
+        if (vectorized && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                // Loaded by name: the class cannot even be linked without the module
+                return (CandidateFinder) Class.forName(CandidateFinder.class.getPackageName() + ".VectorCandidateFinder")
+                        .getDeclaredConstructor(boolean[].class)
+                        .newInstance((Object) asciiCandidates);
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // Falls back to the scalar finder
+            }
+        }
+        return new ScalarCandidateFinder(asciiCandidates);
+    }
+}
@@ -0,0 +1,509 @@
+package com.medilabosolutions.riskservice.matcher;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Multi-pattern matcher detecting which risk terms appear in a text.
+ * <p>
+ * Every term is expanded once into its literal variants (see {@link TermPatternExpander}),
+ * then all variants are compiled into a single Aho-Corasick automaton stored as a dense
+ * transition table. A text is therefore scanned in one linear pass, whatever the number
+ * of terms, and without any regex allocation at match time.
+ * <p>
+ * Matching is substring based, exactly like {@code Pattern.compile(term).matcher(text).find()}.
+ * Instances are immutable and thread-safe; per-request state lives in a {@link Scan}.
+ * <p>
+ * While the automaton is in its root state, characters that cannot start a term are skipped
+ * by a {@link CandidateFinder}, vectorized with the Vector API when the
+ * {@code jdk.incubator.vector} module is present (and {@code -Drisk.matcher.vectorized} is not
+ * {@code false}), scalar otherwise. Both give the same matches.
+ */
+public final class RiskTermMatcher {
+
+    private static final int ROOT = 0;
+    private static final int MAX_TERMS = Long.SIZE;
+    private static final boolean VECTORIZED = Boolean.parseBoolean(System.getProperty("risk.matcher.vectorized", "true"));
+    private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+
+    private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[1024]);
+
+    private final int termCount;
+    private final long allTermsMask;
+    private final long alwaysMatchedMask;    // terms having an empty variant (match any text)
+    private final int[] charClasses;         // char -> alphabet index, 0 = char absent from every term
+    private final int alphabetSize;
+    private final int[] transitions;         // state * alphabetSize + class -> next state
+    private final long[] outputs;            // state -> bitmask of the terms recognised in that state
+    private final long[] ownOutputs;         // state -> bitmask of the terms whose variant ends exactly there
+    private final int[] outputLinks;         // state -> longest proper suffix state with own outputs, or root
+    private final int[] depths;              // state -> length of the text it stands for
+    private final int maxDepth;
+    private final CandidateFinder candidateFinder;
+    private final boolean blankLeavesRoot;   // a term starts with a blank, so pending blanks cannot be skipped
+
+    private RiskTermMatcher(int termCount, long alwaysMatchedMask, int[] charClasses,
+                            int alphabetSize, int[] transitions, long[] outputs, long[] ownOutputs,
+                            int[] outputLinks, int[] depths, boolean vectorized) {
+        this.termCount = termCount;
+        this.allTermsMask = termCount == MAX_TERMS ? -1L : (1L << termCount) - 1;
+        this.alwaysMatchedMask = alwaysMatchedMask;
+        this.charClasses = charClasses;
+        this.alphabetSize = alphabetSize;
+        this.transitions = transitions;
+        this.outputs = outputs;
+        this.ownOutputs = ownOutputs;
+        this.outputLinks = outputLinks;
+        this.depths = depths;
+        this.maxDepth = Arrays.stream(depths).max().orElse(0);
+        this.candidateFinder = CandidateFinder.create(asciiCandidates(), vectorized);
+        boolean blank = false;
+        for (char c = 0; c <= ' '; c++) {
+            blank |= leavesRoot(c);
+        }
+        this.blankLeavesRoot = blank;
+    }
+
+    /**
+     * Compiles a matcher for the given terms, vectorized when possible.
+     *
+     * @param terms the terms, either plain words or simple regex patterns
+     * @return the compiled matcher
+     * @throws IllegalArgumentException if there are more than 64 terms or a pattern is not supported
+     */
+    public static RiskTermMatcher compile(List<String> terms) {
+        return compile(terms, VECTORIZED);
+    }
+
+    /**
+     * Compiles a matcher for the given terms.
+     *
+     * @param terms      the terms, either plain words or simple regex patterns
+     * @param vectorized whether to use the Vector API when the module is present
+     * @return the compiled matcher
+     * @throws IllegalArgumentException if there are more than 64 terms or a pattern is not supported
+     */
+    public static RiskTermMatcher compile(List<String> terms, boolean vectorized) {
+        if (terms.size() > MAX_TERMS) {
+            throw new IllegalArgumentException("At most " + MAX_TERMS + " terms are supported, got " + terms.size());
+        }
+
+        // Expand every term into its literal variants
+        List<List<String>> variants = new ArrayList<>(terms.size());
+        long alwaysMatched = 0L;
+        char maxChar = 0;
+        for (int term = 0; term < terms.size(); term++) {
+            List<String> literals = TermPatternExpander.expand(terms.get(term));
+            variants.add(literals);
+            for (String literal : literals) {
+                if (literal.isEmpty()) {
+                    alwaysMatched |= 1L << term;
+                }
+                for (int i = 0; i < literal.length(); i++) {
+                    maxChar = (char) Math.max(maxChar, literal.charAt(i));
+                }
+            }
+        }
+
+        // Alphabet reduction: only chars used by a term get their own class
+        int[] charClasses = new int[maxChar + 1];
+        int alphabetSize = 1;
+        for (List<String> literals : variants) {
+            for (String literal : literals) {
+                for (int i = 0; i < literal.length(); i++) {
+                    char c = literal.charAt(i);
+                    if (charClasses[c] == 0) {
+                        charClasses[c] = alphabetSize++;
+                    }
+                }
+            }
+        }
+
+        // Trie construction
+        List<Map<Integer, Integer>> children = new ArrayList<>();
+        List<Long> terminal = new ArrayList<>();
+        children.add(new HashMap<>());
+        terminal.add(0L);
+        for (int term = 0; term < variants.size(); term++) {
+            for (String literal : variants.get(term)) {
+                int state = ROOT;
+                for (int i = 0; i < literal.length(); i++) {
+                    int cls = charClasses[literal.charAt(i)];
+                    Integer next = children.get(state).get(cls);
+                    if (next == null) {
+                        next = children.size();
+                        children.add(new HashMap<>());
+                        terminal.add(0L);
+                        children.get(state).put(cls, next);
+                    }
+                    state = next;
+                }
+                terminal.set(state, terminal.get(state) | (1L << term));
+            }
+        }
+
+        // Failure links resolved breadth-first into a dense DFA
+        int stateCount = children.size();
+        int[] transitions = new int[stateCount * alphabetSize];
+        long[] outputs = new long[stateCount];
+        int[] failure = new int[stateCount];
+        long[] ownOutputs = new long[stateCount];
+        int[] outputLinks = new int[stateCount];
+        int[] depths = new int[stateCount];
+        Deque<Integer> queue = new ArrayDeque<>();
+
+        outputs[ROOT] = terminal.get(ROOT);
+        for (int cls = 0; cls < alphabetSize; cls++) {
+            Integer child = children.get(ROOT).get(cls);
+            if (child == null) {
+                transitions[cls] = ROOT;
+            } else {
+                transitions[cls] = child;
+                failure[child] = ROOT;
+                depths[child] = 1;
+                queue.add(child);
+            }
+        }
+
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            outputs[state] = terminal.get(state) | outputs[failure[state]];
+            ownOutputs[state] = terminal.get(state);
+            outputLinks[state] = ownOutputs[failure[state]] != 0 ? failure[state] : outputLinks[failure[state]];
+            for (int cls = 0; cls < alphabetSize; cls++) {
+                Integer child = children.get(state).get(cls);
+                int fallback = transitions[failure[state] * alphabetSize + cls];
+                if (child == null) {
+                    transitions[state * alphabetSize + cls] = fallback;
+                } else {
+                    transitions[state * alphabetSize + cls] = child;
+                    failure[child] = fallback;
+                    depths[child] = depths[state] + 1;
+                    queue.add(child);
+                }
+            }
+        }
+
+        return new RiskTermMatcher(terms.size(), alwaysMatched, charClasses, alphabetSize, transitions, outputs,
+                ownOutputs, outputLinks, depths, vectorized);
+    }
+
+    /**
+     * Returns the bitmask of the terms found in the text (bit {@code i} set if term {@code i} matched).
+     *
+     * @param text the text to scan
+     * @return bitmask of matched terms
+     */
+    public long matchedTerms(CharSequence text) {
+        int length = text.length();
+        char[] chars = BUFFER.get();
+        if (chars.length < length) {
+            chars = new char[length];
+            if (length <= MAX_RETAINED_BUFFER) {
+                BUFFER.set(chars);
+            }
+        }
+        text.toString().getChars(0, length, chars, 0);
+
+        long found = alwaysMatchedMask;
+        int state = ROOT;
+        for (int i = 0; i < length && found != allTermsMask; i++) {
+            if (state == ROOT) {
+                i = candidateFinder.next(chars, i, length);
+                if (i == length) {
+                    break;
+                }
+            }
+            char c = chars[i];
+            int cls = c < charClasses.length ? charClasses[c] : 0;
+            state = transitions[state * alphabetSize + cls];
+            found |= outputs[state];
+        }
+        return found;
+    }
+
+    /**
+     * Counts the distinct terms found in the text.
+     *
+     * @param text the text to scan
+     * @return number of distinct matched terms
+     */
+    public int countTerms(CharSequence text) {
+        return Long.bitCount(matchedTerms(text));
+    }
+
+    /**
+     * Starts an incremental scan over a sequence of raw notes.
+     *
+     * @param saturationCount number of distinct terms after which scanning can stop,
+     *                        because more matches would not change the outcome
+     * @return a new scan, to be used by a single thread
+     */
+    public Scan newScan(int saturationCount) {
+        return new Scan(Math.min(saturationCount, termCount), null);
+    }
+
+    /**
+     * Starts a scan that also records every occurrence of the terms, with its note and offsets.
+     * It only stops once every term was found. Scans created by {@link #newScan(int)} record nothing.
+     *
+     * @param matches where to record the occurrences
+     * @return a new scan, to be used by a single thread
+     */
+    public Scan newExplainingScan(TermMatches matches) {
+        return new Scan(termCount, matches);
+    }
+
+    /**
+     * @return true if characters that cannot start a term are skipped with the Vector API
+     */
+    public boolean isVectorized() {
+        return candidateFinder.isVectorized();
+    }
+
+    /**
+     * Characters leaving the root state, either as is or once folded: the others can be skipped
+     * in the root state. Chars removed or not folded by the table are kept, to be safe.
+     */
+    private boolean[] asciiCandidates() {
+        boolean[] candidates = new boolean[128];
+        for (char c = 0; c < 128; c++) {
+            char folded = TextNormalizer.fold(c);
+            candidates[c] = leavesRoot(c)
+                    || folded == TextNormalizer.DROP || folded == TextNormalizer.FALLBACK || leavesRoot(folded);
+        }
+        return candidates;
+    }
+
+    private boolean leavesRoot(char c) {
+        int cls = c < charClasses.length ? charClasses[c] : 0;
+        return transitions[ROOT * alphabetSize + cls] != ROOT;
+    }
+
+    /**
+     * @return number of terms compiled in this matcher
+     */
+    public int termCount() {
+        return termCount;
+    }
+
+    /**
+     * Incremental scan of raw notes, one at a time.
+     * <p>
+     * Each note is normalized on the fly with {@link TextNormalizer} (no intermediate string)
+     * and notes are separated by a single space, so the matched terms are exactly those found
+     * in the normalized notes joined with {@code " "}. The automaton state is carried across
+     * note boundaries, which keeps terms spanning two notes detected as before.
+     * <p>
+     * An explaining scan also keeps the raw positions of the last characters fed to the automaton,
+     * enough to locate the start of the longest term, and records each occurrence in its
+     * {@link TermMatches}. The other scans skip this bookkeeping entirely.
+     */
+    public final class Scan {
+
+        private final int saturationCount;
+        private int state = ROOT;
+        private long found = alwaysMatchedMask;
+        private boolean firstNote = true;
+        private char[] pendingBlanks = new char[16];  // trailing blanks, only fed if followed by text
+        private int pendingCount;
+        private char[] chars = new char[256];         // current note, for the candidate finder
+
+        // Explaining scans only
+        private final TermMatches matches;
+        private int[] positions;                      // raw position of the last steps, as a ring
+        private int[] pendingPositions;               // raw position of the pending blanks
+        private int stepCount;                        // steps since the scan started
+        private int noteStartStep;                    // steps before the current note
+        private int noteIndex = -1;
+        private int position;                         // raw position of the char being stepped
+
+        private Scan(int saturationCount, TermMatches matches) {
+            this.saturationCount = saturationCount;
+            this.matches = matches;
+            if (matches != null) {
+                positions = new int[Math.max(1, maxDepth)];
+                pendingPositions = new int[pendingBlanks.length];
+            }
+        }
+
+        /**
+         * Feeds the next raw note to the scan. Does nothing once the scan is saturated.
+         *
+         * @param note the raw note text
+         * @return this scan
+         */
+        public Scan feed(String note) {
+            if (isSaturated()) {
+                return this;
+            }
+            if (!firstNote) {
+                position = -1;
+                step(' ');  // separator between two notes
+            }
+            firstNote = false;
+
+            int noteStartState = state;
+            long noteStartFound = found;
+            int noteStartMatches = 0;
+            if (matches != null) {
+                noteIndex++;
+                noteStartStep = stepCount;
+                noteStartMatches = matches.count();
+            }
+            boolean leading = true;
+            pendingCount = 0;
+
+            int length = note.length();
+            if (chars.length < length) {
+                chars = new char[Math.max(length, chars.length * 2)];
+            }
+            note.getChars(0, length, chars, 0);
+
+            for (int i = 0; i < length && !isSaturated(); i++) {
+                if (state == ROOT && (pendingCount == 0 || !blankLeavesRoot)) {
+                    // Skipped chars would leave the automaton in the root state, pending blanks included
+                    int next = candidateFinder.next(chars, i, length);
+                    if (next > i) {
+                        if (leading) {
+                            leading = isBlank(chars, i, next);
+                        }
+                        pendingCount = 0;
+                        i = next;
+                        if (i == length) {
+                            break;
+                        }
+                    }
+                }
+                char c = chars[i];
+                position = i;
+                char folded = TextNormalizer.fold(c);
+                if (folded == TextNormalizer.DROP) {
+                    continue;
+                }
+                if (folded != TextNormalizer.FALLBACK) {
+                    leading = accept(folded, leading);
+                    continue;
+                }
+                if (!TextNormalizer.isFoldableAlone(c)) {
+                    // Context-dependent folding: replay the whole note through the full normalizer
+                    state = noteStartState;
+                    found = noteStartFound;
+                    position = -1;
+                    if (matches != null) {
+                        matches.truncate(noteStartMatches);
+                    }
+                    String normalized = TextNormalizer.fullNormalize(note);
+                    for (int j = 0; j < normalized.length() && !isSaturated(); j++) {
+                        step(normalized.charAt(j));
+                    }
+                    return this;
+                }
+                String decomposed = TextNormalizer.foldAlone(c);
+                for (int j = 0; j < decomposed.length(); j++) {
+                    leading = accept(decomposed.charAt(j), leading);
+                }
+            }
+            return this;
+        }
+
+        /**
+         * @return bitmask of the terms found so far
+         */
+        public long matchedTerms() {
+            return found;
+        }
+
+        /**
+         * @return number of distinct terms found so far
+         */
+        public int matchedCount() {
+            return Long.bitCount(found);
+        }
+
+        /**
+         * @return true once enough terms were found for further notes to be irrelevant
+         */
+        public boolean isSaturated() {
+            return Long.bitCount(found) >= saturationCount;
+        }
+
+        // Trims blanks as String.trim() would: leading ones dropped, inner ones kept, trailing ones held back
+        private boolean accept(char c, boolean leading) {
+            if (c <= ' ') {
+                if (!leading) {
+                    if (pendingCount == pendingBlanks.length) {
+                        pendingBlanks = Arrays.copyOf(pendingBlanks, pendingCount * 2);
+                        if (matches != null) {
+                            pendingPositions = Arrays.copyOf(pendingPositions, pendingCount * 2);
+                        }
+                    }
+                    if (matches != null) {
+                        pendingPositions[pendingCount] = position;
+                    }
+                    pendingBlanks[pendingCount++] = c;
+                }
+                return leading;
+            }
+            if (pendingCount > 0) {
+                int current = position;
+                for (int i = 0; i < pendingCount; i++) {
+                    if (matches != null) {
+                        position = pendingPositions[i];
+                    }
+                    step(pendingBlanks[i]);
+                }
+                position = current;
+                pendingCount = 0;
+            }
+            step(c);
+            return false;
+        }
+
+        private static boolean isBlank(char[] text, int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (text[i] > ' ') {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void step(char c) {
+            int cls = c < charClasses.length ? charClasses[c] : 0;
+            state = transitions[state * alphabetSize + cls];
+            found |= outputs[state];
+            if (matches != null) {
+                record();
+            }
+        }
+
+        // Records the occurrences ending with the char just stepped, from the longest to the shortest
+        private void record() {
+            positions[stepCount % positions.length] = position;
+            stepCount++;
+            if (outputs[state] == 0) {
+                return;
+            }
+
+            for (int s = ownOutputs[state] != 0 ? state : outputLinks[state]; s != ROOT; s = outputLinks[s]) {
+                int start = -1;
+                int end = -1;
+                if (position >= 0) {
+                    // An occurrence starting in the previous note is reported from the note start
+                    int startStep = Math.max(stepCount - depths[s], noteStartStep);
+                    start = positions[startStep % positions.length];
+                    end = position + 1;
+                }
+                for (long terms = ownOutputs[s]; terms != 0; terms &= terms - 1) {
+                    matches.add(Long.numberOfTrailingZeros(terms), noteIndex, start, end);
+                }
+            }
+        }
+    }
+}
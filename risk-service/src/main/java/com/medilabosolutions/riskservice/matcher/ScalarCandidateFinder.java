@@ -0,0 +1,29 @@
+package com.medilabosolutions.riskservice.matcher;
+
+/**
+ * Portable {@link CandidateFinder}, one table lookup per character.
+ */
+final class ScalarCandidateFinder implements CandidateFinder {
+
+    private final boolean[] asciiCandidates;
+
+    ScalarCandidateFinder(boolean[] asciiCandidates) {
+        this.asciiCandidates = asciiCandidates.clone();
+    }
+
+    @Override
+    public int next(char[] text, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = text[i];
+            if (c >= 128 || asciiCandidates[c]) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    @Override
+    public boolean isVectorized() {
+        return false;
+    }
+}
@@ -0,0 +1,63 @@
+package com.medilabosolutions.riskservice.matcher;
+
+import java.util.Arrays;
+
+/**
+ * Occurrences of the risk terms recorded by an explaining {@link RiskTermMatcher.Scan}, stored
+ * flat in a single int array: four ints per occurrence, no object per occurrence.
+ * <p>
+ * An occurrence is {@code (term, note, start, end)}: the term index in the term list, the index
+ * of the note in the order it was fed, and the character offsets of the occurrence in the raw
+ * note, end exclusive. Offsets are -1 when the note needed context-dependent normalization,
+ * whose positions cannot be mapped back to the raw note; each term is then recorded once for
+ * that note, as its occurrences cannot be told apart.
+ */
+public final class TermMatches {
+
+    /**
+     * Number of ints per occurrence.
+     */
+    public static final int STRIDE = 4;
+
+    private int[] data = new int[STRIDE * 8];
+    private int size;
+
+    void add(int term, int note, int start, int end) {
+        // Variants of one term starting at the same place, e.g. "vertige" then "vertiges": the longest is kept.
+        // Without offsets, the whole note is looked at
+        for (int i = size - STRIDE; i >= 0 && data[i + 1] == note && (start < 0 || data[i + 3] > start); i -= STRIDE) {
+            if (data[i] == term && data[i + 2] == start) {
+                data[i + 3] = end;
+                return;
+            }
+        }
+
+        if (size + STRIDE > data.length) {
+            data = Arrays.copyOf(data, data.length * 2);
+        }
+        data[size] = term;
+        data[size + 1] = note;
+        data[size + 2] = start;
+        data[size + 3] = end;
+        size += STRIDE;
+    }
+
+    // Drops the occurrences recorded after the given count, e.g. when a note is scanned again
+    void truncate(int count) {
+        size = count * STRIDE;
+    }
+
+    /**
+     * @return the number of occurrences
+     */
+    public int count() {
+        return size / STRIDE;
+    }
+
+    /**
+     * @return a copy of the occurrences, {@value #STRIDE} ints each, in the order they were found
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(data, size);
+    }
+}
@@ -0,0 +1,110 @@
+package com.medilabosolutions.riskservice.matcher;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Expands a risk term written as a simple regex into the finite list of literals it matches.
+ * <p>
+ * Only the constructs used by {@code RiskTerms} are supported: literal characters, escaped
+ * characters, groups ({@code (...)} or {@code (?:...)}), alternation {@code |} and the optional
+ * quantifier {@code ?}. Any other regex construct is rejected so that a term can never be
+ * silently matched differently from {@link java.util.regex.Pattern}.
+ * <p>
+ * Example: {@code "(?:fum(?:e(?:ur|use)|er))"} expands to {@code [fumeur, fumeuse, fumer]}.
+ */
+final class TermPatternExpander {
+
+    private static final String UNSUPPORTED = "*+.[]{}^$";
+
+    private final String pattern;
+    private int pos;
+
+    private TermPatternExpander(String pattern) {
+        this.pattern = pattern;
+    }
+
+    /**
+     * Expands a term pattern into its literal variants.
+     *
+     * @param pattern the term pattern
+     * @return the distinct literals matched by the pattern, in declaration order
+     * @throws IllegalArgumentException if the pattern uses an unsupported construct or is malformed
+     */
+    static List<String> expand(String pattern) {
+        TermPatternExpander expander = new TermPatternExpander(pattern);
+        Set<String> literals = expander.alternation();
+        if (expander.pos != pattern.length()) {
+            throw expander.error("unbalanced ')'");
+        }
+        return new ArrayList<>(literals);
+    }
+
+    // alternation := sequence ('|' sequence)*
+    private Set<String> alternation() {
+        Set<String> result = new LinkedHashSet<>(sequence());
+        while (pos < pattern.length() && pattern.charAt(pos) == '|') {
+            pos++;
+            result.addAll(sequence());
+        }
+        return result;
+    }
+
+    // sequence := (atom '?'?)*
+    private Set<String> sequence() {
+        Set<String> result = new LinkedHashSet<>();
+        result.add("");
+        while (pos < pattern.length() && pattern.charAt(pos) != '|' && pattern.charAt(pos) != ')') {
+            Set<String> atom = atom();
+            if (pos < pattern.length() && pattern.charAt(pos) == '?') {
+                pos++;
+                atom.add("");
+            }
+            Set<String> product = new LinkedHashSet<>();
+            for (String prefix : result) {
+                for (String suffix : atom) {
+                    product.add(prefix + suffix);
+                }
+            }
+            result = product;
+        }
+        return result;
+    }
+
+    // atom := '(' ('?:')? alternation ')' | '\' char | char
+    private Set<String> atom() {
+        char c = pattern.charAt(pos);
+        if (c == '(') {
+            pos++;
+            if (pattern.startsWith("?:", pos)) {
+                pos += 2;
+            } else if (pos < pattern.length() && pattern.charAt(pos) == '?') {
+                throw error("unsupported group type");
+            }
+            Set<String> group = alternation();
+            if (pos >= pattern.length() || pattern.charAt(pos) != ')') {
+                throw error("missing ')'");
+            }
+            pos++;
+            return group;
+        }
+        if (c == '\\') {
+            if (pos + 1 >= pattern.length() || Character.isLetterOrDigit(pattern.charAt(pos + 1))) {
+                throw error("unsupported escape");
+            }
+            pos += 2;
+            return new LinkedHashSet<>(List.of(String.valueOf(pattern.charAt(pos - 1))));
+        }
+        if (c == '?' || UNSUPPORTED.indexOf(c) >= 0) {
+            throw error("unsupported construct '" + c + "'");
+        }
+        pos++;
+        return new LinkedHashSet<>(List.of(String.valueOf(c)));
+    }
+
+    private IllegalArgumentException error(String reason) {
+        return new IllegalArgumentException("Invalid risk term pattern \"" + pattern + "\" at index " + pos + ": " + reason);
+    }
+}
@@ -0,0 +1,139 @@
+package com.medilabosolutions.riskservice.matcher;
+
+import java.text.Normalizer;
+
+/**
+ * Normalizes note text before term matching: removes accents, lowercases and trims.
+ * <p>
+ * The result is identical to
+ * {@code Normalizer.normalize(text, NFD).replaceAll("\\p{M}", "").toLowerCase().trim()},
+ * but it is computed in a single pass into a reusable per-thread buffer:
+ * <ul>
+ *     <li>Basic Latin, Latin-1, Latin Extended-A/B and the combining diacritics are folded
+ *     through a lookup table computed once at startup;</li>
+ *     <li>only characters outside that table go through the full {@link Normalizer}.</li>
+ * </ul>
+ * This class is final and cannot be instantiated.
+ */
+public final class TextNormalizer {
+
+    private TextNormalizer() {} // Private constructor to prevent instantiation
+
+    static final char DROP = '\uFFFE';       // character removed by folding (combining mark)
+    static final char FALLBACK = '\uFFFF';   // character not folded to a single char by the table
+
+    private static final int TABLE_SIZE = 0x370;  // up to the end of the combining diacritics block
+    private static final char GREEK_CAPITAL_SIGMA = '\u03A3';  // lowercased differently at word end
+    private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+
+    private static final char[] FOLD_TABLE = buildFoldTable();
+
+    private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[1024]);
+
+    /**
+     * Normalizes a text: accents removed, lowercase, leading/trailing spaces trimmed.
+     *
+     * @param text the input text
+     * @return normalized text
+     */
+    public static String normalize(String text) {
+        char[] buffer = BUFFER.get();
+        int length = 0;
+
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            char folded = fold(c);
+            if (folded == DROP) {
+                continue;
+            }
+            if (folded == FALLBACK) {
+                if (!isFoldableAlone(c)) {
+                    return fullNormalize(text);  // context-dependent: no per-char shortcut
+                }
+                String decomposed = foldAlone(c);
+                if (length + decomposed.length() > buffer.length) {
+                    buffer = grow(buffer, length + decomposed.length() + text.length() - i);
+                }
+                decomposed.getChars(0, decomposed.length(), buffer, length);
+                length += decomposed.length();
+                continue;
+            }
+            if (length == buffer.length) {
+                buffer = grow(buffer, length + text.length() - i);
+            }
+            buffer[length++] = folded;
+        }
+
+        // Trim, as String.trim() would do on the normalized text
+        int start = 0;
+        while (start < length && buffer[start] <= ' ') {
+            start++;
+        }
+        while (length > start && buffer[length - 1] <= ' ') {
+            length--;
+        }
+        return new String(buffer, start, length - start);
+    }
+
+    /**
+     * Folds a single character through the lookup table.
+     *
+     * @param c the character
+     * @return the folded character, {@link #DROP} if it is removed, or {@link #FALLBACK}
+     *         if it needs the full {@link Normalizer}
+     */
+    static char fold(char c) {
+        return c < TABLE_SIZE ? FOLD_TABLE[c] : FALLBACK;
+    }
+
+    /**
+     * Tells whether a character outside the table can be normalized on its own, i.e. its
+     * result does not depend on the surrounding characters.
+     */
+    static boolean isFoldableAlone(char c) {
+        return c != GREEK_CAPITAL_SIGMA && !Character.isSurrogate(c);
+    }
+
+    /**
+     * Reference normalization through {@link Normalizer}, used for characters outside the table.
+     */
+    static String fullNormalize(String text) {
+        return Normalizer.normalize(text, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "") // remove accents
+                .toLowerCase()
+                .trim();                  // remove leading/trailing spaces
+    }
+
+    /**
+     * Normalizes a single character outside the table, without trimming.
+     */
+    static String foldAlone(char c) {
+        return Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase();
+    }
+
+    private static char[] grow(char[] buffer, int minCapacity) {
+        char[] larger = new char[Math.max(minCapacity, buffer.length * 2)];
+        System.arraycopy(buffer, 0, larger, 0, buffer.length);
+        if (larger.length <= MAX_RETAINED_BUFFER) {
+            BUFFER.set(larger);
+        }
+        return larger;
+    }
+
+    private static char[] buildFoldTable() {
+        char[] table = new char[TABLE_SIZE];
+        for (char c = 0; c < TABLE_SIZE; c++) {
+            String folded = foldAlone(c);
+            if (folded.isEmpty()) {
+                table[c] = DROP;
+            } else if (folded.length() == 1) {
+                table[c] = folded.charAt(0);
+            } else {
+                table[c] = FALLBACK;
+            }
+        }
+        return table;
+    }
+}
@@ -0,0 +1,77 @@
+package com.medilabosolutions.riskservice.matcher;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link CandidateFinder} testing a whole vector of characters at once with the Vector API
+ * ({@code jdk.incubator.vector}), e.g. 16 or 32 characters per step with AVX2 or AVX-512.
+ * <p>
+ * Each step ORs the lanes with {@code 0x20}, which lowercases ASCII letters, compares them
+ * with the lowercase candidates and flags non-ASCII lanes; the first flagged lane is the
+ * candidate. When lowercasing would flag a non-candidate (a candidate table that is not
+ * case-insensitive), the lanes are compared with every candidate as is instead. The remaining
+ * characters are handled by the scalar finder.
+ * <p>
+ * Only loaded by {@link CandidateFinder#create} when the module is present.
+ */
+final class VectorCandidateFinder implements CandidateFinder {
+
+    private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_PREFERRED;
+    private static final short CASE_BIT = 0x20;
+
+    private final short caseMask;       // OR-ed to every lane before comparing
+    private final short[] targets;      // ASCII candidates, after the case mask
+    private final ScalarCandidateFinder tail;
+
+    VectorCandidateFinder(boolean[] asciiCandidates) {
+        boolean caseInsensitive = true;
+        boolean[] lowered = new boolean[128];
+        for (int c = 0; c < 128; c++) {
+            if (asciiCandidates[c]) {
+                lowered[c | CASE_BIT] = true;
+            }
+        }
+        for (int c = 0; c < 128; c++) {
+            caseInsensitive &= asciiCandidates[c] == lowered[c | CASE_BIT];
+        }
+
+        this.caseMask = caseInsensitive ? CASE_BIT : 0;
+        boolean[] compared = caseInsensitive ? lowered : asciiCandidates;
+        int count = 0;
+        for (boolean candidate : compared) {
+            count += candidate ? 1 : 0;
+        }
+        this.targets = new short[count];
+        for (int c = 0, t = 0; c < 128; c++) {
+            if (compared[c]) {
+                targets[t++] = (short) c;
+            }
+        }
+        this.tail = new ScalarCandidateFinder(asciiCandidates);
+    }
+
+    @Override
+    public int next(char[] text, int from, int to) {
+        int i = from;
+        for (int bound = from + SPECIES.loopBound(to - from); i < bound; i += SPECIES.length()) {
+            ShortVector chars = ShortVector.fromCharArray(SPECIES, text, i);
+            VectorMask<Short> candidates = chars.compare(VectorOperators.UNSIGNED_GT, (short) 0x7F);
+            ShortVector folded = chars.or(caseMask);
+            for (short target : targets) {
+                candidates = candidates.or(folded.eq(target));
+            }
+            if (candidates.anyTrue()) {
+                return i + candidates.firstTrue();
+            }
+        }
+        return tail.next(text, i, to);
+    }
+
+    @Override
+    public boolean isVectorized() {
+        return true;
+    }
+}
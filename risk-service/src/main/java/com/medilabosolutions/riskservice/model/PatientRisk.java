@@ -0,0 +1,53 @@
+package com.medilabosolutions.riskservice.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Materialized risk of a patient: the risk terms found in their notes and the inputs
+ * needed to classify them again without calling the remote services.
+ */
+@Entity
+@Table(name = "patient_risks")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PatientRisk {
+
+    @Id
+    @Column(name = "patient_id")
+    private Integer patientId;
+
+    // Bit i is set when term i of RiskTerms.listRisks appears in the notes
+    @Column(name = "matched_terms", nullable = false)
+    private long matchedTerms;
+
+    @Column(name = "risk_level", length = 20)
+    private String riskLevel;
+
+    @Column(name = "date_of_birth", nullable = false)
+    private LocalDate dateOfBirth;
+
+    @Column(length = 1)
+    private String gender;
+
+    // Version of the term list the bits refer to
+    @Column(name = "terms_version", nullable = false)
+    private int termsVersion;
+
+    // Note events applied since the last full computation
+    @Column(name = "notes_version", nullable = false)
+    private long notesVersion;
+
+    // Last full computation from the patient and note services
+    @Column(name = "computed_at", nullable = false)
+    private Instant computedAt;
+
+    // Last change, full or incremental
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+}
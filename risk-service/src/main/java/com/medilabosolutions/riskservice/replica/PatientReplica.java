@@ -0,0 +1,128 @@
+package com.medilabosolutions.riskservice.replica;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Local copy of the patient demographics used by the risk rules, i.e. birth date and gender,
+ * in a single primitive array indexed by patient id.
+ * <p>
+ * Each patient takes one {@code long}: the birth date as an epoch day in the upper 32 bits, the
+ * gender character in the next 16 bits and a presence bit, so that a lookup is one array read
+ * and a million patients fit in 8 MB. Patient ids being assigned in sequence by the patient
+ * service, the array stays dense; ids above {@value #MAX_ID} are not replicated.
+ * <p>
+ * Thread-safe: lookups share a read lock, changes take the write lock.
+ */
+public final class PatientReplica {
+
+    public static final int MAX_ID = 1 << 24;
+
+    private static final long PRESENT = 1L;
+
+    private long[] entries = new long[1024];
+    private int size;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Stores or replaces the demographics of a patient.
+     *
+     * @param patientId   the patient ID
+     * @param dateOfBirth the patient's birth date
+     * @param gender      the patient gender, a single character
+     * @return false if the patient cannot be replicated (id out of range, missing or multi-character values)
+     */
+    public boolean put(int patientId, LocalDate dateOfBirth, String gender) {
+        if (patientId < 0 || patientId >= MAX_ID || dateOfBirth == null || gender == null || gender.length() != 1) {
+            return false;
+        }
+        long entry = dateOfBirth.toEpochDay() << 32 | (long) gender.charAt(0) << 16 | PRESENT;
+
+        lock.writeLock().lock();
+        try {
+            if (patientId >= entries.length) {
+                entries = Arrays.copyOf(entries, Math.min(MAX_ID, Math.max(patientId + 1, entries.length * 2)));
+            }
+            if ((entries[patientId] & PRESENT) == 0) {
+                size++;
+            }
+            entries[patientId] = entry;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a patient.
+     *
+     * @param patientId the patient ID
+     */
+    public void remove(int patientId) {
+        lock.writeLock().lock();
+        try {
+            if (patientId >= 0 && patientId < entries.length && (entries[patientId] & PRESENT) != 0) {
+                entries[patientId] = 0L;
+                size--;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param patientId the patient ID
+     * @return the packed demographics of the patient, 0 if unknown; see {@link #dateOfBirth(long)}
+     * and {@link #gender(long)}
+     */
+    public long get(int patientId) {
+        lock.readLock().lock();
+        try {
+            return patientId >= 0 && patientId < entries.length ? entries[patientId] : 0L;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param entry packed demographics, as returned by {@link #get(int)}
+     * @return the birth date
+     */
+    public static LocalDate dateOfBirth(long entry) {
+        return LocalDate.ofEpochDay(entry >> 32);
+    }
+
+    /**
+     * @param entry packed demographics, as returned by {@link #get(int)}
+     * @return the gender
+     */
+    public static String gender(long entry) {
+        return String.valueOf((char) (entry >>> 16));
+    }
+
+    /**
+     * @return the number of replicated patients
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the memory used by the array
+     */
+    public long sizeInBytes() {
+        lock.readLock().lock();
+        try {
+            return (long) entries.length * Long.BYTES;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
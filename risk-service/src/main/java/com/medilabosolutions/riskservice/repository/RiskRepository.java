@@ -1,6 +1,18 @@
 package com.medilabosolutions.riskservice.repository;
 
+import com.medilabosolutions.riskservice.model.PatientRisk;
+import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.List;
+
 @Repository
-public class RiskRepository <Risk, Integer>{ }
+public interface RiskRepository extends JpaRepository<PatientRisk, Integer> {
+
+    /**
+     * @param date the exclusive lower bound
+     * @return the stored risks of the patients born after the given date
+     */
+    List<PatientRisk> findByDateOfBirthAfter(LocalDate date);
+}
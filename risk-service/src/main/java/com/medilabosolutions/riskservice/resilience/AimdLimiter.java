@@ -0,0 +1,89 @@
+package com.medilabosolutions.riskservice.resilience;
+
+/**
+ * Adaptive limit of concurrent calls to a downstream service, adjusted by additive increase
+ * and multiplicative decrease (AIMD) from the observed latency.
+ * <p>
+ * A call is only admitted while fewer calls than the current limit are in flight. Each call
+ * that completes within the latency threshold grows the limit by {@code 1 / limit}, i.e. by
+ * one after a full limit of fast calls, as long as the limit is actually used; each call that
+ * fails or exceeds the threshold multiplies it by the backoff ratio. The limit stays between
+ * the minimum and the maximum, the latter acting as a fixed bulkhead.
+ * <p>
+ * Thread-safe.
+ */
+public final class AimdLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+
+    private double limit;
+    private int inFlight;
+
+    /**
+     * @param initialLimit          the limit before any call
+     * @param minLimit              the lowest limit, at least 1
+     * @param maxLimit              the highest limit, i.e. the bulkhead size
+     * @param latencyThresholdNanos the latency above which a call shrinks the limit
+     * @param backoffRatio          the factor applied to the limit on a slow or failed call, in (0, 1)
+     * @throws IllegalArgumentException if the limits or the ratio are inconsistent
+     */
+    public AimdLimiter(int initialLimit, int minLimit, int maxLimit, long latencyThresholdNanos, double backoffRatio) {
+        if (minLimit < 1 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit
+                || backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("Invalid concurrency limits: initial=" + initialLimit
+                    + ", min=" + minLimit + ", max=" + maxLimit + ", backoff=" + backoffRatio);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThresholdNanos;
+        this.backoffRatio = backoffRatio;
+        this.limit = initialLimit;
+    }
+
+    /**
+     * Admits a call if the limit allows it. An admitted call must be followed by exactly one
+     * {@link #release(long, boolean)}.
+     *
+     * @return whether the call is admitted
+     */
+    public synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    /**
+     * Records the outcome of an admitted call and adapts the limit.
+     *
+     * @param latencyNanos the duration of the call
+     * @param failed       whether the call failed
+     */
+    public synchronized void release(long latencyNanos, boolean failed) {
+        int used = inFlight--;
+        if (failed || latencyNanos > latencyThresholdNanos) {
+            limit = Math.max(minLimit, limit * backoffRatio);
+        } else if (used * 2 >= (int) limit) {
+            // Only grow a limit that is actually reached, or idle clients would drift to the maximum
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    /**
+     * @return the current limit
+     */
+    public synchronized int limit() {
+        return (int) limit;
+    }
+
+    /**
+     * @return the calls in flight
+     */
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+}
@@ -0,0 +1,165 @@
+package com.medilabosolutions.riskservice.resilience;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+
+/**
+ * Count-based circuit breaker of a downstream service.
+ * <p>
+ * The outcomes of the last {@code windowSize} calls are kept in a ring. Once at least
+ * {@code minimumCalls} outcomes are known, a failure rate reaching the threshold opens the
+ * circuit: every call is then rejected without reaching the service. After the open duration,
+ * a single probe call is let through (half-open): its success closes the circuit with an empty
+ * window, its failure opens it again.
+ * <p>
+ * Each state change starts a new generation, and an admitted call carries the generation it
+ * was admitted in: the outcome of a call admitted before the last change, e.g. one admitted
+ * while closed and completing while half-open, is ignored, so only the probe decides.
+ * <p>
+ * Thread-safe.
+ */
+public final class CircuitBreaker {
+
+    /**
+     * Returned by {@link #tryAcquire()} when the call is rejected.
+     */
+    public static final long REJECTED = -1;
+
+    /**
+     * State of the circuit, with its value in the {@code risk.downstream.circuit.state} gauge.
+     */
+    public enum State {
+        CLOSED(0), HALF_OPEN(1), OPEN(2);
+
+        private final int gaugeValue;
+
+        State(int gaugeValue) {
+            this.gaugeValue = gaugeValue;
+        }
+
+        public int gaugeValue() {
+            return gaugeValue;
+        }
+    }
+
+    private final boolean[] window;
+    private final int minimumCalls;
+    private final int failureRateThreshold;
+    private final long openDurationNanos;
+    private final Ticker ticker;
+
+    private State state = State.CLOSED;
+    private int next;
+    private int calls;
+    private int failures;
+    private long openedAt;
+    private boolean probing;
+    private long generation;
+
+    /**
+     * @param windowSize           the number of most recent calls considered
+     * @param minimumCalls         the number of calls needed before the circuit may open
+     * @param failureRateThreshold the failure percentage opening the circuit, in (0, 100]
+     * @param openDurationNanos    how long the circuit stays open before a probe call
+     * @param ticker               the time source
+     * @throws IllegalArgumentException if the window or the threshold are inconsistent
+     */
+    public CircuitBreaker(int windowSize, int minimumCalls, int failureRateThreshold, long openDurationNanos,
+                          Ticker ticker) {
+        if (windowSize < 1 || minimumCalls < 1 || minimumCalls > windowSize
+                || failureRateThreshold <= 0 || failureRateThreshold > 100) {
+            throw new IllegalArgumentException("Invalid circuit breaker window: size=" + windowSize
+                    + ", minimum calls=" + minimumCalls + ", failure rate=" + failureRateThreshold);
+        }
+        this.window = new boolean[windowSize];
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDurationNanos = openDurationNanos;
+        this.ticker = ticker;
+    }
+
+    /**
+     * Admits a call unless the circuit is open. An admitted call must be followed by exactly one
+     * {@link #record(long, boolean)} or {@link #cancel(long)} with the returned permit.
+     *
+     * @return the permit of the admitted call, or {@link #REJECTED}
+     */
+    public synchronized long tryAcquire() {
+        if (state == State.OPEN && ticker.read() - openedAt >= openDurationNanos) {
+            transition(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (probing) {
+                return REJECTED;
+            }
+            probing = true;
+            return generation;
+        }
+        return state == State.CLOSED ? generation : REJECTED;
+    }
+
+    /**
+     * Records the outcome of an admitted call, ignored if the circuit changed state since.
+     *
+     * @param permit the permit returned by {@link #tryAcquire()}
+     * @param failed whether the call failed
+     */
+    public synchronized void record(long permit, boolean failed) {
+        if (permit != generation) {
+            return;  // a call admitted before the last state change
+        }
+        if (state == State.HALF_OPEN) {
+            probing = false;
+            if (failed) {
+                open();
+            } else {
+                transition(State.CLOSED);
+                next = calls = failures = 0;
+            }
+            return;
+        }
+
+        if (calls == window.length) {
+            failures -= window[next] ? 1 : 0;
+        } else {
+            calls++;
+        }
+        window[next] = failed;
+        failures += failed ? 1 : 0;
+        next = (next + 1) % window.length;
+
+        if (calls >= minimumCalls && failures * 100 >= failureRateThreshold * calls) {
+            open();
+        }
+    }
+
+    /**
+     * Gives back an admitted call that was not made, without recording any outcome.
+     *
+     * @param permit the permit returned by {@link #tryAcquire()}
+     */
+    public synchronized void cancel(long permit) {
+        if (state == State.HALF_OPEN && permit == generation) {
+            probing = false;
+        }
+    }
+
+    private void open() {
+        transition(State.OPEN);
+        openedAt = ticker.read();
+    }
+
+    private void transition(State to) {
+        state = to;
+        generation++;
+    }
+
+    /**
+     * @return the current state, an expired open state being reported as half-open
+     */
+    public synchronized State state() {
+        if (state == State.OPEN && ticker.read() - openedAt >= openDurationNanos) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+}
@@ -0,0 +1,121 @@
+package com.medilabosolutions.riskservice.resilience;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+import java.io.IOException;
+import java.util.function.Function;
+
+/**
+ * Isolation of the calls to one downstream service: a {@link CircuitBreaker} and an
+ * {@link AimdLimiter}, whose maximum is the bulkhead of the service.
+ * <p>
+ * A call rejected by either is not made: it fails at once with the exception of the service,
+ * e.g. {@code NoteServiceException}, instead of holding a thread. A call failing with an
+ * {@link IOException} (including timeouts) or a 5xx response counts as a failure; other
+ * responses, e.g. 404, as successes.
+ * <p>
+ * Metrics, tagged with {@code client}: {@code risk.downstream.limit},
+ * {@code risk.downstream.inflight}, {@code risk.downstream.rejections} tagged
+ * {@code reason=limit|circuit_open}, and {@code risk.downstream.circuit.state}
+ * (0 closed, 1 half-open, 2 open).
+ */
+public final class DownstreamGuard {
+
+    private final String client;
+    private final CircuitBreaker circuitBreaker;
+    private final AimdLimiter limiter;
+    private final Function<String, RuntimeException> unavailable;
+    private final Counter limitRejections;
+    private final Counter circuitRejections;
+
+    /**
+     * @param client         the name of the downstream service
+     * @param circuitBreaker the circuit breaker of the service
+     * @param limiter        the concurrency limiter of the service
+     * @param unavailable    creates the exception of a rejected call from its message
+     * @param meterRegistry  where to register the metrics
+     */
+    public DownstreamGuard(String client, CircuitBreaker circuitBreaker, AimdLimiter limiter,
+                           Function<String, RuntimeException> unavailable, MeterRegistry meterRegistry) {
+        this.client = client;
+        this.circuitBreaker = circuitBreaker;
+        this.limiter = limiter;
+        this.unavailable = unavailable;
+
+        Tags tags = Tags.of("client", client);
+        this.limitRejections = rejections(meterRegistry, tags, "limit");
+        this.circuitRejections = rejections(meterRegistry, tags, "circuit_open");
+        Gauge.builder("risk.downstream.limit", limiter, AimdLimiter::limit)
+                .description("Current concurrency limit of the calls to a downstream service")
+                .tags(tags)
+                .register(meterRegistry);
+        Gauge.builder("risk.downstream.inflight", limiter, AimdLimiter::inFlight)
+                .description("Calls in flight to a downstream service")
+                .tags(tags)
+                .register(meterRegistry);
+        Gauge.builder("risk.downstream.circuit.state", circuitBreaker, breaker -> breaker.state().gaugeValue())
+                .description("Circuit breaker state of a downstream service: 0 closed, 1 half-open, 2 open")
+                .tags(tags)
+                .register(meterRegistry);
+    }
+
+    private static Counter rejections(MeterRegistry meterRegistry, Tags tags, String reason) {
+        return Counter.builder("risk.downstream.rejections")
+                .description("Calls to a downstream service rejected without being made")
+                .tags(tags)
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param delegate the client making the calls
+     * @return a client making the calls admitted by this guard through the delegate
+     */
+    public Client wrap(Client delegate) {
+        return (request, options) -> execute(delegate, request, options);
+    }
+
+    private Response execute(Client delegate, Request request, Request.Options options) throws IOException {
+        long permit = circuitBreaker.tryAcquire();
+        if (permit == CircuitBreaker.REJECTED) {
+            circuitRejections.increment();
+            throw unavailable.apply(client + " unavailable: circuit open");
+        }
+        if (!limiter.tryAcquire()) {
+            circuitBreaker.cancel(permit);
+            limitRejections.increment();
+            throw unavailable.apply(client + " unavailable: concurrency limit of " + limiter.limit() + " reached");
+        }
+
+        long started = System.nanoTime();
+        boolean failed = true;
+        try {
+            Response response = delegate.execute(request, options);
+            failed = response.status() >= 500;
+            return response;
+        } finally {
+            limiter.release(System.nanoTime() - started, failed);
+            circuitBreaker.record(permit, failed);
+        }
+    }
+
+    /**
+     * @return the circuit breaker of the service
+     */
+    public CircuitBreaker circuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * @return the concurrency limiter of the service
+     */
+    public AimdLimiter limiter() {
+        return limiter;
+    }
+}
@@ -0,0 +1,22 @@
+package com.medilabosolutions.riskservice.resilience;
+
+import feign.Capability;
+import feign.Client;
+
+/**
+ * Feign capability routing the calls of a client through a {@link DownstreamGuard}, around the
+ * load-balanced client. Public, as Feign looks its {@code enrich} methods up by reflection.
+ */
+public final class DownstreamGuardCapability implements Capability {
+
+    private final DownstreamGuard guard;
+
+    public DownstreamGuardCapability(DownstreamGuard guard) {
+        this.guard = guard;
+    }
+
+    @Override
+    public Client enrich(Client client) {
+        return guard.wrap(client);
+    }
+}
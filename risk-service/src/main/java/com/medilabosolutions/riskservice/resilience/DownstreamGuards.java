@@ -0,0 +1,77 @@
+package com.medilabosolutions.riskservice.resilience;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.medilabosolutions.riskservice.exception.NoteServiceException;
+import com.medilabosolutions.riskservice.exception.PatientServiceException;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * The {@link DownstreamGuard} of each Feign client, created on first use with the
+ * {@code risk.downstream} settings, so that each downstream service has its own limit,
+ * bulkhead and circuit: a slow note-service cannot exhaust the calls to patient-service.
+ */
+@Component
+public class DownstreamGuards {
+
+    private static final Map<String, Function<String, RuntimeException>> EXCEPTIONS = Map.of(
+            "note-service", NoteServiceException::new,
+            "patient-service", PatientServiceException::new);
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, DownstreamGuard> guards = new ConcurrentHashMap<>();
+
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxConcurrentCalls;
+    private final Duration latencyThreshold;
+    private final double backoffRatio;
+    private final int windowSize;
+    private final int minimumCalls;
+    private final int failureRateThreshold;
+    private final Duration openDuration;
+
+    public DownstreamGuards(
+            MeterRegistry meterRegistry,
+            @Value("${risk.downstream.limit.initial:20}") int initialLimit,
+            @Value("${risk.downstream.limit.min:2}") int minLimit,
+            @Value("${risk.downstream.limit.max-concurrent-calls:100}") int maxConcurrentCalls,
+            @Value("${risk.downstream.limit.latency-threshold:1s}") Duration latencyThreshold,
+            @Value("${risk.downstream.limit.backoff-ratio:0.9}") double backoffRatio,
+            @Value("${risk.downstream.circuit.window-size:50}") int windowSize,
+            @Value("${risk.downstream.circuit.minimum-calls:20}") int minimumCalls,
+            @Value("${risk.downstream.circuit.failure-rate-threshold:50}") int failureRateThreshold,
+            @Value("${risk.downstream.circuit.open-duration:10s}") Duration openDuration) {
+
+        this.meterRegistry = meterRegistry;
+        this.initialLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.latencyThreshold = latencyThreshold;
+        this.backoffRatio = backoffRatio;
+        this.windowSize = windowSize;
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDuration = openDuration;
+    }
+
+    /**
+     * @param client the name of the Feign client, i.e. of the downstream service
+     * @return the guard of the service
+     */
+    public DownstreamGuard forClient(String client) {
+        return guards.computeIfAbsent(client, name -> new DownstreamGuard(
+                name,
+                new CircuitBreaker(windowSize, minimumCalls, failureRateThreshold, openDuration.toNanos(),
+                        Ticker.systemTicker()),
+                new AimdLimiter(initialLimit, minLimit, maxConcurrentCalls, latencyThreshold.toNanos(), backoffRatio),
+                EXCEPTIONS.getOrDefault(name, IllegalStateException::new),
+                meterRegistry));
+    }
+}
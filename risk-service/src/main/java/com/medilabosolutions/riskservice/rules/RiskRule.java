@@ -0,0 +1,92 @@
+package com.medilabosolutions.riskservice.rules;
+
+import com.medilabosolutions.riskservice.enums.RiskAssessment;
+
+/**
+ * One row of the risk decision table.
+ * <p>
+ * A rule matches a patient when the age condition, the gender and the number of distinct
+ * risk terms found in the notes all match. Rules are written as CSV lines:
+ * {@code age,gender,minTerms,maxTerms,level}, for example {@code >30,*,2,5,RISK_2}.
+ *
+ * @param ageOperator one of {@code <}, {@code =}, {@code >}, or {@code *} for any age
+ * @param ageValue    the age compared with {@code ageOperator} (ignored for {@code *})
+ * @param gender      {@code M}, {@code F}, or {@code null} for any gender
+ * @param minTerms    minimum number of distinct terms, inclusive
+ * @param maxTerms    maximum number of distinct terms, inclusive ({@link Integer#MAX_VALUE} if unbounded)
+ * @param level       the risk level assigned by the rule
+ */
+public record RiskRule(char ageOperator, int ageValue, String gender, int minTerms, int maxTerms,
+                       RiskAssessment level) {
+
+    public RiskRule {
+        if ("<=>*".indexOf(ageOperator) < 0) {
+            throw new IllegalArgumentException("Invalid age operator: " + ageOperator);
+        }
+        if (gender != null && !"M".equals(gender) && !"F".equals(gender)) {
+            throw new IllegalArgumentException("Invalid gender: " + gender);
+        }
+        if (minTerms < 0 || maxTerms < minTerms) {
+            throw new IllegalArgumentException("Invalid term range: " + minTerms + ".." + maxTerms);
+        }
+        if (level == null) {
+            throw new IllegalArgumentException("Risk level is required");
+        }
+    }
+
+    /**
+     * Parses a rule from its CSV form.
+     *
+     * @param line the CSV line, e.g. {@code <30,M,5,,RISK_4}
+     * @return the parsed rule
+     * @throws IllegalArgumentException if the line is malformed
+     */
+    public static RiskRule parse(String line) {
+        String[] fields = line.split(",", -1);
+        if (fields.length != 5) {
+            throw new IllegalArgumentException("Expected 5 fields (age,gender,minTerms,maxTerms,level): " + line);
+        }
+        try {
+            String age = fields[0].trim();
+            char operator = age.isEmpty() ? ' ' : age.charAt(0);
+            int ageValue = operator == '*' ? 0 : Integer.parseInt(age.substring(1).trim());
+            String gender = "*".equals(fields[1].trim()) ? null : fields[1].trim();
+            int minTerms = Integer.parseInt(fields[2].trim());
+            int maxTerms = fields[3].isBlank() ? Integer.MAX_VALUE : Integer.parseInt(fields[3].trim());
+            RiskAssessment level = RiskAssessment.valueOf(fields[4].trim());
+            return new RiskRule(operator, ageValue, gender, minTerms, maxTerms, level);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid risk rule \"" + line + "\": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Tells whether this rule applies.
+     *
+     * @param age       the patient age in years
+     * @param male      true for a male patient
+     * @param termCount number of distinct risk terms found in the notes
+     * @return true if the rule matches
+     */
+    public boolean matches(int age, boolean male, int termCount) {
+        boolean ageMatches = switch (ageOperator) {
+            case '<' -> age < ageValue;
+            case '=' -> age == ageValue;
+            case '>' -> age > ageValue;
+            default -> true;
+        };
+        boolean genderMatches = gender == null || "M".equals(gender) == male;
+        return ageMatches && genderMatches && termCount >= minTerms && termCount <= maxTerms;
+    }
+
+    /**
+     * @return the CSV form of this rule
+     */
+    public String toCsv() {
+        return (ageOperator == '*' ? "*" : ageOperator + String.valueOf(ageValue))
+                + ',' + (gender == null ? "*" : gender)
+                + ',' + minTerms
+                + ',' + (maxTerms == Integer.MAX_VALUE ? "" : String.valueOf(maxTerms))
+                + ',' + level.name();
+    }
+}
@@ -0,0 +1,104 @@
+package com.medilabosolutions.riskservice.rules;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the compiled risk decision table and allows replacing it at runtime.
+ * <p>
+ * The rules are read from a CSV resource ({@code risk.rules.location}, by default
+ * {@code classpath:rules/risk-rules.csv}) and compiled into a {@link RiskRuleTable} at startup.
+ * {@link #reload()} and {@link #replaceRules(List)} swap the whole table atomically: a request
+ * always classifies with one consistent table, never a mix of old and new rules.
+ */
+@Slf4j
+@Component
+public class RiskRuleEngine {
+
+    public static final String DEFAULT_RULES_LOCATION = "classpath:rules/risk-rules.csv";
+
+    private final String rulesLocation;
+    private final ResourceLoader resourceLoader;
+    private final AtomicReference<RiskRuleTable> currentTable = new AtomicReference<>();
+
+    public RiskRuleEngine(@Value("${risk.rules.location:" + DEFAULT_RULES_LOCATION + "}") String rulesLocation,
+                          ResourceLoader resourceLoader) {
+        this.rulesLocation = rulesLocation;
+        this.resourceLoader = resourceLoader;
+        reload();
+    }
+
+    /**
+     * Creates an engine loaded with the default rules, outside of any Spring context.
+     *
+     * @return the engine
+     */
+    public static RiskRuleEngine withDefaultRules() {
+        return new RiskRuleEngine(DEFAULT_RULES_LOCATION, new DefaultResourceLoader());
+    }
+
+    /**
+     * Returns the current table. Callers needing several lookups for one request should keep
+     * this instance rather than calling the engine again, to stay consistent across a swap.
+     *
+     * @return the current compiled table
+     */
+    public RiskRuleTable currentTable() {
+        return currentTable.get();
+    }
+
+    /**
+     * Re-reads the rules resource and swaps the table. The current table is kept if the
+     * resource cannot be read or contains an invalid rule.
+     *
+     * @return the new table
+     * @throws IllegalArgumentException if a rule is invalid
+     * @throws UncheckedIOException     if the resource cannot be read
+     */
+    public RiskRuleTable reload() {
+        return replaceRules(readRules(resourceLoader.getResource(rulesLocation)));
+    }
+
+    /**
+     * Compiles the given rules and swaps the table.
+     *
+     * @param rules the ordered rules
+     * @return the new table
+     */
+    public RiskRuleTable replaceRules(List<RiskRule> rules) {
+        RiskRuleTable table = RiskRuleTable.compile(rules);
+        currentTable.set(table);
+        log.info("Risk decision table loaded: {} rules, term counts capped at {}", rules.size(), table.saturationCount());
+        return table;
+    }
+
+    private static List<RiskRule> readRules(Resource resource) {
+        List<RiskRule> rules = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    rules.add(RiskRule.parse(line));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read risk rules from " + resource.getDescription(), e);
+        }
+        return rules;
+    }
+}
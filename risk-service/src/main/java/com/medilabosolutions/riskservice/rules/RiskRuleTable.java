@@ -0,0 +1,162 @@
+package com.medilabosolutions.riskservice.rules;
+
+import com.medilabosolutions.riskservice.enums.RiskAssessment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Risk decision table compiled into a flat lookup array.
+ * <p>
+ * The ages used by the rules split the age axis into bands ({@code < t}, {@code = t} and the
+ * gaps between thresholds). The outcome of every (age band, gender, capped term count) cell is
+ * computed once from the rules, so classifying a patient is a single array read. Term counts
+ * are capped at the highest count the rules tell apart ({@link #saturationCount()}).
+ * <p>
+ * Instances are immutable and thread-safe.
+ */
+public final class RiskRuleTable {
+
+    private static final int GENDERS = 2;  // 0 = male, 1 = any other value (handled as female)
+
+    private final List<RiskRule> rules;
+    private final int lowestAge;           // age mapped to bandByAge[0]
+    private final int[] bandByAge;         // age - lowestAge -> band index
+    private final int saturationCount;
+    private final RiskAssessment[] cells;  // (band * GENDERS + gender) * (saturationCount + 1) + count
+    private final int[] transitionAges;    // ages from which the outcome may differ from the year before
+
+    private RiskRuleTable(List<RiskRule> rules, int lowestAge, int[] bandByAge, int saturationCount,
+                          RiskAssessment[] cells, int[] transitionAges) {
+        this.rules = rules;
+        this.lowestAge = lowestAge;
+        this.bandByAge = bandByAge;
+        this.saturationCount = saturationCount;
+        this.cells = cells;
+        this.transitionAges = transitionAges;
+    }
+
+    /**
+     * Compiles the rules into a lookup table. The first matching rule wins, and a patient
+     * matching no rule gets {@link RiskAssessment#RISK_1}.
+     *
+     * @param rules the ordered rules
+     * @return the compiled table
+     */
+    public static RiskRuleTable compile(List<RiskRule> rules) {
+        // Age thresholds used by the rules, sorted
+        TreeSet<Integer> thresholdSet = new TreeSet<>();
+        int saturation = 0;
+        for (RiskRule rule : rules) {
+            if (rule.ageOperator() != '*') {
+                thresholdSet.add(rule.ageValue());
+            }
+            saturation = Math.max(saturation,
+                    rule.maxTerms() == Integer.MAX_VALUE ? rule.minTerms() : rule.maxTerms() + 1);
+        }
+        int[] thresholds = thresholdSet.stream().mapToInt(Integer::intValue).toArray();
+
+        // Bands: 2i = below threshold i (and above threshold i-1), 2i+1 = equal to threshold i, last = above all
+        int bandCount = 2 * thresholds.length + 1;
+        int[] representativeAge = new int[bandCount];
+        for (int i = 0; i < thresholds.length; i++) {
+            representativeAge[2 * i] = thresholds[i] - 1;
+            representativeAge[2 * i + 1] = thresholds[i];
+        }
+        representativeAge[bandCount - 1] = thresholds.length == 0 ? 0 : thresholds[thresholds.length - 1] + 1;
+
+        int lowestAge = thresholds.length == 0 ? 0 : thresholds[0] - 1;
+        int highestAge = representativeAge[bandCount - 1];
+        int[] bandByAge = new int[highestAge - lowestAge + 1];
+        for (int age = lowestAge; age <= highestAge; age++) {
+            bandByAge[age - lowestAge] = bandOf(age, thresholds);
+        }
+
+        // Evaluate the rules once per cell
+        int counts = saturation + 1;
+        RiskAssessment[] cells = new RiskAssessment[bandCount * GENDERS * counts];
+        for (int band = 0; band < bandCount; band++) {
+            for (int gender = 0; gender < GENDERS; gender++) {
+                for (int count = 0; count < counts; count++) {
+                    cells[(band * GENDERS + gender) * counts + count] =
+                            evaluate(rules, representativeAge[band], gender == 0, count);
+                }
+            }
+        }
+
+        // A band starts a transition when one of its cells differs from the band below
+        int bandCells = GENDERS * counts;
+        List<Integer> transitions = new ArrayList<>();
+        for (int band = 1; band < bandCount; band++) {
+            if (!Arrays.equals(cells, band * bandCells, (band + 1) * bandCells,
+                    cells, (band - 1) * bandCells, band * bandCells)) {
+                transitions.add(representativeAge[band]);
+            }
+        }
+
+        return new RiskRuleTable(List.copyOf(rules), lowestAge, bandByAge, saturation, cells,
+                transitions.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * Classifies a patient.
+     *
+     * @param age       the patient age in years
+     * @param gender    the patient gender, "M" for male
+     * @param termCount number of distinct risk terms found in the notes
+     * @return the risk level
+     */
+    public RiskAssessment classify(int age, String gender, int termCount) {
+        int ageIndex = Math.min(Math.max(age - lowestAge, 0), bandByAge.length - 1);
+        int genderIndex = "M".equals(gender) ? 0 : 1;
+        int count = Math.min(termCount, saturationCount);
+        return cells[(bandByAge[ageIndex] * GENDERS + genderIndex) * (saturationCount + 1) + count];
+    }
+
+    /**
+     * @return the term count from which more terms never change the outcome
+     */
+    public int saturationCount() {
+        return saturationCount;
+    }
+
+    /**
+     * Ages at which a patient's risk level may change without any new note, i.e. the first age
+     * of each band whose outcome differs from the band below.
+     *
+     * @return the transition ages, sorted
+     */
+    public int[] transitionAges() {
+        return transitionAges.clone();
+    }
+
+    /**
+     * @return the rules this table was compiled from
+     */
+    public List<RiskRule> rules() {
+        return rules;
+    }
+
+    private static int bandOf(int age, int[] thresholds) {
+        for (int i = 0; i < thresholds.length; i++) {
+            if (age < thresholds[i]) {
+                return 2 * i;
+            }
+            if (age == thresholds[i]) {
+                return 2 * i + 1;
+            }
+        }
+        return 2 * thresholds.length;
+    }
+
+    private static RiskAssessment evaluate(List<RiskRule> rules, int age, boolean male, int termCount) {
+        for (RiskRule rule : rules) {
+            if (rule.matches(age, male, termCount)) {
+                return rule.level();
+            }
+        }
+        return RiskAssessment.RISK_1;
+    }
+}
@@ -0,0 +1,51 @@
+package com.medilabosolutions.riskservice.rules;
+
+import com.medilabosolutions.riskservice.cache.RiskResultCache;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Actuator endpoint exposing the risk decision table.
+ * <p>
+ * {@code GET /actuator/riskrules} lists the active rules, {@code POST /actuator/riskrules}
+ * reloads them from the rules resource without restarting the service. Cached risk
+ * assessments are evicted on reload, since they were computed with the previous rules.
+ */
+@Component
+@Endpoint(id = "riskrules")
+public class RiskRulesEndpoint {
+
+    private final RiskRuleEngine riskRuleEngine;
+    private final RiskResultCache riskResultCache;
+
+    public RiskRulesEndpoint(RiskRuleEngine riskRuleEngine, RiskResultCache riskResultCache) {
+        this.riskRuleEngine = riskRuleEngine;
+        this.riskResultCache = riskResultCache;
+    }
+
+    /**
+     * @return the active rules, in CSV form
+     */
+    @ReadOperation
+    public List<String> rules() {
+        return riskRuleEngine.currentTable().rules().stream()
+                .map(RiskRule::toCsv)
+                .toList();
+    }
+
+    /**
+     * Reloads the rules resource and swaps the table.
+     *
+     * @return the reloaded rules, in CSV form
+     */
+    @WriteOperation
+    public List<String> reload() {
+        riskRuleEngine.reload();
+        riskResultCache.invalidateAll();
+        return rules();
+    }
+}
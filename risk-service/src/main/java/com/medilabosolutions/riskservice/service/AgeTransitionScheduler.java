@@ -0,0 +1,228 @@
+package com.medilabosolutions.riskservice.service;
+
+import com.medilabosolutions.riskservice.cache.RiskResultCache;
+import com.medilabosolutions.riskservice.event.PatientRiskStoredEvent;
+import com.medilabosolutions.riskservice.model.PatientRisk;
+import com.medilabosolutions.riskservice.repository.RiskRepository;
+import com.medilabosolutions.riskservice.rules.RiskRuleEngine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.Period;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scheduler re-assessing stored patients on the day they enter a new age band.
+ * <p>
+ * A risk level depends on the age, so it can change on a birthday without any new note, leaving
+ * the stored and cached risk stale. Each stored patient is filed in a calendar under their next
+ * birthday that crosses a transition age of the rules ({@link com.medilabosolutions.riskservice.rules.RiskRuleTable#transitionAges()});
+ * patients past the last transition age are not filed at all. Every day just after midnight,
+ * the patients due that day are re-assessed from their stored terms, their cache entry is
+ * replaced, and they are filed under their next transition: the daily cost is proportional to
+ * the number of transitions of the day, not to the population.
+ * <p>
+ * The calendar is loaded from the store at startup and fed by {@link PatientRiskStoredEvent}s;
+ * it is reloaded when the rules change their transition ages. A stored patient is filed under
+ * their first transition after the day their risk was last assessed, so that the transitions
+ * missed while the service was down are processed by the next run.
+ */
+@Slf4j
+@Service
+public class AgeTransitionScheduler {
+
+    private final RiskRepository riskRepository;
+    private final RiskStoreService riskStoreService;
+    private final RiskResultCache riskResultCache;
+    private final RiskRuleEngine riskRuleEngine;
+    private final Counter transitions;
+    private final ScheduledExecutorService dailyExecutor = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("risk-age-transitions").daemon().factory());
+
+    // Guarded by this
+    private final NavigableMap<LocalDate, Set<Integer>> calendar = new TreeMap<>();
+    private final Map<Integer, LocalDate> dueDates = new HashMap<>();
+    private int[] transitionAges = new int[0];
+
+    public AgeTransitionScheduler(
+            RiskRepository riskRepository,
+            RiskStoreService riskStoreService,
+            RiskResultCache riskResultCache,
+            RiskRuleEngine riskRuleEngine,
+            MeterRegistry meterRegistry) {
+
+        this.riskRepository = riskRepository;
+        this.riskStoreService = riskStoreService;
+        this.riskResultCache = riskResultCache;
+        this.riskRuleEngine = riskRuleEngine;
+
+        this.transitions = Counter.builder("risk.age.transitions")
+                .description("Stored patients re-assessed after entering a new age band")
+                .register(meterRegistry);
+        Gauge.builder("risk.age.transitions.scheduled", this, AgeTransitionScheduler::scheduledCount)
+                .description("Stored patients waiting for their next age band")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void start() {
+        dailyExecutor.execute(this::runQuietly);
+    }
+
+    /**
+     * Files a patient whose risk was just stored under their next transition.
+     *
+     * @param event the stored patient
+     */
+    @EventListener
+    public void onPatientRiskStored(PatientRiskStoredEvent event) {
+        schedule(event.patientId(), event.dateOfBirth(), LocalDate.now());
+    }
+
+    /**
+     * Re-assesses the patients whose transition is due on or before the given day, i.e. today
+     * and any day missed while the service was down.
+     * The cache entries of these patients are evicted, to be recomputed on their next request.
+     *
+     * @param today the current day
+     * @return the number of patients re-assessed
+     */
+    public int runDueTransitions(LocalDate today) {
+        reloadIfRulesChanged(today);
+
+        List<Integer> due = new ArrayList<>();
+        synchronized (this) {
+            NavigableMap<LocalDate, Set<Integer>> dueDays = calendar.headMap(today, true);
+            dueDays.values().forEach(due::addAll);
+            dueDays.clear();
+            due.forEach(dueDates::remove);
+        }
+
+        int reassessed = 0;
+        for (int id : due) {
+            try {
+                Optional<PatientRisk> stored = riskStoreService.reassess(id);
+                riskResultCache.invalidate(id);
+                if (stored.isPresent()) {
+                    schedule(id, stored.get().getDateOfBirth(), today);
+                    reassessed++;
+                }
+            } catch (RuntimeException e) {
+                log.warn("Patient {} not re-assessed after changing age band: {}", id, e.getMessage());
+            }
+        }
+        transitions.increment(reassessed);
+        if (!due.isEmpty()) {
+            log.info("{} patients re-assessed after changing age band", reassessed);
+        }
+        return reassessed;
+    }
+
+    /**
+     * @return the number of patients filed in the calendar
+     */
+    public synchronized int scheduledCount() {
+        return dueDates.size();
+    }
+
+    /**
+     * Computes the next day a patient crosses a transition age, strictly after the given day.
+     *
+     * @param dateOfBirth    the patient's birth date
+     * @param after          the day after which to look
+     * @param transitionAges the transition ages, sorted
+     * @return the first day the patient has a transition age, or empty if they are past them all
+     */
+    public static Optional<LocalDate> nextTransition(LocalDate dateOfBirth, LocalDate after, int[] transitionAges) {
+        for (int age : transitionAges) {
+            LocalDate birthday = dateOfBirth.plusYears(age);
+            if (Period.between(dateOfBirth, birthday).getYears() < age) {
+                birthday = birthday.plusDays(1);  // born on February 29th: one year older on March 1st
+            }
+            if (birthday.isAfter(after)) {
+                return Optional.of(birthday);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private synchronized void schedule(int id, LocalDate dateOfBirth, LocalDate today) {
+        LocalDate previous = dueDates.remove(id);
+        if (previous != null) {
+            Set<Integer> day = calendar.get(previous);
+            day.remove(id);
+            if (day.isEmpty()) {
+                calendar.remove(previous);
+            }
+        }
+
+        nextTransition(dateOfBirth, today, transitionAges).ifPresent(date -> {
+            dueDates.put(id, date);
+            calendar.computeIfAbsent(date, d -> new HashSet<>()).add(id);
+        });
+    }
+
+    private void reloadIfRulesChanged(LocalDate today) {
+        int[] current = riskRuleEngine.currentTable().transitionAges();
+        synchronized (this) {
+            if (Arrays.equals(current, transitionAges)) {
+                return;
+            }
+            transitionAges = current;
+            calendar.clear();
+            dueDates.clear();
+        }
+
+        // Only the patients younger than the last transition age can have one ahead
+        List<PatientRisk> stored = current.length == 0 ? List.of()
+                : riskRepository.findByDateOfBirthAfter(today.minusYears(current[current.length - 1] + 1L));
+        for (PatientRisk risk : stored) {
+            // Transitions since its last assessment are due, even if missed while the service was down
+            schedule(risk.getPatientId(), risk.getDateOfBirth(),
+                    LocalDate.ofInstant(risk.getUpdatedAt(), ZoneId.systemDefault()));
+        }
+        log.info("Age transitions scheduled for {} stored patients, transition ages {}",
+                scheduledCount(), Arrays.toString(current));
+    }
+
+    private void runQuietly() {
+        try {
+            runDueTransitions(LocalDate.now());
+        } catch (RuntimeException e) {
+            log.warn("Age transitions not processed: {}", e.getMessage());
+        }
+
+        // Next run just after midnight, computed each time in the system zone to follow daylight saving changes
+        ZonedDateTime now = ZonedDateTime.now();
+        ZonedDateTime nextRun = now.toLocalDate().plusDays(1).atTime(0, 0, 5).atZone(now.getZone());
+        dailyExecutor.schedule(this::runQuietly,
+                Duration.between(now, nextRun).toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        dailyExecutor.shutdownNow();
+    }
+}
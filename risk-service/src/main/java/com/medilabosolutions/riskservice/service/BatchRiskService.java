@@ -0,0 +1,140 @@
+package com.medilabosolutions.riskservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medilabosolutions.riskservice.dto.BatchRiskResultDto;
+import com.medilabosolutions.riskservice.exception.NoteServiceException;
+import com.medilabosolutions.riskservice.exception.PatientNotFoundException;
+import com.medilabosolutions.riskservice.exception.PatientServiceException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Service assessing the risk of many patients in one call.
+ * <p>
+ * Patients are fetched concurrently on virtual threads, with at most
+ * {@code risk.batch.parallelism} patients in flight, each with its patient and note calls
+ * issued at once and bounded by their timeouts (see {@link PatientRiskService#fetchPatientData}), and scored on a worker pool sized to the
+ * CPU count. Results are written as NDJSON (one {@link BatchRiskResultDto} per line) in
+ * completion order, so memory use depends on the parallelism, not on the batch size.
+ * A failing patient produces an error line and never fails the whole batch.
+ */
+@Slf4j
+@Service
+public class BatchRiskService {
+
+    private static final byte[] LINE_SEPARATOR = {'\n'};
+
+    private final PatientRiskService patientRiskService;
+    private final ObjectMapper objectMapper;
+    private final int parallelism;
+    private final ExecutorService fetchExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ExecutorService scoringExecutor = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(),
+            Thread.ofPlatform().name("risk-scoring-", 0).daemon().factory());
+
+    public BatchRiskService(
+            PatientRiskService patientRiskService,
+            ObjectMapper objectMapper,
+            @Value("${risk.batch.parallelism:16}") int parallelism) {
+
+        this.patientRiskService = patientRiskService;
+        this.objectMapper = objectMapper;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Assesses the risk of each patient and writes one NDJSON line per patient as soon as it completes.
+     *
+     * @param patientIds the patient ids, processed in this order (results come in completion order)
+     * @param out        the stream receiving the NDJSON lines
+     * @throws IOException if writing fails, e.g. the client disconnected
+     */
+    public void assessPatients(List<Integer> patientIds, OutputStream out) throws IOException {
+        BlockingQueue<BatchRiskResultDto> completed = new LinkedBlockingQueue<>();
+        Iterator<Integer> pending = patientIds.iterator();
+        int inFlight = 0;
+
+        try {
+            while (pending.hasNext() || inFlight > 0) {
+                // Keep the window full
+                while (inFlight < parallelism && pending.hasNext()) {
+                    submit(pending.next(), completed);
+                    inFlight++;
+                }
+
+                BatchRiskResultDto result = completed.take();
+                inFlight--;
+                out.write(objectMapper.writeValueAsBytes(result));
+                out.write(LINE_SEPARATOR);
+                if (completed.isEmpty()) {
+                    out.flush();  // nothing else ready: push what we have to the client
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Batch risk assessment interrupted");
+        }
+        out.flush();
+    }
+
+    private void submit(Integer patientId, BlockingQueue<BatchRiskResultDto> completed) {
+        if (patientId == null) {
+            completed.add(error(null, HttpStatus.BAD_REQUEST, "Patient id is required"));
+            return;
+        }
+
+        CompletableFuture
+                .supplyAsync(() -> patientRiskService.fetchPatientData(patientId), fetchExecutor)
+                .thenApplyAsync(data -> patientRiskService.assess(data.patient(), data.notes()), scoringExecutor)
+                .handle((risk, failure) -> failure == null
+                        ? BatchRiskResultDto.builder().patientId(patientId).status(HttpStatus.OK.value()).risk(risk).build()
+                        : toError(patientId, failure))
+                .thenAccept(completed::add);
+    }
+
+    private BatchRiskResultDto toError(Integer patientId, Throwable failure) {
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                ? failure.getCause()
+                : failure;
+
+        HttpStatus status;
+        if (cause instanceof PatientNotFoundException) {
+            status = HttpStatus.NOT_FOUND;
+        } else if (cause instanceof PatientServiceException || cause instanceof NoteServiceException) {
+            status = HttpStatus.BAD_GATEWAY;
+        } else {
+            status = HttpStatus.INTERNAL_SERVER_ERROR;
+            log.error("Unexpected error during batch risk assessment of patient {}", patientId, cause);
+        }
+        return error(patientId, status, cause.getMessage());
+    }
+
+    private static BatchRiskResultDto error(Integer patientId, HttpStatus status, String message) {
+        return BatchRiskResultDto.builder()
+                .patientId(patientId)
+                .status(status.value())
+                .error(message)
+                .build();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        fetchExecutor.shutdownNow();
+        scoringExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,221 @@
+package com.medilabosolutions.riskservice.service;
+
+import com.medilabosolutions.riskservice.client.PatientClient;
+import com.medilabosolutions.riskservice.dto.PatientDto;
+import com.medilabosolutions.riskservice.exception.PatientServiceException;
+import com.medilabosolutions.riskservice.replica.PatientReplica;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service keeping a {@link PatientReplica} of the patient base, so that assessing a patient
+ * does not need a call to the patient service.
+ * <p>
+ * The replica is loaded in the background at startup, by reading the patient base page by page,
+ * then reloaded every {@code risk.replica.resync-interval} as a safety net for lost changes.
+ * Until a first load succeeds, e.g. while patient-service is still starting, it is retried after
+ * a short delay, doubled on each failure; lookups meanwhile fall back to remote calls.
+ * Meanwhile it is kept current by the patient change events of the patient service, and by the
+ * patients fetched remotely after a miss. Patients changed during a reload are applied again
+ * once the new replica is in place.
+ * <p>
+ * Hits and misses are exported through the {@code risk.replica.lookups} counter, the size
+ * through the {@code risk.replica.patients} and {@code risk.replica.bytes} gauges.
+ */
+@Slf4j
+@Service
+public class PatientReplicaService {
+
+    private static final int PAGE_SIZE = 5000;
+    private static final Duration FIRST_RETRY_DELAY = Duration.ofSeconds(5);
+    private static final Duration MAX_RETRY_DELAY = Duration.ofMinutes(5);
+
+    private final PatientClient patientClient;
+    private final boolean enabled;
+    private final Duration resyncInterval;
+    private final ScheduledExecutorService resyncExecutor = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("risk-replica-resync").daemon().factory());
+    private final Counter hits;
+    private final Counter misses;
+    private Duration retryDelay = FIRST_RETRY_DELAY;   // only used by the resync thread
+
+    private volatile PatientReplica replica = new PatientReplica();
+    private volatile boolean ready;
+    private volatile boolean loading;
+    private final Map<Integer, PatientDto> changedDuringLoad = new ConcurrentHashMap<>();
+
+    public PatientReplicaService(
+            PatientClient patientClient,
+            MeterRegistry meterRegistry,
+            @Value("${risk.replica.enabled:true}") boolean enabled,
+            @Value("${risk.replica.resync-interval:1h}") Duration resyncInterval) {
+
+        this.patientClient = patientClient;
+        this.enabled = enabled;
+        this.resyncInterval = resyncInterval;
+
+        this.hits = Counter.builder("risk.replica.lookups")
+                .description("Patient lookups in the local demographic replica")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("risk.replica.lookups")
+                .description("Patient lookups in the local demographic replica")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("risk.replica.patients", this, service -> service.replica.size())
+                .description("Patients in the local demographic replica")
+                .register(meterRegistry);
+        Gauge.builder("risk.replica.bytes", this, service -> service.replica.sizeInBytes())
+                .description("Size of the local demographic replica")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void scheduleResyncs() {
+        if (enabled) {
+            scheduleReload(Duration.ZERO);
+        }
+    }
+
+    private void scheduleReload(Duration delay) {
+        if (!resyncExecutor.isShutdown()) {
+            resyncExecutor.schedule(this::reloadQuietly, delay.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * @return whether the replica was loaded at least once and can be used
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Looks a patient up in the replica.
+     *
+     * @param id the unique identifier of the patient
+     * @return the patient with only their id, birth date and gender, or empty if not replicated
+     */
+    public Optional<PatientDto> find(int id) {
+        if (!ready) {
+            return Optional.empty();
+        }
+        long entry = replica.get(id);
+        if (entry == 0L) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(new PatientDto(id, null, null, PatientReplica.dateOfBirth(entry), PatientReplica.gender(entry)));
+    }
+
+    /**
+     * Applies the current demographics of a patient, e.g. after a change in the patient service
+     * or a remote lookup.
+     *
+     * @param patient the patient
+     */
+    public void apply(PatientDto patient) {
+        if (loading && patient.getId() != null) {
+            changedDuringLoad.put(patient.getId(), patient);
+        }
+        put(replica, patient);
+    }
+
+    /**
+     * Loads a new replica of the whole patient base, then replaces the current one.
+     *
+     * @throws PatientServiceException if a page of patients cannot be fetched
+     */
+    public void reload() {
+        long started = System.nanoTime();
+        PatientReplica fresh = new PatientReplica();
+        changedDuringLoad.clear();
+        loading = true;
+        try {
+            int afterId = 0;
+            List<PatientDto> page;
+            do {
+                try {
+                    page = patientClient.getPatientsPage(afterId, PAGE_SIZE, null, null, null);
+                } catch (Exception e) {
+                    throw new PatientServiceException("Error fetching patient data");
+                }
+                for (PatientDto patient : page) {
+                    put(fresh, patient);
+                    afterId = Math.max(afterId, patient.getId());
+                }
+            } while (page.size() == PAGE_SIZE);
+
+            replica = fresh;
+            ready = true;
+        } finally {
+            loading = false;
+        }
+
+        // Their page may have been read before their change
+        Iterator<PatientDto> changed = changedDuringLoad.values().iterator();
+        while (changed.hasNext()) {
+            PatientDto patient = changed.next();
+            changed.remove();
+            put(fresh, patient);
+        }
+
+        log.info("Patient replica loaded: {} patients, {} KB, in {} ms", fresh.size(),
+                fresh.sizeInBytes() / 1024, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    private void reloadQuietly() {
+        Duration next = resyncInterval;
+        try {
+            reload();
+            retryDelay = FIRST_RETRY_DELAY;
+        } catch (Exception e) {
+            if (!ready) {
+                // Every lookup goes remote until loaded: retried soon rather than after the resync interval
+                next = retryDelay;
+                retryDelay = min(retryDelay.multipliedBy(2), MAX_RETRY_DELAY, resyncInterval);
+            }
+            log.warn("Patient replica not reloaded, next attempt in {}: {}", next, e.getMessage());
+        } finally {
+            scheduleReload(next);
+        }
+    }
+
+    private static Duration min(Duration first, Duration second, Duration third) {
+        Duration min = first.compareTo(second) <= 0 ? first : second;
+        return min.compareTo(third) <= 0 ? min : third;
+    }
+
+    private static void put(PatientReplica target, PatientDto patient) {
+        if (patient.getId() == null) {
+            return;
+        }
+        if (!target.put(patient.getId(), patient.getDateOfBirth(), patient.getGender())) {
+            target.remove(patient.getId());  // not replicable: always looked up remotely
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        resyncExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,261 @@
+package com.medilabosolutions.riskservice.service;
+
+import com.medilabosolutions.riskservice.client.NoteClient;
+import com.medilabosolutions.riskservice.client.PatientClient;
+import com.medilabosolutions.riskservice.dto.NoteDto;
+import com.medilabosolutions.riskservice.dto.PatientDto;
+import com.medilabosolutions.riskservice.dto.RiskResponseDto;
+import com.medilabosolutions.riskservice.dto.RiskTimelineEntryDto;
+import com.medilabosolutions.riskservice.exception.NoteServiceException;
+import com.medilabosolutions.riskservice.exception.PatientNotFoundException;
+import com.medilabosolutions.riskservice.exception.PatientServiceException;
+import com.medilabosolutions.riskservice.exception.RiskAssessmentException;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service retrieving a patient and their notes from the remote services, then assessing their risk.
+ * <p>
+ * Remote failures are mapped to the risk-service exceptions, so that callers (single patient
+ * endpoint or batch) report them consistently. For a single patient, both remote calls are
+ * issued concurrently on virtual threads, each with its own timeout.
+ * <p>
+ * The patient is first looked up in the local {@link PatientReplicaService}, which only leaves
+ * the note call on the network; a patient missing from the replica is fetched remotely, then
+ * added to it.
+ */
+@Service
+public class PatientRiskService {
+
+    private final PatientClient patientClient;
+    private final NoteClient noteClient;
+    private final RiskAssessmentServiceImpl riskAssessmentService;
+    private final PatientReplicaService patientReplicaService;   // null: always fetched remotely
+    private final Duration patientTimeout;   // Max wait for the patient service
+    private final Duration noteTimeout;      // Max wait for the note service
+    private final ExecutorService remoteCallExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Creates the service without local replica: every patient is fetched remotely.
+     */
+    public PatientRiskService(
+            PatientClient patientClient,
+            NoteClient noteClient,
+            RiskAssessmentServiceImpl riskAssessmentService) {
+
+        this(patientClient, noteClient, riskAssessmentService, null, Duration.ofSeconds(5), Duration.ofSeconds(5));
+    }
+
+    @Autowired
+    public PatientRiskService(
+            PatientClient patientClient,
+            NoteClient noteClient,
+            RiskAssessmentServiceImpl riskAssessmentService,
+            PatientReplicaService patientReplicaService,
+            @Value("${risk.remote.patient-timeout:5s}") Duration patientTimeout,
+            @Value("${risk.remote.note-timeout:5s}") Duration noteTimeout) {
+
+        this.patientClient = patientClient;
+        this.noteClient = noteClient;
+        this.riskAssessmentService = riskAssessmentService;
+        this.patientReplicaService = patientReplicaService;
+        this.patientTimeout = patientTimeout;
+        this.noteTimeout = noteTimeout;
+    }
+
+    /**
+     * Retrieves the patient and their notes, then assesses the risk.
+     *
+     * @param id the unique identifier of the patient
+     * @return the risk assessment of the patient
+     *
+     * @throws PatientNotFoundException   if no patient is found for the given ID
+     * @throws PatientServiceException    if an error occurs while calling the patient service
+     * @throws NoteServiceException       if an error occurs while calling the note service
+     * @throws RiskAssessmentException    if an error occurs during risk calculation
+     */
+    public RiskResponseDto assessPatient(int id) {
+        PatientData data = fetchPatientData(id);
+        return assess(data.patient(), data.notes());
+    }
+
+    /**
+     * Retrieves the patient and their notes, then assesses the risk and explains it with the
+     * occurrences of the risk terms in the notes.
+     *
+     * @param id the unique identifier of the patient
+     * @return the risk assessment of the patient, with its explanation
+     *
+     * @throws PatientNotFoundException   if no patient is found for the given ID
+     * @throws PatientServiceException    if an error occurs while calling the patient service
+     * @throws NoteServiceException       if an error occurs while calling the note service
+     * @throws RiskAssessmentException    if an error occurs during risk calculation
+     */
+    public RiskResponseDto explainPatient(int id) {
+        PatientData data = fetchPatientData(id);
+        try {
+            return riskAssessmentService.explainPatientRisk(data.patient(), data.notes());
+        } catch (Exception e) {
+            throw new RiskAssessmentException("Error during risk assessment");
+        }
+    }
+
+    /**
+     * Retrieves the patient and their notes, then computes how their risk evolved note after note.
+     *
+     * @param id the unique identifier of the patient
+     * @return the risk after each note, by note creation date
+     *
+     * @throws PatientNotFoundException   if no patient is found for the given ID
+     * @throws PatientServiceException    if an error occurs while calling the patient service
+     * @throws NoteServiceException       if an error occurs while calling the note service
+     * @throws RiskAssessmentException    if an error occurs during risk calculation
+     */
+    public List<RiskTimelineEntryDto> riskTimeline(int id) {
+        PatientData data = fetchPatientData(id);
+        try {
+            return riskAssessmentService.riskTimeline(data.patient(), data.notes());
+        } catch (Exception e) {
+            throw new RiskAssessmentException("Error during risk assessment");
+        }
+    }
+
+    /**
+     * Retrieves the patient and their notes, both calls being issued concurrently.
+     *
+     * @param id the unique identifier of the patient
+     * @return the patient and their notes
+     *
+     * @throws PatientNotFoundException   if no patient is found for the given ID
+     * @throws PatientServiceException    if an error occurs while calling the patient service
+     * @throws NoteServiceException       if an error occurs while calling the note service
+     */
+    public PatientData fetchPatientData(int id) {
+        // Both calls in flight at once: latency is the slowest call, not the sum
+        Optional<PatientDto> replicated = findReplicated(id);
+        CompletableFuture<PatientDto> patientCall = replicated.isPresent()
+                ? CompletableFuture.completedFuture(replicated.get())
+                : CompletableFuture.supplyAsync(() -> fetchPatient(id), remoteCallExecutor)
+                        .orTimeout(patientTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        CompletableFuture<List<NoteDto>> notesCall = CompletableFuture
+                .supplyAsync(() -> fetchNotes(id), remoteCallExecutor)
+                .orTimeout(noteTimeout.toMillis(), TimeUnit.MILLISECONDS);
+
+        PatientDto patient;
+        try {
+            patient = patientCall.join();
+        } catch (CompletionException e) {
+            // The note call is left to complete or time out on its own; its result is dropped
+            throw failureOf(e, new PatientServiceException("Error fetching patient data"));
+        }
+
+        List<NoteDto> notes;
+        try {
+            notes = notesCall.join();
+        } catch (CompletionException e) {
+            throw failureOf(e, new NoteServiceException("Error fetching patient notes"));
+        }
+
+        return new PatientData(patient, notes);
+    }
+
+    /**
+     * Retrieves a patient from the local replica, or from the patient service on a miss.
+     * A replicated patient only has their id, birth date and gender.
+     *
+     * @param id the unique identifier of the patient
+     * @return the patient, never null
+     * @throws PatientNotFoundException if no patient is found for the given ID
+     * @throws PatientServiceException  if an error occurs while calling the patient service
+     */
+    public PatientDto fetchPatient(int id) {
+        Optional<PatientDto> replicated = findReplicated(id);
+        if (replicated.isPresent()) {
+            return replicated.get();
+        }
+
+        PatientDto patient;
+        try {
+            patient = patientClient.getPatientById(id);
+        } catch (Exception e) {
+            throw new PatientServiceException("Error fetching patient data");
+        }
+
+        if (patient == null) {
+            throw new PatientNotFoundException(id);
+        }
+        if (patientReplicaService != null) {
+            patientReplicaService.apply(patient);
+        }
+        return patient;
+    }
+
+    /**
+     * Retrieves the notes of a patient from the note service.
+     * A patient without notes (HTTP 404 or empty body) gets an empty list.
+     *
+     * @param id the unique identifier of the patient
+     * @return the notes, never null
+     * @throws NoteServiceException if an error occurs while calling the note service
+     */
+    public List<NoteDto> fetchNotes(int id) {
+        try {
+            List<NoteDto> notes = noteClient.getNotesByPatientId(id);
+            return notes == null ? Collections.emptyList() : notes;
+        } catch (feign.FeignException.NotFound e) {
+            return Collections.emptyList();
+        } catch (Exception e) {
+            throw new NoteServiceException("Error fetching patient notes");
+        }
+    }
+
+    /**
+     * Assesses the risk of an already retrieved patient.
+     *
+     * @param patient the patient
+     * @param notes   the patient notes
+     * @return the risk assessment
+     * @throws RiskAssessmentException if an error occurs during risk calculation
+     */
+    public RiskResponseDto assess(PatientDto patient, List<NoteDto> notes) {
+        try {
+            return riskAssessmentService.assessmentPatientRisk(patient, notes);
+        } catch (Exception e) {
+            throw new RiskAssessmentException("Error during risk assessment");
+        }
+    }
+
+    private Optional<PatientDto> findReplicated(int id) {
+        return patientReplicaService == null ? Optional.empty() : patientReplicaService.find(id);
+    }
+
+    /**
+     * Returns the exception raised by a remote call, or the given one when the call timed out.
+     */
+    private static RuntimeException failureOf(CompletionException e, RuntimeException onTimeout) {
+        return e.getCause() instanceof RuntimeException cause ? cause : onTimeout;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        remoteCallExecutor.shutdownNow();
+    }
+
+    /**
+     * A patient and their notes, as retrieved from the remote services.
+     */
+    public record PatientData(PatientDto patient, List<NoteDto> notes) {
+    }
+}
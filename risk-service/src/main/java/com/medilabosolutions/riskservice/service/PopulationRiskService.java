@@ -0,0 +1,248 @@
+package com.medilabosolutions.riskservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medilabosolutions.riskservice.client.NoteClient;
+import com.medilabosolutions.riskservice.client.PatientClient;
+import com.medilabosolutions.riskservice.dto.NoteDto;
+import com.medilabosolutions.riskservice.dto.PatientDto;
+import com.medilabosolutions.riskservice.dto.PopulationFilterDto;
+import com.medilabosolutions.riskservice.dto.RiskResponseDto;
+import com.medilabosolutions.riskservice.enums.RiskAssessment;
+import com.medilabosolutions.riskservice.exception.NoteServiceException;
+import com.medilabosolutions.riskservice.exception.PatientServiceException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.LongTaskTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Service assessing the risk of the whole patient base, for cohort reports.
+ * <p>
+ * Patients are read from patient-service page by page (keyset pagination, so deep pages cost
+ * the same as the first one), with the notes of each page fetched in one call. The next page is
+ * fetched while the current one is scored and written, and never more: at most two pages are
+ * held in memory, and a slow client slows down the reads instead of filling the heap.
+ * <p>
+ * Age and gender filters are applied by patient-service; the risk filter is applied after scoring.
+ * Progress is logged and exported through the {@code risk.population.patients} counters
+ * (tagged {@code outcome=scanned|written}) and the {@code risk.population.scans} timer.
+ */
+@Slf4j
+@Service
+public class PopulationRiskService {
+
+    private static final byte[] LINE_SEPARATOR = {'\n'};
+    private static final int PROGRESS_LOG_INTERVAL = 10_000;
+
+    private final PatientClient patientClient;
+    private final NoteClient noteClient;
+    private final RiskAssessmentServiceImpl riskAssessmentService;
+    private final ObjectMapper objectMapper;
+    private final int pageSize;
+    private final ExecutorService prefetchExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Counter scannedPatients;
+    private final Counter writtenPatients;
+    private final LongTaskTimer scans;
+
+    public PopulationRiskService(
+            PatientClient patientClient,
+            NoteClient noteClient,
+            RiskAssessmentServiceImpl riskAssessmentService,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${risk.population.page-size:500}") int pageSize) {
+
+        this.patientClient = patientClient;
+        this.noteClient = noteClient;
+        this.riskAssessmentService = riskAssessmentService;
+        this.objectMapper = objectMapper;
+        this.pageSize = Math.max(1, pageSize);
+
+        this.scannedPatients = patients(meterRegistry, "scanned");
+        this.writtenPatients = patients(meterRegistry, "written");
+        this.scans = LongTaskTimer.builder("risk.population.scans")
+                .description("Population risk scans in progress")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Assesses every patient matching the filter and writes one NDJSON line
+     * ({@link RiskResponseDto}) per patient kept, by increasing patient id.
+     *
+     * @param filter the filters, null fields not filtering
+     * @param out    the stream receiving the NDJSON lines
+     * @throws IOException             if writing fails, e.g. the client disconnected
+     * @throws PatientServiceException if a page of patients cannot be fetched
+     * @throws NoteServiceException    if the notes of a page cannot be fetched
+     */
+    public void scan(PopulationFilterDto filter, OutputStream out) throws IOException {
+        LocalDate today = LocalDate.now();
+        // Age bounds become birth date bounds, so that patient-service does the filtering
+        String bornFrom = filter.getMaxAge() == null ? null
+                : today.minusYears(filter.getMaxAge() + 1L).plusDays(1).toString();
+        String bornTo = filter.getMinAge() == null ? null
+                : today.minusYears(filter.getMinAge()).toString();
+
+        LongTaskTimer.Sample sample = scans.start();
+        long started = System.nanoTime();
+        long[] counts = new long[2];  // scanned, written
+        try {
+            forEachPage(filter.getGender(), bornFrom, bornTo, page -> {
+                for (PatientDto patient : page.patients()) {
+                    RiskResponseDto risk = riskAssessmentService.assessmentPatientRisk(
+                            patient, page.notes().getOrDefault(patient.getId(), Collections.emptyList()));
+                    scannedPatients.increment();
+                    if (++counts[0] % PROGRESS_LOG_INTERVAL == 0) {
+                        logProgress(counts[0], counts[1], started);
+                    }
+
+                    if (keeps(filter, risk)) {
+                        out.write(objectMapper.writeValueAsBytes(risk));
+                        out.write(LINE_SEPARATOR);
+                        writtenPatients.increment();
+                        counts[1]++;
+                    }
+                }
+                out.flush();  // one page done: push it to the client before blocking on the next
+            });
+        } finally {
+            sample.stop();
+        }
+        logProgress(counts[0], counts[1], started);
+    }
+
+    /**
+     * Reads the patients matching the filters page by page, with their notes, by increasing
+     * patient id. The next page is fetched while the consumer handles the current one.
+     *
+     * @param gender   optional gender ('M' or 'F')
+     * @param bornFrom optional minimum birth date, inclusive, as an ISO date
+     * @param bornTo   optional maximum birth date, inclusive, as an ISO date
+     * @param consumer the handler of each page
+     * @throws IOException             if the consumer fails to write
+     * @throws PatientServiceException if a page of patients cannot be fetched
+     * @throws NoteServiceException    if the notes of a page cannot be fetched
+     */
+    public void forEachPage(String gender, String bornFrom, String bornTo, PageConsumer consumer) throws IOException {
+        CompletableFuture<Page> next = fetchAsync(0, gender, bornFrom, bornTo);
+        try {
+            while (true) {
+                Page page = join(next);
+                if (page.patients().isEmpty()) {
+                    return;
+                }
+
+                // Read ahead one page while this one is handled
+                int lastId = page.patients().get(page.patients().size() - 1).getId();
+                next = fetchAsync(lastId, gender, bornFrom, bornTo);
+
+                consumer.accept(page);
+            }
+        } finally {
+            next.cancel(true);
+        }
+    }
+
+    private CompletableFuture<Page> fetchAsync(int afterId, String gender, String bornFrom, String bornTo) {
+        return CompletableFuture.supplyAsync(() -> fetchPage(afterId, gender, bornFrom, bornTo), prefetchExecutor);
+    }
+
+    private Page fetchPage(int afterId, String gender, String bornFrom, String bornTo) {
+        List<PatientDto> patients;
+        try {
+            patients = patientClient.getPatientsPage(afterId, pageSize, gender, bornFrom, bornTo);
+        } catch (Exception e) {
+            throw new PatientServiceException("Error fetching patient data");
+        }
+        if (patients == null || patients.isEmpty()) {
+            return new Page(Collections.emptyList(), Collections.emptyMap());
+        }
+
+        List<NoteDto> notes;
+        try {
+            notes = noteClient.getNotesByPatientIds(patients.stream().map(PatientDto::getId).toList());
+        } catch (feign.FeignException.NotFound e) {
+            notes = null;
+        } catch (Exception e) {
+            throw new NoteServiceException("Error fetching patient notes");
+        }
+
+        // Notes come grouped by patient, most recent first: the order of each group is kept
+        Map<Integer, List<NoteDto>> notesByPatient = new HashMap<>();
+        if (notes != null) {
+            for (NoteDto note : notes) {
+                notesByPatient.computeIfAbsent(note.getPatId(), id -> new ArrayList<>()).add(note);
+            }
+        }
+        return new Page(patients, notesByPatient);
+    }
+
+    private static Page join(CompletableFuture<Page> page) {
+        try {
+            return page.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    private static boolean keeps(PopulationFilterDto filter, RiskResponseDto risk) {
+        // Ages are checked again: the birth date bounds were computed at the start of the scan
+        if (filter.getMinAge() != null && risk.getAge() < filter.getMinAge()) {
+            return false;
+        }
+        if (filter.getMaxAge() != null && risk.getAge() > filter.getMaxAge()) {
+            return false;
+        }
+        return filter.getMinRisk() == null
+                || RiskAssessment.fromLabel(risk.getRiskLevel()).compareTo(filter.getMinRisk()) >= 0;
+    }
+
+    private static void logProgress(long scanned, long written, long started) {
+        double seconds = Math.max(1e-9, (System.nanoTime() - started) / 1e9);
+        log.info("Population risk scan: {} patients scanned, {} written, {} patients/s",
+                scanned, written, Math.round(scanned / seconds));
+    }
+
+    private static Counter patients(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("risk.population.patients")
+                .description("Patients processed by population risk scans")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        prefetchExecutor.shutdownNow();
+    }
+
+    /**
+     * One page of patients, with their notes grouped by patient id, most recent first.
+     */
+    public record Page(List<PatientDto> patients, Map<Integer, List<NoteDto>> notes) {
+    }
+
+    /**
+     * Handler of the pages read by {@link #forEachPage}.
+     */
+    @FunctionalInterface
+    public interface PageConsumer {
+        void accept(Page page) throws IOException;
+    }
+}
@@ -2,18 +2,26 @@ package com.medilabosolutions.riskservice.service;
 
 import com.medilabosolutions.riskservice.dto.NoteDto;
 import com.medilabosolutions.riskservice.dto.PatientDto;
+import com.medilabosolutions.riskservice.dto.RiskExplanationDto;
 import com.medilabosolutions.riskservice.dto.RiskResponseDto;
-import com.medilabosolutions.riskservice.enums.RiskAssessment;
+import com.medilabosolutions.riskservice.dto.RiskTimelineEntryDto;
+import com.medilabosolutions.riskservice.matcher.RiskTermMatcher;
+import com.medilabosolutions.riskservice.matcher.TermMatches;
+import com.medilabosolutions.riskservice.matcher.TextNormalizer;
+import com.medilabosolutions.riskservice.rules.RiskRuleEngine;
+import com.medilabosolutions.riskservice.rules.RiskRuleTable;
 import com.medilabosolutions.riskservice.service.contracts.IRiskAssessmentService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.text.Normalizer;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.Period;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 import static com.medilabosolutions.riskservice.model.RiskTerms.listRisks;
 
@@ -24,7 +32,28 @@ import static com.medilabosolutions.riskservice.model.RiskTerms.listRisks;
 @Service
 public class RiskAssessmentServiceImpl implements IRiskAssessmentService {
 
-    private static final int AGE_THRESHOLD = 30;  // Age threshold for risk categorization
+    // All risk terms compiled once into a single automaton, scanned in one pass per request
+    private static final RiskTermMatcher TERM_MATCHER = RiskTermMatcher.compile(
+            listRisks.stream()
+                    .map(TextNormalizer::normalize)
+                    .toList());
+
+    // Identifies the term list, hence the meaning of each bit of a matched-terms set
+    private static final int TERMS_VERSION = listRisks.hashCode();
+
+    private final RiskRuleEngine riskRuleEngine;
+
+    /**
+     * Creates the service with the default decision table.
+     */
+    public RiskAssessmentServiceImpl() {
+        this(RiskRuleEngine.withDefaultRules());
+    }
+
+    @Autowired
+    public RiskAssessmentServiceImpl(RiskRuleEngine riskRuleEngine) {
+        this.riskRuleEngine = riskRuleEngine;
+    }
 
     /**
      * Assess the risk level of a patient based on their age, gender, and clinical notes.
@@ -35,7 +64,7 @@ public class RiskAssessmentServiceImpl implements IRiskAssessmentService {
      */
     public RiskResponseDto assessmentPatientRisk(PatientDto patient, List<NoteDto> notes) {
         int age = calculatePatientAge(patient.getDateOfBirth());
-        String riskLabel = assessmentRisk(patient, notes);
+        String riskLabel = assessmentRisk(age, patient.getGender(), notes);
 
         return new RiskResponseDto(
                 patient.getId(),
@@ -44,91 +73,154 @@ public class RiskAssessmentServiceImpl implements IRiskAssessmentService {
     }
 
     /**
-     * Determines the risk label for a patient.
-     * The assessment is based on the number of risk-related terms in notes,
-     * age, and gender of the patient.
+     * Assess the risk level of a patient like {@link #assessmentPatientRisk(PatientDto, List)}, and
+     * explains it with every occurrence of a risk term in the notes, recorded during the same scan.
      *
      * @param patient the patient data
-     * @param notes   the list of clinical notes
-     * @return the risk label as a string
+     * @param notes   the list of clinical notes associated with the patient
+     * @return a RiskResponseDto containing patient ID, age, risk level label and explanation
      */
-    public String assessmentRisk(PatientDto patient, List<NoteDto> notes) {
+    public RiskResponseDto explainPatientRisk(PatientDto patient, List<NoteDto> notes) {
         int age = calculatePatientAge(patient.getDateOfBirth());
-        long riskTermsCount;
+        List<NoteDto> scanned = notes == null ? List.of() : notes;
+
+        // Not stopped at saturation: every term is reported
+        TermMatches matches = new TermMatches();
+        RiskTermMatcher.Scan scan = TERM_MATCHER.newExplainingScan(matches);
+        List<String> noteIds = new ArrayList<>(scanned.size());
+        for (NoteDto note : scanned) {
+            scan.feed(note.getNote());
+            noteIds.add(note.getId());
+        }
 
-        if (notes == null || notes.isEmpty()) {
-            riskTermsCount = 0;
-        } else {
-            // Concatenate all notes into a single text string
-            String allNotesText = notes.stream()
-                    .map(n -> normalize(n.getNote()))
-                    .collect(Collectors.joining(" "));
+        String riskLabel = riskRuleEngine.currentTable()
+                .classify(age, patient.getGender(), scan.matchedCount())
+                .getLabel();
+        return new RiskResponseDto(patient.getId(), age, riskLabel,
+                new RiskExplanationDto(listRisks, noteIds, matches.toArray()));
+    }
 
-            log.info("Complete notes text: {}", allNotesText);
+    /**
+     * Assess the risk level of a patient from the risk terms already found in their notes.
+     *
+     * @param patientId    the patient ID
+     * @param dateOfBirth  the patient's birth date
+     * @param gender       the patient gender
+     * @param matchedTerms the set of terms found in the notes, as returned by {@link #matchedTerms(List)}
+     * @return a RiskResponseDto containing patient ID, age, and risk level label
+     */
+    public RiskResponseDto assessmentPatientRisk(int patientId, LocalDate dateOfBirth, String gender, long matchedTerms) {
+        int age = calculatePatientAge(dateOfBirth);
+        String riskLabel = riskRuleEngine.currentTable()
+                .classify(age, gender, Long.bitCount(matchedTerms))
+                .getLabel();
 
-            // Count occurrences of risk-related terms in notes
-            riskTermsCount = listRisks.stream()
-                    .map(this::normalize)
-                    .filter(term -> Pattern.compile(term).matcher(allNotesText).find())
-                    .count();
+        return new RiskResponseDto(patientId, age, riskLabel);
+    }
 
-            log.info("Number of risk terms found: {}", riskTermsCount);
+    /**
+     * Finds every risk term present in the notes.
+     * Unlike the assessment, the scan never stops early, so that sets can be merged later on.
+     *
+     * @param notes the list of clinical notes
+     * @return the set of terms found, bit i standing for term i of the term list
+     */
+    public long matchedTerms(List<NoteDto> notes) {
+        if (notes == null || notes.isEmpty()) {
+            return 0L;
         }
 
-        boolean isMale = "M".equals(patient.getGender());
-
-        // Risk 1: no notes or no risk terms
-        if (riskTermsCount == 0 || notes.isEmpty()) {
-            return RiskAssessment.RISK_1.getLabel();
+        RiskTermMatcher.Scan scan = TERM_MATCHER.newScan(Integer.MAX_VALUE);
+        for (NoteDto note : notes) {
+            scan.feed(note.getNote());
         }
+        return scan.matchedTerms();
+    }
 
-        // Age above threshold
-        if (age > AGE_THRESHOLD) {
-            if (riskTermsCount >= 2 && riskTermsCount <= 5) {
-                return RiskAssessment.RISK_2.getLabel();
-            }
-            if (riskTermsCount == 6 || riskTermsCount == 7) {
-                return RiskAssessment.RISK_3.getLabel();
-            }
-            if (riskTermsCount >= 8) {
-                return RiskAssessment.RISK_4.getLabel();
-            }
+    /**
+     * Computes how the risk level of a patient evolved, note after note.
+     * <p>
+     * Notes are walked once by creation date with a single scan whose term set keeps growing,
+     * and the rules are applied after each note with the patient's age at the note date:
+     * the whole timeline costs one pass over the notes, not one assessment per note.
+     *
+     * @param patient the patient data
+     * @param notes   the list of clinical notes, in any order
+     * @return one entry per note, by creation date (notes without date last)
+     */
+    public List<RiskTimelineEntryDto> riskTimeline(PatientDto patient, List<NoteDto> notes) {
+        if (notes == null || notes.isEmpty()) {
+            return List.of();
         }
 
-        // Age below threshold
-        if (age < AGE_THRESHOLD) {
-            if (isMale) {
-                if (riskTermsCount == 3) {
-                    return RiskAssessment.RISK_3.getLabel();
-                }
-                if (riskTermsCount >= 5) {
-                    return RiskAssessment.RISK_4.getLabel();
-                }
-            } else {  // Female patients
-                if (riskTermsCount == 4) {
-                    return RiskAssessment.RISK_3.getLabel();
-                }
-                if (riskTermsCount >= 7) {
-                    return RiskAssessment.RISK_4.getLabel();
-                }
-            }
+        List<NoteDto> sorted = new ArrayList<>(notes);
+        sorted.sort(Comparator.comparing(NoteDto::getCreatedNoteDate, Comparator.nullsLast(Comparator.naturalOrder())));
+
+        // One table snapshot for the whole timeline, even if the rules are swapped meanwhile
+        RiskRuleTable rules = riskRuleEngine.currentTable();
+        RiskTermMatcher.Scan scan = TERM_MATCHER.newScan(Integer.MAX_VALUE);
+        List<RiskTimelineEntryDto> timeline = new ArrayList<>(sorted.size());
+        for (NoteDto note : sorted) {
+            scan.feed(note.getNote());
+
+            LocalDate noteDay = note.getCreatedNoteDate() == null ? LocalDate.now()
+                    : LocalDate.ofInstant(note.getCreatedNoteDate(), ZoneId.systemDefault());
+            int age = Math.max(0, Period.between(patient.getDateOfBirth(), noteDay).getYears());
+            int riskTermsCount = scan.matchedCount();
+            timeline.add(new RiskTimelineEntryDto(note.getId(), note.getCreatedNoteDate(), age, riskTermsCount,
+                    rules.classify(age, patient.getGender(), riskTermsCount).getLabel()));
         }
+        return timeline;
+    }
+
+    /**
+     * @return the version of the term list that {@link #matchedTerms(List)} sets refer to
+     */
+    public int termsVersion() {
+        return TERMS_VERSION;
+    }
 
-        // Default risk if no other conditions matched
-        return RiskAssessment.RISK_1.getLabel();
+    /**
+     * Determines the risk label for a patient.
+     * The assessment is based on the number of risk-related terms in notes,
+     * age, and gender of the patient.
+     *
+     * @param patient the patient data
+     * @param notes   the list of clinical notes
+     * @return the risk label as a string
+     */
+    public String assessmentRisk(PatientDto patient, List<NoteDto> notes) {
+        return assessmentRisk(calculatePatientAge(patient.getDateOfBirth()), patient.getGender(), notes);
     }
 
     /**
-     * Normalizes text by removing accents, converting to lowercase, and trimming whitespace.
+     * Determines the risk label from the decision table, for an already computed age.
      *
-     * @param text the input text
-     * @return normalized text
+     * @param age    the patient age in years
+     * @param gender the patient gender
+     * @param notes  the list of clinical notes
+     * @return the risk label as a string
      */
-    private String normalize(String text) {
-        return Normalizer.normalize(text, Normalizer.Form.NFD)
-                .replaceAll("\\p{M}", "") // remove accents
-                .toLowerCase()
-                .trim();                  // remove leading/trailing spaces
+    private String assessmentRisk(int age, String gender, List<NoteDto> notes) {
+        // One table snapshot per request, even if the rules are swapped meanwhile
+        RiskRuleTable rules = riskRuleEngine.currentTable();
+        int riskTermsCount = 0;
+
+        if (notes != null && !notes.isEmpty()) {
+            // Scan notes one by one, stopping once more terms could not change the risk level
+            RiskTermMatcher.Scan scan = TERM_MATCHER.newScan(rules.saturationCount());
+            for (NoteDto note : notes) {
+                scan.feed(note.getNote());
+                if (scan.isSaturated()) {
+                    break;
+                }
+            }
+            riskTermsCount = scan.matchedCount();
+
+            log.info("Number of risk terms found: {}", riskTermsCount);
+        }
+
+        return rules.classify(age, gender, riskTermsCount).getLabel();
     }
 
     /**
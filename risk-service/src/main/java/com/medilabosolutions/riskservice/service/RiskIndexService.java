@@ -0,0 +1,275 @@
+package com.medilabosolutions.riskservice.service;
+
+import com.medilabosolutions.riskservice.dto.NoteDto;
+import com.medilabosolutions.riskservice.dto.NoteEventDto;
+import com.medilabosolutions.riskservice.dto.PatientDto;
+import com.medilabosolutions.riskservice.dto.RiskQueryResultDto;
+import com.medilabosolutions.riskservice.exception.NoteServiceException;
+import com.medilabosolutions.riskservice.exception.PatientNotFoundException;
+import com.medilabosolutions.riskservice.exception.PatientServiceException;
+import com.medilabosolutions.riskservice.index.RiskTermIndex;
+import com.medilabosolutions.riskservice.index.TermQuery;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.medilabosolutions.riskservice.model.RiskTerms.listRisks;
+
+/**
+ * Service keeping the {@link RiskTermIndex} of the whole patient base, for cohort queries such
+ * as "smokers under 30 with abnormal cholesterol" answered without scoring any patient.
+ * <p>
+ * The index is built in the background at startup, by reading the patient base page by page,
+ * then rebuilt every {@code risk.index.rebuild-interval} as a safety net for lost events and
+ * demographic changes. Until a first build succeeds, e.g. while patient-service is still starting,
+ * it is retried after a short delay, doubled on each failure. Meanwhile it is kept current by the note events: a new note adds its
+ * terms, an edited or deleted note re-indexes its patient from the remote services. Patients
+ * changed during a rebuild are re-indexed once the new index is in place.
+ * <p>
+ * Size and query times are exported through the {@code risk.index.patients},
+ * {@code risk.index.bytes} and {@code risk.index.queries} meters.
+ */
+@Slf4j
+@Service
+public class RiskIndexService {
+
+    private static final Duration FIRST_RETRY_DELAY = Duration.ofSeconds(5);
+    private static final Duration MAX_RETRY_DELAY = Duration.ofMinutes(5);
+
+    private final PopulationRiskService populationRiskService;
+    private final PatientRiskService patientRiskService;
+    private final RiskAssessmentServiceImpl riskAssessmentService;
+    private final boolean enabled;
+    private final Duration rebuildInterval;
+    private final ScheduledExecutorService rebuildExecutor = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("risk-index-rebuild").daemon().factory());
+    private final Timer queries;
+    private Duration retryDelay = FIRST_RETRY_DELAY;   // only used by the rebuild thread
+
+    private volatile RiskTermIndex index = new RiskTermIndex(listRisks.size());
+    private volatile boolean ready;
+    private volatile boolean building;
+    private final Set<Integer> changedDuringBuild = ConcurrentHashMap.newKeySet();
+
+    public RiskIndexService(
+            PopulationRiskService populationRiskService,
+            PatientRiskService patientRiskService,
+            RiskAssessmentServiceImpl riskAssessmentService,
+            MeterRegistry meterRegistry,
+            @Value("${risk.index.enabled:true}") boolean enabled,
+            @Value("${risk.index.rebuild-interval:6h}") Duration rebuildInterval) {
+
+        this.populationRiskService = populationRiskService;
+        this.patientRiskService = patientRiskService;
+        this.riskAssessmentService = riskAssessmentService;
+        this.enabled = enabled;
+        this.rebuildInterval = rebuildInterval;
+
+        this.queries = Timer.builder("risk.index.queries")
+                .description("Risk term index queries")
+                .register(meterRegistry);
+        Gauge.builder("risk.index.patients", this, service -> service.index.size())
+                .description("Patients in the risk term index")
+                .register(meterRegistry);
+        Gauge.builder("risk.index.bytes", this, service -> service.index.sizeInBytes())
+                .description("Size of the risk term index bitmaps")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void scheduleRebuilds() {
+        if (enabled) {
+            scheduleRebuild(Duration.ZERO);
+        }
+    }
+
+    private void scheduleRebuild(Duration delay) {
+        if (!rebuildExecutor.isShutdown()) {
+            rebuildExecutor.schedule(this::rebuildQuietly, delay.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * @return whether the index was built at least once and can be queried
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Finds the patients whose notes match a term query, among those matching the demographic filters.
+     *
+     * @param query  the term query (see {@link TermQuery}), or null for every patient
+     * @param minAge optional minimum age, inclusive
+     * @param maxAge optional maximum age, inclusive
+     * @param gender optional gender
+     * @param limit  the maximum number of ids returned
+     * @return the number of matching patients and their first ids
+     * @throws IllegalArgumentException if the query is malformed or a term is unknown
+     */
+    public RiskQueryResultDto query(String query, Integer minAge, Integer maxAge, String gender, int limit) {
+        TermQuery parsed = query == null ? null : TermQuery.parse(query, this::resolveTerm);
+
+        // Age bounds become birth date bounds, as in the population scan
+        LocalDate today = LocalDate.now();
+        LocalDate bornFrom = maxAge == null ? null : today.minusYears(maxAge + 1L).plusDays(1);
+        LocalDate bornTo = minAge == null ? null : today.minusYears(minAge);
+
+        RoaringBitmap matching = queries.record(() -> index.query(parsed, bornFrom, bornTo, gender));
+        List<Integer> ids = new ArrayList<>(Math.min(limit, matching.getCardinality()));
+        IntIterator iterator = matching.getIntIterator();
+        while (iterator.hasNext() && ids.size() < limit) {
+            ids.add(iterator.next());
+        }
+        return new RiskQueryResultDto(matching.getLongCardinality(), ids);
+    }
+
+    /**
+     * Applies a note change to the index.
+     * Failures are logged only: the next rebuild repairs the patient.
+     *
+     * @param event the note change
+     */
+    public void applyNoteEvent(NoteEventDto event) {
+        int id = event.getPatId();
+        if (building) {
+            changedDuringBuild.add(id);
+        }
+        if (!ready) {
+            return;
+        }
+
+        switch (event.getType()) {
+            case CREATED -> {
+                long noteTerms = riskAssessmentService.matchedTerms(List.of(new NoteDto(null, id, event.getNote(), null, null)));
+                if (!index.addTerms(id, noteTerms)) {
+                    refreshPatient(id);  // patient created since the last build
+                }
+            }
+            case UPDATED, DELETED -> refreshPatient(id);
+        }
+    }
+
+    /**
+     * Re-indexes a patient from the remote services, e.g. after their demographics changed.
+     * Failures are logged only: the next rebuild repairs the patient.
+     *
+     * @param id the unique identifier of the patient
+     */
+    public void refreshPatient(int id) {
+        if (building) {
+            changedDuringBuild.add(id);
+        }
+        if (!ready) {
+            return;
+        }
+        try {
+            index(index, patientRiskService.fetchPatientData(id));
+        } catch (PatientNotFoundException e) {
+            index.remove(id);
+        } catch (PatientServiceException | NoteServiceException e) {
+            log.warn("Patient {} not re-indexed: {}", id, e.getMessage());
+        }
+    }
+
+    /**
+     * Builds a new index of the whole patient base, then replaces the current one.
+     *
+     * @throws IOException             never in practice, pages being indexed in memory
+     * @throws PatientServiceException if a page of patients cannot be fetched
+     * @throws NoteServiceException    if the notes of a page cannot be fetched
+     */
+    public void rebuild() throws IOException {
+        long started = System.nanoTime();
+        RiskTermIndex fresh = new RiskTermIndex(listRisks.size());
+        changedDuringBuild.clear();
+        building = true;
+        try {
+            populationRiskService.forEachPage(null, null, null, page -> {
+                for (PatientDto patient : page.patients()) {
+                    index(fresh, new PatientRiskService.PatientData(
+                            patient, page.notes().getOrDefault(patient.getId(), List.of())));
+                }
+            });
+            fresh.optimize();
+            index = fresh;
+            ready = true;
+        } finally {
+            building = false;
+        }
+
+        // Their page may have been read before their change
+        Iterator<Integer> changed = changedDuringBuild.iterator();
+        while (changed.hasNext()) {
+            int id = changed.next();
+            changed.remove();
+            refreshPatient(id);
+        }
+
+        log.info("Risk term index built: {} patients, {} KB, in {} ms", fresh.size(),
+                fresh.sizeInBytes() / 1024, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    private void rebuildQuietly() {
+        Duration next = rebuildInterval;
+        try {
+            rebuild();
+            retryDelay = FIRST_RETRY_DELAY;
+        } catch (Exception e) {
+            if (!ready) {
+                // No index to answer queries yet: retried soon rather than after the rebuild interval
+                next = retryDelay;
+                retryDelay = min(retryDelay.multipliedBy(2), MAX_RETRY_DELAY, rebuildInterval);
+            }
+            log.warn("Risk term index not rebuilt, next attempt in {}: {}", next, e.getMessage());
+        } finally {
+            scheduleRebuild(next);
+        }
+    }
+
+    private static Duration min(Duration first, Duration second, Duration third) {
+        Duration min = first.compareTo(second) <= 0 ? first : second;
+        return min.compareTo(third) <= 0 ? min : third;
+    }
+
+    private void index(RiskTermIndex target, PatientRiskService.PatientData data) {
+        PatientDto patient = data.patient();
+        target.put(patient.getId(), patient.getDateOfBirth(), patient.getGender(),
+                riskAssessmentService.matchedTerms(data.notes()));
+    }
+
+    private int resolveTerm(String word) {
+        // A query term is any spelling of exactly one risk term, e.g. "fumeuse" or "Cholestérol"
+        long terms = riskAssessmentService.matchedTerms(List.of(new NoteDto(null, null, word, null, null)));
+        if (Long.bitCount(terms) != 1) {
+            throw new IllegalArgumentException("Unknown risk term: " + word);
+        }
+        return Long.numberOfTrailingZeros(terms);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+}
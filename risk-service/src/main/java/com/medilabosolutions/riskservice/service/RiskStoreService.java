@@ -0,0 +1,231 @@
+package com.medilabosolutions.riskservice.service;
+
+import com.medilabosolutions.riskservice.dto.NoteDto;
+import com.medilabosolutions.riskservice.dto.NoteEventDto;
+import com.medilabosolutions.riskservice.dto.PatientDto;
+import com.medilabosolutions.riskservice.dto.RiskResponseDto;
+import com.medilabosolutions.riskservice.event.PatientRiskStoredEvent;
+import com.medilabosolutions.riskservice.exception.NoteServiceException;
+import com.medilabosolutions.riskservice.exception.PatientNotFoundException;
+import com.medilabosolutions.riskservice.exception.PatientServiceException;
+import com.medilabosolutions.riskservice.exception.RiskAssessmentException;
+import com.medilabosolutions.riskservice.model.PatientRisk;
+import com.medilabosolutions.riskservice.repository.RiskRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Service keeping the materialized risk of each patient in the {@link RiskRepository}.
+ * <p>
+ * A stored patient is assessed from their stored term set and demographics, without any
+ * remote call. The store is kept up to date by note events: a new note is scanned alone and
+ * its terms are merged into the stored set, while an edited or deleted note triggers a full
+ * recomputation. A patient missing from the store, stored with another term list, or last
+ * fully computed more than {@code risk.store.max-age} ago is recomputed from the remote services.
+ * <p>
+ * Merging is exact unless a risk term straddles two notes, which the full computation (notes
+ * joined in order) would count and the incremental one does not.
+ */
+@Slf4j
+@Service
+public class RiskStoreService {
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final RiskRepository riskRepository;
+    private final PatientRiskService patientRiskService;
+    private final RiskAssessmentServiceImpl riskAssessmentService;
+    private final Duration maxAge;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+
+    public RiskStoreService(
+            RiskRepository riskRepository,
+            PatientRiskService patientRiskService,
+            RiskAssessmentServiceImpl riskAssessmentService,
+            Duration maxAge) {
+
+        this(riskRepository, patientRiskService, riskAssessmentService, maxAge, event -> { });
+    }
+
+    /**
+     * @param eventPublisher publisher notified with a {@link PatientRiskStoredEvent} after each full computation
+     */
+    @Autowired
+    public RiskStoreService(
+            RiskRepository riskRepository,
+            PatientRiskService patientRiskService,
+            RiskAssessmentServiceImpl riskAssessmentService,
+            @Value("${risk.store.max-age:24h}") Duration maxAge,
+            ApplicationEventPublisher eventPublisher) {
+
+        this.riskRepository = riskRepository;
+        this.patientRiskService = patientRiskService;
+        this.riskAssessmentService = riskAssessmentService;
+        this.maxAge = maxAge;
+        this.eventPublisher = eventPublisher;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Returns the risk assessment of a patient, from the store when possible.
+     *
+     * @param id the unique identifier of the patient
+     * @return the risk assessment
+     *
+     * @throws PatientNotFoundException   if no patient is found for the given ID
+     * @throws PatientServiceException    if an error occurs while calling the patient service
+     * @throws NoteServiceException       if an error occurs while calling the note service
+     * @throws RiskAssessmentException    if an error occurs during risk calculation
+     */
+    public RiskResponseDto getRisk(int id) {
+        Optional<PatientRisk> stored = riskRepository.findById(id).filter(this::isUsable);
+        if (stored.isPresent()) {
+            return assess(stored.get());
+        }
+        // Checked again under the lock: a concurrent request may have materialized it meanwhile
+        return withLock(id, () -> riskRepository.findById(id)
+                .filter(this::isUsable)
+                .map(this::assess)
+                .orElseGet(() -> materialize(id)));
+    }
+
+    /**
+     * Applies a note change to the stored risk of its patient.
+     * Nothing is stored for a patient who was never assessed: they are computed on first request.
+     * If the stored risk cannot be updated, it is removed, so that the next request recomputes it.
+     *
+     * @param event the note change
+     *
+     * @throws PatientServiceException    if an error occurs while calling the patient service
+     * @throws NoteServiceException       if an error occurs while calling the note service
+     * @throws RiskAssessmentException    if an error occurs during risk calculation
+     */
+    public void applyNoteEvent(NoteEventDto event) {
+        int id = event.getPatId();
+        withLock(id, () -> {
+            Optional<PatientRisk> stored = riskRepository.findById(id).filter(this::isUsable);
+            if (stored.isEmpty()) {
+                return null;
+            }
+
+            try {
+                switch (event.getType()) {
+                    case CREATED -> merge(stored.get(), event.getNote());
+                    case UPDATED, DELETED -> materialize(id);
+                }
+            } catch (PatientNotFoundException e) {
+                riskRepository.deleteById(id);
+            } catch (RuntimeException e) {
+                // The stored terms may include those of the changed note: recomputed on next request
+                riskRepository.deleteById(id);
+                throw e;
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Classifies a stored patient again from their stored terms, e.g. after they changed age band.
+     * No remote call is made: a patient missing from the store or no longer usable is left as is.
+     *
+     * @param id the unique identifier of the patient
+     * @return the updated stored risk, or empty if the patient has no usable stored risk
+     *
+     * @throws RiskAssessmentException    if an error occurs during risk calculation
+     */
+    public Optional<PatientRisk> reassess(int id) {
+        return withLock(id, () -> riskRepository.findById(id)
+                .filter(this::isUsable)
+                .map(stored -> {
+                    stored.setRiskLevel(assess(stored).getRiskLevel());
+                    stored.setUpdatedAt(Instant.now());
+                    riskRepository.save(stored);
+                    return stored;
+                }));
+    }
+
+    /**
+     * Removes the stored risk of a patient, e.g. after their demographics changed.
+     *
+     * @param id the unique identifier of the patient
+     */
+    public void evict(int id) {
+        withLock(id, () -> {
+            riskRepository.deleteById(id);
+            return null;
+        });
+    }
+
+    private RiskResponseDto materialize(int id) {
+        PatientRiskService.PatientData data = patientRiskService.fetchPatientData(id);
+        PatientDto patient = data.patient();
+        List<NoteDto> notes = data.notes();
+
+        // One full scan: the risk is classified from the matched terms, as for stored risks
+        Instant now = Instant.now();
+        PatientRisk stored = PatientRisk.builder()
+                .patientId(id)
+                .matchedTerms(riskAssessmentService.matchedTerms(notes))
+                .dateOfBirth(patient.getDateOfBirth())
+                .gender(patient.getGender())
+                .termsVersion(riskAssessmentService.termsVersion())
+                .notesVersion(0)
+                .computedAt(now)
+                .updatedAt(now)
+                .build();
+        RiskResponseDto risk = assess(stored);
+        stored.setRiskLevel(risk.getRiskLevel());
+        riskRepository.save(stored);
+
+        eventPublisher.publishEvent(new PatientRiskStoredEvent(id, patient.getDateOfBirth()));
+        log.debug("Risk of patient {} materialized: {}", id, risk.getRiskLevel());
+        return risk;
+    }
+
+    private void merge(PatientRisk stored, String note) {
+        long noteTerms = riskAssessmentService.matchedTerms(List.of(new NoteDto(null, stored.getPatientId(), note, null, null)));
+        stored.setMatchedTerms(stored.getMatchedTerms() | noteTerms);
+        stored.setNotesVersion(stored.getNotesVersion() + 1);
+        stored.setRiskLevel(assess(stored).getRiskLevel());
+        stored.setUpdatedAt(Instant.now());
+        riskRepository.save(stored);
+    }
+
+    private RiskResponseDto assess(PatientRisk stored) {
+        try {
+            return riskAssessmentService.assessmentPatientRisk(
+                    stored.getPatientId(), stored.getDateOfBirth(), stored.getGender(), stored.getMatchedTerms());
+        } catch (Exception e) {
+            throw new RiskAssessmentException("Error during risk assessment");
+        }
+    }
+
+    private boolean isUsable(PatientRisk stored) {
+        return stored.getTermsVersion() == riskAssessmentService.termsVersion()
+                && stored.getComputedAt().plus(maxAge).isAfter(Instant.now());
+    }
+
+    private <T> T withLock(int id, Supplier<T> action) {
+        // Serializes changes per patient, so that an event never interleaves with a recomputation
+        ReentrantLock lock = locks[Math.floorMod(id, LOCK_STRIPES)];
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -3,13 +3,25 @@ package com.medilabosolutions.riskservice.service.contracts;
 import com.medilabosolutions.riskservice.dto.NoteDto;
 import com.medilabosolutions.riskservice.dto.PatientDto;
 import com.medilabosolutions.riskservice.dto.RiskResponseDto;
+import com.medilabosolutions.riskservice.dto.RiskTimelineEntryDto;
 
+import java.time.LocalDate;
 import java.util.List;
 
 public interface IRiskAssessmentService {
 
     RiskResponseDto assessmentPatientRisk(PatientDto patient, List<NoteDto> notes);
 
+    RiskResponseDto explainPatientRisk(PatientDto patient, List<NoteDto> notes);
+
     String assessmentRisk(PatientDto patient, List<NoteDto> notes);
 
+    RiskResponseDto assessmentPatientRisk(int patientId, LocalDate dateOfBirth, String gender, long matchedTerms);
+
+    long matchedTerms(List<NoteDto> notes);
+
+    List<RiskTimelineEntryDto> riskTimeline(PatientDto patient, List<NoteDto> notes);
+
+    int termsVersion();
+
 }
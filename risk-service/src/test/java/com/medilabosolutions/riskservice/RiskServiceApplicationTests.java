@@ -2,7 +2,9 @@ package com.medilabosolutions.riskservice;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
 
+@ActiveProfiles("test")
 @SpringBootTest
 class RiskServiceApplicationTests {
 
@@ -1,28 +1,44 @@
 package com.medilabosolutions.riskservice.integration;
 
+import com.medilabosolutions.riskservice.cache.RiskResultCache;
 import com.medilabosolutions.riskservice.client.NoteClient;
 import com.medilabosolutions.riskservice.client.PatientClient;
 import com.medilabosolutions.riskservice.controller.RiskController;
 import com.medilabosolutions.riskservice.dto.NoteDto;
+import com.medilabosolutions.riskservice.dto.NoteEventDto;
 import com.medilabosolutions.riskservice.dto.PatientDto;
+import com.medilabosolutions.riskservice.dto.RiskExplanationDto;
 import com.medilabosolutions.riskservice.dto.RiskResponseDto;
+import com.medilabosolutions.riskservice.dto.RiskTimelineEntryDto;
+import com.medilabosolutions.riskservice.enums.NoteEventType;
 import com.medilabosolutions.riskservice.exception.NoteServiceException;
 import com.medilabosolutions.riskservice.exception.PatientNotFoundException;
 import com.medilabosolutions.riskservice.exception.PatientServiceException;
 import com.medilabosolutions.riskservice.exception.RiskAssessmentException;
+import com.medilabosolutions.riskservice.model.PatientRisk;
+import com.medilabosolutions.riskservice.repository.RiskRepository;
+import com.medilabosolutions.riskservice.service.BatchRiskService;
+import com.medilabosolutions.riskservice.service.PatientReplicaService;
+import com.medilabosolutions.riskservice.service.PatientRiskService;
+import com.medilabosolutions.riskservice.service.PopulationRiskService;
 import com.medilabosolutions.riskservice.service.RiskAssessmentServiceImpl;
+import com.medilabosolutions.riskservice.service.RiskIndexService;
+import com.medilabosolutions.riskservice.service.RiskStoreService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -39,13 +55,41 @@ class RiskControllerTest {
     @Mock
     RiskAssessmentServiceImpl riskService;
 
-    @InjectMocks
+    @Mock
+    BatchRiskService batchRiskService;
+
+    @Mock
+    RiskRepository riskRepository;
+
+    @Mock
+    PopulationRiskService populationRiskService;
+
+    @Mock
+    RiskIndexService riskIndexService;
+
+    @Mock
+    PatientReplicaService patientReplicaService;
+
     RiskController controller;
 
     private PatientDto patient;
 
     @BeforeEach
     void setup() {
+        // GIVEN: an empty risk store, so that every request reaches the remote services
+        PatientRiskService patientRiskService = new PatientRiskService(patientClient, noteClient, riskService);
+        RiskStoreService riskStoreService = new RiskStoreService(riskRepository,
+                patientRiskService, riskService, Duration.ofHours(24));
+        controller = new RiskController(
+                new RiskResultCache(riskStoreService,
+                        new SimpleMeterRegistry(), 100, Duration.ofMinutes(5), Duration.ofHours(1)),
+                batchRiskService,
+                riskStoreService,
+                populationRiskService,
+                riskIndexService,
+                patientRiskService,
+                patientReplicaService);
+
         // GIVEN: a sample patient for testing
         patient = new PatientDto(
                 1,
@@ -64,23 +108,44 @@ class RiskControllerTest {
 
         when(patientClient.getPatientById(1)).thenReturn(patient);
         when(noteClient.getNotesByPatientId(1)).thenReturn(notes);
-        when(riskService.assessmentPatientRisk(patient, notes)).thenReturn(risk);
+        when(riskService.matchedTerms(notes)).thenReturn(1L);
+        when(riskService.assessmentPatientRisk(1, patient.getDateOfBirth(), "M", 1L)).thenReturn(risk);
 
         // WHEN: retrieving risk assessment for the patient
-        ResponseEntity<?> response = controller.getRiskAssessmentPatient(1);
+        ResponseEntity<?> response = controller.getRiskAssessmentPatient(1, false);
 
         // THEN: response is 200 OK and contains the correct risk assessment
         assertEquals(200, response.getStatusCodeValue());
         assertEquals(risk, response.getBody());
     }
 
+    @Test
+    void testGetRiskAssessmentPatient_explain() {
+        // GIVEN: patient exists and has notes
+        List<NoteDto> notes = List.of(new NoteDto("1", 1, "Fumeur", null, null));
+        RiskResponseDto risk = new RiskResponseDto(1, 44, "None",
+                new RiskExplanationDto(List.of("fumeur"), List.of("1"), new int[]{0, 0, 0, 6}));
+
+        when(patientClient.getPatientById(1)).thenReturn(patient);
+        when(noteClient.getNotesByPatientId(1)).thenReturn(notes);
+        when(riskService.explainPatientRisk(patient, notes)).thenReturn(risk);
+
+        // WHEN: retrieving the explained risk assessment
+        ResponseEntity<?> response = controller.getRiskAssessmentPatient(1, true);
+
+        // THEN: the explanation is computed, bypassing the cache
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(risk, response.getBody());
+        verify(riskService, never()).assessmentPatientRisk(anyInt(), any(), any(), anyLong());
+    }
+
     @Test
     void testGetRiskAssessmentPatient_patientNotFound() {
         // GIVEN: patient does not exist
         when(patientClient.getPatientById(1)).thenReturn(null);
 
         // THEN: retrieving risk assessment throws PatientNotFoundException
-        assertThrows(PatientNotFoundException.class, () -> controller.getRiskAssessmentPatient(1));
+        assertThrows(PatientNotFoundException.class, () -> controller.getRiskAssessmentPatient(1, false));
     }
 
     @Test
@@ -89,7 +154,7 @@ class RiskControllerTest {
         when(patientClient.getPatientById(1)).thenThrow(new RuntimeException("Some error"));
 
         // THEN: retrieving risk assessment throws PatientServiceException
-        assertThrows(PatientServiceException.class, () -> controller.getRiskAssessmentPatient(1));
+        assertThrows(PatientServiceException.class, () -> controller.getRiskAssessmentPatient(1, false));
     }
 
     @Test
@@ -99,10 +164,10 @@ class RiskControllerTest {
         when(noteClient.getNotesByPatientId(1)).thenReturn(null);
 
         RiskResponseDto expected = new RiskResponseDto(1, 44, "None");
-        when(riskService.assessmentPatientRisk(eq(patient), anyList())).thenReturn(expected);
+        when(riskService.assessmentPatientRisk(1, patient.getDateOfBirth(), "M", 0L)).thenReturn(expected);
 
         // WHEN: retrieving risk assessment
-        ResponseEntity<?> response = controller.getRiskAssessmentPatient(1);
+        ResponseEntity<?> response = controller.getRiskAssessmentPatient(1, false);
 
         // THEN: response is 200 OK and risk assessment uses empty notes list
         assertEquals(200, response.getStatusCodeValue());
@@ -116,7 +181,7 @@ class RiskControllerTest {
         when(noteClient.getNotesByPatientId(1)).thenThrow(new RuntimeException("Notes error"));
 
         // THEN: retrieving risk assessment throws NoteServiceException
-        assertThrows(NoteServiceException.class, () -> controller.getRiskAssessmentPatient(1));
+        assertThrows(NoteServiceException.class, () -> controller.getRiskAssessmentPatient(1, false));
     }
 
     @Test
@@ -124,10 +189,99 @@ class RiskControllerTest {
         // GIVEN: patient exists, notes are empty, but risk service throws exception
         when(patientClient.getPatientById(1)).thenReturn(patient);
         when(noteClient.getNotesByPatientId(1)).thenReturn(Collections.emptyList());
-        when(riskService.assessmentPatientRisk(patient, Collections.emptyList()))
+        when(riskService.assessmentPatientRisk(1, patient.getDateOfBirth(), "M", 0L))
                 .thenThrow(new RuntimeException("Risk service error"));
 
         // THEN: retrieving risk assessment throws RiskAssessmentException
-        assertThrows(RiskAssessmentException.class, () -> controller.getRiskAssessmentPatient(1));
+        assertThrows(RiskAssessmentException.class, () -> controller.getRiskAssessmentPatient(1, false));
+    }
+
+    @Test
+    void testGetRiskTimelinePatient_success() {
+        // GIVEN: patient exists and has notes
+        List<NoteDto> notes = List.of(new NoteDto("1", 1, "Fumeur", null, null));
+        List<RiskTimelineEntryDto> timeline = List.of(new RiskTimelineEntryDto("1", null, 44, 1, "None"));
+
+        when(patientClient.getPatientById(1)).thenReturn(patient);
+        when(noteClient.getNotesByPatientId(1)).thenReturn(notes);
+        when(riskService.riskTimeline(patient, notes)).thenReturn(timeline);
+
+        // WHEN: retrieving the risk timeline of the patient
+        ResponseEntity<?> response = controller.getRiskTimelinePatient(1);
+
+        // THEN: response is 200 OK and contains the timeline
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(timeline, response.getBody());
+    }
+
+    @Test
+    void testGetRiskTimelinePatient_patientNotFound() {
+        // GIVEN: patient client returns null
+        when(patientClient.getPatientById(1)).thenReturn(null);
+        lenient().when(noteClient.getNotesByPatientId(1)).thenReturn(Collections.emptyList());
+
+        // THEN: retrieving the timeline throws PatientNotFoundException
+        assertThrows(PatientNotFoundException.class, () -> controller.getRiskTimelinePatient(1));
+    }
+
+    @Test
+    void testOnNoteEvent_createdWithoutNote() {
+        // WHEN: a created note event has no text
+        NoteEventDto event = NoteEventDto.builder().type(NoteEventType.CREATED).patId(1).noteId("n").build();
+        ResponseEntity<Void> response = controller.onNoteEvent(event);
+
+        // THEN: it is rejected
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verifyNoInteractions(riskRepository, riskIndexService);
+    }
+
+    @Test
+    void testOnNoteEvent_recomputationError() {
+        // GIVEN: a stored patient, whose notes cannot be fetched again
+        List<NoteDto> notes = List.of(new NoteDto("1", 1, "Fumeur", null, null));
+        when(patientClient.getPatientById(1)).thenReturn(patient);
+        when(noteClient.getNotesByPatientId(1))
+                .thenReturn(notes)
+                .thenThrow(new RuntimeException("Notes error"))
+                .thenReturn(notes);
+        when(riskService.matchedTerms(notes)).thenReturn(1L);
+        when(riskService.assessmentPatientRisk(1, patient.getDateOfBirth(), "M", 1L))
+                .thenReturn(new RiskResponseDto(1, 44, "None"));
+        controller.getRiskAssessmentPatient(1, false);
+        when(riskRepository.findById(1)).thenReturn(Optional.of(PatientRisk.builder()
+                .patientId(1).matchedTerms(1L).computedAt(Instant.now()).build()));
+        NoteEventDto event = NoteEventDto.builder().type(NoteEventType.DELETED).patId(1).noteId("1").build();
+
+        // THEN: the error is reported
+        assertThrows(NoteServiceException.class, () -> controller.onNoteEvent(event));
+
+        // THEN: the stored risk is removed, the index updated and the cached risk evicted, so the next request recomputes
+        verify(riskRepository).deleteById(1);
+        verify(riskIndexService).applyNoteEvent(event);
+        when(riskRepository.findById(1)).thenReturn(Optional.empty());
+        controller.getRiskAssessmentPatient(1, false);
+        verify(noteClient, times(3)).getNotesByPatientId(1);
+    }
+
+    @Test
+    void testOnPatientEvent_success() {
+        // WHEN: the patient service reports a changed patient
+        ResponseEntity<Void> response = controller.onPatientEvent(patient);
+
+        // THEN: the replica is updated and the patient is re-indexed
+        assertEquals(HttpStatus.NO_CONTENT, response.getStatusCode());
+        verify(patientReplicaService).apply(patient);
+        verify(riskRepository).deleteById(1);
+        verify(riskIndexService).refreshPatient(1);
+    }
+
+    @Test
+    void testOnPatientEvent_missingId() {
+        // WHEN: the event has no patient id
+        ResponseEntity<Void> response = controller.onPatientEvent(new PatientDto());
+
+        // THEN: it is rejected
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verifyNoInteractions(patientReplicaService, riskIndexService);
     }
 }
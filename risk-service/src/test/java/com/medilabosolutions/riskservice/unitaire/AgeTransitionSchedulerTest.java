@@ -0,0 +1,135 @@
+package com.medilabosolutions.riskservice.unitaire;
+
+import com.medilabosolutions.riskservice.cache.RiskResultCache;
+import com.medilabosolutions.riskservice.event.PatientRiskStoredEvent;
+import com.medilabosolutions.riskservice.model.PatientRisk;
+import com.medilabosolutions.riskservice.repository.RiskRepository;
+import com.medilabosolutions.riskservice.rules.RiskRuleEngine;
+import com.medilabosolutions.riskservice.service.AgeTransitionScheduler;
+import com.medilabosolutions.riskservice.service.RiskStoreService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class AgeTransitionSchedulerTest {
+
+    @Mock
+    RiskRepository riskRepository;
+
+    @Mock
+    RiskStoreService riskStoreService;
+
+    @Mock
+    RiskResultCache riskResultCache;
+
+    private AgeTransitionScheduler scheduler;
+
+    private final LocalDate today = LocalDate.now();
+
+    @BeforeEach
+    void setUp() {
+        // GIVEN: the default rules, whose outcome changes at 30 and 31
+        scheduler = new AgeTransitionScheduler(riskRepository, riskStoreService, riskResultCache,
+                RiskRuleEngine.withDefaultRules(), new SimpleMeterRegistry());
+    }
+
+    private static PatientRisk stored(int id, LocalDate dateOfBirth) {
+        return stored(id, dateOfBirth, LocalDate.now());
+    }
+
+    private static PatientRisk stored(int id, LocalDate dateOfBirth, LocalDate assessedOn) {
+        return PatientRisk.builder().patientId(id).dateOfBirth(dateOfBirth).gender("M")
+                .updatedAt(assessedOn.atStartOfDay(ZoneId.systemDefault()).toInstant()).build();
+    }
+
+    @Test
+    void testNextTransition() {
+        int[] ages = {30, 31};
+
+        // WHEN / THEN: the next birthday at a transition age, if any
+        assertEquals(Optional.of(LocalDate.of(2030, 5, 10)),
+                AgeTransitionScheduler.nextTransition(LocalDate.of(2000, 5, 10), LocalDate.of(2026, 1, 1), ages));
+        assertEquals(Optional.of(LocalDate.of(2031, 5, 10)),
+                AgeTransitionScheduler.nextTransition(LocalDate.of(2000, 5, 10), LocalDate.of(2030, 5, 10), ages));
+        assertEquals(Optional.empty(),
+                AgeTransitionScheduler.nextTransition(LocalDate.of(1980, 5, 10), LocalDate.of(2026, 1, 1), ages));
+        // Born on February 29th: 30 years old on March 1st of a common year
+        assertEquals(Optional.of(LocalDate.of(2030, 3, 1)),
+                AgeTransitionScheduler.nextTransition(LocalDate.of(2000, 2, 29), LocalDate.of(2026, 1, 1), ages));
+    }
+
+    @Test
+    void testRunDueTransitions_OnlyDuePatients() {
+        // GIVEN: a stored patient turning 30 in 10 days, and one filed later on by event
+        LocalDate turns30 = today.minusYears(30).plusDays(10);
+        LocalDate turns31 = today.minusYears(31).plusDays(20);
+        when(riskRepository.findByDateOfBirthAfter(any())).thenReturn(List.of(stored(1, turns30)));
+        scheduler.runDueTransitions(today);
+        scheduler.onPatientRiskStored(new PatientRiskStoredEvent(2, turns31));
+        scheduler.onPatientRiskStored(new PatientRiskStoredEvent(3, today.minusYears(50)));
+        assertEquals(2, scheduler.scheduledCount());
+
+        // WHEN: the days pass until the first birthday
+        assertEquals(0, scheduler.runDueTransitions(today.plusDays(9)));
+        verify(riskStoreService, never()).reassess(anyInt());
+
+        when(riskStoreService.reassess(1)).thenReturn(Optional.of(stored(1, turns30)));
+        int reassessed = scheduler.runDueTransitions(today.plusDays(10));
+
+        // THEN: only that patient is re-assessed, their cache entry evicted, and filed for 31
+        assertEquals(1, reassessed);
+        verify(riskResultCache).invalidate(1);
+        verify(riskResultCache, never()).get(anyInt());
+        verify(riskStoreService, never()).reassess(2);
+        assertEquals(2, scheduler.scheduledCount());
+    }
+
+    @Test
+    void testRunDueTransitions_MissedWhileDown() {
+        // GIVEN: a patient assessed 5 days ago, who turned 30 two days ago while the service was down
+        LocalDate turned30 = today.minusYears(30).minusDays(2);
+        when(riskRepository.findByDateOfBirthAfter(any())).thenReturn(List.of(stored(1, turned30, today.minusDays(5))));
+        when(riskStoreService.reassess(1)).thenReturn(Optional.of(stored(1, turned30)));
+
+        // WHEN: the service restarts and processes the transitions of the day
+        int reassessed = scheduler.runDueTransitions(today);
+
+        // THEN: the missed transition is processed, and the patient filed for 31
+        assertEquals(1, reassessed);
+        verify(riskResultCache).invalidate(1);
+        assertEquals(1, scheduler.scheduledCount());
+    }
+
+    @Test
+    void testRunDueTransitions_PatientNoLongerStored() {
+        // GIVEN: a stored patient whose birthday was missed while the service was down
+        when(riskRepository.findByDateOfBirthAfter(any())).thenReturn(List.of(stored(1, today.minusYears(30).plusDays(1))));
+        scheduler.runDueTransitions(today);
+        when(riskStoreService.reassess(1)).thenReturn(Optional.empty());
+
+        // WHEN: the transitions are processed days later
+        int reassessed = scheduler.runDueTransitions(today.plusDays(5));
+
+        // THEN: the cache entry is evicted and the patient is no longer filed
+        assertEquals(0, reassessed);
+        verify(riskResultCache).invalidate(1);
+        verify(riskResultCache, never()).get(anyInt());
+        assertEquals(0, scheduler.scheduledCount());
+    }
+}
@@ -0,0 +1,111 @@
+package com.medilabosolutions.riskservice.unitaire;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.medilabosolutions.riskservice.dto.BatchRiskResultDto;
+import com.medilabosolutions.riskservice.dto.NoteDto;
+import com.medilabosolutions.riskservice.dto.PatientDto;
+import com.medilabosolutions.riskservice.dto.RiskResponseDto;
+import com.medilabosolutions.riskservice.exception.NoteServiceException;
+import com.medilabosolutions.riskservice.exception.PatientNotFoundException;
+import com.medilabosolutions.riskservice.service.BatchRiskService;
+import com.medilabosolutions.riskservice.service.PatientRiskService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class BatchRiskServiceTest {
+
+    @Mock
+    PatientRiskService patientRiskService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    private BatchRiskService batchRiskService;
+
+    @BeforeEach
+    void setUp() {
+        // GIVEN: a batch service processing 2 patients at a time
+        batchRiskService = new BatchRiskService(patientRiskService, objectMapper, 2);
+    }
+
+    private Map<Integer, BatchRiskResultDto> run(List<Integer> ids) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        batchRiskService.assessPatients(ids, out);
+
+        return Arrays.stream(out.toString(StandardCharsets.UTF_8).split("\n"))
+                .map(line -> {
+                    try {
+                        return objectMapper.readValue(line, BatchRiskResultDto.class);
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                })
+                .collect(Collectors.toMap(BatchRiskResultDto::getPatientId, Function.identity()));
+    }
+
+    @Test
+    void testAssessPatients_OneLinePerPatient() throws Exception {
+        // GIVEN: 5 existing patients
+        when(patientRiskService.fetchPatientData(anyInt())).thenAnswer(inv -> new PatientRiskService.PatientData(
+                new PatientDto(inv.getArgument(0), "John", "Doe", LocalDate.of(1980, 5, 10), "M"), List.of()));
+        when(patientRiskService.assess(any(PatientDto.class), any()))
+                .thenAnswer(inv -> new RiskResponseDto(((PatientDto) inv.getArgument(0)).getId(), 44, "None"));
+
+        // WHEN: assessing them in one batch
+        Map<Integer, BatchRiskResultDto> results = run(List.of(1, 2, 3, 4, 5));
+
+        // THEN: every patient has a successful result
+        assertEquals(5, results.size());
+        results.forEach((id, result) -> {
+            assertEquals(200, result.getStatus());
+            assertEquals(id, result.getRisk().getPatientId());
+            assertNull(result.getError());
+        });
+    }
+
+    @Test
+    void testAssessPatients_ErrorsDoNotFailBatch() throws Exception {
+        // GIVEN: patient 2 does not exist and notes of patient 3 cannot be fetched
+        when(patientRiskService.fetchPatientData(anyInt())).thenAnswer(inv -> {
+            int id = inv.getArgument(0);
+            if (id == 2) {
+                throw new PatientNotFoundException(id);
+            }
+            if (id == 3) {
+                throw new NoteServiceException("Error fetching patient notes");
+            }
+            return new PatientRiskService.PatientData(
+                    new PatientDto(id, "Jane", "Doe", LocalDate.of(1990, 1, 1), "F"), List.<NoteDto>of());
+        });
+        when(patientRiskService.assess(any(PatientDto.class), any()))
+                .thenAnswer(inv -> new RiskResponseDto(((PatientDto) inv.getArgument(0)).getId(), 35, "None"));
+
+        // WHEN: assessing the batch
+        Map<Integer, BatchRiskResultDto> results = run(List.of(1, 2, 3));
+
+        // THEN: each patient gets its own status
+        assertEquals(200, results.get(1).getStatus());
+        assertEquals(404, results.get(2).getStatus());
+        assertEquals(502, results.get(3).getStatus());
+        assertEquals("Error fetching patient notes", results.get(3).getError());
+    }
+}
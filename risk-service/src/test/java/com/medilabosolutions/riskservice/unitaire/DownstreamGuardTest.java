@@ -0,0 +1,205 @@
+package com.medilabosolutions.riskservice.unitaire;
+
+import com.medilabosolutions.riskservice.exception.NoteServiceException;
+import com.medilabosolutions.riskservice.resilience.AimdLimiter;
+import com.medilabosolutions.riskservice.resilience.CircuitBreaker;
+import com.medilabosolutions.riskservice.resilience.DownstreamGuard;
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DownstreamGuardTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicLong now = new AtomicLong();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private static final Request REQUEST = Request.create(Request.HttpMethod.GET, "http://note-service/api/notes/patient/1",
+            Map.of(), null, StandardCharsets.UTF_8, null);
+
+    private static Response response(int status) {
+        return Response.builder().request(REQUEST).status(status).headers(Map.of()).build();
+    }
+
+    @Test
+    void testLimiter_AdditiveIncreaseMultiplicativeDecrease() {
+        // GIVEN: a limiter of 4 calls, with a 1 s latency threshold
+        AimdLimiter limiter = new AimdLimiter(4, 2, 6, SECOND, 0.5);
+
+        // WHEN: 4 calls are in flight
+        for (int i = 0; i < 4; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+
+        // THEN: a 5th one is rejected
+        assertFalse(limiter.tryAcquire());
+
+        // WHEN: the 4 calls complete fast, then 4 more
+        for (int i = 0; i < 4; i++) {
+            limiter.release(SECOND / 10, false);
+        }
+        for (int i = 0; i < 4; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+        for (int i = 0; i < 4; i++) {
+            limiter.release(SECOND / 10, false);
+        }
+
+        // THEN: the limit grew by one per full window
+        assertEquals(5, limiter.limit());
+
+        // WHEN: a call is slow, then one fails
+        assertTrue(limiter.tryAcquire());
+        limiter.release(2 * SECOND, false);
+        assertTrue(limiter.tryAcquire());
+        limiter.release(SECOND / 10, true);
+
+        // THEN: the limit is halved each time, down to the minimum
+        assertEquals(2, limiter.limit());
+        assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    void testCircuitBreaker_OpensThenProbes() {
+        // GIVEN: a breaker opening at 50% of failures over 4 calls
+        CircuitBreaker breaker = new CircuitBreaker(4, 4, 50, 10 * SECOND, now::get);
+
+        // WHEN: 2 calls out of 4 fail
+        for (boolean failed : new boolean[]{false, true, false, true}) {
+            long permit = breaker.tryAcquire();
+            assertNotEquals(CircuitBreaker.REJECTED, permit);
+            breaker.record(permit, failed);
+        }
+
+        // THEN: the circuit is open and rejects calls
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertEquals(CircuitBreaker.REJECTED, breaker.tryAcquire());
+
+        // WHEN: the open duration elapses and the probe call fails
+        now.addAndGet(10 * SECOND);
+        long probe = breaker.tryAcquire();
+        assertNotEquals(CircuitBreaker.REJECTED, probe);
+        assertEquals(CircuitBreaker.REJECTED, breaker.tryAcquire());
+        breaker.record(probe, true);
+
+        // THEN: the circuit opens again
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+
+        // WHEN: the next probe call succeeds
+        now.addAndGet(10 * SECOND);
+        probe = breaker.tryAcquire();
+        breaker.record(probe, false);
+
+        // THEN: the circuit is closed with an empty window
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        long permit = breaker.tryAcquire();
+        breaker.record(permit, true);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    void testCircuitBreaker_LateCallDoesNotDecideProbe() {
+        // GIVEN: a breaker opening at the first failure, with a slow call admitted while closed
+        CircuitBreaker breaker = new CircuitBreaker(1, 1, 100, 10 * SECOND, now::get);
+        long slow = breaker.tryAcquire();
+        breaker.record(breaker.tryAcquire(), true);
+        now.addAndGet(10 * SECOND);
+        long probe = breaker.tryAcquire();
+        assertNotEquals(CircuitBreaker.REJECTED, probe);
+
+        // WHEN: the slow call succeeds while the probe is in flight
+        breaker.record(slow, false);
+
+        // THEN: the circuit stays half-open, with its probe still in flight
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+        assertEquals(CircuitBreaker.REJECTED, breaker.tryAcquire());
+
+        // WHEN: the probe fails
+        breaker.record(probe, true);
+
+        // THEN: the circuit opens again
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+    }
+
+    @Test
+    void testGuard_FailsFastWithServiceException() throws IOException {
+        // GIVEN: a note-service failing with 503
+        AtomicInteger calls = new AtomicInteger();
+        Client noteService = (request, options) -> {
+            calls.incrementAndGet();
+            return response(503);
+        };
+        DownstreamGuard guard = new DownstreamGuard("note-service",
+                new CircuitBreaker(2, 2, 100, 10 * SECOND, now::get),
+                new AimdLimiter(2, 1, 2, SECOND, 0.9),
+                NoteServiceException::new, meterRegistry);
+        Client client = guard.wrap(noteService);
+
+        // WHEN: two calls fail
+        assertEquals(503, client.execute(REQUEST, new Request.Options()).status());
+        assertEquals(503, client.execute(REQUEST, new Request.Options()).status());
+
+        // THEN: the next one fails at once, without reaching the service
+        assertThrows(NoteServiceException.class, () -> client.execute(REQUEST, new Request.Options()));
+        assertEquals(2, calls.get());
+        assertEquals(1, meterRegistry.get("risk.downstream.rejections")
+                .tags("client", "note-service", "reason", "circuit_open").counter().count());
+        assertEquals(2, meterRegistry.get("risk.downstream.circuit.state").tag("client", "note-service").gauge().value());
+    }
+
+    @Test
+    void testGuard_RejectsBeyondLimit() throws IOException {
+        // GIVEN: a guard allowing a single call at once, whose call is still in flight
+        DownstreamGuard guard = new DownstreamGuard("note-service",
+                new CircuitBreaker(10, 10, 50, 10 * SECOND, now::get),
+                new AimdLimiter(1, 1, 1, SECOND, 0.9),
+                NoteServiceException::new, meterRegistry);
+        Client[] client = new Client[1];
+        client[0] = guard.wrap((request, options) -> {
+            // WHEN: a second call is made meanwhile
+            // THEN: it is rejected, and the call in flight completes normally
+            assertThrows(NoteServiceException.class, () -> client[0].execute(REQUEST, options));
+            return response(200);
+        });
+
+        assertEquals(200, client[0].execute(REQUEST, new Request.Options()).status());
+        assertEquals(1, meterRegistry.get("risk.downstream.rejections")
+                .tags("client", "note-service", "reason", "limit").counter().count());
+        assertEquals(0, guard.limiter().inFlight());
+    }
+
+    @Test
+    void testGuard_IOExceptionIsFailure() {
+        // GIVEN: a note-service timing out
+        DownstreamGuard guard = new DownstreamGuard("note-service",
+                new CircuitBreaker(1, 1, 100, 10 * SECOND, now::get),
+                new AimdLimiter(4, 1, 4, SECOND, 0.5),
+                NoteServiceException::new, meterRegistry);
+        Client client = guard.wrap((request, options) -> {
+            throw new IOException("Read timed out");
+        });
+
+        // WHEN: a call times out
+        assertThrows(IOException.class, () -> client.execute(REQUEST, new Request.Options()));
+
+        // THEN: the limit shrinks and the circuit opens
+        assertEquals(2, guard.limiter().limit());
+        assertEquals(CircuitBreaker.State.OPEN, guard.circuitBreaker().state());
+    }
+}
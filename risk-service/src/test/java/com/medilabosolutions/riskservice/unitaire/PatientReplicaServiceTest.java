@@ -0,0 +1,141 @@
+package com.medilabosolutions.riskservice.unitaire;
+
+import com.medilabosolutions.riskservice.client.PatientClient;
+import com.medilabosolutions.riskservice.dto.PatientDto;
+import com.medilabosolutions.riskservice.exception.PatientServiceException;
+import com.medilabosolutions.riskservice.replica.PatientReplica;
+import com.medilabosolutions.riskservice.service.PatientReplicaService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class PatientReplicaServiceTest {
+
+    @Mock
+    PatientClient patientClient;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private PatientReplicaService patientReplicaService;
+
+    @BeforeEach
+    void setUp() {
+        patientReplicaService = new PatientReplicaService(patientClient, meterRegistry, true, Duration.ofHours(1));
+    }
+
+    @Test
+    void testReload_ThenFind() {
+        // GIVEN: a patient base of two patients, one born before 1970
+        when(patientClient.getPatientsPage(0, 5000, null, null, null)).thenReturn(List.of(
+                new PatientDto(1, "John", "Doe", LocalDate.of(1950, 2, 28), "M"),
+                new PatientDto(2, "Jane", "Doe", LocalDate.of(2001, 12, 31), "F")));
+
+        // WHEN: loading the replica
+        assertFalse(patientReplicaService.isReady());
+        patientReplicaService.reload();
+
+        // THEN: the demographics of both patients are found locally, without their names
+        assertTrue(patientReplicaService.isReady());
+        assertEquals(Optional.of(new PatientDto(1, null, null, LocalDate.of(1950, 2, 28), "M")),
+                patientReplicaService.find(1));
+        assertEquals(Optional.of(new PatientDto(2, null, null, LocalDate.of(2001, 12, 31), "F")),
+                patientReplicaService.find(2));
+        assertEquals(Optional.empty(), patientReplicaService.find(3));
+        assertEquals(2, meterRegistry.get("risk.replica.lookups").tag("result", "hit").counter().count());
+        assertEquals(1, meterRegistry.get("risk.replica.lookups").tag("result", "miss").counter().count());
+        assertEquals(2, meterRegistry.get("risk.replica.patients").gauge().value());
+    }
+
+    @Test
+    void testReload_SeveralPages() {
+        // GIVEN: a full first page, then a last one
+        List<PatientDto> firstPage = new ArrayList<>();
+        for (int id = 1; id <= 5000; id++) {
+            firstPage.add(new PatientDto(id, null, null, LocalDate.of(1980, 1, 1), "F"));
+        }
+        when(patientClient.getPatientsPage(0, 5000, null, null, null)).thenReturn(firstPage);
+        when(patientClient.getPatientsPage(5000, 5000, null, null, null))
+                .thenReturn(List.of(new PatientDto(5001, null, null, LocalDate.of(1990, 6, 15), "M")));
+
+        // WHEN: loading the replica
+        patientReplicaService.reload();
+
+        // THEN: patients of both pages are replicated
+        assertEquals(LocalDate.of(1980, 1, 1), patientReplicaService.find(5000).orElseThrow().getDateOfBirth());
+        assertEquals("M", patientReplicaService.find(5001).orElseThrow().getGender());
+    }
+
+    @Test
+    void testApply_ReplacesAndRemoves() {
+        // GIVEN: a loaded replica
+        when(patientClient.getPatientsPage(0, 5000, null, null, null))
+                .thenReturn(List.of(new PatientDto(1, "John", "Doe", LocalDate.of(1980, 5, 10), "M")));
+        patientReplicaService.reload();
+
+        // WHEN: the patient's birth date is corrected, then a new patient is added without gender
+        patientReplicaService.apply(new PatientDto(1, "John", "Doe", LocalDate.of(1981, 5, 10), "M"));
+        patientReplicaService.apply(new PatientDto(2, "Jane", "Doe", LocalDate.of(1990, 1, 1), null));
+
+        // THEN: the change is visible, and the incomplete patient is left to remote lookups
+        assertEquals(LocalDate.of(1981, 5, 10), patientReplicaService.find(1).orElseThrow().getDateOfBirth());
+        assertEquals(Optional.empty(), patientReplicaService.find(2));
+    }
+
+    @Test
+    void testFind_NotReady() {
+        // GIVEN: a patient applied before the first load
+        patientReplicaService.apply(new PatientDto(1, "John", "Doe", LocalDate.of(1980, 5, 10), "M"));
+
+        // THEN: nothing is served until the whole base is loaded
+        assertEquals(Optional.empty(), patientReplicaService.find(1));
+    }
+
+    @Test
+    void testReload_Error() {
+        // GIVEN: the patient service fails
+        when(patientClient.getPatientsPage(anyInt(), anyInt(), any(), any(), any()))
+                .thenThrow(new RuntimeException("Service down"));
+
+        // THEN: the failure is reported and the replica stays unused
+        assertThrows(PatientServiceException.class, () -> patientReplicaService.reload());
+        assertFalse(patientReplicaService.isReady());
+    }
+
+    @Test
+    void testPatientReplica_Packing() {
+        // GIVEN: an empty replica
+        PatientReplica replica = new PatientReplica();
+
+        // WHEN: storing patients at the edges of the packing
+        assertTrue(replica.put(0, LocalDate.of(1900, 1, 1), "F"));
+        assertTrue(replica.put(4096, LocalDate.of(2099, 12, 31), "M"));
+        assertFalse(replica.put(PatientReplica.MAX_ID, LocalDate.of(1980, 1, 1), "M"));
+        assertFalse(replica.put(1, LocalDate.of(1980, 1, 1), "MF"));
+
+        // THEN: they are read back unchanged
+        assertEquals(LocalDate.of(1900, 1, 1), PatientReplica.dateOfBirth(replica.get(0)));
+        assertEquals("F", PatientReplica.gender(replica.get(0)));
+        assertEquals(LocalDate.of(2099, 12, 31), PatientReplica.dateOfBirth(replica.get(4096)));
+        assertEquals("M", PatientReplica.gender(replica.get(4096)));
+        assertEquals(0L, replica.get(1));
+        assertEquals(2, replica.size());
+    }
+}
@@ -0,0 +1,152 @@
+package com.medilabosolutions.riskservice.unitaire;
+
+import com.medilabosolutions.riskservice.client.NoteClient;
+import com.medilabosolutions.riskservice.client.PatientClient;
+import com.medilabosolutions.riskservice.dto.NoteDto;
+import com.medilabosolutions.riskservice.dto.PatientDto;
+import com.medilabosolutions.riskservice.dto.RiskResponseDto;
+import com.medilabosolutions.riskservice.exception.NoteServiceException;
+import com.medilabosolutions.riskservice.exception.PatientNotFoundException;
+import com.medilabosolutions.riskservice.exception.PatientServiceException;
+import com.medilabosolutions.riskservice.service.PatientReplicaService;
+import com.medilabosolutions.riskservice.service.PatientRiskService;
+import com.medilabosolutions.riskservice.service.RiskAssessmentServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class PatientRiskServiceTest {
+
+    @Mock
+    PatientClient patientClient;
+
+    @Mock
+    NoteClient noteClient;
+
+    private PatientRiskService patientRiskService;
+
+    private final PatientDto patient = new PatientDto(1, "John", "Doe", LocalDate.of(1980, 5, 10), "M");
+
+    @BeforeEach
+    void setUp() {
+        // GIVEN: a service with short remote call timeouts
+        patientRiskService = new PatientRiskService(patientClient, noteClient, new RiskAssessmentServiceImpl(),
+                null, Duration.ofMillis(500), Duration.ofMillis(500));
+    }
+
+    @Test
+    void testAssessPatient_CallsIssuedConcurrently() {
+        // GIVEN: each remote call only completes once the other one has started
+        CountDownLatch patientStarted = new CountDownLatch(1);
+        CountDownLatch notesStarted = new CountDownLatch(1);
+        when(patientClient.getPatientById(1)).thenAnswer(inv -> {
+            patientStarted.countDown();
+            assertTrue(notesStarted.await(1, TimeUnit.SECONDS));
+            return patient;
+        });
+        when(noteClient.getNotesByPatientId(1)).thenAnswer(inv -> {
+            notesStarted.countDown();
+            assertTrue(patientStarted.await(1, TimeUnit.SECONDS));
+            return List.of(new NoteDto("1", 1, "Fumeur, cholestérol", null, null));
+        });
+
+        // WHEN: assessing the patient
+        RiskResponseDto risk = patientRiskService.assessPatient(1);
+
+        // THEN: both calls overlapped and the risk is computed
+        assertEquals(1, risk.getPatientId());
+        assertEquals("Borderline", risk.getRiskLevel());
+    }
+
+    @Test
+    void testAssessPatient_NoteTimeout() {
+        // GIVEN: the note service answers after the timeout
+        when(patientClient.getPatientById(1)).thenReturn(patient);
+        when(noteClient.getNotesByPatientId(1)).thenAnswer(inv -> {
+            Thread.sleep(2_000);
+            return List.of();
+        });
+
+        // THEN: the timeout is reported as a note service error
+        assertThrows(NoteServiceException.class, () -> patientRiskService.assessPatient(1));
+    }
+
+    @Test
+    void testAssessPatient_PatientTimeout() {
+        // GIVEN: the patient service answers after the timeout
+        when(patientClient.getPatientById(1)).thenAnswer(inv -> {
+            Thread.sleep(2_000);
+            return patient;
+        });
+
+        // THEN: the timeout is reported as a patient service error
+        assertThrows(PatientServiceException.class, () -> patientRiskService.assessPatient(1));
+    }
+
+    @Test
+    void testAssessPatient_PatientNotFoundWinsOverNoteError() {
+        // GIVEN: no patient, and a failing note service
+        when(patientClient.getPatientById(1)).thenReturn(null);
+        lenient().when(noteClient.getNotesByPatientId(1)).thenThrow(new RuntimeException("Notes error"));
+
+        // THEN: the missing patient is reported, as before
+        assertThrows(PatientNotFoundException.class, () -> patientRiskService.assessPatient(1));
+    }
+
+    @Test
+    void testAssessPatient_FromReplica() {
+        // GIVEN: a service backed by a loaded patient replica
+        when(patientClient.getPatientsPage(0, 5000, null, null, null)).thenReturn(List.of(patient));
+        PatientReplicaService replica = new PatientReplicaService(patientClient, new SimpleMeterRegistry(),
+                true, Duration.ofHours(1));
+        replica.reload();
+        PatientRiskService service = new PatientRiskService(patientClient, noteClient,
+                new RiskAssessmentServiceImpl(), replica, Duration.ofSeconds(5), Duration.ofMillis(500));
+        when(noteClient.getNotesByPatientId(1)).thenReturn(List.of(new NoteDto("1", 1, "Fumeur, cholestérol", null, null)));
+
+        // WHEN: assessing the patient
+        RiskResponseDto risk = service.assessPatient(1);
+
+        // THEN: only the notes were fetched remotely
+        assertEquals("Borderline", risk.getRiskLevel());
+        verify(patientClient, never()).getPatientById(1);
+    }
+
+    @Test
+    void testFetchPatient_MissAddedToReplica() {
+        // GIVEN: a loaded replica that does not know the patient yet
+        when(patientClient.getPatientsPage(0, 5000, null, null, null)).thenReturn(List.of());
+        PatientReplicaService replica = new PatientReplicaService(patientClient, new SimpleMeterRegistry(),
+                true, Duration.ofHours(1));
+        replica.reload();
+        PatientRiskService service = new PatientRiskService(patientClient, noteClient,
+                new RiskAssessmentServiceImpl(), replica, Duration.ofSeconds(5), Duration.ofSeconds(5));
+        when(patientClient.getPatientById(1)).thenReturn(patient);
+
+        // WHEN: fetching the patient twice
+        assertEquals(patient, service.fetchPatient(1));
+        service.fetchPatient(1);
+
+        // THEN: the second lookup is served by the replica
+        verify(patientClient).getPatientById(1);
+        assertEquals(patient.getDateOfBirth(), replica.find(1).orElseThrow().getDateOfBirth());
+    }
+}
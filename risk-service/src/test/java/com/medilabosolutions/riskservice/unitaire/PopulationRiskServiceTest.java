@@ -0,0 +1,132 @@
+package com.medilabosolutions.riskservice.unitaire;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.medilabosolutions.riskservice.client.NoteClient;
+import com.medilabosolutions.riskservice.client.PatientClient;
+import com.medilabosolutions.riskservice.dto.NoteDto;
+import com.medilabosolutions.riskservice.dto.PatientDto;
+import com.medilabosolutions.riskservice.dto.PopulationFilterDto;
+import com.medilabosolutions.riskservice.dto.RiskResponseDto;
+import com.medilabosolutions.riskservice.enums.RiskAssessment;
+import com.medilabosolutions.riskservice.exception.NoteServiceException;
+import com.medilabosolutions.riskservice.service.PopulationRiskService;
+import com.medilabosolutions.riskservice.service.RiskAssessmentServiceImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class PopulationRiskServiceTest {
+
+    @Mock
+    PatientClient patientClient;
+
+    @Mock
+    NoteClient noteClient;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private PopulationRiskService populationRiskService;
+
+    @BeforeEach
+    void setUp() {
+        // GIVEN: a scan reading 2 patients per page
+        populationRiskService = new PopulationRiskService(patientClient, noteClient,
+                new RiskAssessmentServiceImpl(), objectMapper, meterRegistry, 2);
+    }
+
+    private static PatientDto patient(int id) {
+        return new PatientDto(id, "John", "Doe", LocalDate.of(1980, 5, 10), "M");
+    }
+
+    private static NoteDto note(int patId, String text) {
+        return new NoteDto(null, patId, text, null, null);
+    }
+
+    private List<RiskResponseDto> scan(PopulationFilterDto filter) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        populationRiskService.scan(filter, out);
+        String body = out.toString(StandardCharsets.UTF_8);
+        if (body.isEmpty()) {
+            return List.of();
+        }
+        return Arrays.stream(body.split("\n"))
+                .map(line -> {
+                    try {
+                        return objectMapper.readValue(line, RiskResponseDto.class);
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                })
+                .toList();
+    }
+
+    @Test
+    void testScan_PagesThroughPopulation() throws Exception {
+        // GIVEN: 3 patients over 2 pages, patient 2 having 2 risk terms
+        when(patientClient.getPatientsPage(0, 2, null, null, null)).thenReturn(List.of(patient(1), patient(2)));
+        when(patientClient.getPatientsPage(2, 2, null, null, null)).thenReturn(List.of(patient(3)));
+        when(patientClient.getPatientsPage(3, 2, null, null, null)).thenReturn(List.of());
+        when(noteClient.getNotesByPatientIds(List.of(1, 2))).thenReturn(List.of(note(2, "Fumeur"), note(2, "Cholestérol")));
+        when(noteClient.getNotesByPatientIds(List.of(3))).thenReturn(List.of());
+
+        // WHEN: scanning without filter
+        List<RiskResponseDto> risks = scan(new PopulationFilterDto());
+
+        // THEN: every patient is written, by increasing id
+        assertEquals(List.of(1, 2, 3), risks.stream().map(RiskResponseDto::getPatientId).toList());
+        assertEquals("Borderline", risks.get(1).getRiskLevel());
+        assertEquals(3, meterRegistry.counter("risk.population.patients", "outcome", "scanned").count());
+    }
+
+    @Test
+    void testScan_Filters() throws Exception {
+        // GIVEN: men aged 30 or more, only patient 2 being at risk
+        when(patientClient.getPatientsPage(eq(0), eq(2), eq("M"), isNull(), any())).thenReturn(List.of(patient(1), patient(2)));
+        when(patientClient.getPatientsPage(eq(2), eq(2), eq("M"), isNull(), any())).thenReturn(List.of());
+        when(noteClient.getNotesByPatientIds(anyList())).thenReturn(List.of(note(2, "Fumeur, cholestérol")));
+
+        // WHEN: scanning for borderline risk or worse
+        List<RiskResponseDto> risks = scan(PopulationFilterDto.builder()
+                .minAge(30)
+                .gender("M")
+                .minRisk(RiskAssessment.RISK_2)
+                .build());
+
+        // THEN: only patient 2 is written
+        assertEquals(1, risks.size());
+        assertEquals(2, risks.get(0).getPatientId());
+        assertEquals(1, meterRegistry.counter("risk.population.patients", "outcome", "written").count());
+    }
+
+    @Test
+    void testScan_NoteServiceError() {
+        // GIVEN: the note service fails
+        when(patientClient.getPatientsPage(anyInt(), anyInt(), any(), any(), any())).thenReturn(List.of(patient(1)));
+        when(noteClient.getNotesByPatientIds(anyList())).thenThrow(new RuntimeException("Notes error"));
+
+        // THEN: the scan is aborted with a note service error
+        assertThrows(NoteServiceException.class, () -> scan(new PopulationFilterDto()));
+    }
+}
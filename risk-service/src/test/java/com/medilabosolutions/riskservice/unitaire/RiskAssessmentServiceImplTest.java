@@ -2,15 +2,22 @@ package com.medilabosolutions.riskservice.unitaire;
 
 import com.medilabosolutions.riskservice.dto.NoteDto;
 import com.medilabosolutions.riskservice.dto.PatientDto;
+import com.medilabosolutions.riskservice.dto.RiskExplanationDto;
+import com.medilabosolutions.riskservice.dto.RiskResponseDto;
+import com.medilabosolutions.riskservice.dto.RiskTimelineEntryDto;
 import com.medilabosolutions.riskservice.enums.RiskAssessment;
 import com.medilabosolutions.riskservice.service.RiskAssessmentServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.List;
 
+import static com.medilabosolutions.riskservice.model.RiskTerms.listRisks;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 public class RiskAssessmentServiceImplTest {
 
@@ -182,4 +189,55 @@ public class RiskAssessmentServiceImplTest {
         assertEquals(40, result.getAge());
         assertEquals(RiskAssessment.RISK_2.getLabel(), result.getRiskLevel());
     }
+
+    @Test
+    void testRiskTimeline_OneEntryPerNoteByDate() {
+        // GIVEN: a man born in 2000 and notes received out of order
+        PatientDto patient = patient("M", 0);
+        patient.setDateOfBirth(LocalDate.of(2000, 1, 1));
+        List<NoteDto> notes = List.of(
+                new NoteDto("n3", 1, "Rechute", Instant.parse("2031-06-01T10:00:00Z"), null),
+                new NoteDto("n1", 1, "Fumeur", Instant.parse("2020-06-01T10:00:00Z"), null),
+                new NoteDto("n2", 1, "Cholestérol, vertiges", Instant.parse("2025-06-01T10:00:00Z"), null));
+
+        // WHEN: computing the risk timeline
+        List<RiskTimelineEntryDto> timeline = riskAssessmentService.riskTimeline(patient, notes);
+
+        // THEN: terms accumulate by note date, each step using the age at that date
+        assertEquals(List.of("n1", "n2", "n3"), timeline.stream().map(RiskTimelineEntryDto::getNoteId).toList());
+        assertEquals(List.of(20, 25, 31), timeline.stream().map(RiskTimelineEntryDto::getAge).toList());
+        assertEquals(List.of(1, 3, 4), timeline.stream().map(RiskTimelineEntryDto::getRiskTermsCount).toList());
+        assertEquals(List.of(RiskAssessment.RISK_1.getLabel(), RiskAssessment.RISK_3.getLabel(), RiskAssessment.RISK_2.getLabel()),
+                timeline.stream().map(RiskTimelineEntryDto::getRiskLevel).toList());
+    }
+
+    @Test
+    void testRiskTimeline_NoNotes() {
+        // WHEN / THEN: a patient without notes has an empty timeline
+        assertEquals(List.of(), riskAssessmentService.riskTimeline(patient("F", 40), List.of()));
+    }
+
+    @Test
+    void testExplainPatientRisk_SameLevelWithOccurrences() {
+        // GIVEN: a 40 year old woman with 2 notes
+        PatientDto patient = patient("F", 40);
+        List<NoteDto> notes = List.of(
+                new NoteDto("n1", 1, "Fumeuse, poids en hausse", null, null),
+                new NoteDto("n2", 1, "Rien à signaler", null, null));
+
+        // WHEN: explaining her risk
+        RiskResponseDto explained = riskAssessmentService.explainPatientRisk(patient, notes);
+
+        // THEN: same risk as the plain assessment, explained by the terms of the first note
+        RiskResponseDto assessed = riskAssessmentService.assessmentPatientRisk(patient, notes);
+        assertEquals(assessed.getRiskLevel(), explained.getRiskLevel());
+        assertEquals(assessed.getAge(), explained.getAge());
+        assertNull(assessed.getExplanation());
+
+        RiskExplanationDto explanation = explained.getExplanation();
+        assertEquals(List.of("n1", "n2"), explanation.getNoteIds());
+        assertEquals(listRisks, explanation.getTerms());
+        assertArrayEquals(new int[]{4, 0, 0, 7, 3, 0, 9, 14}, explanation.getMatches());
+    }
 }
+
@@ -0,0 +1,105 @@
+package com.medilabosolutions.riskservice.unitaire;
+
+import com.medilabosolutions.riskservice.cli.RiskBatchCli;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RiskBatchCliTest {
+
+    @TempDir
+    Path dir;
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    private int run(String... args) {
+        return RiskBatchCli.run(args, new PrintStream(out, true), new PrintStream(err, true));
+    }
+
+    private static String bornYearsAgo(int years) {
+        return LocalDate.now().minusYears(years).toString();
+    }
+
+    @Test
+    void testRun_CsvPatientsAndGzipNotes() throws IOException {
+        // GIVEN: 3 patients in CSV, one of them malformed
+        Path patients = dir.resolve("patients.csv");
+        Files.writeString(patients, String.join("\n",
+                "id,firstName,lastName,dateOfBirth,gender",
+                "1,Jane,Doe," + bornYearsAgo(25) + ",F",
+                "2,\"Doe, John\",Doe," + bornYearsAgo(60) + ",M",
+                "3,Bad,Date,not-a-date,M",
+                ""));
+
+        // GIVEN: their notes in gzip-compressed NDJSON, across small batches
+        Path notes = dir.resolve("notes.ndjson.gz");
+        try (OutputStream gzip = new GZIPOutputStream(Files.newOutputStream(notes))) {
+            gzip.write(String.join("\n",
+                    "{\"id\":\"n1\",\"patId\":1,\"note\":\"Fumeuse\"}",
+                    "{\"id\":\"n2\",\"patId\":2,\"note\":\"Fumeur, cholestérol anormal\",\"extra\":{\"a\":[1]}}",
+                    "",
+                    "{\"id\":\"n3\",\"patId\":2,\"note\":\"Vertiges\"}",
+                    "not json").getBytes(StandardCharsets.UTF_8));
+        }
+        Path output = dir.resolve("risks.csv");
+
+        // WHEN: scoring them
+        int status = run("--patients", patients.toString(), "--notes", notes.toString(),
+                "--output", output.toString(), "--parallelism", "2", "--batch-size", "1");
+
+        // THEN: valid patients are scored in file order, with the throughput printed
+        assertEquals(0, status, err.toString());
+        assertEquals(List.of("patientId,age,riskLevel", "1,25,None", "2,60,Borderline"), Files.readAllLines(output));
+        assertTrue(out.toString().startsWith("Scored 2 patients from 3 notes (2 rejected records)"), out.toString());
+    }
+
+    @Test
+    void testRun_NdjsonPatientsAndCsvNotesWithLineBreaks() throws IOException {
+        // GIVEN: a patient in NDJSON and notes in CSV, one of them spanning several lines
+        Path patients = dir.resolve("patients.jsonl");
+        Files.writeString(patients, "{\"id\":7,\"dateOfBirth\":\"" + bornYearsAgo(40) + "\",\"gender\":\"M\"}\r\n");
+        Path notes = dir.resolve("notes.csv");
+        Files.writeString(notes, String.join("\r\n",
+                "\uFEFFpatId,note",
+                "7,\"Fumeur,\nVertiges\"",
+                "7,\"Taille \"\"normale\"\", rechute\""));
+        Path output = dir.resolve("risks.ndjson.gz");
+
+        // WHEN: scoring them
+        int status = run("--patients", patients.toString(), "--notes", notes.toString(), "--output", output.toString());
+
+        // THEN: the 4 terms are found and the result is written as gzip-compressed NDJSON
+        assertEquals(0, status, err.toString());
+        try (GZIPInputStream in = new GZIPInputStream(Files.newInputStream(output))) {
+            assertEquals("{\"patientId\":7,\"age\":40,\"riskLevel\":\"Borderline\"}\n",
+                    new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void testRun_InvalidUsage() {
+        // WHEN / THEN: missing options, unknown formats and missing files are reported
+        assertEquals(2, run("--patients", "patients.csv"));
+        assertEquals(2, run("--patients", dir.resolve("p.txt").toString(), "--output", dir.resolve("o.csv").toString()));
+        // An unknown output format is reported before the notes are read
+        assertEquals(2, run("--patients", dir.resolve("p.csv").toString(), "--notes", dir.resolve("missing.ndjson").toString(),
+                "--output", dir.resolve("o.txt").toString()));
+        assertEquals(1, run("--patients", dir.resolve("missing.csv").toString(), "--output", dir.resolve("o.csv").toString()));
+        assertEquals(2, run("--patients", "p.csv", "--output", "o.csv", "--batch-size", "0"));
+    }
+}
@@ -0,0 +1,112 @@
+package com.medilabosolutions.riskservice.unitaire;
+
+import com.medilabosolutions.riskservice.dto.NoteDto;
+import com.medilabosolutions.riskservice.dto.NoteEventDto;
+import com.medilabosolutions.riskservice.dto.PatientDto;
+import com.medilabosolutions.riskservice.dto.RiskQueryResultDto;
+import com.medilabosolutions.riskservice.enums.NoteEventType;
+import com.medilabosolutions.riskservice.exception.PatientNotFoundException;
+import com.medilabosolutions.riskservice.service.PatientRiskService;
+import com.medilabosolutions.riskservice.service.PopulationRiskService;
+import com.medilabosolutions.riskservice.service.RiskAssessmentServiceImpl;
+import com.medilabosolutions.riskservice.service.RiskIndexService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class RiskIndexServiceTest {
+
+    @Mock
+    PopulationRiskService populationRiskService;
+
+    @Mock
+    PatientRiskService patientRiskService;
+
+    private RiskIndexService riskIndexService;
+
+    private final PatientDto young = new PatientDto(1, "Jane", "Doe", LocalDate.now().minusYears(25), "F");
+    private final PatientDto old = new PatientDto(2, "John", "Doe", LocalDate.now().minusYears(60), "M");
+
+    @BeforeEach
+    void setUp() throws Exception {
+        riskIndexService = new RiskIndexService(populationRiskService, patientRiskService,
+                new RiskAssessmentServiceImpl(), new SimpleMeterRegistry(), false, Duration.ofHours(6));
+
+        // GIVEN: a patient base of 2 smokers, the oldest one with abnormal cholesterol
+        doAnswer(invocation -> {
+            PopulationRiskService.PageConsumer consumer = invocation.getArgument(3);
+            consumer.accept(new PopulationRiskService.Page(List.of(young, old), Map.of(
+                    1, List.of(note(1, "Fumeuse")),
+                    2, List.of(note(2, "Fumeur"), note(2, "Cholestérol anormal")))));
+            return null;
+        }).when(populationRiskService).forEachPage(isNull(), isNull(), isNull(), any());
+    }
+
+    private static NoteDto note(int patId, String text) {
+        return new NoteDto(null, patId, text, null, null);
+    }
+
+    @Test
+    void testRebuild_FirstBuild() throws Exception {
+        // GIVEN: a note event received before the first build
+        riskIndexService.applyNoteEvent(new NoteEventDto(NoteEventType.CREATED, 1, "n1", "Vertiges"));
+
+        // THEN: the index cannot be queried until it is built
+        assertFalse(riskIndexService.isReady());
+        riskIndexService.rebuild();
+        assertTrue(riskIndexService.isReady());
+    }
+
+    @Test
+    void testQuery_AfterRebuild() throws Exception {
+        // WHEN: the index is built
+        riskIndexService.rebuild();
+
+        // THEN: terms are given in any spelling, with age and gender filters
+        assertTrue(riskIndexService.isReady());
+        assertEquals(new RiskQueryResultDto(2, List.of(1, 2)), riskIndexService.query("fumer", null, null, null, 10));
+        assertEquals(new RiskQueryResultDto(1, List.of(2)),
+                riskIndexService.query("Fumeur AND Cholestérol AND anormale", null, null, null, 10));
+        assertEquals(new RiskQueryResultDto(1, List.of(1)),
+                riskIndexService.query("fumeur AND NOT cholesterol", null, 30, "F", 10));
+        assertEquals(new RiskQueryResultDto(2, List.of(1)), riskIndexService.query(null, null, null, null, 1));
+        assertThrows(IllegalArgumentException.class, () -> riskIndexService.query("diabete", null, null, null, 10));
+    }
+
+    @Test
+    void testApplyNoteEvent_KeepsIndexCurrent() throws Exception {
+        // GIVEN: a built index
+        riskIndexService.rebuild();
+
+        // WHEN: the young patient gets a note about vertigo
+        riskIndexService.applyNoteEvent(new NoteEventDto(NoteEventType.CREATED, 1, "n1", "Vertiges fréquents"));
+
+        // THEN: the patient matches without any remote call
+        assertEquals(List.of(1), riskIndexService.query("vertige", null, null, null, 10).getPatientIds());
+
+        // WHEN: the old patient is deleted
+        when(patientRiskService.fetchPatientData(2)).thenThrow(new PatientNotFoundException(2));
+        riskIndexService.applyNoteEvent(new NoteEventDto(NoteEventType.DELETED, 2, "n2", null));
+
+        // THEN: the patient is no longer indexed
+        assertEquals(List.of(1), riskIndexService.query("fumeur", null, null, null, 10).getPatientIds());
+    }
+}
@@ -0,0 +1,147 @@
+package com.medilabosolutions.riskservice.unitaire;
+
+import com.medilabosolutions.riskservice.cache.RiskResultCache;
+import com.medilabosolutions.riskservice.dto.RiskResponseDto;
+import com.medilabosolutions.riskservice.exception.NoteServiceException;
+import com.medilabosolutions.riskservice.exception.PatientNotFoundException;
+import com.medilabosolutions.riskservice.service.RiskStoreService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class RiskResultCacheTest {
+
+    @Mock
+    RiskStoreService riskStoreService;
+
+    private final AtomicLong now = new AtomicLong();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private RiskResultCache riskResultCache;
+
+    private final RiskResponseDto oldRisk = new RiskResponseDto(1, 44, "None");
+    private final RiskResponseDto newRisk = new RiskResponseDto(1, 44, "Borderline");
+
+    @BeforeEach
+    void setUp() {
+        // GIVEN: entries refreshed after 1 minute and kept 1 hour, on a manual clock
+        riskResultCache = new RiskResultCache(riskStoreService, meterRegistry, 100,
+                Duration.ofMinutes(1), Duration.ofHours(1), now::get);
+    }
+
+    private double requests(String result) {
+        return meterRegistry.counter("risk.cache.requests", "result", result).count();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Condition not met in time");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void testGet_MissThenHit() {
+        // GIVEN: a patient assessed once
+        when(riskStoreService.getRisk(1)).thenReturn(oldRisk);
+
+        // WHEN: requesting their risk twice
+        RiskResponseDto first = riskResultCache.get(1);
+        RiskResponseDto second = riskResultCache.get(1);
+
+        // THEN: the second request is served from the cache
+        assertSame(oldRisk, first);
+        assertSame(oldRisk, second);
+        verify(riskStoreService, times(1)).getRisk(1);
+        assertEquals(1, requests("miss"));
+        assertEquals(1, requests("hit"));
+    }
+
+    @Test
+    void testGet_StaleServedWhileRefreshing() throws InterruptedException {
+        // GIVEN: a cached risk older than the refresh delay
+        when(riskStoreService.getRisk(1)).thenReturn(oldRisk, newRisk);
+        riskResultCache.get(1);
+        now.addAndGet(Duration.ofMinutes(2).toNanos());
+
+        // WHEN: requesting the risk again
+        RiskResponseDto stale = riskResultCache.get(1);
+
+        // THEN: the stale value is returned at once, then replaced by the refreshed one
+        assertSame(oldRisk, stale);
+        assertEquals(1, requests("stale"));
+        await(() -> riskResultCache.get(1) == newRisk);
+    }
+
+    @Test
+    void testGet_StaleKeptWhenRefreshFails() throws InterruptedException {
+        // GIVEN: a stale cached risk, and a note service now failing
+        when(riskStoreService.getRisk(1))
+                .thenReturn(oldRisk)
+                .thenThrow(new NoteServiceException("Error fetching patient notes"));
+        riskResultCache.get(1);
+        now.addAndGet(Duration.ofMinutes(2).toNanos());
+
+        // WHEN: the background refresh fails
+        riskResultCache.get(1);
+        await(() -> meterRegistry.counter("risk.cache.refresh.failures").count() == 1);
+
+        // THEN: the stale value is still served
+        assertSame(oldRisk, riskResultCache.get(1));
+    }
+
+    @Test
+    void testGet_ExpiredEntryRecomputed() {
+        // GIVEN: a cached risk older than the expiration delay
+        when(riskStoreService.getRisk(1)).thenReturn(oldRisk, newRisk);
+        riskResultCache.get(1);
+        now.addAndGet(Duration.ofHours(2).toNanos());
+
+        // WHEN / THEN: the risk is recomputed before being returned
+        assertSame(newRisk, riskResultCache.get(1));
+        assertEquals(2, requests("miss"));
+    }
+
+    @Test
+    void testInvalidate_ForcesRecompute() {
+        // GIVEN: a cached risk
+        when(riskStoreService.getRisk(1)).thenReturn(oldRisk, newRisk);
+        riskResultCache.get(1);
+
+        // WHEN: the patient is invalidated
+        riskResultCache.invalidate(1);
+
+        // THEN: the next request recomputes the risk
+        assertSame(newRisk, riskResultCache.get(1));
+        verify(riskStoreService, times(2)).getRisk(1);
+    }
+
+    @Test
+    void testGet_MissPropagatesErrors() {
+        // GIVEN: an unknown patient
+        when(riskStoreService.getRisk(1)).thenThrow(new PatientNotFoundException(1));
+
+        // THEN: the error reaches the caller and nothing is cached
+        assertThrows(PatientNotFoundException.class, () -> riskResultCache.get(1));
+        assertThrows(PatientNotFoundException.class, () -> riskResultCache.get(1));
+        verify(riskStoreService, times(2)).getRisk(1);
+    }
+}
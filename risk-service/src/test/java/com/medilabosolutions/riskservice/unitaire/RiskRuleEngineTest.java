@@ -0,0 +1,111 @@
+package com.medilabosolutions.riskservice.unitaire;
+
+import com.medilabosolutions.riskservice.enums.RiskAssessment;
+import com.medilabosolutions.riskservice.rules.RiskRule;
+import com.medilabosolutions.riskservice.rules.RiskRuleEngine;
+import com.medilabosolutions.riskservice.rules.RiskRuleTable;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class RiskRuleEngineTest {
+
+    private RiskRuleEngine riskRuleEngine;
+
+    @BeforeEach
+    void setUp() {
+        // GIVEN: an engine loaded with the default decision table
+        riskRuleEngine = RiskRuleEngine.withDefaultRules();
+    }
+
+    // Reference implementation: the historical hand-written rules
+    private RiskAssessment legacyRisk(int age, String gender, int count) {
+        if (count == 0) {
+            return RiskAssessment.RISK_1;
+        }
+        if (age > 30) {
+            if (count >= 2 && count <= 5) return RiskAssessment.RISK_2;
+            if (count == 6 || count == 7) return RiskAssessment.RISK_3;
+            if (count >= 8) return RiskAssessment.RISK_4;
+        }
+        if (age < 30) {
+            if ("M".equals(gender)) {
+                if (count == 3) return RiskAssessment.RISK_3;
+                if (count >= 5) return RiskAssessment.RISK_4;
+            } else {
+                if (count == 4) return RiskAssessment.RISK_3;
+                if (count >= 7) return RiskAssessment.RISK_4;
+            }
+        }
+        return RiskAssessment.RISK_1;
+    }
+
+    @Test
+    void testDefaultTable_SameLabelsAsLegacyRules() {
+        RiskRuleTable table = riskRuleEngine.currentTable();
+
+        // THEN: every age, gender and term count gets the historical label, gaps included
+        for (int age = -2; age <= 120; age++) {
+            for (String gender : new String[]{"M", "F", null, "X"}) {
+                for (int count = 0; count <= 11; count++) {
+                    assertEquals(legacyRisk(age, gender, count), table.classify(age, gender, count),
+                            "age=" + age + " gender=" + gender + " count=" + count);
+                }
+            }
+        }
+        assertEquals(8, table.saturationCount());
+    }
+
+    @Test
+    void testAge30_Count1_FallsThroughToNone() {
+        // THEN: the historical gaps are kept
+        assertEquals(RiskAssessment.RISK_1, riskRuleEngine.currentTable().classify(30, "M", 9));
+        assertEquals(RiskAssessment.RISK_1, riskRuleEngine.currentTable().classify(45, "F", 1));
+    }
+
+    @Test
+    void testTransitionAges() {
+        // THEN: the default outcome changes at 30 (no rule matches) and at 31 (over 30 rules)
+        assertArrayEquals(new int[]{30, 31}, riskRuleEngine.currentTable().transitionAges());
+
+        // THEN: a threshold whose bands give the same outcome is not a transition
+        RiskRuleTable flat = RiskRuleTable.compile(List.of(
+                RiskRule.parse("<40,*,1,,RISK_2"),
+                RiskRule.parse("=40,*,1,,RISK_2"),
+                RiskRule.parse(">40,*,1,,RISK_2")));
+        assertArrayEquals(new int[]{}, flat.transitionAges());
+    }
+
+    @Test
+    void testReplaceRules_SwapsTable() {
+        // GIVEN: a table captured before the swap
+        RiskRuleTable before = riskRuleEngine.currentTable();
+
+        // WHEN: replacing the rules
+        riskRuleEngine.replaceRules(List.of(RiskRule.parse("*,*,1,,RISK_2")));
+
+        // THEN: new lookups use the new table, the captured one is unchanged
+        assertEquals(RiskAssessment.RISK_2, riskRuleEngine.currentTable().classify(30, "F", 1));
+        assertEquals(RiskAssessment.RISK_1, before.classify(30, "F", 1));
+        assertEquals(1, riskRuleEngine.currentTable().saturationCount());
+    }
+
+    @Test
+    void testRuleCsv_RoundTrip() {
+        // THEN: parsing then formatting a rule gives the same line
+        assertEquals("<30,M,5,,RISK_4", RiskRule.parse("<30,M,5,,RISK_4").toCsv());
+        assertEquals(">30,*,2,5,RISK_2", RiskRule.parse(" >30 , * , 2 , 5 , RISK_2 ").toCsv());
+    }
+
+    @Test
+    void testInvalidRule_Rejected() {
+        assertThrows(IllegalArgumentException.class, () -> RiskRule.parse("30,M,5,,RISK_4"));
+        assertThrows(IllegalArgumentException.class, () -> RiskRule.parse(">30,M,5,2,RISK_4"));
+        assertThrows(IllegalArgumentException.class, () -> RiskRule.parse(">30,M,5,,RISK_9"));
+    }
+}
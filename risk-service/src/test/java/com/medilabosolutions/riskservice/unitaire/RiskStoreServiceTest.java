@@ -0,0 +1,184 @@
+package com.medilabosolutions.riskservice.unitaire;
+
+import com.medilabosolutions.riskservice.client.NoteClient;
+import com.medilabosolutions.riskservice.client.PatientClient;
+import com.medilabosolutions.riskservice.dto.NoteDto;
+import com.medilabosolutions.riskservice.dto.NoteEventDto;
+import com.medilabosolutions.riskservice.dto.PatientDto;
+import com.medilabosolutions.riskservice.dto.RiskResponseDto;
+import com.medilabosolutions.riskservice.enums.NoteEventType;
+import com.medilabosolutions.riskservice.exception.NoteServiceException;
+import com.medilabosolutions.riskservice.model.PatientRisk;
+import com.medilabosolutions.riskservice.repository.RiskRepository;
+import com.medilabosolutions.riskservice.service.PatientRiskService;
+import com.medilabosolutions.riskservice.service.RiskAssessmentServiceImpl;
+import com.medilabosolutions.riskservice.service.RiskStoreService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class RiskStoreServiceTest {
+
+    @Mock
+    PatientClient patientClient;
+
+    @Mock
+    NoteClient noteClient;
+
+    @Mock
+    RiskRepository riskRepository;
+
+    private final Map<Integer, PatientRisk> rows = new HashMap<>();
+
+    private final RiskAssessmentServiceImpl riskAssessmentService = new RiskAssessmentServiceImpl();
+
+    private RiskStoreService riskStoreService;
+
+    private final PatientDto patient = new PatientDto(1, "John", "Doe", LocalDate.of(1980, 5, 10), "M");
+
+    @BeforeEach
+    void setUp() {
+        // GIVEN: a store backed by an in-memory map
+        lenient().when(riskRepository.findById(anyInt()))
+                .thenAnswer(inv -> Optional.ofNullable(rows.get((Integer) inv.getArgument(0))));
+        lenient().when(riskRepository.save(any(PatientRisk.class))).thenAnswer(inv -> {
+            PatientRisk row = inv.getArgument(0);
+            rows.put(row.getPatientId(), row);
+            return row;
+        });
+        lenient().doAnswer(inv -> rows.remove((Integer) inv.getArgument(0)))
+                .when(riskRepository).deleteById(anyInt());
+
+        riskStoreService = new RiskStoreService(riskRepository,
+                new PatientRiskService(patientClient, noteClient, riskAssessmentService),
+                riskAssessmentService, Duration.ofHours(24));
+    }
+
+    private static NoteDto note(String text) {
+        return new NoteDto(null, 1, text, null, null);
+    }
+
+    private static NoteEventDto event(NoteEventType type, String text) {
+        return NoteEventDto.builder().type(type).patId(1).noteId("n").note(text).build();
+    }
+
+    @Test
+    void testGetRisk_MaterializedOnce() {
+        // GIVEN: a patient with one risk term
+        when(patientClient.getPatientById(1)).thenReturn(patient);
+        when(noteClient.getNotesByPatientId(1)).thenReturn(List.of(note("Fumeur")));
+
+        // WHEN: requesting the risk twice
+        RiskResponseDto first = riskStoreService.getRisk(1);
+        RiskResponseDto second = riskStoreService.getRisk(1);
+
+        // THEN: the remote services are called once, the second request is a store lookup
+        assertEquals(first, second);
+        assertEquals("None", second.getRiskLevel());
+        verify(patientClient, times(1)).getPatientById(1);
+        verify(noteClient, times(1)).getNotesByPatientId(1);
+        assertEquals(1, Long.bitCount(rows.get(1).getMatchedTerms()));
+    }
+
+    @Test
+    void testApplyNoteEvent_CreatedMergedWithoutRemoteCall() {
+        // GIVEN: a stored patient with one risk term
+        when(patientClient.getPatientById(1)).thenReturn(patient);
+        when(noteClient.getNotesByPatientId(1)).thenReturn(List.of(note("Fumeur")));
+        riskStoreService.getRisk(1);
+
+        // WHEN: a note with another risk term is added
+        riskStoreService.applyNoteEvent(event(NoteEventType.CREATED, "Cholestérol élevé"));
+
+        // THEN: only the new note is scanned, and the risk reflects both terms
+        assertEquals("Borderline", riskStoreService.getRisk(1).getRiskLevel());
+        assertEquals("Borderline", rows.get(1).getRiskLevel());
+        assertEquals(1, rows.get(1).getNotesVersion());
+        verify(noteClient, times(1)).getNotesByPatientId(1);
+    }
+
+    @Test
+    void testApplyNoteEvent_MergeMatchesFullComputation() {
+        // GIVEN: notes added one by one
+        List<NoteDto> notes = List.of(note("Taille, Poids"), note("Vertiges et rechute"), note("Anormale"));
+        when(patientClient.getPatientById(1)).thenReturn(patient);
+        when(noteClient.getNotesByPatientId(1)).thenReturn(List.of(notes.get(0)));
+        riskStoreService.getRisk(1);
+
+        // WHEN: the other notes are created
+        riskStoreService.applyNoteEvent(event(NoteEventType.CREATED, notes.get(1).getNote()));
+        riskStoreService.applyNoteEvent(event(NoteEventType.CREATED, notes.get(2).getNote()));
+
+        // THEN: the stored terms are those of a full scan of all the notes
+        assertEquals(riskAssessmentService.matchedTerms(notes), rows.get(1).getMatchedTerms());
+        assertEquals(riskAssessmentService.assessmentPatientRisk(patient, notes), riskStoreService.getRisk(1));
+    }
+
+    @Test
+    void testApplyNoteEvent_DeletedRecomputed() {
+        // GIVEN: a stored patient, whose risk note is then deleted
+        when(patientClient.getPatientById(1)).thenReturn(patient);
+        when(noteClient.getNotesByPatientId(1))
+                .thenReturn(List.of(note("Fumeur"), note("Cholestérol")))
+                .thenReturn(List.of(note("Fumeur")));
+        assertEquals("Borderline", riskStoreService.getRisk(1).getRiskLevel());
+
+        // WHEN: the deletion event is applied
+        riskStoreService.applyNoteEvent(event(NoteEventType.DELETED, null));
+
+        // THEN: the risk is recomputed from the remaining notes
+        assertEquals("None", riskStoreService.getRisk(1).getRiskLevel());
+        verify(noteClient, times(2)).getNotesByPatientId(1);
+    }
+
+    @Test
+    void testApplyNoteEvent_FailedRecomputationRemovesStoredRisk() {
+        // GIVEN: a stored patient, whose risk note is then deleted while the note service fails
+        when(patientClient.getPatientById(1)).thenReturn(patient);
+        when(noteClient.getNotesByPatientId(1))
+                .thenReturn(List.of(note("Fumeur"), note("Cholestérol")))
+                .thenThrow(new RuntimeException("Notes error"))
+                .thenReturn(List.of(note("Fumeur")));
+        assertEquals("Borderline", riskStoreService.getRisk(1).getRiskLevel());
+
+        // WHEN: the deletion event cannot be applied
+        assertThrows(NoteServiceException.class,
+                () -> riskStoreService.applyNoteEvent(event(NoteEventType.DELETED, null)));
+
+        // THEN: the stale risk is removed, and the next request recomputes it
+        assertFalse(rows.containsKey(1));
+        assertEquals("None", riskStoreService.getRisk(1).getRiskLevel());
+        verify(noteClient, times(3)).getNotesByPatientId(1);
+    }
+
+    @Test
+    void testApplyNoteEvent_UnknownPatientIgnored() {
+        // WHEN: a note is added for a patient never assessed
+        riskStoreService.applyNoteEvent(event(NoteEventType.CREATED, "Fumeur"));
+
+        // THEN: nothing is stored, the patient will be computed on first request
+        assertTrue(rows.isEmpty());
+    }
+}
@@ -0,0 +1,105 @@
+package com.medilabosolutions.riskservice.unitaire;
+
+import com.medilabosolutions.riskservice.index.RiskTermIndex;
+import com.medilabosolutions.riskservice.index.TermQuery;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class RiskTermIndexTest {
+
+    // Terms of the tests: 0 = fumeur, 1 = cholesterol, 2 = vertige
+    private static final Map<String, Integer> TERMS = Map.of("fumeur", 0, "cholesterol", 1, "vertige", 2);
+    private static final long FUMEUR = 1L;
+    private static final long CHOLESTEROL = 1L << 1;
+    private static final long VERTIGE = 1L << 2;
+
+    private RiskTermIndex index;
+
+    @BeforeEach
+    void setUp() {
+        // GIVEN: 4 indexed patients
+        index = new RiskTermIndex(3);
+        index.put(1, LocalDate.of(1980, 5, 10), "M", FUMEUR | CHOLESTEROL);
+        index.put(2, LocalDate.of(1999, 12, 31), "F", FUMEUR);
+        index.put(3, LocalDate.of(2000, 1, 1), "M", FUMEUR | CHOLESTEROL | VERTIGE);
+        index.put(4, LocalDate.of(2000, 6, 15), "F", 0L);
+    }
+
+    private static TermQuery parse(String query) {
+        return TermQuery.parse(query, term -> {
+            Integer index = TERMS.get(term.toLowerCase());
+            if (index == null) {
+                throw new IllegalArgumentException("Unknown risk term: " + term);
+            }
+            return index;
+        });
+    }
+
+    private int[] query(String query, LocalDate bornFrom, LocalDate bornTo, String gender) {
+        return index.query(query == null ? null : parse(query), bornFrom, bornTo, gender).toArray();
+    }
+
+    @Test
+    void testQuery_BooleanOperators() {
+        // WHEN / THEN: NOT binds tighter than AND, itself tighter than OR
+        assertArrayEquals(new int[]{1, 3}, query("fumeur AND cholesterol", null, null, null));
+        assertArrayEquals(new int[]{1}, query("fumeur AND cholesterol AND NOT vertige", null, null, null));
+        assertArrayEquals(new int[]{1, 2, 3}, query("vertige OR fumeur and not vertige", null, null, null));
+        assertArrayEquals(new int[]{2, 4}, query("NOT (cholesterol OR vertige)", null, null, null));
+        assertArrayEquals(new int[]{4}, query("not fumeur", null, null, null));
+    }
+
+    @Test
+    void testQuery_DemographicFilters() {
+        // WHEN / THEN: birth date bounds are inclusive, including across year boundaries
+        assertArrayEquals(new int[]{2, 3}, query(null, LocalDate.of(1999, 12, 31), LocalDate.of(2000, 1, 1), null));
+        assertArrayEquals(new int[]{3, 4}, query(null, LocalDate.of(2000, 1, 1), null, null));
+        assertArrayEquals(new int[]{1, 2}, query(null, null, LocalDate.of(1999, 12, 31), null));
+        assertArrayEquals(new int[]{1, 2, 3, 4}, query(null, LocalDate.of(1970, 1, 1), LocalDate.of(2010, 1, 1), null));
+        assertArrayEquals(new int[]{}, query(null, LocalDate.of(2001, 1, 1), LocalDate.of(2000, 1, 1), null));
+        assertArrayEquals(new int[]{3}, query("fumeur", LocalDate.of(1990, 1, 1), null, "M"));
+    }
+
+    @Test
+    void testPut_ReplacesPatient() {
+        // WHEN: patient 1 is indexed again with other demographics and terms
+        index.put(1, LocalDate.of(2005, 3, 1), "F", VERTIGE);
+
+        // THEN: the old values no longer match
+        assertEquals(4, index.size());
+        assertArrayEquals(new int[]{3}, query("cholesterol", null, null, null));
+        assertArrayEquals(new int[]{1, 3}, query("vertige", null, null, null));
+        assertArrayEquals(new int[]{1, 2, 4}, query(null, null, null, "F"));
+        assertArrayEquals(new int[]{}, query(null, LocalDate.of(1980, 5, 10), LocalDate.of(1980, 5, 10), null));
+    }
+
+    @Test
+    void testAddTermsAndRemove() {
+        // WHEN: patient 4 gets a new term, patient 3 is removed
+        index.addTerms(4, VERTIGE);
+        index.remove(3);
+
+        // THEN: the index reflects both changes, and unknown patients are ignored
+        assertArrayEquals(new int[]{4}, query("vertige", null, null, null));
+        assertArrayEquals(new int[]{1, 2, 4}, query(null, null, null, null));
+        assertFalse(index.addTerms(99, FUMEUR));
+        assertFalse(index.remove(3));
+    }
+
+    @Test
+    void testParse_InvalidQueries() {
+        // WHEN / THEN: malformed queries and unknown terms are rejected
+        for (String query : List.of("", "fumeur AND", "(fumeur", "fumeur )", "AND fumeur", "fumeur cholesterol", "diabete", "\"fumeur")) {
+            assertThrows(IllegalArgumentException.class, () -> parse(query), query);
+        }
+    }
+}
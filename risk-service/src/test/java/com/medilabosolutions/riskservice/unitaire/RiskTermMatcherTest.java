@@ -0,0 +1,237 @@
+package com.medilabosolutions.riskservice.unitaire;
+
+import com.medilabosolutions.riskservice.matcher.RiskTermMatcher;
+import com.medilabosolutions.riskservice.matcher.TermMatches;
+import com.medilabosolutions.riskservice.matcher.TextNormalizer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static com.medilabosolutions.riskservice.model.RiskTerms.listRisks;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RiskTermMatcherTest {
+
+    private final RiskTermMatcher matcher = RiskTermMatcher.compile(listRisks);
+
+    // Reference implementation: one regex scan per term
+    private long regexMatchedTerms(String text) {
+        long found = 0L;
+        for (int i = 0; i < listRisks.size(); i++) {
+            if (Pattern.compile(listRisks.get(i)).matcher(text).find()) {
+                found |= 1L << i;
+            }
+        }
+        return found;
+    }
+
+    @Test
+    void testRegexVariants_AllMatched() {
+        // GIVEN: each variant of the regex-style terms
+        List<String> texts = List.of("fumeur", "fumeuse", "fumer", "anormal", "anormale", "vertiges", "rechutes", "reactions");
+
+        // THEN: the automaton finds the same terms as the regex
+        for (String text : texts) {
+            assertEquals(regexMatchedTerms(text), matcher.matchedTerms(text), text);
+            assertEquals(1, matcher.countTerms(text), text);
+        }
+    }
+
+    @Test
+    void testOverlappingTerms_CountedOnce() {
+        // GIVEN: terms repeated and overlapping inside words
+        String text = "fumeuse fumer fumeur, poidspoids taille anticorps anticorps";
+
+        // WHEN: counting terms
+        int count = matcher.countTerms(text);
+
+        // THEN: each distinct term counts once
+        assertEquals(4, count);
+    }
+
+    @Test
+    void testPartialTerm_NotMatched() {
+        // GIVEN: text containing only prefixes of terms
+        String text = "fume hemoglobine a1 microalbumin anticorp";
+
+        // THEN: no term is found
+        assertEquals(0, matcher.countTerms(text));
+    }
+
+    @Test
+    void testRandomTexts_SameResultAsRegex() {
+        // GIVEN: random texts built from term fragments
+        String[] fragments = {"fum", "eur", "euse", "er", "anormal", "e", "hemoglobine", " a1c", "poid", "s",
+                "taille", "vertige", "rechute", "reaction", "cholesterol", "micro", "albumine", "anticorps", " ", "x"};
+        Random random = new Random(42);
+
+        for (int run = 0; run < 2_000; run++) {
+            StringBuilder text = new StringBuilder();
+            int parts = random.nextInt(12);
+            for (int i = 0; i < parts; i++) {
+                text.append(fragments[random.nextInt(fragments.length)]);
+            }
+
+            // THEN: the automaton agrees with the per-term regex scan
+            assertEquals(regexMatchedTerms(text.toString()), matcher.matchedTerms(text), text.toString());
+        }
+    }
+
+    @Test
+    void testUnsupportedPattern_Rejected() {
+        // THEN: regex constructs that cannot be expanded to literals are rejected
+        assertThrows(IllegalArgumentException.class, () -> RiskTermMatcher.compile(List.of("fum.*")));
+        assertThrows(IllegalArgumentException.class, () -> RiskTermMatcher.compile(List.of("(?:fum")));
+    }
+
+    @Test
+    void testScan_TermSpanningTwoNotes() {
+        // GIVEN: a term split across two notes with blanks around the boundary
+        RiskTermMatcher.Scan scan = matcher.newScan(matcher.termCount());
+
+        // WHEN: feeding the notes one by one
+        scan.feed("Taux d'Hémoglobine  ").feed("\t A1C stable");
+
+        // THEN: the term is found, as in the joined text "...hemoglobine a1c stable"
+        assertEquals(1, scan.matchedCount());
+    }
+
+    @Test
+    void testScan_StopsWhenSaturated() {
+        // GIVEN: a scan saturating after 2 terms
+        RiskTermMatcher.Scan scan = matcher.newScan(2);
+
+        // WHEN: the first note already contains 2 terms
+        scan.feed("poids taille").feed("cholesterol vertige");
+
+        // THEN: the scan is saturated and later notes are ignored
+        assertTrue(scan.isSaturated());
+        assertEquals(2, scan.matchedCount());
+    }
+
+    @Test
+    void testScan_SameResultAsJoinedNormalizedNotes() {
+        // GIVEN: random notes with accents, case and blanks around term fragments
+        String[] fragments = {"Fum", "eur", "éuse", "er", "ANORMAL", "e", "Hémoglobine", " ", "a1c", "A1C", "poids",
+                "Taille", "vertige", "réaction", "Cholestérol", "\n", "\t", "  ", "ΣΟΦΟΣ", "x"};
+        Random random = new Random(11);
+
+        for (int run = 0; run < 2_000; run++) {
+            List<String> notes = new ArrayList<>();
+            int noteCount = 1 + random.nextInt(5);
+            for (int n = 0; n < noteCount; n++) {
+                StringBuilder note = new StringBuilder();
+                int parts = random.nextInt(6);
+                for (int i = 0; i < parts; i++) {
+                    note.append(fragments[random.nextInt(fragments.length)]);
+                }
+                notes.add(note.toString());
+            }
+
+            // WHEN: scanning note by note
+            RiskTermMatcher.Scan scan = matcher.newScan(matcher.termCount());
+            notes.forEach(scan::feed);
+
+            // THEN: same terms as scanning the normalized notes joined with a space
+            String joined = notes.stream().map(TextNormalizer::normalize).collect(Collectors.joining(" "));
+            assertEquals(matcher.matchedTerms(joined), scan.matchedTerms(), notes.toString());
+        }
+    }
+
+    @Test
+    void testVectorized_SameResultAsScalar() {
+        // GIVEN: the same terms compiled with and without the Vector API
+        RiskTermMatcher vectorized = RiskTermMatcher.compile(listRisks, true);
+        RiskTermMatcher scalar = RiskTermMatcher.compile(listRisks, false);
+        assertTrue(vectorized.isVectorized());
+        assertFalse(scalar.isVectorized());
+
+        // GIVEN: long random notes, mostly filler around a few terms, accents, case and blanks
+        String[] fragments = {"Le patient ", "déclare ", "RAS. ", "Fumeur", "Réaction", "poids", "Taille ",
+                "anticorps", "Hémoglobine A1C", "\n", "\t ", "xyzw ", "ΣΟΦΟΣ", "œdème ", "1234 ", "VERTIGES", "e"};
+        Random random = new Random(7);
+
+        for (int run = 0; run < 500; run++) {
+            List<String> notes = new ArrayList<>();
+            int noteCount = 1 + random.nextInt(4);
+            for (int n = 0; n < noteCount; n++) {
+                StringBuilder note = new StringBuilder();
+                int parts = random.nextInt(80);
+                for (int i = 0; i < parts; i++) {
+                    note.append(fragments[random.nextInt(fragments.length)]);
+                }
+                notes.add(note.toString());
+            }
+            String joined = notes.stream().map(TextNormalizer::normalize).collect(Collectors.joining(" "));
+
+            // WHEN: scanning with both matchers
+            RiskTermMatcher.Scan vectorScan = vectorized.newScan(vectorized.termCount());
+            RiskTermMatcher.Scan scalarScan = scalar.newScan(scalar.termCount());
+            notes.forEach(vectorScan::feed);
+            notes.forEach(scalarScan::feed);
+
+            // THEN: both find the same terms
+            assertEquals(scalar.matchedTerms(joined), vectorized.matchedTerms(joined), joined);
+            assertEquals(scalarScan.matchedTerms(), vectorScan.matchedTerms(), notes.toString());
+            assertEquals(scalar.matchedTerms(joined), scalarScan.matchedTerms(), notes.toString());
+        }
+    }
+
+    @Test
+    void testScan_TermStartingWithBlank() {
+        // GIVEN: a term starting with a blank, which cannot be skipped in the root state
+        RiskTermMatcher blankMatcher = RiskTermMatcher.compile(List.of(" a1c"));
+
+        // THEN: the blank is found after a skipped word or between two notes, not when trimmed
+        assertEquals(1L, blankMatcher.newScan(1).feed("hemoglobine a1c").matchedTerms());
+        assertEquals(1L, blankMatcher.newScan(1).feed("hemoglobine  ").feed("a1c").matchedTerms());
+        assertEquals(0L, blankMatcher.newScan(1).feed(" a1c").matchedTerms());
+    }
+
+    @Test
+    void testExplainingScan_RecordsOccurrences() {
+        // GIVEN: notes with accents, a decomposed accent and a plural variant
+        TermMatches matches = new TermMatches();
+        RiskTermMatcher.Scan scan = matcher.newExplainingScan(matches);
+
+        // WHEN: scanning them
+        scan.feed("Le patient est fumeur").feed("Vertiges, cholestérol anormal").feed("Re\u0301action");
+
+        // THEN: each occurrence is located in its raw note, longest variant first
+        assertArrayEquals(new int[]{
+                4, 0, 15, 21,   // fumeur
+                7, 1, 0, 8,     // vertiges
+                6, 1, 10, 21,   // cholesterol
+                5, 1, 22, 29,   // anormal
+                9, 2, 0, 9      // reaction
+        }, matches.toArray());
+        assertEquals(5, matches.count());
+        assertEquals(matcher.newScan(matcher.termCount()).feed("Le patient est fumeur")
+                .feed("Vertiges, cholestérol anormal").feed("Re\u0301action").matchedTerms(), scan.matchedTerms());
+    }
+
+    @Test
+    void testExplainingScan_UnmappableNoteRecordsEachTermOnce() {
+        // GIVEN: a note needing context-dependent normalization (Greek capital sigma), with a plural variant
+        TermMatches matches = new TermMatches();
+        RiskTermMatcher.Scan scan = matcher.newExplainingScan(matches);
+
+        // WHEN: scanning it
+        scan.feed("\u03a3 Vertiges, fumeur");
+
+        // THEN: each term is recorded once, without offsets
+        assertArrayEquals(new int[]{
+                7, 0, -1, -1,   // vertiges, not also vertige
+                4, 0, -1, -1    // fumeur
+        }, matches.toArray());
+    }
+}
+
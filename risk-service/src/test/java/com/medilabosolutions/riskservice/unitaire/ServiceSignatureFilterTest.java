@@ -0,0 +1,92 @@
+package com.medilabosolutions.riskservice.unitaire;
+
+import com.medilabosolutions.riskservice.security.ServiceSignature;
+import com.medilabosolutions.riskservice.security.ServiceSignatureFilter;
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class ServiceSignatureFilterTest {
+
+    private static final String SECRET = "0123456789abcdef0123456789abcdef";
+
+    private final ServiceSignature noteService = new ServiceSignature(SECRET, "note-service", Duration.ofSeconds(30));
+    private final ServiceSignatureFilter filter =
+            new ServiceSignatureFilter(new ServiceSignature(SECRET, "risk-service", Duration.ofSeconds(30)));
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private static MockHttpServletRequest request(String path, String query) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setQueryString(query);
+        return request;
+    }
+
+    private void sign(MockHttpServletRequest request, String target) {
+        noteService.sign(request.getMethod(), target, request::addHeader);
+    }
+
+    @Test
+    void testDoFilter_SignedCallAuthenticated() throws ServletException, IOException {
+        // GIVEN: a call signed by the note service for its path and query
+        MockHttpServletRequest request = request("/api/risk/patient/1", "refresh=true");
+        sign(request, "/api/risk/patient/1?refresh=true");
+        MockFilterChain chain = new MockFilterChain();
+
+        // WHEN
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        // THEN: the call goes on, authenticated as the note service
+        assertNotNull(chain.getRequest());
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertEquals("note-service", authentication.getName());
+        assertEquals("ROLE_SERVICE", authentication.getAuthorities().iterator().next().getAuthority());
+    }
+
+    @Test
+    void testDoFilter_InvalidSignatureRejectedWith401() throws ServletException, IOException {
+        // GIVEN: a call signed for another patient
+        MockHttpServletRequest request = request("/api/risk/patient/2", null);
+        sign(request, "/api/risk/patient/1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        // WHEN
+        filter.doFilter(request, response, chain);
+
+        // THEN: the call is rejected without going on
+        assertEquals(401, response.getStatus());
+        assertNull(chain.getRequest());
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    @Test
+    void testDoFilter_UnsignedCallLeftToBasic() throws ServletException, IOException {
+        // GIVEN: a call without signature
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        // WHEN
+        filter.doFilter(request("/api/risk/patient/1", null), response, chain);
+
+        // THEN: the call goes on, unauthenticated
+        assertEquals(200, response.getStatus());
+        assertNotNull(chain.getRequest());
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+}
@@ -0,0 +1,104 @@
+package com.medilabosolutions.riskservice.unitaire;
+
+import com.medilabosolutions.riskservice.security.ServiceSignature;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ServiceSignatureTest {
+
+    private static final String SECRET = "0123456789abcdef0123456789abcdef";
+    private static final Instant NOW = Instant.parse("2025-01-01T10:00:00Z");
+
+    private static ServiceSignature service(String secret, String name, Instant now) {
+        return new ServiceSignature(secret, name, Duration.ofSeconds(30), Clock.fixed(now, ZoneOffset.UTC));
+    }
+
+    private static final String TARGET = "/api/risk/patient/1?refresh=true";
+
+    private static Map<String, String> signedHeaders(ServiceSignature caller, String method) {
+        Map<String, String> headers = new HashMap<>();
+        caller.sign(method, TARGET, headers::put);
+        return headers;
+    }
+
+    @Test
+    void testVerify_SignedCall() {
+        // GIVEN: a call signed by the patient service
+        ServiceSignature patientService = service(SECRET, "patient-service", NOW);
+        ServiceSignature riskService = service(SECRET, "risk-service", NOW.plusSeconds(5));
+        Map<String, String> headers = signedHeaders(patientService, "POST");
+
+        // WHEN / THEN: the risk service authenticates it as the patient service, once
+        assertEquals(Optional.of("patient-service"), riskService.verify("POST", TARGET, headers::get));
+        assertTrue(riskService.verify("POST", TARGET, headers::get).isEmpty(), "replayed nonce");
+    }
+
+    @Test
+    void testVerify_RejectsForgedOrOutOfDateCalls() {
+        ServiceSignature riskService = service(SECRET, "risk-service", NOW);
+
+        // WHEN / THEN: a signature with another key is rejected
+        Map<String, String> forged = signedHeaders(service("another-secret-another-secret-00", "note-service", NOW), "GET");
+        assertTrue(riskService.verify("GET", TARGET, forged::get).isEmpty());
+
+        // WHEN / THEN: changing the caller, the method, the path or the query breaks the signature
+        Map<String, String> renamed = signedHeaders(service(SECRET, "note-service", NOW), "GET");
+        renamed.put(ServiceSignature.SERVICE_HEADER, "front-service");
+        assertTrue(riskService.verify("GET", TARGET, renamed::get).isEmpty());
+        Map<String, String> otherMethod = signedHeaders(service(SECRET, "note-service", NOW), "GET");
+        assertTrue(riskService.verify("DELETE", TARGET, otherMethod::get).isEmpty());
+        Map<String, String> otherPath = signedHeaders(service(SECRET, "note-service", NOW), "GET");
+        assertTrue(riskService.verify("GET", "/api/risk/patient/2?refresh=true", otherPath::get).isEmpty());
+        Map<String, String> otherQuery = signedHeaders(service(SECRET, "note-service", NOW), "GET");
+        assertTrue(riskService.verify("GET", "/api/risk/patient/1", otherQuery::get).isEmpty());
+
+        // WHEN / THEN: a signature older than the allowed skew is rejected
+        Map<String, String> old = signedHeaders(service(SECRET, "note-service", NOW.minusSeconds(31)), "GET");
+        assertTrue(riskService.verify("GET", TARGET, old::get).isEmpty());
+
+        // WHEN / THEN: unsigned and malformed calls are rejected
+        assertTrue(riskService.verify("GET", TARGET, name -> null).isEmpty());
+        Map<String, String> malformed = signedHeaders(service(SECRET, "note-service", NOW), "GET");
+        malformed.put(ServiceSignature.SIGNATURE_HEADER, "not base64!");
+        assertTrue(riskService.verify("GET", TARGET, malformed::get).isEmpty());
+    }
+
+    @Test
+    void testTarget_PathAndQuery() {
+        // WHEN / THEN
+        assertEquals("/api/notes/patient/1", ServiceSignature.target("/api/notes/patient/1", null));
+        assertEquals("/api/notes/patient/1", ServiceSignature.target("/api/notes/patient/1", ""));
+        assertEquals("/api/patients/page?page=0&size=50", ServiceSignature.target("/api/patients/page", "page=0&size=50"));
+    }
+
+    @Test
+    void testConstructor_RejectsShortSecret() {
+        // WHEN / THEN
+        assertThrows(IllegalArgumentException.class, () -> service("too short", "risk-service", NOW));
+    }
+
+    @Test
+    void testVerify_ReferenceSignature() {
+        // GIVEN: the reference signature, checked by the same test in every service
+        Map<String, String> headers = Map.of(
+                ServiceSignature.SERVICE_HEADER, "front-service",
+                ServiceSignature.TIMESTAMP_HEADER, "1735725600",
+                ServiceSignature.NONCE_HEADER, "bm9uY2Utbm9uY2Utbm9uY2U",
+                ServiceSignature.SIGNATURE_HEADER, "6-Cpor_6wb1U0sU46XRmQYh07HQOYuYEzkSdoalXxsc");
+
+        // THEN: it is accepted, so this copy computes the signature like the others
+        assertEquals(Optional.of("front-service"),
+                service(SECRET, "risk-service", NOW).verify("GET", "/api/patients/1?page=0", headers::get));
+    }
+}
@@ -0,0 +1,70 @@
+package com.medilabosolutions.riskservice.unitaire;
+
+import com.medilabosolutions.riskservice.matcher.TextNormalizer;
+import org.junit.jupiter.api.Test;
+
+import java.text.Normalizer;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TextNormalizerTest {
+
+    // Reference implementation: the historical regex-based normalization
+    private String referenceNormalize(String text) {
+        return Normalizer.normalize(text, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase()
+                .trim();
+    }
+
+    @Test
+    void testAccentsAndCase_Folded() {
+        // GIVEN: a French note with accents, uppercase and surrounding spaces
+        String text = "  Hémoglobine A1C élevée, Cholestérol ANORMAL, Réaction  ";
+
+        // THEN: accents are removed, text is lowercase and trimmed
+        assertEquals("hemoglobine a1c elevee, cholesterol anormal, reaction", TextNormalizer.normalize(text));
+    }
+
+    @Test
+    void testEveryChar_SameResultAsReference() {
+        // GIVEN: every char of the BMP surrounded by text
+        for (char c = 0; c < Character.MAX_VALUE; c++) {
+            if (Character.isSurrogate(c)) {
+                continue;
+            }
+            String text = "É" + c + "à";
+
+            // THEN: the table-driven folding agrees with the reference
+            assertEquals(referenceNormalize(text), TextNormalizer.normalize(text), "char " + (int) c);
+        }
+    }
+
+    @Test
+    void testContextDependentText_SameResultAsReference() {
+        // GIVEN: texts whose lowercase depends on context or with combining marks and surrogates
+        String[] texts = {"ΟΔΟΣ ΣΟΦΟΣ", "été", "́ début ́", "note 𝐀 fin", "ﬁ ǅ Ǆ İ", ""};
+
+        for (String text : texts) {
+            assertEquals(referenceNormalize(text), TextNormalizer.normalize(text), text);
+        }
+    }
+
+    @Test
+    void testRandomLongTexts_SameResultAsReference() {
+        // GIVEN: long random texts mixing ASCII, accented letters and other scripts
+        String alphabet = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ éèêëàâäîïôöùûüçÉÈÀÇŒœæÆ’€\t\n0123456789ßøØĳŁłΣσЖж";
+        Random random = new Random(7);
+
+        for (int run = 0; run < 200; run++) {
+            StringBuilder text = new StringBuilder();
+            int length = random.nextInt(5_000);
+            for (int i = 0; i < length; i++) {
+                text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+
+            assertEquals(referenceNormalize(text.toString()), TextNormalizer.normalize(text.toString()));
+        }
+    }
+}
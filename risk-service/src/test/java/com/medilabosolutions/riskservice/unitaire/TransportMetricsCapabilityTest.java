@@ -0,0 +1,83 @@
+package com.medilabosolutions.riskservice.unitaire;
+
+import com.medilabosolutions.riskservice.config.TransportMetricsCapability;
+import com.sun.net.httpserver.HttpServer;
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import feign.http2client.Http2Client;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TransportMetricsCapabilityTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private HttpServer server;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // GIVEN: an HTTP/1.1-only server
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/api/notes/patient/1", exchange -> {
+            byte[] body = "[]".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    private static Request get(String url) {
+        return Request.create(Request.HttpMethod.GET, url, Map.of(), null, StandardCharsets.UTF_8, null);
+    }
+
+    @Test
+    void testEnrich_RecordsNegotiatedProtocol() throws IOException {
+        // GIVEN: the shared transport, preferring HTTP/2
+        Client client = new TransportMetricsCapability("note-service", meterRegistry)
+                .enrich((Client) new Http2Client(HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).build()));
+        String url = "http://localhost:" + server.getAddress().getPort() + "/api/notes/patient/1";
+
+        // WHEN: calling the server twice
+        for (int i = 0; i < 2; i++) {
+            try (Response response = client.execute(get(url), new Request.Options())) {
+                assertEquals(200, response.status());
+            }
+        }
+
+        // THEN: both calls fell back to HTTP/1.1 and nothing is left in flight
+        assertEquals(2, meterRegistry.get("feign.transport.requests")
+                .tags("client", "note-service", "protocol", "HTTP/1.1").timer().count());
+        assertEquals(0, meterRegistry.get("feign.transport.inflight").tag("client", "note-service").gauge().value());
+    }
+
+    @Test
+    void testEnrich_RecordsFailedCalls() {
+        // GIVEN: a server that is down
+        Client client = new TransportMetricsCapability("note-service", meterRegistry)
+                .enrich((Client) new Http2Client());
+        String url = "http://localhost:" + server.getAddress().getPort() + "/api/notes/patient/1";
+        server.stop(0);
+
+        // WHEN / THEN: the failed call is recorded without protocol
+        assertThrows(IOException.class, () -> client.execute(get(url), new Request.Options()));
+        assertEquals(1, meterRegistry.get("feign.transport.requests")
+                .tags("client", "note-service", "protocol", "none").timer().count());
+    }
+}